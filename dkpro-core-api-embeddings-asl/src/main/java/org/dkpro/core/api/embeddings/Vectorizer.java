@@ -18,6 +18,8 @@
 package org.dkpro.core.api.embeddings;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An interface for vectorizers mapping tokens to embedding vectors.
@@ -40,6 +42,50 @@ public interface Vectorizer
     float[] vectorize(String token)
             throws IOException;
 
+    /**
+     * Copy the vector for a token into the given array. If the token is unknown, the
+     * {@link #unknownVector()} is copied. Implementations backed by a vector store should override
+     * this to avoid allocating an intermediate array.
+     *
+     * @param token
+     *            a token String
+     * @param target
+     *            an array of at least {@link #dimensions()} elements
+     * @return the target array
+     * @throws IOException
+     *             if there was an error accessing the vector file.
+     */
+    default float[] vectorize(String token, float[] target)
+            throws IOException
+    {
+        float[] vector = vectorize(token);
+        System.arraycopy(vector, 0, target, 0, vector.length);
+        return target;
+    }
+
+    /**
+     * Get the vectors for a batch of tokens. Unknown tokens are mapped to {@code null}, so
+     * callers can tell them apart without a separate {@link #contains(String)} lookup and decide
+     * whether to use the {@link #unknownVector()}. Callers should pass each distinct token only
+     * once.
+     *
+     * @param tokens
+     *            a list of tokens
+     * @return a list holding one vector (or {@code null}) per token, in the order of the input
+     *         tokens
+     * @throws IOException
+     *             if there was an error accessing the vector file.
+     */
+    default List<float[]> vectorizeAll(List<String> tokens)
+            throws IOException
+    {
+        List<float[]> vectors = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            vectors.add(contains(token) ? vectorize(token, new float[dimensions()]) : null);
+        }
+        return vectors;
+    }
+
     /**
      * True if the token is known by the vectorizer.
      *
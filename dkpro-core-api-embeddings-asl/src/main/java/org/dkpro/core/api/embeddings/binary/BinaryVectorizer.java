@@ -21,14 +21,26 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 
 /**
  * A {@link Vectorizer} for a binary file. Initialize with {@link #load(File)}.
+ * <p>
+ * Two versions of the binary format are supported. In version 1, the vocabulary is stored as a
+ * sorted list of strings which needs to be read onto the heap completely before the first lookup.
+ * In version 2, the file additionally contains a precomputed open-addressing hash index over the
+ * vocabulary. The index, the vocabulary and the vectors are memory-mapped, so loading takes
+ * constant time and lookups do not allocate. Use
+ * {@link BinaryWordVectorUtils#upgrade(File, File)} to convert a version 1 file.
  *
  * @see BinaryWordVectorUtils
  */
@@ -36,19 +48,39 @@ public class BinaryVectorizer
         implements Vectorizer
 {
     private static final Logger LOG = LoggerFactory.getLogger(BinaryVectorizer.class);
-    private final String[] words;
     private final Header header;
     private final FloatBuffer[] parts;
     private final int maxVectorsPerPartition;
     private Locale locale;
     private float[] unknownVector;
 
+    // Version 1 vocabulary
+    private final String[] words;
+
+    // Version 2 vocabulary
+    private final IntBuffer slots;
+    private final IntBuffer wordOffsets;
+    private final CharBuffer chars;
+    private final int slotMask;
+
     private BinaryVectorizer(Header aHeader, RandomAccessFile file, String[] aWords,
             long vectorStartOffset, float[] aUnk)
             throws IOException
+    {
+        this(aHeader, file, aWords, null, null, null, vectorStartOffset, aUnk);
+    }
+
+    private BinaryVectorizer(Header aHeader, RandomAccessFile file, String[] aWords,
+            IntBuffer aSlots, IntBuffer aWordOffsets, CharBuffer aChars, long vectorStartOffset,
+            float[] aUnk)
+            throws IOException
     {
         header = aHeader;
         words = aWords;
+        slots = aSlots;
+        wordOffsets = aWordOffsets;
+        chars = aChars;
+        slotMask = aSlots != null ? aSlots.capacity() - 1 : 0;
 
         unknownVector = aUnk;
 
@@ -56,10 +88,11 @@ public class BinaryVectorizer
 
         // Integers can address up to 2 GB (Integer.MAX_VALUE) - to handle large embeddings
         // files, we partition the file into parts of up to 2 GB each.
+        int wordCount = header.getWordCount();
         maxVectorsPerPartition = Integer.MAX_VALUE / (header.getVectorLength() * Float.BYTES);
         int maxPartitionSizeBytes = maxVectorsPerPartition * header.getVectorLength() * Float.BYTES;
-        int neededPartitions = aWords.length / maxVectorsPerPartition;
-        if (aWords.length % maxPartitionSizeBytes > 0) {
+        int neededPartitions = wordCount / maxVectorsPerPartition;
+        if (wordCount % maxVectorsPerPartition > 0) {
             neededPartitions += 1;
         }
 
@@ -68,8 +101,8 @@ public class BinaryVectorizer
         for (int i = 0; i < neededPartitions; i++) {
             long start = vectorStartOffset + ((long) i * maxPartitionSizeBytes);
             long length = maxPartitionSizeBytes;
-            if (i == neededPartitions - 1) {
-                length = (aWords.length % maxVectorsPerPartition) * header.getVectorLength()
+            if (i == neededPartitions - 1 && wordCount % maxVectorsPerPartition > 0) {
+                length = (wordCount % maxVectorsPerPartition) * header.getVectorLength()
                         * Float.BYTES;
             }
             parts[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length).asFloatBuffer();
@@ -86,11 +119,15 @@ public class BinaryVectorizer
     public static BinaryVectorizer load(File f)
             throws IOException
     {
-        RandomAccessFile file = new RandomAccessFile(f, "rw");
+        RandomAccessFile file = new RandomAccessFile(f, "r");
 
         // Load header
         Header header = Header.read(file);
 
+        if (header.getVersion() >= 2) {
+            return loadIndexed(file, header);
+        }
+
         // Load words
         String[] words = new String[header.getWordCount()];
         for (int i = 0; i < header.getWordCount(); i++) {
@@ -99,57 +136,225 @@ public class BinaryVectorizer
         LOG.info("Loaded " + words.length + " word embeddings.");
 
         // Load UNK vector
-        byte[] buffer = new byte[header.getVectorLength() * Float.BYTES];
-        file.readFully(buffer);
-        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
-        float[] unk = new float[header.getVectorLength()];
-        for (int i = 0; i < unk.length; i++) {
-            unk[i] = byteBuffer.getFloat(i * Float.BYTES);
-        }
+        float[] unk = readVector(file, header.getVectorLength());
 
         // Rest of the file is mmapped
         long offset = file.getFilePointer();
         return new BinaryVectorizer(header, file, words, offset, unk);
     }
 
-    @Override public float[] vectorize(String aWord)
+    private static BinaryVectorizer loadIndexed(RandomAccessFile file, Header header)
             throws IOException
     {
-        String word = aWord;
-        if (header.isCaseless()) {
-            word = word.toLowerCase(locale);
+        long offset = Header.align(file.getFilePointer());
+        file.seek(offset);
+
+        // Load UNK vector
+        float[] unk = readVector(file, header.getVectorLength());
+        offset = file.getFilePointer();
+
+        // Map the vocabulary index
+        FileChannel channel = file.getChannel();
+        IntBuffer slots = map(channel, offset, (long) header.getSlotCount() * Integer.BYTES)
+                .asIntBuffer();
+        offset += (long) header.getSlotCount() * Integer.BYTES;
+        IntBuffer wordOffsets = map(channel, offset,
+                ((long) header.getWordCount() + 1) * Integer.BYTES).asIntBuffer();
+        offset += ((long) header.getWordCount() + 1) * Integer.BYTES;
+        CharBuffer chars = map(channel, offset, (long) header.getCharCount() * Character.BYTES)
+                .asCharBuffer();
+        offset += (long) header.getCharCount() * Character.BYTES;
+
+        LOG.info("Mapped " + header.getWordCount() + " word embeddings.");
+
+        return new BinaryVectorizer(header, file, null, slots, wordOffsets, chars, offset, unk);
+    }
+
+    private static MappedByteBuffer map(FileChannel aChannel, long aOffset, long aLength)
+            throws IOException
+    {
+        if (aLength > Integer.MAX_VALUE) {
+            throw new IOException("Vocabulary section too large to be mapped: " + aLength);
+        }
+        return aChannel.map(FileChannel.MapMode.READ_ONLY, aOffset, aLength);
+    }
+
+    private static float[] readVector(DataInput aInput, int aLength)
+            throws IOException
+    {
+        byte[] buffer = new byte[aLength * Float.BYTES];
+        aInput.readFully(buffer);
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        float[] vector = new float[aLength];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = byteBuffer.getFloat(i * Float.BYTES);
         }
+        return vector;
+    }
 
-        int vectorIdx = Arrays.binarySearch(words, word);
+    @Override public float[] vectorize(String aWord)
+            throws IOException
+    {
+        int vectorIdx = indexOf(aWord);
 
         // Word not found
         if (vectorIdx < 0) {
             return unknownVector;
         }
 
-        // Locate the buffer from which to read the vevtor
-        int partitionIdx = vectorIdx / maxVectorsPerPartition;
-        FloatBuffer part = this.parts[partitionIdx];
+        return vectorize(vectorIdx, new float[header.getVectorLength()]);
+    }
 
-        // Locate the position within the buffer from which to read the vector
-        int relativeVectorIdx = vectorIdx % maxVectorsPerPartition;
-        int offset = relativeVectorIdx * header.getVectorLength();
+    /**
+     * Copy the vector for the given word into the given array. This method does not allocate
+     * memory and is thread-safe.
+     *
+     * @param aWord a token String
+     * @param aTarget an array of at least {@link #dimensions()} elements
+     * @return the target array
+     */
+    @Override public float[] vectorize(String aWord, float[] aTarget)
+    {
+        int vectorIdx = indexOf(aWord);
+
+        // Word not found
+        if (vectorIdx < 0) {
+            System.arraycopy(unknownVector, 0, aTarget, 0, unknownVector.length);
+            return aTarget;
+        }
+
+        return vectorize(vectorIdx, aTarget);
+    }
+
+    /**
+     * Get the vectors for a batch of words, looking up each word only once. Unknown words are
+     * mapped to {@code null}.
+     */
+    @Override public List<float[]> vectorizeAll(List<String> aWords)
+    {
+        List<float[]> vectors = new ArrayList<>(aWords.size());
+        for (String word : aWords) {
+            int vectorIdx = indexOf(word);
+            vectors.add(vectorIdx < 0 ? null
+                    : vectorize(vectorIdx, new float[header.getVectorLength()]));
+        }
+        return vectors;
+    }
+
+    /**
+     * Get a read-only view on the memory-mapped vector for the given word. The view is backed by
+     * the embeddings file, i.e. the vector is not copied.
+     *
+     * @param aWord a token String
+     * @return a buffer of {@link #dimensions()} elements or {@code null} if the word is unknown.
+     */
+    public FloatBuffer vectorView(String aWord)
+    {
+        int vectorIdx = indexOf(aWord);
+
+        // Word not found
+        if (vectorIdx < 0) {
+            return null;
+        }
+
+        FloatBuffer part = parts[vectorIdx / maxVectorsPerPartition].duplicate();
+        int offset = (vectorIdx % maxVectorsPerPartition) * header.getVectorLength();
+        part.limit(offset + header.getVectorLength());
         part.position(offset);
+        return part.slice().asReadOnlyBuffer();
+    }
 
-        // Read the vector
-        float[] vector = new float[header.getVectorLength()];
-        part.get(vector);
-        return vector;
+    private float[] vectorize(int aVectorIdx, float[] aTarget)
+    {
+        // Locate the buffer from which to read the vector
+        int partitionIdx = aVectorIdx / maxVectorsPerPartition;
+        FloatBuffer part = this.parts[partitionIdx];
+
+        // Locate the position within the buffer from which to read the vector. We use absolute
+        // reads so that concurrent lookups do not interfere with each other.
+        int relativeVectorIdx = aVectorIdx % maxVectorsPerPartition;
+        int offset = relativeVectorIdx * header.getVectorLength();
+        for (int i = 0; i < header.getVectorLength(); i++) {
+            aTarget[i] = part.get(offset + i);
+        }
+        return aTarget;
     }
 
     @Override public boolean contains(String aWord)
+    {
+        return indexOf(aWord) >= 0;
+    }
+
+    /**
+     * @param aWord a token String
+     * @return the index of the word's vector or a negative value if the word is unknown.
+     */
+    private int indexOf(String aWord)
     {
         String word = aWord;
         if (header.isCaseless()) {
             word = word.toLowerCase(locale);
         }
 
-        return Arrays.binarySearch(words, word) >= 0;
+        if (words != null) {
+            return Arrays.binarySearch(words, word);
+        }
+
+        // Linear probing in the memory-mapped hash index
+        int slot = Header.hash(word) & slotMask;
+        while (true) {
+            int idx = slots.get(slot);
+            if (idx < 0) {
+                return -1;
+            }
+            if (wordEquals(idx, word)) {
+                return idx;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private boolean wordEquals(int aIdx, String aWord)
+    {
+        int begin = wordOffsets.get(aIdx);
+        int end = wordOffsets.get(aIdx + 1);
+        if (end - begin != aWord.length()) {
+            return false;
+        }
+        for (int i = 0; i < aWord.length(); i++) {
+            if (chars.get(begin + i) != aWord.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the words in the order of their vectors. For version 2 files, this creates the
+     *         strings from the memory-mapped vocabulary.
+     */
+    String[] getWords()
+    {
+        if (words != null) {
+            return words;
+        }
+
+        String[] result = new String[header.getWordCount()];
+        for (int i = 0; i < result.length; i++) {
+            int begin = wordOffsets.get(i);
+            int end = wordOffsets.get(i + 1);
+            char[] buf = new char[end - begin];
+            for (int c = 0; c < buf.length; c++) {
+                buf[c] = chars.get(begin + c);
+            }
+            result[i] = new String(buf);
+        }
+        return result;
+    }
+
+    Header getHeader()
+    {
+        return header;
     }
 
     @Override public float[] unknownVector()
@@ -175,11 +380,38 @@ public class BinaryVectorizer
     static class Header
     {
         private static final String MAGIC = "dl4jw2v";
-        private int version = 1;
+
+        /**
+         * Version 2 adds the memory-mapped vocabulary index.
+         */
+        static final int CURRENT_VERSION = 2;
+
+        private int version = CURRENT_VERSION;
         private int wordCount;
         private int vectorLength;
         private boolean caseless;
         private String locale;
+        private int slotCount;
+        private int charCount;
+
+        /**
+         * Hash function used for the vocabulary index. This is the {@link String#hashCode()}
+         * (which is cached by the string and specified to be stable) with additional mixing of
+         * the high bits because the index uses the low bits to select a slot.
+         */
+        static int hash(String aWord)
+        {
+            int h = aWord.hashCode();
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Sections following the header are aligned to 8 bytes.
+         */
+        static long align(long aOffset)
+        {
+            return (aOffset + 7) & ~7L;
+        }
 
         public static Header read(DataInput aInput)
                 throws IOException
@@ -195,7 +427,7 @@ public class BinaryVectorizer
             Header header = new Header();
 
             header.version = aInput.readByte();
-            if (1 != header.version) {
+            if (header.version < 1 || header.version > CURRENT_VERSION) {
                 throw new IOException("Not supported file format version.");
             }
 
@@ -206,6 +438,11 @@ public class BinaryVectorizer
 
             header.locale = aInput.readUTF();
 
+            if (header.version >= 2) {
+                header.slotCount = aInput.readInt();
+                header.charCount = aInput.readInt();
+            }
+
             return header;
         }
 
@@ -249,6 +486,26 @@ public class BinaryVectorizer
             this.locale = locale;
         }
 
+        public int getSlotCount()
+        {
+            return slotCount;
+        }
+
+        public void setSlotCount(int slotCount)
+        {
+            this.slotCount = slotCount;
+        }
+
+        public int getCharCount()
+        {
+            return charCount;
+        }
+
+        public void setCharCount(int charCount)
+        {
+            this.charCount = charCount;
+        }
+
         public int getVectorLength()
         {
             return vectorLength;
@@ -275,6 +532,11 @@ public class BinaryVectorizer
 
             out.writeUTF(locale);
 
+            if (version >= 2) {
+                out.writeInt(slotCount);
+                out.writeInt(charCount);
+            }
+
             out.flush();
         }
     }
@@ -22,8 +22,10 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Function;
 
 import static org.dkpro.core.api.embeddings.binary.BinaryVectorizer.Header;
 
@@ -79,33 +81,134 @@ public class BinaryWordVectorUtils
         int vectorLength = vectors.values().iterator().next().length;
         assert vectors.values().stream().allMatch(v -> v.length == vectorLength);
 
-        Header header = prepareHeader(aCaseless, aLocale, vectors.size(), vectorLength);
-        DataOutputStream output = new DataOutputStream(
-                new BufferedOutputStream(new FileOutputStream(binaryTarget)));
-        header.write(output);
-
         LOG.info("Sorting data...");
         String[] words = vectors.keySet().stream()
                 .sorted()
                 .toArray(String[]::new);
 
-        LOG.info("Writing strings...");
-        for (String word : words) {
-            output.writeUTF(word);
+        Header header = prepareHeader(aCaseless, aLocale, vectors.size(), vectorLength);
+        float[] unk = VectorizerUtils.randomVector(header.getVectorLength());
+        writeBinary(header, words, unk, vectors::get, binaryTarget);
+    }
+
+    /**
+     * Write token embeddings into binary format. Unlike
+     * {@link #convertWordVectorsToBinary(Map, boolean, Locale, File)}, this does not require all
+     * vectors to be held in a map.
+     *
+     * @param words        the tokens
+     * @param vectors      provides the vector for each token
+     * @param vectorLength the dimensionality of the vectors
+     * @param aCaseless    if true, tokens are expected to be caseless
+     * @param aLocale      the {@link Locale}
+     * @param binaryTarget the target file {@link File}
+     * @throws IOException if an I/O error occurs
+     */
+    public static void convertWordVectorsToBinary(String[] words,
+            Function<String, float[]> vectors, int vectorLength, boolean aCaseless,
+            Locale aLocale, File binaryTarget)
+            throws IOException
+    {
+        if (words.length == 0) {
+            throw new IllegalArgumentException("Word embeddings must not be empty.");
         }
 
-        LOG.info("Writing UNK vector...");
-        {
-            float[] vector = VectorizerUtils.randomVector(header.getVectorLength());
-            writeVector(output, vector);
+        Header header = prepareHeader(aCaseless, aLocale, words.length, vectorLength);
+        float[] unk = VectorizerUtils.randomVector(header.getVectorLength());
+        writeBinary(header, words, unk, vectors, binaryTarget);
+    }
+
+    /**
+     * Convert a binary file in an older format version into the current format version. In
+     * particular, this adds the memory-mapped vocabulary index to version 1 files. The vectors
+     * including the vector for unknown words are retained.
+     *
+     * @param aSource      the file to convert
+     * @param binaryTarget the target file {@link File}
+     * @throws IOException if an I/O error occurs
+     */
+    public static void upgrade(File aSource, File binaryTarget)
+            throws IOException
+    {
+        BinaryVectorizer source = BinaryVectorizer.load(aSource);
+        Header sourceHeader = source.getHeader();
+        if (sourceHeader.getVersion() == Header.CURRENT_VERSION) {
+            LOG.info("File is already in the current format version.");
+        }
+
+        Header header = prepareHeader(sourceHeader.isCaseless(), DEFAULT_LOCALE,
+                sourceHeader.getWordCount(), sourceHeader.getVectorLength());
+        header.setLocale(sourceHeader.getLocale());
+
+        String[] words = source.getWords();
+        writeBinary(header, words, source.unknownVector(), word -> {
+            try {
+                return source.vectorize(word);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, binaryTarget);
+    }
+
+    private static void writeBinary(Header header, String[] words, float[] unk,
+            Function<String, float[]> vectors, File binaryTarget)
+            throws IOException
+    {
+        // Build the vocabulary index: open addressing with linear probing, load factor <= 0.5
+        int slotCount = Integer.highestOneBit(Math.max(1, words.length) * 2 - 1) << 1;
+        int[] slots = new int[slotCount];
+        Arrays.fill(slots, -1);
+        long charCount = 0;
+        for (int i = 0; i < words.length; i++) {
+            int slot = Header.hash(words[i]) & (slotCount - 1);
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = i;
+            charCount += words[i].length();
         }
+        if (charCount * Character.BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Vocabulary too large: " + charCount + " characters");
+        }
+        header.setSlotCount(slotCount);
+        header.setCharCount((int) charCount);
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(binaryTarget)))) {
+            header.write(output);
+            while (output.size() < Header.align(output.size())) {
+                output.writeByte(0);
+            }
 
-        LOG.info("Writing vectors...");
-        for (String word : words) {
-            float[] vector = vectors.get(word);
-            writeVector(output, vector);
+            LOG.info("Writing UNK vector...");
+            writeVector(output, unk);
+
+            LOG.info("Writing vocabulary index...");
+            for (int slot : slots) {
+                output.writeInt(slot);
+            }
+            int offset = 0;
+            for (String word : words) {
+                output.writeInt(offset);
+                offset += word.length();
+            }
+            output.writeInt(offset);
+
+            LOG.info("Writing strings...");
+            for (String word : words) {
+                output.writeChars(word);
+            }
+
+            LOG.info("Writing vectors...");
+            for (String word : words) {
+                float[] vector = vectors.apply(word);
+                writeVector(output, vector);
+            }
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        output.close();
     }
 
     private static void writeVector(DataOutputStream output, float[] vector)
@@ -121,7 +224,7 @@ public class BinaryWordVectorUtils
             Locale aLocale, int wordCount, int vectorLength)
     {
         Header header = new Header();
-        header.setVersion(1);
+        header.setVersion(Header.CURRENT_VERSION);
         header.setWordCount(wordCount);
         header.setVectorLength(vectorLength);
         header.setCaseless(aCaseless);
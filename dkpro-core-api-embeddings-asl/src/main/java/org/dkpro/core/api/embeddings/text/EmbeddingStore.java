@@ -0,0 +1,398 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dkpro.core.api.embeddings.text;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compact in-memory store for word embeddings read from a text-format file.
+ * <p>
+ * All vectors are kept in a single contiguous {@code float[]} and the words are indexed by an
+ * open-addressing hash table with linear probing, so there is no per-entry object overhead apart
+ * from the word strings themselves. The file is read sequentially, but the lines are parsed in
+ * chunks on several threads.
+ */
+final class EmbeddingStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddingStore.class);
+
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int dimensions;
+    private String[] words;
+    private float[] vectors;
+    private int[] slots;
+    private int size;
+    private boolean caseless = true;
+
+    private EmbeddingStore(int aDimensions, int aExpectedSize)
+            throws IOException
+    {
+        dimensions = aDimensions;
+        int capacity = Math.max(16, aExpectedSize);
+        words = new String[capacity];
+        vectors = new float[checkedLength((long) capacity * dimensions)];
+        slots = newSlots(capacity);
+    }
+
+    /**
+     * Read embeddings in text format. Each line is expected to have a whitespace-separated list
+     * {@code <token> <value1> <value2> ...}. If a token occurs more than once, the first occurrence
+     * is used.
+     *
+     * @param aInputStream
+     *            the input stream; it is closed when this method returns.
+     * @param aHasHeader
+     *            if true, read size and dimensionality from the first line.
+     * @param aThreads
+     *            the number of threads used to parse the lines.
+     * @return the store.
+     * @throws IOException
+     *             if the data cannot be read or is malformed.
+     */
+    static EmbeddingStore read(InputStream aInputStream, boolean aHasHeader, int aThreads)
+            throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, aThreads));
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(aInputStream, StandardCharsets.UTF_8))) {
+            int expectedSize = -1;
+            int expectedDimensions = -1;
+            if (aHasHeader) {
+                String line = reader.readLine();
+                String[] header = line != null ? line.trim().split(" +") : new String[0];
+                if (header.length != 2) {
+                    throw new IOException("Invalid header line: [" + line + "]");
+                }
+                expectedSize = Integer.parseInt(header[0]);
+                expectedDimensions = Integer.parseInt(header[1]);
+            }
+
+            EmbeddingStore store = null;
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == CHUNK_SIZE) {
+                    List<String> chunkLines = lines;
+                    pending.add(executor.submit(() -> Chunk.parse(chunkLines)));
+                    lines = new ArrayList<>(CHUNK_SIZE);
+
+                    // Limit the number of chunks held in memory
+                    while (pending.size() > 2 * aThreads) {
+                        store = add(store, await(pending.poll()), expectedSize,
+                                expectedDimensions);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                List<String> chunkLines = lines;
+                pending.add(executor.submit(() -> Chunk.parse(chunkLines)));
+            }
+            while (!pending.isEmpty()) {
+                store = add(store, await(pending.poll()), expectedSize, expectedDimensions);
+            }
+
+            if (store == null || store.size == 0) {
+                throw new IOException("No embeddings found");
+            }
+            if (aHasHeader && store.size != expectedSize) {
+                LOG.warn("Header announces " + expectedSize + " embeddings, but " + store.size
+                        + " were found.");
+            }
+            return store;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static EmbeddingStore add(EmbeddingStore aStore, Chunk aChunk, int aExpectedSize,
+            int aExpectedDimensions)
+            throws IOException
+    {
+        EmbeddingStore store = aStore;
+        if (store == null) {
+            if (aExpectedDimensions >= 0 && aExpectedDimensions != aChunk.dimensions) {
+                throw new IOException("Header announces " + aExpectedDimensions
+                        + " dimensions, but vectors have " + aChunk.dimensions + " dimensions.");
+            }
+            store = new EmbeddingStore(aChunk.dimensions, aExpectedSize);
+        }
+        else if (store.dimensions != aChunk.dimensions) {
+            throw new IOException("Inconsistent vector dimensions: expected " + store.dimensions
+                    + " but found " + aChunk.dimensions + " (at token [" + aChunk.words[0] + "])");
+        }
+
+        store.caseless &= aChunk.caseless;
+        for (int i = 0; i < aChunk.words.length; i++) {
+            store.put(aChunk.words[i], aChunk.vectors, i * aChunk.dimensions);
+        }
+        return store;
+    }
+
+    private static Chunk await(Future<Chunk> aFuture)
+            throws IOException
+    {
+        try {
+            return aFuture.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void put(String aWord, float[] aSource, int aOffset)
+            throws IOException
+    {
+        int slot = findSlot(aWord);
+        if (slots[slot] >= 0) {
+            LOG.warn("Ignoring duplicate embedding for token [" + aWord + "]");
+            return;
+        }
+
+        if (size == words.length) {
+            grow();
+            slot = findSlot(aWord);
+        }
+
+        words[size] = aWord;
+        System.arraycopy(aSource, aOffset, vectors, size * dimensions, dimensions);
+        slots[slot] = size;
+        size++;
+    }
+
+    private void grow()
+            throws IOException
+    {
+        int capacity = (int) Math.min(MAX_ARRAY_SIZE, words.length + (words.length >> 1));
+        if (capacity <= words.length) {
+            throw new IOException("Too many embeddings");
+        }
+        words = Arrays.copyOf(words, capacity);
+        vectors = Arrays.copyOf(vectors, checkedLength((long) capacity * dimensions));
+
+        slots = newSlots(capacity);
+        for (int i = 0; i < size; i++) {
+            slots[findSlot(words[i])] = i;
+        }
+    }
+
+    private int findSlot(String aWord)
+    {
+        int mask = slots.length - 1;
+        int slot = hash(aWord) & mask;
+        while (slots[slot] >= 0 && !words[slots[slot]].equals(aWord)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int[] newSlots(int aCapacity)
+    {
+        // Keep the load factor at or below 0.5
+        int[] slots = new int[Integer.highestOneBit(aCapacity * 2 - 1) << 1];
+        Arrays.fill(slots, -1);
+        return slots;
+    }
+
+    private static int hash(String aWord)
+    {
+        int h = aWord.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int checkedLength(long aLength)
+            throws IOException
+    {
+        if (aLength > MAX_ARRAY_SIZE) {
+            throw new IOException("Embeddings do not fit into memory - convert them to the binary "
+                    + "format and use the BinaryVectorizer instead.");
+        }
+        return (int) aLength;
+    }
+
+    /**
+     * @param aWord
+     *            a word.
+     * @return the index of the word or {@code -1} if the word is unknown.
+     */
+    int indexOf(String aWord)
+    {
+        return slots[findSlot(aWord)];
+    }
+
+    /**
+     * Copy the vector at the given index into the target array.
+     *
+     * @param aIndex
+     *            the index of the word.
+     * @param aTarget
+     *            an array of at least {@link #dimensions()} elements.
+     * @return the target array.
+     */
+    float[] get(int aIndex, float[] aTarget)
+    {
+        System.arraycopy(vectors, aIndex * dimensions, aTarget, 0, dimensions);
+        return aTarget;
+    }
+
+    float[] get(String aWord)
+    {
+        int index = indexOf(aWord);
+        return index >= 0 ? get(index, new float[dimensions]) : null;
+    }
+
+    String[] getWords()
+    {
+        return Arrays.copyOf(words, size);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    int dimensions()
+    {
+        return dimensions;
+    }
+
+    /**
+     * @return whether none of the words contains uppercase characters.
+     */
+    boolean isCaseless()
+    {
+        return caseless;
+    }
+
+    /**
+     * A block of parsed lines.
+     */
+    private static final class Chunk
+    {
+        private final String[] words;
+        private final float[] vectors;
+        private final int dimensions;
+        private final boolean caseless;
+
+        private Chunk(String[] aWords, float[] aVectors, int aDimensions, boolean aCaseless)
+        {
+            words = aWords;
+            vectors = aVectors;
+            dimensions = aDimensions;
+            caseless = aCaseless;
+        }
+
+        static Chunk parse(List<String> aLines)
+                throws IOException
+        {
+            String[] words = new String[aLines.size()];
+            float[] vectors = null;
+            int dimensions = -1;
+            boolean caseless = true;
+
+            for (int i = 0; i < words.length; i++) {
+                String line = aLines.get(i);
+                int end = line.indexOf(' ');
+                if (end <= 0) {
+                    throw new IOException("Invalid embeddings line: [" + line + "]");
+                }
+                words[i] = line.substring(0, end);
+                caseless &= words[i].equals(words[i].toLowerCase());
+
+                if (vectors == null) {
+                    dimensions = countFields(line, end);
+                    vectors = new float[words.length * dimensions];
+                }
+
+                int offset = i * dimensions;
+                int n = 0;
+                int pos = end;
+                while (pos < line.length()) {
+                    if (line.charAt(pos) == ' ') {
+                        pos++;
+                        continue;
+                    }
+                    int next = line.indexOf(' ', pos);
+                    if (next < 0) {
+                        next = line.length();
+                    }
+                    if (n == dimensions) {
+                        n++;
+                        break;
+                    }
+                    try {
+                        vectors[offset + n] = Float.parseFloat(line.substring(pos, next));
+                    }
+                    catch (NumberFormatException e) {
+                        throw new IOException("Invalid value in embeddings line for token ["
+                                + words[i] + "]", e);
+                    }
+                    n++;
+                    pos = next;
+                }
+                if (n != dimensions) {
+                    throw new IOException("Inconsistent vector dimensions: expected " + dimensions
+                            + " for token [" + words[i] + "]");
+                }
+            }
+
+            return new Chunk(words, vectors, dimensions, caseless);
+        }
+
+        private static int countFields(String aLine, int aStart)
+        {
+            int count = 0;
+            boolean inField = false;
+            for (int i = aStart; i < aLine.length(); i++) {
+                boolean space = aLine.charAt(i) == ' ';
+                if (!space && !inField) {
+                    count++;
+                }
+                inField = !space;
+            }
+            return count;
+        }
+    }
+}
@@ -19,32 +19,35 @@ package org.dkpro.core.api.embeddings.text;
 
 import org.dkpro.core.api.embeddings.Vectorizer;
 import org.dkpro.core.api.embeddings.VectorizerUtils;
+import org.dkpro.core.api.embeddings.binary.BinaryVectorizer;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * A {@link Vectorizer} backed by a {@code Map<String, float[]}.
+ * A {@link Vectorizer} for embeddings read from a text-format file. The vectors are held in a
+ * compact in-memory store backed by a single {@code float[]}.
  * <p>
- * Use {@link #load(File)} to initialize.
+ * Use {@link #load(File)} to initialize. Large files should be converted once into the binary
+ * format using {@link #load(File, boolean, File)} so that later loads are fast.
  */
 public class TextFormatVectorizer
         implements Vectorizer
 {
-    private Map<String, float[]> embeddings;
+    private EmbeddingStore embeddings;
     private float[] unknownVector;
     private int dimensions;
     private boolean caseless;
 
-    private TextFormatVectorizer(Map<String, float[]> embeddings)
+    private TextFormatVectorizer(EmbeddingStore embeddings)
     {
-        assert !embeddings.isEmpty();
+        assert embeddings.size() > 0;
         this.embeddings = embeddings;
-        dimensions = embeddings.values().iterator().next().length;
+        dimensions = embeddings.dimensions();
         unknownVector = VectorizerUtils.randomVector(dimensions);
-        caseless = embeddings.keySet().stream()
-                .allMatch(token -> token.equals(token.toLowerCase()));
+        caseless = embeddings.isCaseless();
     }
 
     /**
@@ -73,22 +76,66 @@ public class TextFormatVectorizer
             throws IOException
     {
         return new TextFormatVectorizer(
-                TextFormatVectorizerUtils.readEmbeddingFileTxt(embeddingsFile, hasHeaderLine));
+                TextFormatVectorizerUtils.readEmbeddingStore(embeddingsFile, hasHeaderLine));
+    }
+
+    /**
+     * Load a text-format embeddings file, using a binary copy of the file if possible.
+     * <p>
+     * If the binary file exists and is not older than the text file, it is loaded using the
+     * {@link BinaryVectorizer}. Otherwise, the text file is loaded and additionally converted into
+     * the binary file, so subsequent calls can use the memory-mapped binary format.
+     *
+     * @param embeddingsFile the {@link File} containing the embeddings in text format
+     * @param hasHeaderLine  if true, the first line in the file is expected to be a header line
+     * @param binaryFile     the {@link File} holding the binary copy of the embeddings
+     * @return a {@link Vectorizer}
+     * @throws IOException if an I/O error occurs
+     */
+    public static Vectorizer load(File embeddingsFile, boolean hasHeaderLine, File binaryFile)
+            throws IOException
+    {
+        if (binaryFile.isFile() && binaryFile.lastModified() >= embeddingsFile.lastModified()) {
+            return BinaryVectorizer.load(binaryFile);
+        }
+
+        EmbeddingStore store = TextFormatVectorizerUtils.readEmbeddingStore(embeddingsFile,
+                hasHeaderLine);
+        TextFormatVectorizerUtils.writeBinary(store, store.isCaseless(), binaryFile);
+        return new TextFormatVectorizer(store);
     }
 
     @Override public float[] vectorize(String token)
+    {
+        return vectorize(token, new float[dimensions]);
+    }
+
+    @Override public float[] vectorize(String token, float[] target)
     {
         if (caseless) {
             token = token.toLowerCase();
         }
-        float[] vector = contains(token) ? embeddings.get(token) : unknownVector();
-        assert vector.length == dimensions();
-        return vector;
+        int index = embeddings.indexOf(token);
+        if (index < 0) {
+            System.arraycopy(unknownVector, 0, target, 0, dimensions);
+            return target;
+        }
+        return embeddings.get(index, target);
+    }
+
+    @Override public List<float[]> vectorizeAll(List<String> tokens)
+    {
+        List<float[]> vectors = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            int index = embeddings.indexOf(caseless ? token.toLowerCase() : token);
+            vectors.add(index < 0 ? null : embeddings.get(index, new float[dimensions]));
+        }
+        return vectors;
     }
 
     @Override public boolean contains(String token)
     {
-        return embeddings.containsKey(token);
+        return embeddings.indexOf(token) >= 0;
     }
 
     @Override public float[] unknownVector()
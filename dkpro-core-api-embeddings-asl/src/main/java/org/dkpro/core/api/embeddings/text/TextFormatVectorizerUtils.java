@@ -24,6 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.Map;
@@ -58,6 +60,54 @@ public class TextFormatVectorizerUtils
         return readEmbeddingFileTxt(is, hasHeader);
     }
 
+    /**
+     * Read an embeddings file in text format into a compact {@link EmbeddingStore}. The lines are
+     * parsed in parallel using one thread per available processor.
+     *
+     * @param file      the input file
+     * @param hasHeader if true, read size and dimensionality from the first line
+     * @return the embeddings.
+     * @throws IOException if the input file cannot be read
+     */
+    static EmbeddingStore readEmbeddingStore(File file, boolean hasHeader)
+            throws IOException
+    {
+        LOG.info("Reading embeddings from file " + file);
+        InputStream is = CompressionUtils
+                .getInputStream(file.getAbsolutePath(), new FileInputStream(file));
+
+        long start = System.currentTimeMillis();
+        EmbeddingStore store = EmbeddingStore.read(is, hasHeader,
+                Runtime.getRuntime().availableProcessors());
+        LOG.info("Read " + store.size() + " embeddings in "
+                + (System.currentTimeMillis() - start) + "ms");
+        return store;
+    }
+
+    /**
+     * Write the embeddings into the binary format. The file is first written to a temporary file
+     * which then replaces the target file, so concurrent readers never see a partial file.
+     *
+     * @param store      the embeddings
+     * @param aCaseless  if true, all input tokens are expected to be caseless
+     * @param targetFile the output {@link File}
+     * @throws IOException if an I/O error occurs.
+     */
+    static void writeBinary(EmbeddingStore store, boolean aCaseless, File targetFile)
+            throws IOException
+    {
+        File tempFile = new File(targetFile.getPath() + ".tmp");
+        try {
+            BinaryWordVectorUtils.convertWordVectorsToBinary(store.getWords(), store::get,
+                    store.dimensions(), aCaseless, Locale.US, tempFile);
+            Files.move(tempFile.toPath(), targetFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
     /**
      * Read embeddings in text format from an InputStream.
      * Each line is expected to have a whitespace-separated list {@code <token> <value1> <value2> ...}.
@@ -169,8 +219,25 @@ public class TextFormatVectorizerUtils
             Locale aLocale, File targetFile)
             throws IOException
     {
-        Map<String, float[]> embeddings = readEmbeddingFileTxt(malletEmbeddings, false);
-        BinaryWordVectorUtils
-                .convertWordVectorsToBinary(embeddings, aCaseless, aLocale, targetFile);
+        EmbeddingStore store = readEmbeddingStore(malletEmbeddings, false);
+        BinaryWordVectorUtils.convertWordVectorsToBinary(store.getWords(), store::get,
+                store.dimensions(), aCaseless, aLocale, targetFile);
+    }
+
+    /**
+     * Read a (compressed) embeddings file in text format and convert it into the binary format
+     * using {@link BinaryWordVectorUtils}. Case-sensitivity is detected from the tokens.
+     *
+     * @param embeddingsFile a {@link File} holding embeddings in text format
+     * @param hasHeader      if true, the first line is expected to be a header line
+     * @param targetFile     the output {@link File}
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void convertEmbeddingsToBinary(File embeddingsFile, boolean hasHeader,
+            File targetFile)
+            throws IOException
+    {
+        EmbeddingStore store = readEmbeddingStore(embeddingsFile, hasHeader);
+        writeBinary(store, store.isCaseless(), targetFile);
     }
 }
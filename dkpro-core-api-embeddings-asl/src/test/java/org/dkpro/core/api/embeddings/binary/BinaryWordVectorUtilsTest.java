@@ -23,8 +23,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,6 +35,7 @@ import java.util.Map;
 import static org.dkpro.core.api.embeddings.binary.BinaryWordVectorUtils.convertWordVectorsToBinary;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class BinaryWordVectorUtilsTest
@@ -113,6 +117,71 @@ public class BinaryWordVectorUtilsTest
                 Arrays.equals(unk1, unk2));
     }
 
+    @Test
+    public void testVectorizeIntoTarget()
+            throws IOException
+    {
+        File binaryTarget = writeBinaryFile(vectors);
+
+        BinaryVectorizer vec = BinaryVectorizer.load(binaryTarget);
+        float[] target = new float[3];
+
+        for (String word : vectors.keySet()) {
+            assertTrue(target == vec.vectorize(word, target));
+            assertTrue("Vectors differ for " + word, Arrays.equals(vectors.get(word), target));
+
+            FloatBuffer view = vec.vectorView(word);
+            assertEquals(3, view.remaining());
+            assertEquals(vectors.get(word)[1], view.get(1), 0.0f);
+        }
+
+        vec.vectorize("unk", target);
+        assertTrue(Arrays.equals(vec.unknownVector(), target));
+        assertNull(vec.vectorView("unk"));
+    }
+
+    @Test
+    public void testUpgradeFromVersion1()
+            throws IOException
+    {
+        File v1File = new File(testContext.getTestOutputFolder(), "binaryV1");
+        String[] words = vectors.keySet().stream().sorted().toArray(String[]::new);
+        float[] unk = new float[] { 0.5f, 0.5f, 0.5f };
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(v1File))) {
+            BinaryVectorizer.Header header = new BinaryVectorizer.Header();
+            header.setVersion(1);
+            header.setWordCount(words.length);
+            header.setVectorLength(3);
+            header.setCaseless(true);
+            header.setLocale("en");
+            header.write(out);
+            for (String word : words) {
+                out.writeUTF(word);
+            }
+            for (float f : unk) {
+                out.writeFloat(f);
+            }
+            for (String word : words) {
+                for (float f : vectors.get(word)) {
+                    out.writeFloat(f);
+                }
+            }
+        }
+
+        File v2File = new File(testContext.getTestOutputFolder(), "binaryV2");
+        BinaryWordVectorUtils.upgrade(v1File, v2File);
+
+        BinaryVectorizer vec = BinaryVectorizer.load(v2File);
+        assertEquals(2, vec.getHeader().getVersion());
+        assertEquals(2, vec.size());
+        assertTrue(vec.isCaseless());
+        assertTrue(Arrays.equals(unk, vec.unknownVector()));
+        for (String word : vectors.keySet()) {
+            assertTrue("Vectors differ for " + word,
+                    Arrays.equals(vectors.get(word), vec.vectorize(word)));
+        }
+    }
+
     /**
      * Write a binary vectors file to a testContext-dependent location.
      *
@@ -17,7 +17,10 @@
  */
 package org.dkpro.core.api.embeddings.text;
 
+import de.tudarmstadt.ukp.dkpro.core.testing.DkproTestContext;
 import org.dkpro.core.api.embeddings.Vectorizer;
+import org.dkpro.core.api.embeddings.binary.BinaryVectorizer;
+import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.File;
@@ -30,6 +33,8 @@ import static org.junit.Assert.assertTrue;
 
 public class TextFormatVectorizerTest
 {
+    @Rule
+    public DkproTestContext testContext = new DkproTestContext();
 
     @Test
     public void testVectorizer()
@@ -96,4 +101,24 @@ public class TextFormatVectorizerTest
         assertTrue(Arrays.equals(expectedVectorPartiality, vectorizer.vectorize("partiality")));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLoadWithBinaryCopy()
+            throws IOException
+    {
+        File modelFile = new File("src/test/resources/dummy.vec");
+        File binaryFile = new File(testContext.getTestOutputFolder(), "dummy.binary");
+
+        Vectorizer text = TextFormatVectorizer.load(modelFile, false, binaryFile);
+        assertTrue(text instanceof TextFormatVectorizer);
+        assertTrue(binaryFile.isFile());
+
+        Vectorizer binary = TextFormatVectorizer.load(modelFile, false, binaryFile);
+        assertTrue(binary instanceof BinaryVectorizer);
+        assertEquals(text.size(), binary.size());
+        assertEquals(text.dimensions(), binary.dimensions());
+        assertEquals(text.isCaseless(), binary.isCaseless());
+        assertTrue(Arrays.equals(text.vectorize("Her"), binary.vectorize("Her")));
+        assertTrue(Arrays.equals(text.vectorize("partiality"), binary.vectorize("partiality")));
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.featurepath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.LowLevelCAS;
+import org.apache.uima.cas.impl.TypeSystemUtils;
+import org.apache.uima.cas.impl.TypeSystemUtils.PathValid;
+import org.apache.uima.cas.text.AnnotationFS;
+
+/**
+ * A feature path which has been resolved against a type system. In contrast to
+ * {@link FeaturePathInfo} and {@link FeaturePathFactory}, the path is parsed only once into a
+ * chain of {@link Feature} handles and the values can be extracted in bulk into caller-supplied
+ * buffers without creating intermediate objects per annotation.
+ * <p>
+ * The path has to start with a fully qualified type name - the anchor type - optionally followed
+ * by a feature path, e.g. {@code de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token/lemma/value}.
+ * The values are obtained with the same semantics as {@link FeaturePathInfo#getValue}: if no
+ * features are given or the path ends at an annotation, the covered text is used.
+ * <p>
+ * A compiled path is bound to the type system it has been compiled for. Components should keep
+ * the compiled path in a field and use {@link #compile(TypeSystem, String, CompiledFeaturePath)}
+ * to re-compile it only if the type system changes.
+ */
+public final class CompiledFeaturePath
+{
+    private final TypeSystem typeSystem;
+    private final String path;
+    private final Type type;
+    private final String[] featureNames;
+    // Resolved features - null elements need to be resolved on the actual type of an FS
+    private final Feature[] features;
+    private final int[] typeClasses;
+
+    private CompiledFeaturePath(TypeSystem aTypeSystem, String aPath, Type aType,
+            String[] aFeatureNames, Feature[] aFeatures, int[] aTypeClasses)
+    {
+        typeSystem = aTypeSystem;
+        path = aPath;
+        type = aType;
+        featureNames = aFeatureNames;
+        features = aFeatures;
+        typeClasses = aTypeClasses;
+    }
+
+    /**
+     * Compile a feature path starting with a fully qualified type name.
+     *
+     * @param aTypeSystem
+     *            the type system.
+     * @param aPath
+     *            the full feature path.
+     * @return the compiled path.
+     * @throws FeaturePathException
+     *             if the anchor type does not exist or the path can never be valid for it.
+     */
+    public static CompiledFeaturePath compile(TypeSystem aTypeSystem, String aPath)
+        throws FeaturePathException
+    {
+        String[] segments = aPath.split("/", 2);
+        Type type = aTypeSystem.getType(segments[0]);
+        if (type == null) {
+            throw new FeaturePathException(
+                    "Type [" + segments[0] + "] not found in type system");
+        }
+
+        return compile(aTypeSystem, aPath, type, segments.length > 1 ? segments[1] : "");
+    }
+
+    /**
+     * Compile a feature path relative to the given anchor type.
+     *
+     * @param aTypeSystem
+     *            the type system the anchor type belongs to.
+     * @param aType
+     *            the anchor type.
+     * @param aPath
+     *            a feature path relative to the anchor type, may be empty.
+     * @return the compiled path.
+     * @throws FeaturePathException
+     *             if the path can never be valid for the anchor type.
+     */
+    public static CompiledFeaturePath compile(TypeSystem aTypeSystem, Type aType, String aPath)
+        throws FeaturePathException
+    {
+        String fullPath = aPath.isEmpty() ? aType.getName() : aType.getName() + "/" + aPath;
+        return compile(aTypeSystem, fullPath, aType, aPath);
+    }
+
+    /**
+     * Compile a feature path unless the given previously compiled path can be reused. This is
+     * meant to be called from {@code process()} with the compiled path from the previous call.
+     *
+     * @param aTypeSystem
+     *            the type system.
+     * @param aPath
+     *            the full feature path.
+     * @param aPrevious
+     *            a previously compiled path or {@code null}.
+     * @return the previously compiled path if it has been compiled for the same path and type
+     *         system, otherwise a newly compiled path.
+     * @throws FeaturePathException
+     *             if the anchor type does not exist or the path can never be valid for it.
+     */
+    public static CompiledFeaturePath compile(TypeSystem aTypeSystem, String aPath,
+            CompiledFeaturePath aPrevious)
+        throws FeaturePathException
+    {
+        if (aPrevious != null && aPrevious.typeSystem == aTypeSystem
+                && aPrevious.path.equals(aPath)) {
+            return aPrevious;
+        }
+        return compile(aTypeSystem, aPath);
+    }
+
+    private static CompiledFeaturePath compile(TypeSystem aTypeSystem, String aFullPath,
+            Type aType, String aPath)
+        throws FeaturePathException
+    {
+        if (aPath.contains("//")) {
+            throw new FeaturePathException("Invalid feature path [" + aFullPath + "]");
+        }
+
+        List<String> names = new ArrayList<>();
+        for (String name : aPath.split("/")) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+
+        PathValid valid = TypeSystemUtils.isPathValid(aType, names);
+        if (PathValid.NEVER == valid) {
+            throw new FeaturePathException("Feature path [" + aFullPath + "] is not valid");
+        }
+
+        // Resolve as many features as possible statically. If a feature is only defined on a
+        // subtype of the declared range, it and all following features are resolved per FS.
+        Feature[] features = new Feature[names.size()];
+        int[] typeClasses = new int[names.size()];
+        Type currentType = aType;
+        for (int i = 0; i < names.size() && currentType != null; i++) {
+            Feature feature = currentType.getFeatureByBaseName(names.get(i));
+            if (feature == null) {
+                break;
+            }
+            features[i] = feature;
+            typeClasses[i] = TypeSystemUtils.classifyType(feature.getRange());
+            currentType = feature.getRange();
+        }
+
+        return new CompiledFeaturePath(aTypeSystem, aFullPath, aType,
+                names.toArray(new String[names.size()]), features, typeClasses);
+    }
+
+    /**
+     * @return the type system this path has been compiled for.
+     */
+    public TypeSystem getTypeSystem()
+    {
+        return typeSystem;
+    }
+
+    /**
+     * @return the anchor type.
+     */
+    public Type getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return the full feature path including the anchor type.
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Obtain the value of the feature path for the given feature structure.
+     *
+     * @param aFS
+     *            a feature structure of the anchor type.
+     * @return the value or {@code null} if the path cannot be evaluated on the feature structure.
+     */
+    public String getValue(FeatureStructure aFS)
+    {
+        FeatureStructure currentFS = aFS;
+        for (int i = 0; i < featureNames.length; i++) {
+            Feature feature = features[i];
+            int typeClass;
+            if (feature == null) {
+                feature = currentFS.getType().getFeatureByBaseName(featureNames[i]);
+                if (feature == null) {
+                    return null;
+                }
+                typeClass = TypeSystemUtils.classifyType(feature.getRange());
+            }
+            else {
+                typeClass = typeClasses[i];
+            }
+
+            boolean last = i == featureNames.length - 1;
+            switch (typeClass) {
+            case LowLevelCAS.TYPE_CLASS_FS:
+                currentFS = currentFS.getFeatureValue(feature);
+                if (currentFS == null) {
+                    return null;
+                }
+                break;
+            case LowLevelCAS.TYPE_CLASS_STRING:
+                return last ? currentFS.getStringValue(feature) : null;
+            case LowLevelCAS.TYPE_CLASS_INT:
+                return last ? Integer.toString(currentFS.getIntValue(feature)) : null;
+            case LowLevelCAS.TYPE_CLASS_BOOLEAN:
+                return last ? Boolean.toString(currentFS.getBooleanValue(feature)) : null;
+            case LowLevelCAS.TYPE_CLASS_BYTE:
+                return last ? Byte.toString(currentFS.getByteValue(feature)) : null;
+            case LowLevelCAS.TYPE_CLASS_DOUBLE:
+                return last ? Double.toString(currentFS.getDoubleValue(feature)) : null;
+            case LowLevelCAS.TYPE_CLASS_FLOAT:
+                return last ? Float.toString(currentFS.getFloatValue(feature)) : null;
+            case LowLevelCAS.TYPE_CLASS_LONG:
+                return last ? Long.toString(currentFS.getLongValue(feature)) : null;
+            case LowLevelCAS.TYPE_CLASS_SHORT:
+                return last ? Short.toString(currentFS.getShortValue(feature)) : null;
+            case LowLevelCAS.TYPE_CLASS_INVALID:
+                return null;
+            default:
+                throw new IllegalStateException("Unsupported feature path element ["
+                        + featureNames[i] + "] in [" + path + "]");
+            }
+        }
+
+        // The path is empty or ends at a feature structure - use the covered text if possible
+        return currentFS instanceof AnnotationFS ? ((AnnotationFS) currentFS).getCoveredText()
+                : null;
+    }
+
+    /**
+     * Obtain the numeric value of the feature path for the given feature structure. This avoids
+     * converting primitive values to strings.
+     *
+     * @param aFS
+     *            a feature structure of the anchor type.
+     * @param aDefault
+     *            the value to return if the path cannot be evaluated or does not end at a numeric
+     *            feature.
+     * @return the value.
+     */
+    public double getDoubleValue(FeatureStructure aFS, double aDefault)
+    {
+        FeatureStructure currentFS = aFS;
+        for (int i = 0; i < featureNames.length; i++) {
+            Feature feature = features[i];
+            if (feature == null) {
+                feature = currentFS.getType().getFeatureByBaseName(featureNames[i]);
+                if (feature == null) {
+                    return aDefault;
+                }
+            }
+            int typeClass = features[i] != null ? typeClasses[i]
+                    : TypeSystemUtils.classifyType(feature.getRange());
+
+            if (typeClass == LowLevelCAS.TYPE_CLASS_FS) {
+                currentFS = currentFS.getFeatureValue(feature);
+                if (currentFS == null) {
+                    return aDefault;
+                }
+                continue;
+            }
+            if (i != featureNames.length - 1) {
+                return aDefault;
+            }
+
+            switch (typeClass) {
+            case LowLevelCAS.TYPE_CLASS_INT:
+                return currentFS.getIntValue(feature);
+            case LowLevelCAS.TYPE_CLASS_BYTE:
+                return currentFS.getByteValue(feature);
+            case LowLevelCAS.TYPE_CLASS_DOUBLE:
+                return currentFS.getDoubleValue(feature);
+            case LowLevelCAS.TYPE_CLASS_FLOAT:
+                return currentFS.getFloatValue(feature);
+            case LowLevelCAS.TYPE_CLASS_LONG:
+                return currentFS.getLongValue(feature);
+            case LowLevelCAS.TYPE_CLASS_SHORT:
+                return currentFS.getShortValue(feature);
+            default:
+                return aDefault;
+            }
+        }
+        return aDefault;
+    }
+
+    /**
+     * Extract the values for all annotations of the given type in index order.
+     * <p>
+     * At most {@code aOut.length} values are stored. The return value is the total number of
+     * annotations, so if it is larger than the buffer, the caller can retry with a larger buffer.
+     * The buffer size can be obtained beforehand from the size of the annotation index.
+     *
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the anchor type or a subtype of it.
+     * @param aOut
+     *            the buffer receiving the values.
+     * @return the number of annotations.
+     */
+    public int extract(CAS aCas, Type aType, String[] aOut)
+    {
+        return extract(aCas, aType, aOut, null);
+    }
+
+    /**
+     * Extract the values and annotations for all annotations of the given type in index order.
+     * See {@link #extract(CAS, Type, String[])}.
+     *
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the anchor type or a subtype of it.
+     * @param aOut
+     *            the buffer receiving the values.
+     * @param aAnnotations
+     *            the buffer receiving the annotations or {@code null}.
+     * @return the number of annotations.
+     */
+    public int extract(CAS aCas, Type aType, String[] aOut, AnnotationFS[] aAnnotations)
+    {
+        FSIterator<AnnotationFS> i = aCas.getAnnotationIndex(aType).iterator();
+        int n = 0;
+        while (i.hasNext()) {
+            AnnotationFS fs = i.next();
+            if (n < aOut.length) {
+                aOut[n] = getValue(fs);
+                if (aAnnotations != null) {
+                    aAnnotations[n] = fs;
+                }
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Extract the values for the given feature structures into the buffer starting at the given
+     * offset.
+     *
+     * @param aFSes
+     *            the feature structures, e.g. the tokens covered by a sentence.
+     * @param aOut
+     *            the buffer receiving the values.
+     * @param aOffset
+     *            the position of the first value in the buffer.
+     * @return the number of values stored.
+     */
+    public int extract(Iterable<? extends FeatureStructure> aFSes, String[] aOut, int aOffset)
+    {
+        int n = aOffset;
+        for (FeatureStructure fs : aFSes) {
+            if (n == aOut.length) {
+                break;
+            }
+            aOut[n++] = getValue(fs);
+        }
+        return n - aOffset;
+    }
+
+    /**
+     * Extract the values for all annotations of the anchor type in index order.
+     *
+     * @param aCas
+     *            the CAS.
+     * @return the values.
+     */
+    public String[] extract(CAS aCas)
+    {
+        String[] values = new String[aCas.getAnnotationIndex(type).size()];
+        extract(aCas, type, values);
+        return values;
+    }
+
+    /**
+     * Extract the numeric values for all annotations of the given type in index order. See
+     * {@link #extract(CAS, Type, String[])} and {@link #getDoubleValue(FeatureStructure, double)}.
+     *
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the anchor type or a subtype of it.
+     * @param aOut
+     *            the buffer receiving the values.
+     * @param aDefault
+     *            the value used if the path cannot be evaluated for an annotation.
+     * @return the number of annotations.
+     */
+    public int extract(CAS aCas, Type aType, double[] aOut, double aDefault)
+    {
+        FSIterator<AnnotationFS> i = aCas.getAnnotationIndex(aType).iterator();
+        int n = 0;
+        while (i.hasNext()) {
+            AnnotationFS fs = i.next();
+            if (n < aOut.length) {
+                aOut[n] = getDoubleValue(fs, aDefault);
+            }
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public String toString()
+    {
+        return path;
+    }
+}
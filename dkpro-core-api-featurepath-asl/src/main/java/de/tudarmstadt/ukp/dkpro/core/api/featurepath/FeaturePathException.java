@@ -22,4 +22,14 @@ public class FeaturePathException
 {
 	private static final long serialVersionUID = 1L;
 
+	public FeaturePathException()
+	{
+		super();
+	}
+
+	public FeaturePathException(String aMessage)
+	{
+		super(aMessage);
+	}
+
 }
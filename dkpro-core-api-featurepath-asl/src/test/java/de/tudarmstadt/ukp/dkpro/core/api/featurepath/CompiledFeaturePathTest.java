@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.featurepath;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.apache.uima.util.CasCreationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledFeaturePathTest
+{
+    private static final String TOKEN = "test.Token";
+
+    private CAS cas;
+
+    @Test
+    public void testEmptyPath()
+        throws Exception
+    {
+        assertSameAsFeaturePathFactory(TOKEN);
+        assertEquals(asList("Peter", "sleeps", "now"), compiledValues(TOKEN));
+    }
+
+    @Test
+    public void testPathEndingOnPrimitive()
+        throws Exception
+    {
+        assertSameAsFeaturePathFactory(TOKEN + "/length");
+        assertSameAsFeaturePathFactory(TOKEN + "/lemma/value");
+        assertEquals(asList("peter", "sleep", null), compiledValues(TOKEN + "/lemma/value"));
+    }
+
+    @Test
+    public void testPathEndingOnFeatureStructure()
+        throws Exception
+    {
+        // An annotation yields its covered text, any other feature structure yields null
+        assertSameAsFeaturePathFactory(TOKEN + "/lemma");
+        assertSameAsFeaturePathFactory(TOKEN + "/info");
+        assertEquals(asList("Peter", "sleeps", null), compiledValues(TOKEN + "/lemma"));
+        assertEquals(asList(null, null, null), compiledValues(TOKEN + "/info"));
+    }
+
+    @Test
+    public void testFeatureOnlyOnSubtype()
+        throws Exception
+    {
+        // "detail" is only defined on test.DetailedTag, not on the declared range test.Tag
+        assertSameAsFeaturePathFactory(TOKEN + "/tag/detail");
+        assertEquals(asList("NNP", null, null), compiledValues(TOKEN + "/tag/detail"));
+    }
+
+    @Test
+    public void testExtractGrowingBuffer()
+        throws Exception
+    {
+        CompiledFeaturePath path = CompiledFeaturePath.compile(cas.getTypeSystem(), TOKEN);
+        Type type = path.getType();
+
+        // A buffer which is too small is filled as far as possible and the total is returned
+        String[] buffer = new String[1];
+        AnnotationFS[] annotations = new AnnotationFS[1];
+        int n = path.extract(cas, type, buffer, annotations);
+        assertEquals(3, n);
+        assertArrayEquals(new String[] { "Peter" }, buffer);
+        assertEquals("Peter", annotations[0].getCoveredText());
+
+        // Retrying with a buffer of the returned size yields all values
+        buffer = new String[n];
+        assertEquals(3, path.extract(cas, type, buffer));
+        assertArrayEquals(new String[] { "Peter", "sleeps", "now" }, buffer);
+
+        // Extracting into a sub-range of a larger buffer
+        String[] larger = new String[5];
+        assertEquals(3, path.extract(cas.getAnnotationIndex(type), larger, 1));
+        assertArrayEquals(new String[] { null, "Peter", "sleeps", "now", null }, larger);
+    }
+
+    @Test
+    public void testNumericValues()
+        throws Exception
+    {
+        CompiledFeaturePath path = CompiledFeaturePath.compile(cas.getTypeSystem(),
+                TOKEN + "/length");
+        double[] values = new double[3];
+        assertEquals(3, path.extract(cas, path.getType(), values, -1));
+        assertArrayEquals(new double[] { 5, 6, 3 }, values, 0.0);
+
+        CompiledFeaturePath text = CompiledFeaturePath.compile(cas.getTypeSystem(),
+                TOKEN + "/lemma/value");
+        assertEquals(-1, text.getDoubleValue(firstToken(), -1), 0.0);
+    }
+
+    @Test
+    public void testRecompile()
+        throws Exception
+    {
+        CompiledFeaturePath path = CompiledFeaturePath.compile(cas.getTypeSystem(),
+                TOKEN + "/lemma/value");
+
+        assertSame(path, CompiledFeaturePath.compile(cas.getTypeSystem(),
+                TOKEN + "/lemma/value", path));
+        assertEquals(TOKEN + "/length", CompiledFeaturePath.compile(cas.getTypeSystem(),
+                TOKEN + "/length", path).getPath());
+    }
+
+    @Test(expected = FeaturePathException.class)
+    public void testInvalidPath()
+        throws Exception
+    {
+        CompiledFeaturePath.compile(cas.getTypeSystem(), TOKEN + "/doesNotExist");
+    }
+
+    @Test
+    public void testGetValueOnUnsetFeature()
+        throws Exception
+    {
+        CompiledFeaturePath path = CompiledFeaturePath.compile(cas.getTypeSystem(),
+                TOKEN + "/tag/detail");
+        List<String> values = compiledValues(TOKEN + "/tag/detail");
+        assertNull(values.get(2));
+        assertEquals("NNP", path.getValue(firstToken()));
+    }
+
+    private void assertSameAsFeaturePathFactory(String aPath)
+        throws Exception
+    {
+        List<String> expected = new ArrayList<>();
+        for (Entry<AnnotationFS, String> e : FeaturePathFactory.select(cas, aPath)) {
+            expected.add(e.getValue());
+        }
+
+        assertEquals(expected, compiledValues(aPath));
+    }
+
+    private List<String> compiledValues(String aPath)
+        throws Exception
+    {
+        return asList(CompiledFeaturePath.compile(cas.getTypeSystem(), aPath).extract(cas));
+    }
+
+    private AnnotationFS firstToken()
+    {
+        Type tokenType = cas.getTypeSystem().getType(TOKEN);
+        return cas.getAnnotationIndex(tokenType).iterator().next();
+    }
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        TypeSystemDescription tsd = new TypeSystemDescription_impl();
+        TypeDescription lemma = tsd.addType("test.Lemma", "", CAS.TYPE_NAME_ANNOTATION);
+        lemma.addFeature("value", "", CAS.TYPE_NAME_STRING);
+        tsd.addType("test.Tag", "", CAS.TYPE_NAME_ANNOTATION);
+        TypeDescription detailedTag = tsd.addType("test.DetailedTag", "", "test.Tag");
+        detailedTag.addFeature("detail", "", CAS.TYPE_NAME_STRING);
+        TypeDescription info = tsd.addType("test.Info", "", CAS.TYPE_NAME_TOP);
+        info.addFeature("value", "", CAS.TYPE_NAME_STRING);
+        TypeDescription token = tsd.addType(TOKEN, "", CAS.TYPE_NAME_ANNOTATION);
+        token.addFeature("lemma", "", "test.Lemma");
+        token.addFeature("tag", "", "test.Tag");
+        token.addFeature("info", "", "test.Info");
+        token.addFeature("length", "", CAS.TYPE_NAME_INTEGER);
+
+        cas = CasCreationUtils.createCas(tsd, null, null);
+        cas.setDocumentText("Peter sleeps now");
+
+        // Token with a lemma, a tag of the subtype and a non-annotation feature structure
+        AnnotationFS peter = createToken(0, 5, "peter");
+        AnnotationFS tag = cas.createAnnotation(cas.getTypeSystem().getType("test.DetailedTag"),
+                0, 5);
+        setString(tag, "detail", "NNP");
+        setFS(peter, "tag", tag);
+        FeatureStructure infoFS = cas.createFS(cas.getTypeSystem().getType("test.Info"));
+        setString(infoFS, "value", "x");
+        setFS(peter, "info", infoFS);
+
+        // Token with a lemma and a tag of the declared type
+        AnnotationFS sleeps = createToken(6, 12, "sleep");
+        setFS(sleeps, "tag",
+                cas.createAnnotation(cas.getTypeSystem().getType("test.Tag"), 6, 12));
+
+        // Token without lemma and tag
+        createToken(13, 16, null);
+    }
+
+    private AnnotationFS createToken(int aBegin, int aEnd, String aLemma)
+    {
+        Type tokenType = cas.getTypeSystem().getType(TOKEN);
+        AnnotationFS token = cas.createAnnotation(tokenType, aBegin, aEnd);
+        token.setIntValue(tokenType.getFeatureByBaseName("length"), aEnd - aBegin);
+        if (aLemma != null) {
+            AnnotationFS lemma = cas.createAnnotation(
+                    cas.getTypeSystem().getType("test.Lemma"), aBegin, aEnd);
+            setString(lemma, "value", aLemma);
+            setFS(token, "lemma", lemma);
+        }
+        cas.addFsToIndexes(token);
+        return token;
+    }
+
+    private static void setString(FeatureStructure aFS, String aFeature, String aValue)
+    {
+        aFS.setStringValue(aFS.getType().getFeatureByBaseName(aFeature), aValue);
+    }
+
+    private static void setFS(FeatureStructure aFS, String aFeature, FeatureStructure aValue)
+    {
+        aFS.setFeatureValue(aFS.getType().getFeatureByBaseName(aFeature), aValue);
+    }
+}
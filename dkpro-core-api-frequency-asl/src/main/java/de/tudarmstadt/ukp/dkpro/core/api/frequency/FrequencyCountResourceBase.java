@@ -20,7 +20,9 @@ package de.tudarmstadt.ukp.dkpro.core.api.frequency;
 import static org.apache.uima.util.Level.SEVERE;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.uima.fit.component.Resource_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
@@ -49,6 +51,14 @@ public abstract class FrequencyCountResourceBase
         return provider.getFrequency(phrase);
     }
 
+    @Override
+    public Map<String, Long> getFrequencies(Collection<String> phrases)
+        throws IOException
+    {
+        checkProvider();
+        return provider.getFrequencies(phrases);
+    }
+
     @Override
     public double getProbability(String phrase)
         throws IOException
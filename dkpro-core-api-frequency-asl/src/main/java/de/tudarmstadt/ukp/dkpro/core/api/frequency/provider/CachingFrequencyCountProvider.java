@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.frequency.provider;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caches the frequencies returned by another frequency provider. The cache is thread-safe and
+ * holds at most the given number of phrases, evicting the least recently used ones first. Batch
+ * lookups only pass the phrases which are not cached on to the wrapped provider.
+ * <p>
+ * Only frequencies are cached, all other calls are passed on to the wrapped provider.
+ */
+public class CachingFrequencyCountProvider
+    implements FrequencyCountProvider
+{
+    private final FrequencyCountProvider provider;
+    private final Cache<String, Long> cache;
+
+    /**
+     * @param aProvider
+     *            the provider to cache.
+     * @param aMaximumSize
+     *            the maximum number of phrases to cache.
+     */
+    public CachingFrequencyCountProvider(FrequencyCountProvider aProvider, long aMaximumSize)
+    {
+        provider = aProvider;
+        cache = CacheBuilder.newBuilder().maximumSize(aMaximumSize).recordStats().build();
+    }
+
+    @Override
+    public long getFrequency(String phrase)
+        throws IOException
+    {
+        Long frequency = cache.getIfPresent(phrase);
+        if (frequency == null) {
+            frequency = provider.getFrequency(phrase);
+            cache.put(phrase, frequency);
+        }
+        return frequency;
+    }
+
+    @Override
+    public Map<String, Long> getFrequencies(Collection<String> phrases)
+        throws IOException
+    {
+        Map<String, Long> frequencies = new HashMap<String, Long>(cache.getAllPresent(phrases));
+
+        Set<String> missing = new LinkedHashSet<String>();
+        for (String phrase : phrases) {
+            if (!frequencies.containsKey(phrase)) {
+                missing.add(phrase);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, Long> loaded = provider.getFrequencies(missing);
+            cache.putAll(loaded);
+            frequencies.putAll(loaded);
+        }
+
+        return frequencies;
+    }
+
+    /**
+     * @return the number of frequency lookups which have been answered from the cache.
+     */
+    public long getHitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * @return the number of frequency lookups which have been passed on to the wrapped provider.
+     */
+    public long getMissCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * @return the ratio of frequency lookups answered from the cache or 1.0 if there have not been
+     *         any lookups yet.
+     */
+    public double getHitRate()
+    {
+        return cache.stats().hitRate();
+    }
+
+    /**
+     * @return the statistics of the cache, including the number of evictions.
+     */
+    public CacheStats getStats()
+    {
+        return cache.stats();
+    }
+
+    /**
+     * @return the number of phrases currently cached.
+     */
+    public long getSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Removes all phrases from the cache.
+     */
+    public void clear()
+    {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return a live view of the cached frequencies. Changes to the view affect the cache.
+     */
+    public Map<String, Long> asMap()
+    {
+        return cache.asMap();
+    }
+
+    public FrequencyCountProvider getProvider()
+    {
+        return provider;
+    }
+
+    @Override
+    public double getProbability(String phrase)
+        throws IOException
+    {
+        return provider.getProbability(phrase);
+    }
+
+    @Override
+    public double getLogProbability(String phrase)
+        throws IOException
+    {
+        return provider.getLogProbability(phrase);
+    }
+
+    @Override
+    public long getNrOfTokens()
+        throws IOException
+    {
+        return provider.getNrOfTokens();
+    }
+
+    @Override
+    public long getNrOfNgrams(int n)
+        throws IOException
+    {
+        return provider.getNrOfNgrams(n);
+    }
+
+    @Override
+    public long getNrOfDistinctNgrams(int n)
+        throws IOException
+    {
+        return provider.getNrOfDistinctNgrams(n);
+    }
+
+    @Override
+    public Iterator<String> getNgramIterator(int n)
+        throws IOException
+    {
+        return provider.getNgramIterator(n);
+    }
+
+    @Override
+    public String getLanguage()
+        throws IOException
+    {
+        return provider.getLanguage();
+    }
+
+    @Override
+    public String getID()
+    {
+        return provider.getID();
+    }
+}
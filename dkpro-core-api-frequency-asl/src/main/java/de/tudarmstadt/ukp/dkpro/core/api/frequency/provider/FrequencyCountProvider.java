@@ -18,7 +18,10 @@
 package de.tudarmstadt.ukp.dkpro.core.api.frequency.provider;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 public interface FrequencyCountProvider
 {
@@ -36,6 +39,31 @@ public interface FrequencyCountProvider
     public long getFrequency(String phrase)
         throws IOException;
 
+    /**
+     * Get the frequencies for a batch of phrases. Providers which can look up many phrases at once
+     * more efficiently than one by one override this method, the default implementation calls
+     * {@link #getFrequency(String)} once for every distinct phrase.
+     *
+     * @param phrases
+     *            phrases to search
+     * 
+     * @return a map from every distinct phrase to its frequency. Phrases which do not exist in the
+     *         corpus are mapped to 0.
+     * @throws IOException
+     *             if the information cannot be retrieved.
+     */
+    public default Map<String, Long> getFrequencies(Collection<String> phrases)
+        throws IOException
+    {
+        Map<String, Long> frequencies = new HashMap<String, Long>();
+        for (String phrase : phrases) {
+            if (!frequencies.containsKey(phrase)) {
+                frequencies.put(phrase, getFrequency(phrase));
+            }
+        }
+        return frequencies;
+    }
+
     /**
      * Get the probability (=normalized frequency) for a phrase.<br>
      * The frequency count is normalized by the number of phrases in the corpus.
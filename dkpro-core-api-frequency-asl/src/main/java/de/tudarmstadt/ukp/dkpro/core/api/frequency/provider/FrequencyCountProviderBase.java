@@ -18,6 +18,9 @@
 package de.tudarmstadt.ukp.dkpro.core.api.frequency.provider;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.FrequencyUtils;
 
@@ -81,6 +84,42 @@ public abstract class FrequencyCountProviderBase
     protected abstract long getFrequencyFromProvider(String phrase)
         throws IOException;
 
+    @Override
+    public Map<String, Long> getFrequencies(Collection<String> phrases)
+        throws IOException
+    {
+        Map<String, Long> frequencies = getFrequenciesFromProvider(phrases);
+        if (getScaleDownFactor() != 1) {
+            for (Map.Entry<String, Long> e : frequencies.entrySet()) {
+                e.setValue(e.getValue() / getScaleDownFactor());
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Looks up the unscaled frequencies of a batch of phrases. Override this to support batch
+     * lookups natively, by default {@link #getFrequencyFromProvider(String)} is called once for
+     * every distinct phrase.
+     * 
+     * @param phrases
+     *            phrases to search
+     * @return a modifiable map from every distinct phrase to its frequency.
+     * @throws IOException
+     *             if the information cannot be retrieved.
+     */
+    protected Map<String, Long> getFrequenciesFromProvider(Collection<String> phrases)
+        throws IOException
+    {
+        Map<String, Long> frequencies = new HashMap<String, Long>();
+        for (String phrase : phrases) {
+            if (!frequencies.containsKey(phrase)) {
+                frequencies.put(phrase, getFrequencyFromProvider(phrase));
+            }
+        }
+        return frequencies;
+    }
+
     public double getLogLikelihood(int termFrequency, int sizeOfCorpus, String term)
         throws IOException
     {
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.frequency.provider;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CachingFrequencyCountProviderTest
+{
+    @Test
+    public void testCache() throws Exception
+    {
+        CountingProvider counting = new CountingProvider();
+        CachingFrequencyCountProvider provider = new CachingFrequencyCountProvider(counting, 2);
+
+        assertEquals(10, provider.getFrequency("a"));
+        assertEquals(10, provider.getFrequency("a"));
+        assertEquals(100, provider.getFrequency("aa"));
+        assertEquals(asList("a", "aa"), counting.lookups);
+        assertEquals(1, provider.getHitCount());
+        assertEquals(2, provider.getMissCount());
+
+        // Only the phrases which are not cached are passed on as a batch
+        Map<String, Long> frequencies = provider.getFrequencies(asList("a", "aaa", "aaa", "a a"));
+        assertEquals(3, frequencies.size());
+        assertEquals(10L, (long) frequencies.get("a"));
+        assertEquals(1000L, (long) frequencies.get("aaa"));
+        assertEquals(1000L, (long) frequencies.get("a a"));
+        assertEquals(asList("a", "aa", "aaa", "a a"), counting.lookups);
+        assertEquals(1, counting.batches);
+
+        // The cache is bounded
+        assertEquals(2, provider.getSize());
+    }
+
+    @Test
+    public void testScaledBatch() throws Exception
+    {
+        FrequencyCountProviderBase provider = new TestFrequencyCountProvider();
+        provider.setScaleDownFactor(20);
+        Map<String, Long> frequencies = provider.getFrequencies(asList("a", "aa", "aaa"));
+        assertEquals(provider.getFrequency("a"), (long) frequencies.get("a"));
+        assertEquals(provider.getFrequency("aa"), (long) frequencies.get("aa"));
+        assertEquals(provider.getFrequency("aaa"), (long) frequencies.get("aaa"));
+    }
+
+    private static class CountingProvider
+        extends TestFrequencyCountProvider
+    {
+        private List<String> lookups = new ArrayList<String>();
+        private int batches;
+
+        @Override
+        protected long getFrequencyFromProvider(String phrase)
+        {
+            lookups.add(phrase);
+            return super.getFrequencyFromProvider(phrase);
+        }
+
+        @Override
+        protected Map<String, Long> getFrequenciesFromProvider(Collection<String> phrases)
+            throws IOException
+        {
+            batches++;
+            return super.getFrequenciesFromProvider(phrases);
+        }
+    }
+}
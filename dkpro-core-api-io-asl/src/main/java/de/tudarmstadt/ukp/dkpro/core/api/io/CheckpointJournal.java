@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.io;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Append-only journal of the resources which have been completely written. It is used to resume
+ * an interrupted pipeline: the {@link JCasFileWriter_ImplBase} records the URI of each resource
+ * once the output of all documents created from it has been written and the
+ * {@link ResourceCollectionReaderBase} skips the recorded resources on restart without opening
+ * them.
+ * <p>
+ * Each record is a single line that is appended with one write call, so a crash can at most leave
+ * an incomplete last line behind. Incomplete lines are ignored when reading the journal and
+ * removed before new records are appended.
+ */
+public class CheckpointJournal
+    implements Closeable
+{
+    private final File file;
+    private final FileChannel channel;
+
+    /**
+     * Open a journal for appending. The file is created if it does not exist.
+     *
+     * @param aFile
+     *            the journal file.
+     * @throws IOException
+     *             if the journal cannot be opened.
+     */
+    public CheckpointJournal(File aFile)
+        throws IOException
+    {
+        file = aFile;
+        if (aFile.getParentFile() != null) {
+            FileUtils.forceMkdir(aFile.getParentFile());
+        }
+        truncateIncompleteRecord(aFile);
+        channel = FileChannel.open(aFile.toPath(), CREATE, WRITE, APPEND);
+    }
+
+    /**
+     * Record that a resource has been completed.
+     *
+     * @param aResourceUri
+     *            the resource URI.
+     * @throws IOException
+     *             if the record cannot be written.
+     */
+    public synchronized void record(String aResourceUri)
+        throws IOException
+    {
+        ByteBuffer record = ByteBuffer.wrap((aResourceUri + '\n').getBytes(StandardCharsets.UTF_8));
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Read the URIs of the completed resources from a journal.
+     *
+     * @param aFile
+     *            the journal file.
+     * @return the recorded URIs or an empty set if the journal does not exist.
+     * @throws IOException
+     *             if the journal cannot be read.
+     */
+    public static Set<String> readCompleted(File aFile)
+        throws IOException
+    {
+        Set<String> completed = new HashSet<String>();
+        if (!aFile.exists()) {
+            return completed;
+        }
+
+        try (InputStream is = new FileInputStream(aFile)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = is.read(buffer)) != -1) {
+                int start = 0;
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        line.write(buffer, start, i - start);
+                        completed.add(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                        line.reset();
+                        start = i + 1;
+                    }
+                }
+                line.write(buffer, start, n - start);
+            }
+            // Anything left in the line buffer is an incomplete record and is ignored
+        }
+        return completed;
+    }
+
+    private static void truncateIncompleteRecord(File aFile)
+        throws IOException
+    {
+        if (!aFile.exists()) {
+            return;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(aFile, "rw")) {
+            long end = raf.length();
+            while (end > 0) {
+                raf.seek(end - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < raf.length()) {
+                raf.setLength(end);
+            }
+        }
+    }
+}
@@ -25,16 +25,23 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang.StringUtils;
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.AbstractCas;
 import org.apache.uima.fit.component.JCasConsumer_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
@@ -106,7 +113,44 @@ public abstract class JCasFileWriter_ImplBase
     public static final String PARAM_OVERWRITE = "overwrite";
     @ConfigurationParameter(name = PARAM_OVERWRITE, mandatory = true, defaultValue = "false")
     private boolean overwrite;
-    
+
+    /**
+     * Write each output file to a temporary file next to the target and rename it to the target
+     * name when it is closed, so an interrupted run does not leave incomplete output files behind.
+     * The temporary files are hidden. Only applies if one file is written per document. Always
+     * enabled if a {@link #PARAM_CHECKPOINT_JOURNAL} is used.
+     */
+    public static final String PARAM_ATOMIC_WRITE = "atomicWrite";
+    @ConfigurationParameter(name = PARAM_ATOMIC_WRITE, mandatory = true, defaultValue = "false")
+    private boolean atomicWrite;
+
+    /**
+     * Journal file in which the URI of each source resource is recorded after all documents created
+     * from it have been written. Passing the same journal to the reader using
+     * {@link ResourceCollectionReaderBase#PARAM_CHECKPOINT_JOURNAL} allows an interrupted run to
+     * be resumed, skipping all resources that have been completed before.
+     * <p>
+     * The resource URI is the document URI without its qualifier (the part starting with
+     * {@code #}). A resource is recorded once a document from a different resource arrives or when
+     * the collection is complete, so a reader creating several documents from one resource (e.g.
+     * the TEI reader) reads the resource again if it has been interrupted halfway through it. This
+     * requires that all documents from a resource are written in sequence by the same writer
+     * instance.
+     * <p>
+     * Output files of documents that have been written but not recorded before the interruption
+     * are overwritten when resuming, even if {@link #PARAM_OVERWRITE} is disabled. Checkpointing
+     * requires one output file per document, i.e. it cannot be used with ZIP targets or
+     * {@link #PARAM_SINGULAR_TARGET}.
+     *
+     * @see CheckpointJournal
+     */
+    public static final String PARAM_CHECKPOINT_JOURNAL = "checkpointJournal";
+    @ConfigurationParameter(name = PARAM_CHECKPOINT_JOURNAL, mandatory = false)
+    private File checkpointJournal;
+
+    private CheckpointJournal journal;
+    private String pendingResourceUri;
+
     private ZipOutputStream zipOutputStream;
     private String zipPath;
     private String zipEntryPrefix;
@@ -128,6 +172,63 @@ public abstract class JCasFileWriter_ImplBase
 		return useDocumentId;
 	}
 
+    @Override
+    public void initialize(UimaContext aContext)
+        throws ResourceInitializationException
+    {
+        super.initialize(aContext);
+
+        if (checkpointJournal != null) {
+            if (targetLocation == null || targetLocation.startsWith(JAR_PREFIX)
+                    || singularTarget) {
+                throw new ResourceInitializationException(new IllegalArgumentException(
+                        "Checkpointing requires one target file per document"));
+            }
+            try {
+                journal = new CheckpointJournal(checkpointJournal);
+            }
+            catch (IOException e) {
+                throw new ResourceInitializationException(e);
+            }
+        }
+    }
+
+    @Override
+    public void process(AbstractCas aCas)
+        throws AnalysisEngineProcessException
+    {
+        super.process(aCas);
+
+        // The document has been written completely once the subclass returns. Its resource is
+        // only complete once the documents of the next resource start to arrive.
+        if (journal != null) {
+            String documentUri = DocumentMetaData.get((JCas) aCas).getDocumentUri();
+            if (documentUri != null) {
+                int qualifier = documentUri.indexOf('#');
+                String resourceUri = qualifier < 0 ? documentUri
+                        : documentUri.substring(0, qualifier);
+                if (!resourceUri.equals(pendingResourceUri)) {
+                    recordPendingResource();
+                    pendingResourceUri = resourceUri;
+                }
+            }
+        }
+    }
+
+    private void recordPendingResource()
+        throws AnalysisEngineProcessException
+    {
+        if (pendingResourceUri != null) {
+            try {
+                journal.record(pendingResourceUri);
+            }
+            catch (IOException e) {
+                throw new AnalysisEngineProcessException(e);
+            }
+            pendingResourceUri = null;
+        }
+    }
+
     @Override
     public void collectionProcessComplete()
         throws AnalysisEngineProcessException
@@ -138,6 +239,14 @@ public abstract class JCasFileWriter_ImplBase
         if (singularTargetStream != null) {
             closeQuietly(singularTargetStream);
         }
+        if (journal != null) {
+            try {
+                recordPendingResource();
+            }
+            finally {
+                closeQuietly(journal);
+            }
+        }
         super.collectionProcessComplete();
     }
     
@@ -213,11 +322,26 @@ public abstract class JCasFileWriter_ImplBase
             File outputFile = new File(targetLocation, aRelativePath + aExtension
                     + compression.getExtension());
             
-            if (!overwrite && outputFile.exists()) {
+            if (!overwrite && journal == null && outputFile.exists()) {
                 throw new IOException("Target file [" + outputFile
                         + "] already exists and overwriting not enabled.");
             }
             
+            if (atomicWrite || journal != null) {
+                // The temporary file keeps the extension so the same compression is applied
+                File tempFile = new File(outputFile.getParentFile(),
+                        ".tmp-" + UUID.randomUUID() + "-" + outputFile.getName());
+                OutputStream os;
+                try {
+                    os = CompressionUtils.getOutputStream(tempFile);
+                }
+                catch (IOException e) {
+                    Files.deleteIfExists(tempFile.toPath());
+                    throw e;
+                }
+                return new AtomicFileOutputStream(outputFile, tempFile, os);
+            }
+
             return new NamedOutputStream(outputFile.getAbsolutePath(),
                     CompressionUtils.getOutputStream(outputFile));
         }
@@ -346,6 +470,55 @@ public abstract class JCasFileWriter_ImplBase
         }
     }
     
+    /**
+     * Writes to a temporary file which is renamed to the target file when the stream is closed.
+     */
+    private static class AtomicFileOutputStream
+        extends NamedOutputStream
+    {
+        private final File target;
+        private final File tempFile;
+        private boolean closed;
+
+        public AtomicFileOutputStream(File aTarget, File aTempFile, OutputStream aOutputStream)
+        {
+            super(aTarget.getAbsolutePath(), aOutputStream);
+            target = aTarget;
+            tempFile = aTempFile;
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            boolean moved = false;
+            try {
+                outputStream.close();
+
+                try {
+                    Files.move(tempFile.toPath(), target.toPath(),
+                            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+                catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile.toPath(), target.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                moved = true;
+            }
+            finally {
+                // Do not leave the temporary file behind if it could not be closed or moved
+                if (!moved) {
+                    Files.deleteIfExists(tempFile.toPath());
+                }
+            }
+        }
+    }
+
     private static class ZipEntryOutputStream extends NamedOutputStream
     {
 
@@ -25,7 +25,7 @@ public class ProgressMeter
 	private long _preLast;
 	private long _last;
 	private long _count;
-	private final long _limit;
+	private long _limit;
 
 	public ProgressMeter(final long limit)
 	{
@@ -54,6 +54,11 @@ public class ProgressMeter
 		_last = System.currentTimeMillis();
 	}
 
+	public void setLimit(final long limit)
+	{
+		_limit = limit;
+	}
+
 	public void setLeft(final long count)
 	{
 		_count = _limit - count;
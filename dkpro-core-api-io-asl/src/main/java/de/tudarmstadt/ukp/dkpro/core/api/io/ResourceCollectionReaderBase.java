@@ -21,16 +21,23 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
@@ -44,6 +51,7 @@ import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.Progress;
 import org.apache.uima.util.ProgressImpl;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.util.AntPathMatcher;
@@ -68,6 +76,15 @@ import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
  * <p>
  * The list of resources returned is sorted, so for the same set of resources, they are always
  * returned in the same order.
+ * <p>
+ * Scanning collects and sorts all resources before the first document is read. For very large
+ * directory trees on the file system, {@link #PARAM_STREAMING} can be enabled to discover the
+ * files lazily while the documents are read.
+ * <p>
+ * To process a collection in several independent processes, each process can be configured to
+ * read only a disjoint shard of the resources using {@link #PARAM_SHARD_INDEX} and
+ * {@link #PARAM_SHARD_COUNT}. The shards only depend on the matched resources, so they are the
+ * same in every process and across restarts.
  * 
  * @see <a href="http://ant.apache.org/manual/dirtasks.html#patterns">Documentation of <b>ant</b>
  *      patterns</a>
@@ -145,9 +162,98 @@ public abstract class ResourceCollectionReaderBase
     @ConfigurationParameter(name = PARAM_LOG_FREQ, mandatory = true, defaultValue = "1")
     private int logFreq;
 
+    /**
+     * Walk the source location lazily while reading instead of collecting all resources during
+     * initialization. The first document is available immediately and only the directories still
+     * to be visited are held in memory. The total reported as progress is an estimate.
+     * <p>
+     * Streaming requires a source location on the file system (a {@code file:} location) and at
+     * least one pattern. Other locations are scanned as usual. In streaming mode, the resources are
+     * not returned sorted unless {@link #PARAM_STREAMING_ORDERED} is enabled and
+     * {@link #getResources()} is not supported.
+     */
+    public static final String PARAM_STREAMING = "streaming";
+    @ConfigurationParameter(name = PARAM_STREAMING, mandatory = true, defaultValue = "false")
+    private boolean streaming;
+
+    /**
+     * In streaming mode, return the files of each directory in name order before descending into
+     * its sub-directories in name order. This requires the listing of the current directory to be
+     * held in memory. By default, files are returned in the order in which the file system lists
+     * them.
+     */
+    public static final String PARAM_STREAMING_ORDERED = "streamingOrdered";
+    @ConfigurationParameter(name = PARAM_STREAMING_ORDERED, mandatory = true,
+            defaultValue = "false")
+    private boolean streamingOrdered;
+
+    /**
+     * The shard of the resources read by this reader, counting from 0. Must be smaller than
+     * {@link #PARAM_SHARD_COUNT}. Default: 0.
+     */
+    public static final String PARAM_SHARD_INDEX = "shardIndex";
+    @ConfigurationParameter(name = PARAM_SHARD_INDEX, mandatory = true, defaultValue = "0")
+    private int shardIndex;
+
+    /**
+     * The number of shards into which the resources are split. Default: 1 (read all resources).
+     */
+    public static final String PARAM_SHARD_COUNT = "shardCount";
+    @ConfigurationParameter(name = PARAM_SHARD_COUNT, mandatory = true, defaultValue = "1")
+    private int shardCount;
+
+    /**
+     * How the resources are assigned to shards. Default: {@code HASH}.
+     *
+     * @see ShardStrategy
+     */
+    public static final String PARAM_SHARD_STRATEGY = "shardStrategy";
+    @ConfigurationParameter(name = PARAM_SHARD_STRATEGY, mandatory = true, defaultValue = "HASH")
+    private ShardStrategy shardStrategy;
+
+    /**
+     * Strategies for assigning resources to shards.
+     */
+    public enum ShardStrategy
+    {
+        /**
+         * Assign each resource by the hash of its path relative to the source location. A
+         * resource stays in its shard when other resources are added or removed.
+         */
+        HASH,
+
+        /**
+         * Assign the resources in turn in the order in which they are returned. The shards are
+         * balanced exactly, but adding or removing resources can move other resources to a
+         * different shard. In streaming mode, this requires
+         * {@link ResourceCollectionReaderBase#PARAM_STREAMING_ORDERED}.
+         */
+        ROUND_ROBIN
+    }
+
+    /**
+     * Journal of the resources completed in a previous run, usually written by a
+     * {@link JCasFileWriter_ImplBase} using its
+     * {@link JCasFileWriter_ImplBase#PARAM_CHECKPOINT_JOURNAL} parameter. Resources whose URI has
+     * been recorded in the journal are skipped without being opened. If the journal does not exist
+     * yet, all resources are read.
+     * <p>
+     * The writer records a resource only after all documents created from it have been written, so
+     * a resource from which several documents are created (e.g. a TEI file containing several
+     * texts) is read again completely if the previous run has been interrupted halfway through it.
+     *
+     * @see CheckpointJournal
+     */
+    public static final String PARAM_CHECKPOINT_JOURNAL = "checkpointJournal";
+    @ConfigurationParameter(name = PARAM_CHECKPOINT_JOURNAL, mandatory = false)
+    private File checkpointJournal;
+
+    private Set<String> completedResources = Collections.emptySet();
+
     private int completed;
     private Collection<Resource> resources;
     private Iterator<Resource> resourceIterator;
+    private StreamingScan streamingScan;
     
     private ProgressMeter progress;
 
@@ -190,6 +296,18 @@ public abstract class ResourceCollectionReaderBase
             }
         }
 
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new ResourceInitializationException(new IllegalArgumentException(
+                    "Shard index must be between 0 and " + (shardCount - 1) + " but was ["
+                            + shardIndex + "]"));
+        }
+        if (streaming && !streamingOrdered && shardCount > 1
+                && shardStrategy == ShardStrategy.ROUND_ROBIN) {
+            throw new ResourceInitializationException(new IllegalArgumentException(
+                    "Round-robin sharding requires a deterministic order - enable ["
+                            + PARAM_STREAMING_ORDERED + "] or use hash sharding"));
+        }
+
         // Parse the patterns and inject them into the FileSet
         List<String> includes = new ArrayList<String>();
         List<String> excludes = getDefaultExcludes();
@@ -227,14 +345,56 @@ public abstract class ResourceCollectionReaderBase
                 sourceLocation = locationToUrl(sourceLocation);
             }
 
-            resources = scan(getSourceLocation(), includes, excludes);
+            if (checkpointJournal != null) {
+                completedResources = CheckpointJournal.readCompleted(checkpointJournal);
+                getLogger().info("Skipping [" + completedResources.size()
+                        + "] resources completed according to [" + checkpointJournal + "]");
+            }
+
+            if (streaming && isStreamable()) {
+                streamingScan = new StreamingScan(getSourceLocation(), includes, excludes);
+                progress = new ProgressMeter(0);
+                resourceIterator = streamingScan;
 
-            progress = new ProgressMeter(resources.size());
-            
-            // Get the iterator that will be used to actually traverse the FileSet.
-            resourceIterator = resources.iterator();
+                getLogger().info("Streaming resources from [" + getBase() + "]");
+            }
+            else {
+                if (streaming) {
+                    getLogger().warn("Streaming is only supported for file system locations with "
+                            + "patterns - scanning [" + getBase() + "] instead");
+                }
 
-            getLogger().info("Found [" + resources.size() + "] resources to be read");
+                resources = scan(getSourceLocation(), includes, excludes);
+                if (shardCount > 1) {
+                    List<Resource> shard = new ArrayList<Resource>();
+                    int i = 0;
+                    for (Resource res : resources) {
+                        if (isInShard(res, i)) {
+                            shard.add(res);
+                        }
+                        i++;
+                    }
+                    getLogger().info("Shard [" + shardIndex + "] of [" + shardCount + "] contains ["
+                            + shard.size() + "] of [" + resources.size() + "] resources");
+                    resources = shard;
+                }
+                if (!completedResources.isEmpty()) {
+                    List<Resource> pending = new ArrayList<Resource>();
+                    for (Resource res : resources) {
+                        if (!isCompleted(res)) {
+                            pending.add(res);
+                        }
+                    }
+                    resources = pending;
+                }
+
+                progress = new ProgressMeter(resources.size());
+
+                // Get the iterator that will be used to actually traverse the FileSet.
+                resourceIterator = resources.iterator();
+
+                getLogger().info("Found [" + resources.size() + "] resources to be read");
+            }
         }
         catch (IOException e) {
             throw new ResourceInitializationException(e);
@@ -317,8 +477,61 @@ public abstract class ResourceCollectionReaderBase
         return aLocation.indexOf(':') < 2;
     }
 
+    /**
+     * Checks whether a resource belongs to the shard read by this reader.
+     *
+     * @param aResource
+     *            the resource.
+     * @param aIndex
+     *            the position of the resource among all resources.
+     * @return whether the resource is to be read.
+     */
+    private boolean isInShard(Resource aResource, long aIndex)
+    {
+        if (shardCount == 1) {
+            return true;
+        }
+
+        switch (shardStrategy) {
+        case ROUND_ROBIN:
+            return aIndex % shardCount == shardIndex;
+        case HASH: {
+            // String.hashCode() is specified, so the hash is the same in every JVM. The bits are
+            // mixed (MurmurHash3 finalizer) because similar paths have similar hash codes.
+            int h = aResource.getPath().hashCode();
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return Math.floorMod(h, shardCount) == shardIndex;
+        }
+        default:
+            throw new IllegalStateException("Unknown shard strategy [" + shardStrategy + "]");
+        }
+    }
+
+    private boolean isCompleted(Resource aResource)
+    {
+        return completedResources.contains(aResource.getResolvedUri().toString());
+    }
+
+    private boolean isStreamable()
+    {
+        return !isSingleLocation() && getBase().startsWith("file:");
+    }
+
+    /**
+     * @return all resources to be read.
+     * @throws IllegalStateException
+     *             in streaming mode, because the resources are not collected in advance.
+     */
     protected Collection<Resource> getResources()
     {
+        if (streamingScan != null) {
+            throw new IllegalStateException(
+                    "Resources are not collected in advance in streaming mode");
+        }
         return resources;
     }
 
@@ -331,6 +544,9 @@ public abstract class ResourceCollectionReaderBase
     {
         try {
             Resource res = resourceIterator.next();
+            if (streamingScan != null) {
+                progress.setLimit(streamingScan.getEstimatedTotal());
+            }
             progress.setDone(completed);
             if (logFreq > 0 && completed % logFreq == 0) {
                 getLogger().info(String.format("%s: %s", progress, res.location));
@@ -386,6 +602,10 @@ public abstract class ResourceCollectionReaderBase
     @Override
     public Progress[] getProgress()
     {
+        if (streamingScan != null) {
+            return new Progress[] { new ProgressImpl(completed, streamingScan.getEstimatedTotal(),
+                    "file", true) };
+        }
         return new Progress[] { new ProgressImpl(completed, resources.size(), "file") };
     }
 
@@ -398,7 +618,12 @@ public abstract class ResourceCollectionReaderBase
     public boolean hasNext()
         throws IOException, CollectionException
     {
-        return resourceIterator.hasNext();
+        try {
+            return resourceIterator.hasNext();
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     protected Collection<Resource> scan(String aBase, Collection<String> aIncludes,
@@ -630,6 +855,216 @@ public abstract class ResourceCollectionReaderBase
         return language;
     }
 
+    /**
+     * Walks a directory on the file system and returns the matching files while walking. The files
+     * of a directory are returned before its sub-directories are visited. Sub-directories which
+     * cannot contain matching files are skipped.
+     */
+    private class StreamingScan
+        implements Iterator<Resource>
+    {
+        private final AntPathMatcher matcher = new AntPathMatcher();
+        private final String base;
+        private final Path baseDir;
+        private final String baseUri;
+        private final Collection<String> includes;
+        private final Collection<String> excludes;
+        private final Deque<Path> pendingDirectories = new ArrayDeque<Path>();
+
+        private DirectoryStream<Path> currentStream;
+        private Iterator<Path> currentEntries;
+        private Resource next;
+        private int visitedDirectories;
+        private int discovered;
+        private long matched;
+
+        StreamingScan(String aBase, Collection<String> aIncludes, Collection<String> aExcludes)
+            throws IOException
+        {
+            base = getBase(aBase);
+            includes = aIncludes.isEmpty() ? Collections.singleton("**/*") : aIncludes;
+            excludes = aExcludes;
+
+            File dir = resolver.getResource(base).getFile().getAbsoluteFile();
+            baseDir = dir.toPath();
+            baseUri = dir.toURI().toString();
+            if (dir.isDirectory()) {
+                pendingDirectories.push(baseDir);
+            }
+        }
+
+        /**
+         * Estimates the total number of resources by extrapolating the number of resources found
+         * per directory so far to the directories not visited yet.
+         */
+        int getEstimatedTotal()
+        {
+            long estimate = discovered;
+            if (visitedDirectories > 0) {
+                estimate += (long) pendingDirectories.size() * discovered / visitedDirectories;
+            }
+            return (int) Math.min(Integer.MAX_VALUE, estimate);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            try {
+                while (next == null) {
+                    if (currentEntries != null && currentEntries.hasNext()) {
+                        next = accept(currentEntries.next());
+                    }
+                    else if (!openNextDirectory()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Resource next()
+        {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Resource res = next;
+            next = null;
+            return res;
+        }
+
+        private boolean openNextDirectory()
+            throws IOException
+        {
+            if (currentStream != null) {
+                currentStream.close();
+                currentStream = null;
+            }
+            currentEntries = null;
+
+            if (pendingDirectories.isEmpty()) {
+                return false;
+            }
+
+            Path dir = pendingDirectories.pop();
+            visitedDirectories++;
+            DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+            if (streamingOrdered) {
+                List<Path> files = new ArrayList<Path>();
+                List<Path> dirs = new ArrayList<Path>();
+                try {
+                    for (Path entry : stream) {
+                        if (Files.isDirectory(entry)) {
+                            dirs.add(entry);
+                        }
+                        else {
+                            files.add(entry);
+                        }
+                    }
+                }
+                finally {
+                    stream.close();
+                }
+                Collections.sort(files);
+                Collections.sort(dirs);
+                // Push in reverse order so the first directory is visited first
+                for (int i = dirs.size() - 1; i >= 0; i--) {
+                    if (isCandidateDirectory(dirs.get(i))) {
+                        pendingDirectories.push(dirs.get(i));
+                    }
+                }
+                currentEntries = files.iterator();
+            }
+            else {
+                currentStream = stream;
+                currentEntries = stream.iterator();
+            }
+            return true;
+        }
+
+        private Resource accept(Path aEntry)
+            throws IOException
+        {
+            if (Files.isDirectory(aEntry)) {
+                if (isCandidateDirectory(aEntry)) {
+                    pendingDirectories.push(aEntry);
+                }
+                return null;
+            }
+
+            if (!Files.isRegularFile(aEntry) || (!includeHidden && Files.isHidden(aEntry))) {
+                return null;
+            }
+
+            String path = baseDir.relativize(aEntry).toString().replace(File.separatorChar, '/');
+            boolean included = false;
+            for (String include : includes) {
+                if (matcher.match(include, path)) {
+                    included = true;
+                    break;
+                }
+            }
+            if (!included) {
+                return null;
+            }
+
+            // Like in scan(), the excludes are matched against the URI relative to the base
+            File file = aEntry.toFile();
+            URI uri = file.toURI();
+            String rest = uri.toString().substring(baseUri.length());
+            for (String exclude : excludes) {
+                if (matcher.match(exclude, rest)) {
+                    if (getLogger().isDebugEnabled()) {
+                        getLogger().debug("Excluded: " + uri);
+                    }
+                    return null;
+                }
+            }
+
+            Resource res = new Resource(base + rest, base, uri, baseUri, rest,
+                    new FileSystemResource(file));
+            if (!isInShard(res, matched++) || isCompleted(res)) {
+                return null;
+            }
+
+            discovered++;
+            return res;
+        }
+
+        /**
+         * Checks whether a directory may contain files matching the patterns, i.e. whether it
+         * matches the start of an include pattern and it is not completely excluded by a pattern
+         * ending in {@code /**}.
+         */
+        private boolean isCandidateDirectory(Path aDir)
+        {
+            String path = baseDir.relativize(aDir).toString().replace(File.separatorChar, '/');
+            boolean candidate = false;
+            for (String include : includes) {
+                if (matcher.matchStart(include, path + "/")) {
+                    candidate = true;
+                    break;
+                }
+            }
+            if (!candidate) {
+                return false;
+            }
+
+            String rest = StringUtils.removeEnd(
+                    aDir.toFile().toURI().toString().substring(baseUri.length()), "/");
+            for (String exclude : excludes) {
+                if (exclude.endsWith("/**")
+                        && matcher.match(exclude.substring(0, exclude.length() - 3), rest)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      */
     public static class Resource
@@ -17,8 +17,8 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.dkpro.core.api.io.sequencegenerator;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
 import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
-import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathFactory;
 import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathUtils;
 import de.tudarmstadt.ukp.dkpro.core.api.io.TextUtils;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.LexicalPhrase;
@@ -59,6 +59,7 @@ public class PhraseSequenceGenerator
     private final Collection<String> stopwords;
     private final String featurePath;
     private final int minTokenLength;
+    private CompiledFeaturePath compiledFeaturePath;
 
     private final boolean useCharacters;
 
@@ -179,19 +180,24 @@ public class PhraseSequenceGenerator
             Optional<AnnotationFS> coveringAnnotation)
             throws FeaturePathException
     {
-        List<LexicalPhrase> sequence = new ArrayList<>();
+        compiledFeaturePath = CompiledFeaturePath.compile(aJCas.getTypeSystem(), featurePath,
+                compiledFeaturePath);
+        Type type = compiledFeaturePath.getType();
 
-        FeaturePathFactory.FeaturePathIterator<AnnotationFS> valueIterator =
-                FeaturePathUtils.featurePathIterator(aJCas, featurePath, coveringAnnotation);
+        Collection<AnnotationFS> annotations = coveringAnnotation.isPresent()
+                ? CasUtil.selectCovered(type, coveringAnnotation.get())
+                : CasUtil.select(aJCas.getCas(), type);
+        String[] texts = new String[annotations.size()];
+        compiledFeaturePath.extract(annotations, texts, 0);
 
         /* iterate over tokens (optionally within covering annotation) */
-        while (valueIterator.hasNext()) {
-            Map.Entry<AnnotationFS, String> entry = valueIterator.next();
-            AnnotationFS annotation = entry.getKey();
+        List<LexicalPhrase> sequence = new ArrayList<>(annotations.size());
+        int i = 0;
+        for (AnnotationFS annotation : annotations) {
             LexicalPhrase phrase = new LexicalPhrase(aJCas, annotation.getBegin(),
                     annotation.getEnd());
 
-            String text = entry.getValue();
+            String text = texts[i++];
 
             /* transform text */
             text = text.length() < minTokenLength ? "" : text;
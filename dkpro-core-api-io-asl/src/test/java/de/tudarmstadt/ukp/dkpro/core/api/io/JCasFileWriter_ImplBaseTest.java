@@ -27,7 +27,9 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -39,6 +41,8 @@ import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.jcas.JCas;
 import org.junit.Test;
 
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+
 public class JCasFileWriter_ImplBaseTest
 {
     @Test
@@ -95,6 +99,102 @@ public class JCasFileWriter_ImplBaseTest
         assertEquals(expected, FileUtils.readFileToString(target, "UTF-8"));
     }
 
+    @Test
+    public void writeWithCheckpointJournal() throws Exception
+    {
+        File target = new File("target/test-output/checkpoint");
+        FileUtils.deleteQuietly(target);
+        File journalFile = new File(target, "journal.txt");
+
+        AnalysisEngine ae = createEngine(DummyWriter.class,
+                DummyWriter.PARAM_TARGET_LOCATION, new File(target, "out"),
+                DummyWriter.PARAM_CHECKPOINT_JOURNAL, journalFile);
+        JCas jcas = JCasFactory.createJCas();
+        for (int i = 0; i < 3; i++) {
+            jcas.reset();
+            DocumentMetaData.create(jcas).setDocumentUri("file:/corpus/doc-" + i + ".txt");
+            ae.process(jcas);
+        }
+        ae.collectionProcessComplete();
+
+        assertEquals(new HashSet<String>(asList("file:/corpus/doc-0.txt", "file:/corpus/doc-1.txt",
+                "file:/corpus/doc-2.txt")), CheckpointJournal.readCompleted(journalFile));
+        // Only the renamed output files remain, no temporary files
+        String[] files = new File(target, "out").list();
+        Arrays.sort(files);
+        assertEquals(asList("file-0.txt", "file-1.txt", "file-2.txt"), asList(files));
+        assertEquals("This is the file 1\n",
+                FileUtils.readFileToString(new File(target, "out/file-1.txt"), "UTF-8"));
+    }
+
+    @Test
+    public void checkpointJournalRecordsResourceAfterLastDocument() throws Exception
+    {
+        File target = new File("target/test-output/checkpoint-multi");
+        FileUtils.deleteQuietly(target);
+        File journalFile = new File(target, "journal.txt");
+
+        AnalysisEngine ae = createEngine(DummyWriter.class,
+                DummyWriter.PARAM_TARGET_LOCATION, new File(target, "out"),
+                DummyWriter.PARAM_CHECKPOINT_JOURNAL, journalFile);
+        JCas jcas = JCasFactory.createJCas();
+        String[] uris = { "file:/corpus/multi.xml#1", "file:/corpus/multi.xml#2",
+                "file:/corpus/other.xml#1" };
+        for (String uri : uris) {
+            jcas.reset();
+            DocumentMetaData.create(jcas).setDocumentUri(uri);
+            ae.process(jcas);
+        }
+
+        // The last resource may still have documents to come
+        assertEquals(new HashSet<String>(asList("file:/corpus/multi.xml")),
+                CheckpointJournal.readCompleted(journalFile));
+
+        ae.collectionProcessComplete();
+
+        assertEquals(new HashSet<String>(asList("file:/corpus/multi.xml",
+                "file:/corpus/other.xml")), CheckpointJournal.readCompleted(journalFile));
+    }
+
+    @Test
+    public void atomicWriteRemovesTempFileIfMoveFails() throws Exception
+    {
+        File target = new File("target/test-output/atomic");
+        FileUtils.deleteQuietly(target);
+        // A non-empty directory in place of the target file cannot be replaced
+        File blocker = new File(target, "file-0.txt");
+        FileUtils.writeStringToFile(new File(blocker, "content.txt"), "blocked", "UTF-8");
+
+        AnalysisEngine ae = createEngine(DummyWriter.class,
+                DummyWriter.PARAM_TARGET_LOCATION, target,
+                DummyWriter.PARAM_ATOMIC_WRITE, true,
+                DummyWriter.PARAM_OVERWRITE, true);
+        ae.process(JCasFactory.createJCas());
+        ae.collectionProcessComplete();
+
+        // The failed move must not leave the temporary file behind
+        assertEquals(asList("file-0.txt"), asList(target.list()));
+        assertEquals(asList("content.txt"), asList(blocker.list()));
+    }
+
+    @Test
+    public void readIncompleteCheckpointJournal() throws Exception
+    {
+        File journalFile = new File("target/test-output/incomplete-journal.txt");
+        FileUtils.writeStringToFile(journalFile, "file:/a.txt\nfile:/b.txt\nfile:/c.t", "UTF-8");
+
+        // The incomplete last record is ignored...
+        assertEquals(new HashSet<String>(asList("file:/a.txt", "file:/b.txt")),
+                CheckpointJournal.readCompleted(journalFile));
+
+        // ... and removed before appending
+        try (CheckpointJournal journal = new CheckpointJournal(journalFile)) {
+            journal.record("file:/c.txt");
+        }
+        assertEquals("file:/a.txt\nfile:/b.txt\nfile:/c.txt\n",
+                FileUtils.readFileToString(journalFile, "UTF-8"));
+    }
+
     private List<String> listContents(String aFile)
         throws IOException
     {
@@ -20,22 +20,32 @@ package de.tudarmstadt.ukp.dkpro.core.api.io;
 
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
 import static org.apache.uima.fit.factory.ExternalResourceFactory.createExternalResourceDescription;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.collection.CollectionException;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.resource.ExternalResourceDescription;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.Progress;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase.ShardStrategy;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 
 public class ResourceCollectionReaderBaseTest
@@ -157,6 +167,159 @@ public class ResourceCollectionReaderBaseTest
         searchForResourceCollectionReaderBase(reader);
     }
 
+    @Test
+    public void testFileStreaming()
+        throws Exception
+    {
+        CollectionReader reader = createReader(DummyReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION,
+                "file:src/main/java/de/tudarmstadt/ukp/",
+                ResourceCollectionReaderBase.PARAM_PATTERNS, new String[] {
+                        "[+]**/FileSetCollectionReaderBase.java",
+                        "[-]**/ResourceCollectionReaderBase.java" },
+                ResourceCollectionReaderBase.PARAM_STREAMING, true);
+
+        searchForResourceCollectionReaderBase(reader);
+    }
+
+    @Test
+    public void testFileStreamingOrderedMatchesScan()
+        throws Exception
+    {
+        String[] patterns = { "[+]**/*.java", "[-]**/ProgressMeter.java",
+                "[-]de/tudarmstadt/ukp/dkpro/core/api/io/sequencegenerator/**" };
+
+        CollectionReader scanReader = createReader(DummyReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                ResourceCollectionReaderBase.PARAM_PATTERNS, patterns);
+        List<String> scanned = readDocumentUris(scanReader);
+
+        CollectionReader streamingReader = createReader(DummyReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                ResourceCollectionReaderBase.PARAM_PATTERNS, patterns,
+                ResourceCollectionReaderBase.PARAM_STREAMING, true,
+                ResourceCollectionReaderBase.PARAM_STREAMING_ORDERED, true);
+        List<String> streamed = readDocumentUris(streamingReader);
+
+        assertFalse(scanned.isEmpty());
+        assertFalse(streamed.contains(new File("src/main/java/de/tudarmstadt/ukp/dkpro/core/api/io/"
+                + "ProgressMeter.java").getAbsoluteFile().toURI().toString()));
+        assertEquals(new HashSet<String>(scanned), new HashSet<String>(streamed));
+        assertEquals(scanned.size(), streamed.size());
+
+        // Once all resources have been read, the estimate is exact
+        Progress progress = streamingReader.getProgress()[0];
+        assertTrue(progress.isApproximate());
+        assertEquals(streamed.size(), progress.getTotal());
+        assertEquals(streamed.size(), progress.getCompleted());
+
+        // The files in a directory are returned in order
+        List<String> ioFiles = new ArrayList<String>();
+        for (String uri : streamed) {
+            if (uri.matches(".*/api/io/[^/]*")) {
+                ioFiles.add(uri);
+            }
+        }
+        List<String> sortedIoFiles = new ArrayList<String>(ioFiles);
+        Collections.sort(sortedIoFiles);
+        assertEquals(sortedIoFiles, ioFiles);
+    }
+
+    @Test
+    public void testSharding()
+        throws Exception
+    {
+        String[] patterns = { "[+]**/*.java" };
+        List<String> all = readDocumentUris(createReader(DummyReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                ResourceCollectionReaderBase.PARAM_PATTERNS, patterns));
+
+        for (ShardStrategy strategy : ShardStrategy.values()) {
+            Set<String> union = new HashSet<String>();
+            int total = 0;
+            for (int shard = 0; shard < 3; shard++) {
+                List<String> scanned = readDocumentUris(createReader(DummyReader.class,
+                        ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                        ResourceCollectionReaderBase.PARAM_PATTERNS, patterns,
+                        ResourceCollectionReaderBase.PARAM_SHARD_INDEX, shard,
+                        ResourceCollectionReaderBase.PARAM_SHARD_COUNT, 3,
+                        ResourceCollectionReaderBase.PARAM_SHARD_STRATEGY, strategy));
+                List<String> streamed = readDocumentUris(createReader(DummyReader.class,
+                        ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                        ResourceCollectionReaderBase.PARAM_PATTERNS, patterns,
+                        ResourceCollectionReaderBase.PARAM_SHARD_INDEX, shard,
+                        ResourceCollectionReaderBase.PARAM_SHARD_COUNT, 3,
+                        ResourceCollectionReaderBase.PARAM_SHARD_STRATEGY, strategy,
+                        ResourceCollectionReaderBase.PARAM_STREAMING, true,
+                        ResourceCollectionReaderBase.PARAM_STREAMING_ORDERED, true));
+
+                // Hash shards do not depend on the order, so both modes agree
+                if (strategy == ShardStrategy.HASH) {
+                    assertEquals(new HashSet<String>(scanned), new HashSet<String>(streamed));
+                }
+                union.addAll(scanned);
+                total += scanned.size();
+            }
+            // The shards are disjoint and cover all resources
+            assertEquals(all.size(), total);
+            assertEquals(new HashSet<String>(all), union);
+        }
+    }
+
+    @Test
+    public void testCheckpointJournal()
+        throws Exception
+    {
+        String[] patterns = { "[+]**/*.java" };
+        List<String> all = readDocumentUris(createReader(DummyReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                ResourceCollectionReaderBase.PARAM_PATTERNS, patterns));
+
+        File journalFile = new File("target/test-output/reader-journal.txt");
+        FileUtils.deleteQuietly(journalFile);
+        try (CheckpointJournal journal = new CheckpointJournal(journalFile)) {
+            journal.record(all.get(0));
+            journal.record(all.get(2));
+        }
+
+        for (boolean streaming : new boolean[] { false, true }) {
+            List<String> resumed = readDocumentUris(createReader(DummyReader.class,
+                    ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                    ResourceCollectionReaderBase.PARAM_PATTERNS, patterns,
+                    ResourceCollectionReaderBase.PARAM_STREAMING, streaming,
+                    ResourceCollectionReaderBase.PARAM_CHECKPOINT_JOURNAL, journalFile));
+
+            assertEquals(all.size() - 2, resumed.size());
+            assertFalse(resumed.contains(all.get(0)));
+            assertFalse(resumed.contains(all.get(2)));
+        }
+    }
+
+    @Test(expected = ResourceInitializationException.class)
+    public void testInvalidShard()
+        throws Exception
+    {
+        createReader(DummyReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, "src/main/java/",
+                ResourceCollectionReaderBase.PARAM_PATTERNS, "[+]**/*.java",
+                ResourceCollectionReaderBase.PARAM_SHARD_INDEX, 2,
+                ResourceCollectionReaderBase.PARAM_SHARD_COUNT, 2);
+    }
+
+    private List<String> readDocumentUris(CollectionReader aReader)
+        throws Exception
+    {
+        List<String> uris = new ArrayList<String>();
+        CAS cas = CasCreationUtils.createCas(aReader.getProcessingResourceMetaData());
+        while (aReader.hasNext()) {
+            aReader.getNext(cas);
+            uris.add(DocumentMetaData.get(cas).getDocumentUri());
+            cas.reset();
+        }
+        cas.release();
+        return uris;
+    }
+
     @Test
     public void testFileNoPrefix()
         throws Exception
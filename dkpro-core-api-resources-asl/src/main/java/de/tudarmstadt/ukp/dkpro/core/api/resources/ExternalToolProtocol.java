@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.resources;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Line-oriented request/response protocol spoken with an external tool running in an
+ * {@link ExternalToolSession}. A request is a batch of records (e.g. the tokens of a sentence),
+ * each record being sent as one line. The protocol defines which delimiter lines are sent after
+ * each record and after the batch, and how the response lines are assigned to the records.
+ * <ul>
+ * <li>{@link #linePerRecord(String...)} - the tool answers every record with exactly one line,
+ * e.g. {@code token<TAB>tag}. Empty lines in the response are treated as batch boundaries and
+ * skipped.</li>
+ * <li>{@link #delimitedRecords(String)} - the tool answers every record with any number of lines
+ * followed by a line containing the record delimiter. A typical way to obtain such a delimiter is
+ * to send a special marker record after each actual record which the tool echoes back.</li>
+ * </ul>
+ * A protocol can additionally validate each response line (see
+ * {@link #withResponseValidator(Predicate)}). A malformed response is treated like a failure of
+ * the tool, i.e. the worker is restarted and the batch is retried.
+ */
+public final class ExternalToolProtocol
+{
+    private final String recordDelimiter;
+    private final List<String> batchDelimiter;
+    private final String echoPrefix;
+    private final Predicate<String> responseValidator;
+
+    private ExternalToolProtocol(String aRecordDelimiter, List<String> aBatchDelimiter,
+            String aEchoPrefix, Predicate<String> aResponseValidator)
+    {
+        recordDelimiter = aRecordDelimiter;
+        batchDelimiter = aBatchDelimiter;
+        echoPrefix = aEchoPrefix;
+        responseValidator = aResponseValidator;
+    }
+
+    /**
+     * Protocol for tools which answer every record with one line.
+     *
+     * @param aBatchDelimiter
+     *            lines sent after each batch, e.g. an empty line which tells a tagger that the
+     *            sentence is complete.
+     * @return the protocol.
+     */
+    public static ExternalToolProtocol linePerRecord(String... aBatchDelimiter)
+    {
+        return new ExternalToolProtocol(null,
+                Collections.unmodifiableList(Arrays.asList(aBatchDelimiter)), null, null);
+    }
+
+    /**
+     * Protocol for tools which answer every record with a variable number of lines.
+     *
+     * @param aRecordDelimiter
+     *            line sent after each record. The response for a record ends with the first
+     *            line containing this delimiter.
+     * @return the protocol.
+     */
+    public static ExternalToolProtocol delimitedRecords(String aRecordDelimiter)
+    {
+        return delimitedRecords(aRecordDelimiter, null);
+    }
+
+    /**
+     * Protocol for tools which answer every record with a variable number of lines and which
+     * echo their input.
+     *
+     * @param aRecordDelimiter
+     *            line sent after each record. The response for a record ends with the first
+     *            line containing this delimiter.
+     * @param aEchoPrefix
+     *            response lines starting with this prefix are echoed input and are dropped.
+     * @return the protocol.
+     */
+    public static ExternalToolProtocol delimitedRecords(String aRecordDelimiter,
+            String aEchoPrefix)
+    {
+        return new ExternalToolProtocol(aRecordDelimiter, Collections.emptyList(), aEchoPrefix,
+                null);
+    }
+
+    /**
+     * Derive a protocol which checks every response line, e.g. that a tagger returned a tag for
+     * each token.
+     *
+     * @param aValidator
+     *            returns {@code true} for well-formed response lines.
+     * @return the protocol.
+     */
+    public ExternalToolProtocol withResponseValidator(Predicate<String> aValidator)
+    {
+        return new ExternalToolProtocol(recordDelimiter, batchDelimiter, echoPrefix, aValidator);
+    }
+
+    /**
+     * Write a batch of records to the tool. The writer is flushed afterwards.
+     */
+    void writeBatch(Writer aOut, List<String> aRecords)
+        throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for (String record : aRecords) {
+            sb.append(record).append('\n');
+            if (recordDelimiter != null) {
+                sb.append(recordDelimiter).append('\n');
+            }
+        }
+        for (String line : batchDelimiter) {
+            sb.append(line).append('\n');
+        }
+        aOut.write(sb.toString());
+        aOut.flush();
+    }
+
+    /**
+     * Read the response for a batch of records.
+     *
+     * @return the response lines for each record, without any delimiter lines.
+     */
+    List<List<String>> readBatch(BufferedReader aIn, List<String> aRecords)
+        throws IOException
+    {
+        List<List<String>> response = new ArrayList<>(aRecords.size());
+        for (int i = 0; i < aRecords.size(); i++) {
+            if (recordDelimiter == null) {
+                String line;
+                do {
+                    line = readLine(aIn);
+                }
+                while (line.isEmpty());
+                validate(line);
+                response.add(Collections.singletonList(line));
+            }
+            else {
+                List<String> lines = new ArrayList<>();
+                String line;
+                while (!(line = readLine(aIn)).contains(recordDelimiter)
+                        || isEcho(line)) {
+                    if (!isEcho(line)) {
+                        validate(line);
+                        lines.add(line);
+                    }
+                }
+                response.add(lines);
+            }
+        }
+        return response;
+    }
+
+    private void validate(String aLine)
+        throws IOException
+    {
+        if (responseValidator != null && !responseValidator.test(aLine)) {
+            throw new IOException("Malformed response from external tool: [" + aLine + "]");
+        }
+    }
+
+    private boolean isEcho(String aLine)
+    {
+        return echoPrefix != null && aLine.startsWith(echoPrefix);
+    }
+
+    private static String readLine(BufferedReader aIn)
+        throws IOException
+    {
+        String line = aIn.readLine();
+        if (line == null) {
+            throw new IOException("External tool terminated unexpectedly");
+        }
+        return line;
+    }
+}
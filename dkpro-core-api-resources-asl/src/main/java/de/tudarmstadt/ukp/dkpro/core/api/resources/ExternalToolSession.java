@@ -0,0 +1,295 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.resources;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps a number of external tool processes (e.g. a tagger binary obtained from a
+ * {@link RuntimeProvider}) running so they can be reused across many requests and across CASes.
+ * Requests are batches of records which are exchanged with the tool using an
+ * {@link ExternalToolProtocol}. Batches passed to {@link #process(List)} are distributed over the
+ * worker processes and processed concurrently.
+ * <p>
+ * If a worker process dies or does not complete a batch within the configured timeout, a watchdog
+ * kills it. The worker is then restarted and the batch is retried once.
+ * <p>
+ * A session is bound to a specific command line - e.g. a specific model. Use
+ * {@link #isCompatible(List, String)} to check if a session can be reused after the model has been
+ * re-configured.
+ */
+public class ExternalToolSession
+    implements AutoCloseable
+{
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final List<String> command;
+    private final String encoding;
+    private final ExternalToolProtocol protocol;
+    private final long timeout;
+
+    private final List<Worker> workers;
+    private final BlockingQueue<Worker> idle;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * Start a new session.
+     *
+     * @param aCommand
+     *            the command line used to start the tool.
+     * @param aEncoding
+     *            the encoding used to talk to the tool.
+     * @param aProtocol
+     *            the protocol spoken with the tool.
+     * @param aNumWorkers
+     *            the number of tool processes to run concurrently.
+     * @param aTimeout
+     *            the maximum time in milliseconds a worker may take to answer a batch. If
+     *            {@code 0} or less, no timeout is enforced.
+     * @throws IOException
+     *             if the tool processes cannot be started.
+     */
+    public ExternalToolSession(List<String> aCommand, String aEncoding,
+            ExternalToolProtocol aProtocol, int aNumWorkers, long aTimeout)
+        throws IOException
+    {
+        if (aNumWorkers < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+
+        command = Collections.unmodifiableList(new ArrayList<>(aCommand));
+        encoding = aEncoding;
+        protocol = aProtocol;
+        timeout = aTimeout;
+
+        workers = new ArrayList<>(aNumWorkers);
+        idle = new ArrayBlockingQueue<>(aNumWorkers);
+        executor = Executors.newFixedThreadPool(aNumWorkers);
+        if (timeout > 0) {
+            watchdog = Executors.newSingleThreadScheduledExecutor();
+            long period = Math.max(1, timeout / 2);
+            watchdog.scheduleAtFixedRate(this::checkWorkers, period, period,
+                    TimeUnit.MILLISECONDS);
+        }
+        else {
+            watchdog = null;
+        }
+
+        try {
+            for (int i = 0; i < aNumWorkers; i++) {
+                Worker worker = new Worker(i);
+                workers.add(worker);
+                worker.start();
+                idle.add(worker);
+            }
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return whether this session runs the given command with the given encoding.
+     */
+    public boolean isCompatible(List<String> aCommand, String aEncoding)
+    {
+        return command.equals(aCommand) && encoding.equals(aEncoding);
+    }
+
+    /**
+     * Process several batches of records concurrently. The results are returned in the order of
+     * the batches.
+     *
+     * @param aBatches
+     *            the batches, e.g. one per sentence.
+     * @return the response lines for each record of each batch.
+     * @throws IOException
+     *             if a batch could not be processed even after restarting the worker.
+     */
+    public List<List<List<String>>> process(List<List<String>> aBatches)
+        throws IOException
+    {
+        List<Future<List<List<String>>>> futures = new ArrayList<>(aBatches.size());
+        for (List<String> batch : aBatches) {
+            futures.add(executor.submit(() -> processBatch(batch)));
+        }
+
+        List<List<List<String>>> results = new ArrayList<>(aBatches.size());
+        try {
+            for (Future<List<List<String>>> future : futures) {
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally {
+            for (Future<List<List<String>>> future : futures) {
+                future.cancel(false);
+            }
+        }
+
+        return results;
+    }
+
+    private List<List<String>> processBatch(List<String> aRecords)
+        throws IOException, InterruptedException
+    {
+        Worker worker = idle.take();
+        try {
+            try {
+                return worker.process(aRecords);
+            }
+            catch (IOException e) {
+                log.warn("External tool [" + command.get(0) + "] worker " + worker.id
+                        + " failed - restarting it and retrying the batch: " + e.getMessage());
+                worker.restart();
+                return worker.process(aRecords);
+            }
+        }
+        finally {
+            idle.put(worker);
+        }
+    }
+
+    private void checkWorkers()
+    {
+        long now = System.currentTimeMillis();
+        for (Worker worker : workers) {
+            long since = worker.busySince;
+            if (since > 0 && now - since > timeout) {
+                log.warn("External tool [" + command.get(0) + "] worker " + worker.id
+                        + " did not respond within " + timeout + "ms - killing it");
+                worker.kill();
+            }
+        }
+    }
+
+    /**
+     * Shut down all worker processes.
+     */
+    @Override
+    public void close()
+    {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        executor.shutdownNow();
+        for (Worker worker : workers) {
+            worker.stop();
+        }
+        workers.clear();
+        idle.clear();
+    }
+
+    private class Worker
+    {
+        private final int id;
+        private Process process;
+        private BufferedWriter out;
+        private BufferedReader in;
+        private volatile long busySince;
+
+        Worker(int aId)
+        {
+            id = aId;
+        }
+
+        synchronized void start()
+            throws IOException
+        {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectError(Redirect.INHERIT);
+            process = pb.start();
+
+            out = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), encoding));
+            in = new BufferedReader(new InputStreamReader(process.getInputStream(), encoding));
+        }
+
+        void restart()
+            throws IOException
+        {
+            stop();
+            start();
+        }
+
+        synchronized void kill()
+        {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+        }
+
+        synchronized void stop()
+        {
+            closeQuietly(out);
+            closeQuietly(in);
+            if (process != null) {
+                process.destroy();
+                process = null;
+            }
+        }
+
+        List<List<String>> process(List<String> aRecords)
+            throws IOException
+        {
+            if (process == null || !process.isAlive()) {
+                throw new IOException("Process is not running");
+            }
+
+            busySince = System.currentTimeMillis();
+            try {
+                protocol.writeBatch(out, aRecords);
+                return protocol.readBatch(in, aRecords);
+            }
+            finally {
+                busySince = 0;
+            }
+        }
+    }
+}
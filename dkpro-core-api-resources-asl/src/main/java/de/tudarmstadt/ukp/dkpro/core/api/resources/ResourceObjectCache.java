@@ -0,0 +1,407 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.resources;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Cache for resources shared between {@link ResourceObjectProviderBase} instances.
+ * <p>
+ * Resources are retained strongly as long as the sum of their estimated sizes stays within a
+ * memory budget. When the budget is exceeded, resources are released according to the eviction
+ * policy ({@code LRU} or {@code LFU}). A released resource stays available from the cache for as
+ * long as it is still in use by some provider, i.e. it is then only referenced weakly. Pinned
+ * resources are never released.
+ * <p>
+ * Concurrent requests for the same resource are de-duplicated: the resource is produced only once
+ * and all requesters receive the same object.
+ * <p>
+ * The budget and policy are initialized from the system properties {@value #PROP_CACHE_SIZE} and
+ * {@value #PROP_CACHE_POLICY}. The budget may be given in bytes or with one of the suffixes
+ * {@code k}, {@code m} or {@code g}. If no budget is set, resources are only retained while they
+ * are in use. A negative budget means that resources are never released. The cache is registered
+ * as a JMX bean under {@value #MBEAN_NAME}.
+ */
+public class ResourceObjectCache
+    implements ResourceObjectCacheMBean
+{
+    public static final String PROP_CACHE_SIZE = "dkpro.model.cache.size";
+    public static final String PROP_CACHE_POLICY = "dkpro.model.cache.policy";
+
+    public static final String MBEAN_NAME = "de.tudarmstadt.ukp.dkpro.core:type=ResourceObjectCache";
+
+    public static final String POLICY_LRU = "LRU";
+    public static final String POLICY_LFU = "LFU";
+
+    private static final ResourceObjectCache INSTANCE = new ResourceObjectCache();
+
+    static {
+        INSTANCE.registerMBean();
+    }
+
+    private final Log log = LogFactory.getLog(ResourceObjectCache.class);
+
+    private final ConcurrentMap<Object, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadTime = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+
+    private volatile long maxSize;
+    private volatile String evictionPolicy;
+    private long retainedSize;
+
+    public ResourceObjectCache()
+    {
+        maxSize = parseSize(System.getProperty(PROP_CACHE_SIZE, "0"));
+        setEvictionPolicy(System.getProperty(PROP_CACHE_POLICY, POLICY_LRU));
+    }
+
+    /**
+     * @return the cache shared by all resource providers.
+     */
+    public static ResourceObjectCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Obtain the resource for the given key from the cache or produce it if it is not in the
+     * cache. If another thread is already producing the resource, wait for it.
+     *
+     * @param aKey
+     *            the cache key.
+     * @param aPinned
+     *            whether the resource should be exempt from eviction.
+     * @param aEstimatedSize
+     *            the estimated size of the resource in bytes.
+     * @param aProducer
+     *            produces the resource if it is not in the cache.
+     * @return the resource.
+     * @throws IOException
+     *             if the resource cannot be produced.
+     */
+    public Object get(Object aKey, boolean aPinned, long aEstimatedSize,
+            Callable<Object> aProducer)
+        throws IOException
+    {
+        while (true) {
+            CacheEntry entry = entries.get(aKey);
+
+            if (entry != null) {
+                Object value = entry.await();
+                if (value != null) {
+                    hits.incrementAndGet();
+                    retain(entry, value, aPinned);
+                    return value;
+                }
+
+                // Resource was garbage collected or loading failed
+                entries.remove(aKey, entry);
+                continue;
+            }
+
+            CacheEntry newEntry = new CacheEntry(aProducer, aEstimatedSize);
+            if (entries.putIfAbsent(aKey, newEntry) != null) {
+                // Somebody else just started producing the resource - wait for that
+                continue;
+            }
+
+            misses.incrementAndGet();
+            try {
+                long start = System.currentTimeMillis();
+                Object value = newEntry.load();
+                loads.incrementAndGet();
+                loadTime.addAndGet(System.currentTimeMillis() - start);
+                retain(newEntry, value, aPinned);
+                return value;
+            }
+            catch (IOException | RuntimeException | Error e) {
+                entries.remove(aKey, newEntry);
+                throw e;
+            }
+        }
+    }
+
+    private synchronized void retain(CacheEntry aEntry, Object aValue, boolean aPinned)
+    {
+        aEntry.lastAccess = clock.incrementAndGet();
+        aEntry.accessCount++;
+        aEntry.pinned |= aPinned;
+
+        // Without a budget, only pinned resources are retained strongly
+        if (aEntry.strongValue == null && (maxSize != 0 || aEntry.pinned)) {
+            aEntry.strongValue = aValue;
+            retainedSize += aEntry.size;
+        }
+
+        evict();
+    }
+
+    private synchronized void evict()
+    {
+        while (maxSize >= 0 && retainedSize > maxSize) {
+            CacheEntry victim = null;
+            Iterator<Entry<Object, CacheEntry>> i = entries.entrySet().iterator();
+            while (i.hasNext()) {
+                CacheEntry e = i.next().getValue();
+                if (e.isCollected()) {
+                    i.remove();
+                    continue;
+                }
+                if (e.strongValue == null || e.pinned) {
+                    continue;
+                }
+                if (victim == null || isBetterVictim(e, victim)) {
+                    victim = e;
+                }
+            }
+
+            if (victim == null) {
+                // Only pinned resources left
+                break;
+            }
+
+            victim.strongValue = null;
+            retainedSize -= victim.size;
+            log.debug("Released resource from cache (retained: " + retainedSize + " bytes)");
+        }
+    }
+
+    private boolean isBetterVictim(CacheEntry aCandidate, CacheEntry aVictim)
+    {
+        if (POLICY_LFU.equals(evictionPolicy) && aCandidate.accessCount != aVictim.accessCount) {
+            return aCandidate.accessCount < aVictim.accessCount;
+        }
+        return aCandidate.lastAccess < aVictim.lastAccess;
+    }
+
+    @Override
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    @Override
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public long getLoadCount()
+    {
+        return loads.get();
+    }
+
+    @Override
+    public long getTotalLoadTime()
+    {
+        return loadTime.get();
+    }
+
+    @Override
+    public int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getRetainedSize()
+    {
+        return retainedSize;
+    }
+
+    @Override
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    @Override
+    public void setMaxSize(long aMaxSize)
+    {
+        maxSize = aMaxSize;
+        if (maxSize == 0) {
+            evictAll();
+        }
+        else {
+            evict();
+        }
+    }
+
+    @Override
+    public String getEvictionPolicy()
+    {
+        return evictionPolicy;
+    }
+
+    @Override
+    public void setEvictionPolicy(String aPolicy)
+    {
+        String policy = aPolicy.trim().toUpperCase();
+        if (!POLICY_LRU.equals(policy) && !POLICY_LFU.equals(policy)) {
+            throw new IllegalArgumentException("Unsupported eviction policy [" + aPolicy
+                    + "] - must be " + POLICY_LRU + " or " + POLICY_LFU);
+        }
+        evictionPolicy = policy;
+    }
+
+    @Override
+    public synchronized void evictAll()
+    {
+        for (CacheEntry e : entries.values()) {
+            if (e.strongValue != null && !e.pinned) {
+                e.strongValue = null;
+                retainedSize -= e.size;
+            }
+        }
+    }
+
+    private void registerMBean()
+    {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        }
+        catch (Exception e) {
+            log.warn("Unable to register resource cache with JMX: " + e.getMessage());
+        }
+    }
+
+    static long parseSize(String aSize)
+    {
+        String size = aSize.trim().toLowerCase();
+        long factor = 1;
+        if (size.endsWith("k")) {
+            factor = 1024L;
+        }
+        else if (size.endsWith("m")) {
+            factor = 1024L * 1024L;
+        }
+        else if (size.endsWith("g")) {
+            factor = 1024L * 1024L * 1024L;
+        }
+        if (factor > 1) {
+            size = size.substring(0, size.length() - 1);
+        }
+        return Long.parseLong(size) * factor;
+    }
+
+    private static final class CacheEntry
+    {
+        private final long size;
+
+        // Only kept while the resource is being produced - afterwards, the resource is referenced
+        // weakly through weakValue and strongly only through strongValue.
+        private volatile FutureTask<Object> task;
+        private volatile WeakReference<Object> weakValue;
+        // Guarded by the cache monitor
+        private Object strongValue;
+        private boolean pinned;
+        private long lastAccess;
+        private long accessCount;
+
+        CacheEntry(Callable<Object> aProducer, long aSize)
+        {
+            task = new FutureTask<>(aProducer);
+            size = Math.max(1, aSize);
+        }
+
+        Object load()
+            throws IOException
+        {
+            FutureTask<Object> t = task;
+            t.run();
+            Object value = await();
+            weakValue = new WeakReference<>(value);
+            task = null;
+            return value;
+        }
+
+        /**
+         * Wait until the resource has been produced.
+         *
+         * @return the resource or {@code null} if it has been garbage collected.
+         */
+        Object await()
+            throws IOException
+        {
+            FutureTask<Object> t = task;
+            if (t == null) {
+                return weakValue.get();
+            }
+
+            Object value;
+            try {
+                value = t.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+
+            WeakReference<Object> ref = weakValue;
+            if (ref == null) {
+                // Still being finalized by the loading thread
+                return value;
+            }
+            return ref.get();
+        }
+
+        boolean isCollected()
+        {
+            WeakReference<Object> ref = weakValue;
+            return ref != null && ref.get() == null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.resources;
+
+/**
+ * JMX management interface of the {@link ResourceObjectCache}.
+ */
+public interface ResourceObjectCacheMBean
+{
+    long getHitCount();
+
+    long getMissCount();
+
+    /**
+     * @return the number of resources that have been produced.
+     */
+    long getLoadCount();
+
+    /**
+     * @return the total time in milliseconds spent producing resources.
+     */
+    long getTotalLoadTime();
+
+    /**
+     * @return the number of resources currently known to the cache, including resources which are
+     *         only weakly reachable.
+     */
+    int getEntryCount();
+
+    /**
+     * @return the sum of the estimated sizes of the resources strongly retained by the cache.
+     */
+    long getRetainedSize();
+
+    /**
+     * @return the memory budget in bytes or a negative value if the budget is unlimited.
+     */
+    long getMaxSize();
+
+    void setMaxSize(long aMaxSize);
+
+    String getEvictionPolicy();
+
+    void setEvictionPolicy(String aPolicy);
+
+    /**
+     * Release all resources which are not pinned.
+     */
+    void evictAll();
+}
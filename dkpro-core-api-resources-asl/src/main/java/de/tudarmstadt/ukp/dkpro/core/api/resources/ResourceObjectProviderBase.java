@@ -23,9 +23,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.net.JarURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.net.URLConnection;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -37,7 +39,7 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
@@ -161,6 +163,13 @@ public abstract class ResourceObjectProviderBase<M>
      */
     public static final String SHARABLE = "sharable";
 
+    /**
+     * If this property is set to {@code true} in addition to {@link #SHARABLE}, the resource is
+     * never evicted from the {@link ResourceObjectCache}, even if the memory budget of the cache
+     * is exceeded.
+     */
+    public static final String PINNED = "pinned";
+
     public static final String CATCH_ALL = "*";
     
     private Properties resourceMetaData;
@@ -184,17 +193,9 @@ public abstract class ResourceObjectProviderBase<M>
 
     private PropertyPlaceholderHelper pph = new PropertyPlaceholderHelper("${", "}", null, false);
 
-    private static Map<ResourceHandle, Object> cache = new WeakHashMap<ResourceHandle, Object>();
+    private static final ResourceObjectCache cache = ResourceObjectCache.getInstance();
 
     private Map<String, String> autoOverrides = new HashMap<>();
-    
-    /**
-     * Maintain a reference to the handle for the currently loaded resource. This handle is used
-     * as a key in the resource cache and makes sure that the resource is not removed from the
-     * cache while it is still considered as "loaded" by this provider.
-     */
-    @SuppressWarnings("unused")
-    private ResourceHandle resourceHandle;
 
     {
         init();
@@ -685,37 +686,70 @@ public abstract class ResourceObjectProviderBase<M>
     {
         boolean sharable = "true".equals(aProperties.getProperty(SHARABLE, "false"));
 
-        ResourceHandle handle = null;
         resource = null;
 
-        // Check the cache
         if (sharable) {
-            // We need to scan the cache manually because in the end we need to keep a reference
-            // to exactly the same key object that was used to store the resource in the cache.
-            handle = new ResourceHandle(getClass(), resourceUrl != null ? resourceUrl.toString()
-                    : null);
-            for (Entry<ResourceHandle, Object> e : cache.entrySet()) {
-                if (handle.equals(e.getKey())) {
-                    resourceHandle = e.getKey();
-                    resource = (M) e.getValue();
-                    log.info("Used resource from cache");
-                }
+            // Use the shared cache. If the resource is not in the cache or if another thread is
+            // currently producing it, this call blocks until the resource is available.
+            boolean pinned = "true".equals(aProperties.getProperty(PINNED, "false"));
+            ResourceHandle handle = new ResourceHandle(getClass(),
+                    resourceUrl != null ? resourceUrl.toString() : null);
+            AtomicBoolean produced = new AtomicBoolean();
+            resource = (M) cache.get(handle, pinned, estimateResourceSize(resourceUrl), () -> {
+                produced.set(true);
+                return produceResourceTimed();
+            });
+            if (!produced.get()) {
+                log.info("Used resource from cache");
             }
         }
+        else {
+            resource = produceResourceTimed();
+        }
+    }
 
-        // If there was nothing in the cache or if the cache is disabled, produce new
-        if (resource == null) {
-            StopWatch sw = new StopWatch();
-            sw.start();
-            resource = produceResource(resourceUrl);
-            sw.stop();
-            log.info("Producing resource took " + sw.getTime() + "ms");
-
-            // If cache is enabled, update the cache
-            if (sharable) {
-                cache.put(handle, resource);
-                resourceHandle = handle;
+    private M produceResourceTimed()
+        throws IOException
+    {
+        StopWatch sw = new StopWatch();
+        sw.start();
+        M res = produceResource(resourceUrl);
+        sw.stop();
+        log.info("Producing resource took " + sw.getTime() + "ms");
+        return res;
+    }
+
+    /**
+     * Estimate the memory required by the resource loaded from the given URL. This is used by the
+     * {@link ResourceObjectCache} to keep the shared resources within the configured memory
+     * budget. The default implementation uses the size of the data at the URL. Subclasses may
+     * override this if the in-memory size of their resources differs considerably from that.
+     *
+     * @param aUrl
+     *            the resource URL.
+     * @return the estimated size in bytes or {@code 0} if unknown.
+     */
+    protected long estimateResourceSize(URL aUrl)
+    {
+        if (aUrl == null) {
+            return 0;
+        }
+
+        try {
+            if ("file".equals(aUrl.getProtocol())) {
+                return new File(aUrl.toURI()).length();
+            }
+
+            URLConnection connection = aUrl.openConnection();
+            if (connection instanceof JarURLConnection) {
+                return Math.max(0, ((JarURLConnection) connection).getJarEntry().getSize());
             }
+
+            return 0;
+        }
+        catch (Exception e) {
+            log.debug("Unable to estimate size of resource [" + aUrl + "]: " + e.getMessage());
+            return 0;
         }
     }
 
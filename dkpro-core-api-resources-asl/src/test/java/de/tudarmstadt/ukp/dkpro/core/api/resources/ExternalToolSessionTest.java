@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.resources;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExternalToolSessionTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void requireUnixTools()
+    {
+        assumeTrue(new File("/bin/cat").canExecute());
+    }
+
+    @Test
+    public void testLinePerRecord()
+        throws Exception
+    {
+        try (ExternalToolSession session = new ExternalToolSession(asList("/bin/cat"), "UTF-8",
+                ExternalToolProtocol.linePerRecord(""), 2, 0)) {
+            List<List<String>> batches = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                batches.add(asList("a" + i, "b" + i));
+            }
+
+            List<List<List<String>>> results = session.process(batches);
+
+            assertEquals(10, results.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(asList(asList("a" + i), asList("b" + i)), results.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testDelimitedRecords()
+        throws Exception
+    {
+        try (ExternalToolSession session = new ExternalToolSession(asList("/bin/cat"), "UTF-8",
+                ExternalToolProtocol.delimitedRecords("#FLUSH#"), 1, 0)) {
+            List<List<List<String>>> results = session.process(asList(asList("a", "b")));
+
+            assertEquals(asList(asList(asList("a"), asList("b"))), results);
+        }
+    }
+
+    @Test(expected = IOException.class, timeout = 10000)
+    public void testTimeout()
+        throws Exception
+    {
+        assumeTrue(new File("/bin/sleep").canExecute());
+
+        try (ExternalToolSession session = new ExternalToolSession(asList("/bin/sleep", "60"),
+                "UTF-8", ExternalToolProtocol.linePerRecord(""), 1, 500)) {
+            session.process(asList(asList("a")));
+        }
+    }
+
+    @Test
+    public void testMalformedResponseRestartsWorker()
+        throws Exception
+    {
+        assumeTrue(new File("/bin/sh").canExecute());
+
+        // The first process answers with a malformed line, the restarted one behaves
+        File marker = new File(folder.getRoot(), "started");
+        String script = "if [ -e '" + marker + "' ]; then exec /bin/cat; fi; touch '" + marker
+                + "'; echo broken; exec /bin/cat";
+
+        try (ExternalToolSession session = new ExternalToolSession(
+                asList("/bin/sh", "-c", script), "UTF-8",
+                ExternalToolProtocol.linePerRecord("")
+                        .withResponseValidator(line -> line.startsWith("ok")),
+                1, 0)) {
+            List<List<List<String>>> results = session.process(asList(asList("ok1", "ok2")));
+
+            assertEquals(asList(asList(asList("ok1"), asList("ok2"))), results);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedResponseFailsAfterRetry()
+        throws Exception
+    {
+        try (ExternalToolSession session = new ExternalToolSession(asList("/bin/cat"), "UTF-8",
+                ExternalToolProtocol.linePerRecord("")
+                        .withResponseValidator(line -> line.startsWith("ok")),
+                1, 0)) {
+            session.process(asList(asList("broken")));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ResourceObjectCacheTest
+{
+    @Test
+    public void testConcurrentLoadIsDeduplicated()
+        throws Exception
+    {
+        ResourceObjectCache cache = new ResourceObjectCache();
+        AtomicInteger produced = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("model", false, 10, () -> {
+                        produced.incrementAndGet();
+                        Thread.sleep(200);
+                        return new Object();
+                    });
+                }));
+            }
+            start.countDown();
+
+            Object first = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> f : futures) {
+                assertSame(first, f.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, produced.get());
+            assertEquals(1, cache.getLoadCount());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLruEviction()
+        throws Exception
+    {
+        ResourceObjectCache cache = new ResourceObjectCache();
+        cache.setMaxSize(250);
+        cache.setEvictionPolicy(ResourceObjectCache.POLICY_LRU);
+
+        cache.get("a", false, 100, Object::new);
+        cache.get("b", false, 100, Object::new);
+        assertEquals(200, cache.getRetainedSize());
+
+        // Touch "a" so that "b" becomes the least recently used resource
+        cache.get("a", false, 100, Object::new);
+        cache.get("c", false, 100, Object::new);
+        assertEquals(200, cache.getRetainedSize());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testPinnedResourceIsRetained()
+        throws Exception
+    {
+        ResourceObjectCache cache = new ResourceObjectCache();
+        cache.setMaxSize(100);
+
+        Object pinned = cache.get("pinned", true, 100, Object::new);
+        cache.get("other", false, 100, Object::new);
+        cache.evictAll();
+
+        assertEquals(100, cache.getRetainedSize());
+        assertSame(pinned, cache.get("pinned", false, 100, Object::new));
+    }
+
+    @Test
+    public void testParseSize()
+    {
+        assertEquals(512, ResourceObjectCache.parseSize("512"));
+        assertEquals(2L * 1024 * 1024, ResourceObjectCache.parseSize("2m"));
+        assertEquals(1024L * 1024 * 1024, ResourceObjectCache.parseSize("1G"));
+    }
+}
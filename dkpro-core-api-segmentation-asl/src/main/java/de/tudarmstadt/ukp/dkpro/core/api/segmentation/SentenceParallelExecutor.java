@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.segmentation;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+
+/**
+ * Runs a sentence-local tool over the sentences of a document in parallel. The caller extracts
+ * the input of each sentence from the CAS, the tool processes the inputs on a bounded pool of
+ * worker threads and the results are handed back to the caller in the order of the inputs and on
+ * the calling thread, so the CAS is never accessed concurrently.
+ * <p>
+ * At most a few inputs per thread are in flight at any time. The task must be safe to call from
+ * several threads at once. If the tool is not thread-safe, the task has to use a separate model
+ * handle per thread. With a single thread, no pool is created and the inputs are processed on the
+ * calling thread.
+ *
+ * @param <I>
+ *            the input type of the tool, e.g. the tokens of a sentence.
+ * @param <O>
+ *            the output type of the tool, e.g. the tags of a sentence.
+ */
+public class SentenceParallelExecutor<I, O>
+    implements AutoCloseable
+{
+    private static final int TASKS_PER_THREAD = 4;
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final int numThreads;
+    private final ExecutorService executor;
+
+    /**
+     * @param aNumThreads
+     *            the number of sentences to process in parallel.
+     */
+    public SentenceParallelExecutor(int aNumThreads)
+    {
+        numThreads = Math.max(1, aNumThreads);
+        executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads,
+                new WorkerThreadFactory()) : null;
+    }
+
+    public int getNumThreads()
+    {
+        return numThreads;
+    }
+
+    /**
+     * Processes the given inputs and passes each result to the handler. The handler is called on
+     * the calling thread in the order of the inputs.
+     *
+     * @param aInputs
+     *            the inputs, usually one per sentence.
+     * @param aTask
+     *            the tool.
+     * @param aHandler
+     *            the handler applying the results to the CAS.
+     * @throws AnalysisEngineProcessException
+     *             if the tool or the handler fails. Inputs not processed yet are skipped.
+     */
+    public void process(List<I> aInputs, Task<I, O> aTask, ResultHandler<O> aHandler)
+        throws AnalysisEngineProcessException
+    {
+        if (executor == null) {
+            for (int i = 0; i < aInputs.size(); i++) {
+                O result;
+                try {
+                    result = aTask.process(aInputs.get(i));
+                }
+                catch (Exception e) {
+                    throw wrap(e);
+                }
+                apply(aHandler, i, result);
+            }
+            return;
+        }
+
+        int window = numThreads * TASKS_PER_THREAD;
+        Deque<Future<O>> pending = new ArrayDeque<Future<O>>(window);
+        int submitted = 0;
+        try {
+            for (int i = 0; i < aInputs.size(); i++) {
+                while (submitted < aInputs.size() && submitted - i < window) {
+                    final I input = aInputs.get(submitted);
+                    pending.addLast(executor.submit(() -> aTask.process(input)));
+                    submitted++;
+                }
+
+                O result;
+                try {
+                    result = pending.removeFirst().get();
+                }
+                catch (ExecutionException e) {
+                    throw wrap(e.getCause());
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AnalysisEngineProcessException(e);
+                }
+                apply(aHandler, i, result);
+            }
+        }
+        finally {
+            for (Future<O> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void apply(ResultHandler<O> aHandler, int aIndex, O aResult)
+        throws AnalysisEngineProcessException
+    {
+        try {
+            aHandler.apply(aIndex, aResult);
+        }
+        catch (Exception e) {
+            throw wrap(e);
+        }
+    }
+
+    private static AnalysisEngineProcessException wrap(Throwable aCause)
+    {
+        if (aCause instanceof AnalysisEngineProcessException) {
+            return (AnalysisEngineProcessException) aCause;
+        }
+        return new AnalysisEngineProcessException(aCause);
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    @Override
+    public void close()
+    {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The tool processing a single input. Called concurrently from the worker threads.
+     */
+    @FunctionalInterface
+    public interface Task<I, O>
+    {
+        O process(I aInput)
+            throws Exception;
+    }
+
+    /**
+     * Applies the result of a single input. Called on the calling thread only.
+     */
+    @FunctionalInterface
+    public interface ResultHandler<O>
+    {
+        /**
+         * @param aIndex
+         *            the index of the input in the list passed to
+         *            {@link SentenceParallelExecutor#process}.
+         * @param aResult
+         *            the result of the tool.
+         * @throws Exception
+         *             if the result cannot be applied.
+         */
+        void apply(int aIndex, O aResult)
+            throws Exception;
+    }
+
+    private static class WorkerThreadFactory
+        implements ThreadFactory
+    {
+        private final int pool = POOL_COUNTER.incrementAndGet();
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable aRunnable)
+        {
+            Thread thread = new Thread(aRunnable,
+                    "sentence-pool-" + pool + "-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.api.segmentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.junit.Test;
+
+public class SentenceParallelExecutorTest
+{
+    @Test
+    public void testOrder()
+        throws Exception
+    {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            inputs.add(i);
+        }
+
+        for (int threads : new int[] { 1, 4 }) {
+            Thread caller = Thread.currentThread();
+            Set<Thread> workers = new HashSet<>();
+            List<String> results = new ArrayList<>();
+            try (SentenceParallelExecutor<Integer, String> executor =
+                    new SentenceParallelExecutor<>(threads)) {
+                executor.process(inputs, input -> {
+                    synchronized (workers) {
+                        workers.add(Thread.currentThread());
+                    }
+                    // Make later inputs finish first
+                    Thread.sleep(input % 3);
+                    return "s" + input;
+                }, (i, result) -> {
+                    assertEquals(caller, Thread.currentThread());
+                    assertEquals(results.size(), i);
+                    results.add(result);
+                });
+            }
+
+            assertEquals(inputs.size(), results.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                assertEquals("s" + i, results.get(i));
+            }
+            assertEquals(threads == 1, workers.contains(caller));
+            assertTrue(workers.size() <= threads);
+        }
+    }
+
+    @Test
+    public void testFailure()
+        throws Exception
+    {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            inputs.add(i);
+        }
+
+        List<Integer> applied = new ArrayList<>();
+        try (SentenceParallelExecutor<Integer, Integer> executor =
+                new SentenceParallelExecutor<>(3)) {
+            executor.process(inputs, input -> {
+                if (input == 10) {
+                    throw new IllegalStateException("broken sentence");
+                }
+                return input;
+            }, (i, result) -> applied.add(result));
+            fail("Expected exception");
+        }
+        catch (AnalysisEngineProcessException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals(10, applied.size());
+    }
+}
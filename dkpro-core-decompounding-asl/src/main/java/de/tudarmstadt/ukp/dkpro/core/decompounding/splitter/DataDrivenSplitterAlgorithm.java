@@ -24,6 +24,7 @@ import java.util.List;
 import de.tudarmstadt.ukp.dkpro.core.decompounding.dictionary.Dictionary;
 import de.tudarmstadt.ukp.dkpro.core.decompounding.dictionary.LinkingMorphemes;
 import de.tudarmstadt.ukp.dkpro.core.decompounding.dictionary.SimpleDictionary;
+import de.tudarmstadt.ukp.dkpro.core.decompounding.trie.PackedTrie;
 import de.tudarmstadt.ukp.dkpro.core.decompounding.trie.TrieStructure;
 import de.tudarmstadt.ukp.dkpro.core.decompounding.trie.ValueNode;
 
@@ -35,8 +36,8 @@ public class DataDrivenSplitterAlgorithm
     implements SplitterAlgorithm
 {
 
-    private TrieStructure forwardTrie;
-    private TrieStructure backwardTrie;
+    private PackedTrie forwardTrie;
+    private PackedTrie backwardTrie;
     private LinkingMorphemes morphemes;
     private int maxTreeDepth = Integer.MAX_VALUE;
 
@@ -263,8 +264,33 @@ public class DataDrivenSplitterAlgorithm
     @Override
     public void setDictionary(Dictionary aDict)
     {
-        forwardTrie = TrieStructure.createForDict(aDict);
-        backwardTrie = TrieStructure.createForDictReverse(aDict);
+        forwardTrie = TrieStructure.createForDict(aDict).pack();
+        backwardTrie = TrieStructure.createForDictReverse(aDict).pack();
+    }
+
+    /**
+     * Sets the tries directly instead of building them from a dictionary, e.g. tries previously
+     * stored using {@link PackedTrie#write} and loaded using {@link PackedTrie#load}.
+     * 
+     * @param aForwardTrie
+     *            a trie over the words of the dictionary.
+     * @param aBackwardTrie
+     *            a trie over the reversed words of the dictionary.
+     */
+    public void setTries(PackedTrie aForwardTrie, PackedTrie aBackwardTrie)
+    {
+        forwardTrie = aForwardTrie;
+        backwardTrie = aBackwardTrie;
+    }
+
+    public PackedTrie getForwardTrie()
+    {
+        return forwardTrie;
+    }
+
+    public PackedTrie getBackwardTrie()
+    {
+        return backwardTrie;
     }
 
     @Override
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.decompounding.trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A read-only trie which stores the number of successors for each node. It answers the same
+ * queries as the {@link TrieStructure} it has been created from using {@link TrieStructure#pack()}.
+ *
+ * The nodes are numbered breadth-first and stored in three flat arrays: the character label, the
+ * number of successors and the index of the first child of each node. The children of a node are
+ * consecutive and sorted by their label, so a child is found using binary search.
+ *
+ * A packed trie can be written to a file using {@link #write(File)}. {@link #load(File)}
+ * memory-maps such a file, so loading does not depend on the size of the trie.
+ */
+public class PackedTrie
+{
+    static final int MAGIC = 0x444b5452; // "DKTR"
+    static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 3 * Integer.BYTES;
+
+    private final int nodeCount;
+    private final CharBuffer labels;
+    private final IntBuffer successors;
+    private final IntBuffer firstChild;
+
+    PackedTrie(char[] aLabels, int[] aSuccessors, int[] aFirstChild)
+    {
+        this(aLabels.length, CharBuffer.wrap(aLabels), IntBuffer.wrap(aSuccessors),
+                IntBuffer.wrap(aFirstChild));
+    }
+
+    private PackedTrie(int aNodeCount, CharBuffer aLabels, IntBuffer aSuccessors,
+            IntBuffer aFirstChild)
+    {
+        nodeCount = aNodeCount;
+        labels = aLabels;
+        successors = aSuccessors;
+        firstChild = aFirstChild;
+    }
+
+    private int find(String aWord)
+    {
+        if (aWord.isEmpty()) {
+            return -1;
+        }
+
+        int node = 0;
+        for (int i = 0; i < aWord.length(); i++) {
+            char c = aWord.charAt(i);
+            int lo = firstChild.get(node);
+            int hi = firstChild.get(node + 1) - 1;
+            node = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char label = labels.get(mid);
+                if (label < c) {
+                    lo = mid + 1;
+                }
+                else if (label > c) {
+                    hi = mid - 1;
+                }
+                else {
+                    node = mid;
+                    break;
+                }
+            }
+            if (node == -1) {
+                return -1;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Finds a node with a given string. If not found NULL is returned.
+     *
+     * @param aWord
+     *            a word.
+     * @return a node holding the lower-cased word and its number of successors or {@code null}.
+     */
+    public KeyValueNode<String, Integer> findWord(String aWord)
+    {
+        aWord = aWord.toLowerCase();
+        int node = find(aWord);
+        if (node != -1) {
+            return new KeyValueNode<String, Integer>(aWord, successors.get(node));
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the number of successor for a node. If the node could not be found the return value
+     * is 0.
+     *
+     * @param aWord
+     *            a word.
+     * @return the number of successor for a node.
+     */
+    public int getSuccessors(String aWord)
+    {
+        int node = find(aWord.toLowerCase());
+        if (node != -1) {
+            return successors.get(node);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns the number of nodes in the trie including the root node.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * Writes the trie to a file which can be loaded using {@link #load(File)}.
+     *
+     * @param aFile
+     *            the target file.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public void write(File aFile)
+        throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(aFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nodeCount);
+            for (int i = 0; i <= nodeCount; i++) {
+                out.writeInt(firstChild.get(i));
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                out.writeInt(successors.get(i));
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                out.writeChar(labels.get(i));
+            }
+        }
+    }
+
+    /**
+     * Memory-maps a trie previously written using {@link #write(File)}.
+     *
+     * @param aFile
+     *            the trie file.
+     * @return the trie.
+     * @throws IOException
+     *             if the file cannot be read or is not a packed trie.
+     */
+    public static PackedTrie load(File aFile)
+        throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(aFile, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException("[" + aFile + "] is not a packed trie");
+            }
+
+            ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("[" + aFile + "] is not a packed trie");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported packed trie version [" + version + "] in ["
+                        + aFile + "]");
+            }
+            int nodeCount = header.getInt();
+
+            long firstChildStart = HEADER_LENGTH;
+            long successorsStart = firstChildStart + (nodeCount + 1L) * Integer.BYTES;
+            long labelsStart = successorsStart + (long) nodeCount * Integer.BYTES;
+            long end = labelsStart + (long) nodeCount * Character.BYTES;
+            if (end > channel.size()) {
+                throw new IOException("[" + aFile + "] is truncated");
+            }
+
+            IntBuffer firstChild = channel.map(MapMode.READ_ONLY, firstChildStart,
+                    successorsStart - firstChildStart).asIntBuffer();
+            IntBuffer successors = channel.map(MapMode.READ_ONLY, successorsStart,
+                    labelsStart - successorsStart).asIntBuffer();
+            CharBuffer labels = channel.map(MapMode.READ_ONLY, labelsStart, end - labelsStart)
+                    .asCharBuffer();
+
+            return new PackedTrie(nodeCount, labels, successors, firstChild);
+        }
+    }
+}
@@ -18,17 +18,27 @@
 
 package de.tudarmstadt.ukp.dkpro.core.decompounding.trie;
 
+import java.util.Arrays;
+
 import de.tudarmstadt.ukp.dkpro.core.decompounding.dictionary.Dictionary;
 
 /**
  * A trie datastructor which also stores the number of successor for each node
  * 
+ * The nodes are kept in primitive arrays: one character label and one successor count per node and
+ * the children of a node as a linked list of node indexes. Use {@link #pack()} to obtain a
+ * read-only {@link PackedTrie} which is faster to query and can be stored to disk.
  */
 public class TrieStructure
 {
+    private static final int ROOT = 0;
+    private static final int NONE = 0;
 
-    // Key: substring. Value: Successors
-    private KeyValueNode<String, Integer> root = new KeyValueNode<String, Integer>("", 0);
+    private char[] labels = new char[1024];
+    private int[] successors = new int[1024];
+    private int[] firstChild = new int[1024];
+    private int[] nextSibling = new int[1024];
+    private int size = 1;
 
     /**
      * Adds a word to the tree. Also increments the successor value for each node
@@ -38,33 +48,77 @@ public class TrieStructure
      */
     public void addWord(String aWord)
     {
-        KeyValueNode<String, Integer> parent = root;
+        int parent = ROOT;
 
         for (int i = 0; i < aWord.length(); i++) {
-            String subword = aWord.substring(0, i + 1);
-            KeyValueNode<String, Integer> child = parent.getChild(subword);
+            boolean last = i == aWord.length() - 1;
+            int child = getChild(parent, aWord.charAt(i));
 
-            if (child != null) {
-                if (!subword.equals(aWord)) {
-                    child.setValue(child.getValue() + 1);
+            if (child != NONE) {
+                if (!last) {
+                    successors[child]++;
                 }
             }
             else {
-                Integer value = 1;
-                if (subword.equals(aWord)) {
-                    value = 0;
-                }
-                child = new KeyValueNode<String, Integer>(subword, value);
-                parent.addChild(child);
+                child = addChild(parent, aWord.charAt(i), last ? 0 : 1);
             }
 
             parent = child;
         }
     }
 
+    private int getChild(int aNode, char aLabel)
+    {
+        for (int child = firstChild[aNode]; child != NONE; child = nextSibling[child]) {
+            if (labels[child] == aLabel) {
+                return child;
+            }
+        }
+
+        return NONE;
+    }
+
+    private int addChild(int aParent, char aLabel, int aSuccessors)
+    {
+        if (size == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            successors = Arrays.copyOf(successors, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+        }
+
+        int node = size++;
+        labels[node] = aLabel;
+        successors[node] = aSuccessors;
+        nextSibling[node] = firstChild[aParent];
+        firstChild[aParent] = node;
+        return node;
+    }
+
+    private int find(String aWord)
+    {
+        if (aWord.isEmpty()) {
+            return NONE;
+        }
+
+        int node = ROOT;
+        for (int i = 0; i < aWord.length(); i++) {
+            node = getChild(node, aWord.charAt(i));
+            if (node == NONE) {
+                return NONE;
+            }
+        }
+
+        return node;
+    }
+
     /**
      * Finds a node with a given string. If not found NULL is returned.
      * 
+     * The returned node is a detached copy holding the lower-cased word and its number of
+     * successors, changing it does not affect the trie.
+     * 
      * @param aWord
      *            a word.
      * @return a node with a given string or {@code null}.
@@ -72,23 +126,9 @@ public class TrieStructure
     public KeyValueNode<String, Integer> findWord(String aWord)
     {
         aWord = aWord.toLowerCase();
-        KeyValueNode<String, Integer> parent = root;
-        int depth = 1;
-
-        while (parent.hasChildren()) {
-            String w = aWord.substring(0, depth);
-            KeyValueNode<String, Integer> child = parent.getChild(w);
-
-            if (w.equals(aWord)) {
-                return child;
-            }
-            else if (child != null) {
-                parent = child;
-                depth++;
-            }
-            else {
-                return null;
-            }
+        int node = find(aWord);
+        if (node != NONE) {
+            return new KeyValueNode<String, Integer>(aWord, successors[node]);
         }
 
         return null;
@@ -104,14 +144,65 @@ public class TrieStructure
      */
     public Integer getSuccessors(String aWord)
     {
-        KeyValueNode<String, Integer> node = findWord(aWord);
-        if (node != null) {
-            return node.getValue();
+        int node = find(aWord.toLowerCase());
+        if (node != NONE) {
+            return successors[node];
         }
 
         return 0;
     }
 
+    /**
+     * Returns the number of nodes in the trie including the root node.
+     * 
+     * @return the number of nodes.
+     */
+    public int getNodeCount()
+    {
+        return size;
+    }
+
+    /**
+     * Creates a read-only copy of this trie. The nodes are numbered breadth-first and the children
+     * of each node are sorted by their label, so they can be looked up using binary search.
+     * 
+     * @return the packed trie.
+     */
+    public PackedTrie pack()
+    {
+        char[] packedLabels = new char[size];
+        int[] packedSuccessors = new int[size];
+        int[] packedFirstChild = new int[size + 1];
+
+        // Breadth-first order, the queue position of a node is its index in the packed trie
+        int[] queue = new int[size];
+        queue[0] = ROOT;
+        int next = 1;
+        long[] children = new long[16];
+        for (int packed = 0; packed < size; packed++) {
+            int node = queue[packed];
+            packedLabels[packed] = labels[node];
+            packedSuccessors[packed] = successors[node];
+            packedFirstChild[packed] = next;
+
+            // Sort the children by label, the node index is kept in the lower bits
+            int count = 0;
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (count == children.length) {
+                    children = Arrays.copyOf(children, count * 2);
+                }
+                children[count++] = ((long) labels[child] << 32) | child;
+            }
+            Arrays.sort(children, 0, count);
+            for (int i = 0; i < count; i++) {
+                queue[next++] = (int) children[i];
+            }
+        }
+        packedFirstChild[size] = next;
+
+        return new PackedTrie(packedLabels, packedSuccessors, packedFirstChild);
+    }
+
     /**
      * Creates a Trie object for a SimpleDictionary
      * 
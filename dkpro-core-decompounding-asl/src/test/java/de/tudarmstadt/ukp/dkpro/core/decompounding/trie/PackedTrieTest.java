@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+package de.tudarmstadt.ukp.dkpro.core.decompounding.trie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackedTrieTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPack()
+	{
+		TrieStructure t = new TrieStructure();
+		t.addWord("abc");
+		t.addWord("abcde");
+		t.addWord("abd");
+		t.addWord("b");
+
+		PackedTrie p = t.pack();
+		assertEquals(8, p.getNodeCount());
+		assertEquals(3, p.getSuccessors("a"));
+		assertEquals(3, p.getSuccessors("AB"));
+		assertEquals(1, p.getSuccessors("abc"));
+		assertEquals(0, p.getSuccessors("abcde"));
+		assertEquals(0, p.getSuccessors("b"));
+		assertEquals(0, p.getSuccessors("abx"));
+		assertEquals(0, p.getSuccessors(""));
+		assertEquals("abd", p.findWord("abd").getKey());
+		assertNull(p.findWord("c"));
+	}
+
+	@Test
+	public void testWriteAndLoad()
+		throws Exception
+	{
+		Random random = new Random(42);
+		TrieStructure t = new TrieStructure();
+		String[] words = new String[2000];
+		for (int i = 0; i < words.length; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(10);
+			for (int j = 0; j < length; j++) {
+				word.append("aäbcdeéfßz一".charAt(random.nextInt(11)));
+			}
+			words[i] = word.toString();
+			t.addWord(words[i]);
+		}
+
+		File file = new File(folder.getRoot(), "trie.bin");
+		t.pack().write(file);
+		PackedTrie p = PackedTrie.load(file);
+
+		assertEquals(t.getNodeCount(), p.getNodeCount());
+		for (String word : words) {
+			for (int i = 1; i <= word.length(); i++) {
+				String prefix = word.substring(0, i);
+				assertEquals(prefix, (int) t.getSuccessors(prefix), p.getSuccessors(prefix));
+			}
+		}
+		assertEquals(0, p.getSuccessors("x"));
+	}
+}
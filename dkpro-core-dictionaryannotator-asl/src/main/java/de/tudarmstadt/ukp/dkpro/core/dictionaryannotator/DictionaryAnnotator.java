@@ -21,12 +21,15 @@ import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -58,6 +61,10 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
  * another phrase
  * </pre>
  *
+ * The phrases are compiled into a {@link PhraseAutomaton} which finds the longest phrase starting
+ * at each token in a single pass over a sentence. Optionally, the compiled automaton can be stored
+ * in a file (see {@link #PARAM_AUTOMATON_LOCATION}) which is memory-mapped on subsequent runs
+ * instead of compiling the phrases again.
  */
 @TypeCapability(
 	    inputs = {
@@ -102,7 +109,19 @@ public class DictionaryAnnotator
 	@ConfigurationParameter(name = PARAM_VALUE, mandatory = false)
 	private String value;
 
-	private PhraseTree phrases;
+	/**
+	 * Location of the compiled phrase automaton. If the file exists and is not older than the
+	 * phrase file, the automaton is memory-mapped from this file. Otherwise, the automaton is
+	 * compiled from the phrase file and stored at this location.
+	 */
+	public static final String PARAM_AUTOMATON_LOCATION = "automatonLocation";
+	@ConfigurationParameter(name = PARAM_AUTOMATON_LOCATION, mandatory = false)
+	private File automatonLocation;
+
+	private PhraseAutomaton phrases;
+
+	private int[] tokenIds = new int[64];
+	private int[] matchEnds = new int[64];
 
 	@Override
 	public void initialize(UimaContext aContext)
@@ -114,23 +133,74 @@ public class DictionaryAnnotator
 			annotationType = NGram.class.getName();
 		}
 
-		phrases = new PhraseTree();
-
-		InputStream is = null;
 		try {
 			URL phraseFileUrl = ResourceUtils.resolveLocation(phraseFile, aContext);
-			is = phraseFileUrl.openStream();
-			for (String inputLine : IOUtils.readLines(is, modelEncoding)) {
-				String[] phraseSplit = inputLine.split(" ");
-				phrases.addPhrase(phraseSplit);
+			if (isAutomatonUpToDate(phraseFileUrl)) {
+				getLogger().info("Loading compiled phrases from [" + automatonLocation + "]");
+				phrases = PhraseAutomaton.load(automatonLocation);
+			}
+			else {
+				phrases = compile(phraseFileUrl);
+				if (automatonLocation != null) {
+					getLogger().info("Storing compiled phrases to [" + automatonLocation + "]");
+					store(phrases, automatonLocation);
+				}
 			}
 		}
 		catch (IOException e) {
 			throw new ResourceInitializationException(e);
 		}
+	}
+
+	private boolean isAutomatonUpToDate(URL aPhraseFileUrl)
+	{
+		if (automatonLocation == null || !automatonLocation.isFile()) {
+			return false;
+		}
+
+		// Phrase files which are not plain files (e.g. inside a JAR) do not change
+		File source = FileUtils.toFile(aPhraseFileUrl);
+		return source == null || source.lastModified() <= automatonLocation.lastModified();
+	}
+
+	private PhraseAutomaton compile(URL aPhraseFileUrl)
+		throws IOException
+	{
+		PhraseAutomaton.Builder builder = new PhraseAutomaton.Builder();
+		InputStream is = null;
+		try {
+			is = aPhraseFileUrl.openStream();
+			for (String inputLine : IOUtils.readLines(is, modelEncoding)) {
+				if (inputLine.isEmpty()) {
+					continue;
+				}
+				String[] phraseSplit = inputLine.split(" ");
+				builder.addPhrase(phraseSplit);
+			}
+		}
 		finally {
 			IOUtils.closeQuietly(is);
 		}
+		return builder.build();
+	}
+
+	private static void store(PhraseAutomaton aAutomaton, File aTarget)
+		throws IOException
+	{
+		File dir = aTarget.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		// Write to a temporary file first so concurrent readers never see a partial file
+		File tmp = File.createTempFile("phrases", ".tmp", dir);
+		try {
+			aAutomaton.write(tmp);
+			Files.move(tmp.toPath(), aTarget.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			tmp.delete();
+		}
 	}
 
 	@Override
@@ -149,21 +219,23 @@ public class DictionaryAnnotator
 		}
 
 		for (Sentence currSentence : select(jcas, Sentence.class)) {
-			ArrayList<Token> tokens = new ArrayList<Token>(selectCovered(Token.class, currSentence));
+			List<Token> tokens = selectCovered(Token.class, currSentence);
 
-			for (int i = 0; i < tokens.size(); i++) {
-				List<Token> tokensToSentenceEnd = tokens.subList(i, tokens.size() - 1);
-				String[] sentenceToEnd = new String[tokens.size()];
-
-				for (int j = 0; j < tokensToSentenceEnd.size(); j++) {
-					sentenceToEnd[j] = tokensToSentenceEnd.get(j).getCoveredText();
-				}
+			int length = tokens.size();
+			if (tokenIds.length < length) {
+				tokenIds = new int[length];
+				matchEnds = new int[length];
+			}
+			for (int i = 0; i < length; i++) {
+				tokenIds[i] = phrases.lookup(tokens.get(i).getCoveredText());
+			}
 
-				String[] longestMatch = phrases.getLongestMatch(sentenceToEnd);
+			phrases.longestMatches(tokenIds, length, matchEnds);
 
-				if (longestMatch != null) {
+			for (int i = 0; i < length; i++) {
+				if (matchEnds[i] > 0) {
 					Token beginToken = tokens.get(i);
-					Token endToken = tokens.get(i + longestMatch.length - 1);
+					Token endToken = tokens.get(matchEnds[i] - 1);
 
 					AnnotationFS newFound = jcas.getCas().createAnnotation(type,
 							beginToken.getBegin(), endToken.getEnd());
@@ -0,0 +1,578 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.dictionaryannotator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact Aho-Corasick automaton over token sequences. Used by the {@link DictionaryAnnotator}.
+ * <p>
+ * Tokens are mapped to integer ids using an interned vocabulary. The automaton is stored in flat
+ * int arrays - the transitions of each state are sorted by token id and are looked up using binary
+ * search. A single left-to-right pass over a token sequence finds the longest phrase starting at
+ * each position (see {@link #longestMatches(int[], int, int[])}).
+ * <p>
+ * The automaton can be written to a file using {@link #write(File)}. Loading it using
+ * {@link #load(File)} memory-maps the file, so large dictionaries are not read into the heap.
+ */
+public class PhraseAutomaton
+{
+    private static final int MAGIC = 0x444b5041; // "DKPA"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 7;
+
+    private static final int ROOT = 0;
+
+    // Vocabulary: open-addressing hash index over the token strings
+    private final int tokenCount;
+    private final IntBuffer tokenSlots;
+    private final IntBuffer tokenOffsets;
+    private final CharBuffer tokenChars;
+
+    // Automaton: states in breadth-first order, the transitions of each state sorted by label
+    private final int stateCount;
+    private final IntBuffer transitionOffsets;
+    private final IntBuffer transitionLabels;
+    private final IntBuffer transitionTargets;
+    private final IntBuffer failure;
+    // Length of the phrase ending in a state or 0 if no phrase ends there
+    private final IntBuffer output;
+    // Next state on the failure chain at which a phrase ends or -1
+    private final IntBuffer outputLink;
+
+    private PhraseAutomaton(int aTokenCount, IntBuffer aTokenSlots, IntBuffer aTokenOffsets,
+            CharBuffer aTokenChars, int aStateCount, IntBuffer aTransitionOffsets,
+            IntBuffer aTransitionLabels, IntBuffer aTransitionTargets, IntBuffer aFailure,
+            IntBuffer aOutput, IntBuffer aOutputLink)
+    {
+        tokenCount = aTokenCount;
+        tokenSlots = aTokenSlots;
+        tokenOffsets = aTokenOffsets;
+        tokenChars = aTokenChars;
+        stateCount = aStateCount;
+        transitionOffsets = aTransitionOffsets;
+        transitionLabels = aTransitionLabels;
+        transitionTargets = aTransitionTargets;
+        failure = aFailure;
+        output = aOutput;
+        outputLink = aOutputLink;
+    }
+
+    /**
+     * @return the number of distinct tokens in the dictionary.
+     */
+    public int getTokenCount()
+    {
+        return tokenCount;
+    }
+
+    /**
+     * @return the number of states of the automaton.
+     */
+    public int getStateCount()
+    {
+        return stateCount;
+    }
+
+    /**
+     * Look up the id of a token.
+     *
+     * @param aToken
+     *            the token.
+     * @return the token id or {@code -1} if the token does not occur in any phrase.
+     */
+    public int lookup(String aToken)
+    {
+        int mask = tokenSlots.capacity() - 1;
+        int slot = hash(aToken) & mask;
+        while (true) {
+            int id = tokenSlots.get(slot);
+            if (id < 0 || tokenEquals(id, aToken)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean tokenEquals(int aId, String aToken)
+    {
+        int begin = tokenOffsets.get(aId);
+        int length = tokenOffsets.get(aId + 1) - begin;
+        if (length != aToken.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (tokenChars.get(begin + i) != aToken.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the given token sequence is a phrase in the dictionary.
+     *
+     * @param aTokens
+     *            the tokens.
+     * @return whether the tokens form a phrase.
+     */
+    public boolean contains(String[] aTokens)
+    {
+        int state = ROOT;
+        for (String token : aTokens) {
+            int id = lookup(token);
+            state = id < 0 ? -1 : transition(state, id);
+            if (state < 0) {
+                return false;
+            }
+        }
+        return aTokens.length > 0 && output.get(state) > 0;
+    }
+
+    /**
+     * Find the longest phrase starting at each position of the token sequence in a single pass.
+     *
+     * @param aTokenIds
+     *            the token ids as obtained from {@link #lookup(String)}.
+     * @param aLength
+     *            the number of tokens.
+     * @param aMatchEnds
+     *            receives for each start position the end position (exclusive) of the longest
+     *            phrase starting there or {@code -1} if no phrase starts there.
+     */
+    public void longestMatches(int[] aTokenIds, int aLength, int[] aMatchEnds)
+    {
+        Arrays.fill(aMatchEnds, 0, aLength, -1);
+
+        int state = ROOT;
+        for (int i = 0; i < aLength; i++) {
+            int label = aTokenIds[i];
+            if (label < 0) {
+                // Unknown token - no phrase can continue across it
+                state = ROOT;
+                continue;
+            }
+
+            int next = transition(state, label);
+            while (next < 0 && state != ROOT) {
+                state = failure.get(state);
+                next = transition(state, label);
+            }
+            state = next < 0 ? ROOT : next;
+
+            // Report all phrases ending here. Since later positions produce longer matches for
+            // the same start, the last reported end is the longest one.
+            int s = output.get(state) > 0 ? state : outputLink.get(state);
+            while (s > 0) {
+                aMatchEnds[i - output.get(s) + 1] = i + 1;
+                s = outputLink.get(s);
+            }
+        }
+    }
+
+    private int transition(int aState, int aLabel)
+    {
+        int low = transitionOffsets.get(aState);
+        int high = transitionOffsets.get(aState + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int label = transitionLabels.get(mid);
+            if (label < aLabel) {
+                low = mid + 1;
+            }
+            else if (label > aLabel) {
+                high = mid - 1;
+            }
+            else {
+                return transitionTargets.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(String aToken)
+    {
+        int h = aToken.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Write the automaton to a file which can later be loaded using {@link #load(File)}.
+     *
+     * @param aFile
+     *            the target file.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public void write(File aFile)
+        throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(aFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(tokenCount);
+            out.writeInt(tokenSlots.capacity());
+            out.writeInt(tokenChars.capacity());
+            out.writeInt(stateCount);
+            out.writeInt(transitionLabels.capacity());
+
+            writeInts(out, tokenSlots);
+            writeInts(out, tokenOffsets);
+            for (int i = 0; i < tokenChars.capacity(); i++) {
+                out.writeChar(tokenChars.get(i));
+            }
+            writeInts(out, transitionOffsets);
+            writeInts(out, transitionLabels);
+            writeInts(out, transitionTargets);
+            writeInts(out, failure);
+            writeInts(out, output);
+            writeInts(out, outputLink);
+        }
+    }
+
+    private static void writeInts(DataOutputStream aOut, IntBuffer aBuffer)
+        throws IOException
+    {
+        for (int i = 0; i < aBuffer.capacity(); i++) {
+            aOut.writeInt(aBuffer.get(i));
+        }
+    }
+
+    /**
+     * Memory-map an automaton previously written using {@link #write(File)}.
+     *
+     * @param aFile
+     *            the file.
+     * @return the automaton.
+     * @throws IOException
+     *             if the file cannot be read or is not a compiled automaton.
+     */
+    public static PhraseAutomaton load(File aFile)
+        throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(aFile, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_INTS * Integer.BYTES) {
+                throw new IOException("[" + aFile + "] is not a compiled phrase automaton");
+            }
+            IntBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_INTS * Integer.BYTES)
+                    .asIntBuffer();
+            if (header.get(0) != MAGIC) {
+                throw new IOException("[" + aFile + "] is not a compiled phrase automaton");
+            }
+            if (header.get(1) != VERSION) {
+                throw new IOException("Unsupported phrase automaton version [" + header.get(1)
+                        + "] in [" + aFile + "]");
+            }
+            int tokenCount = header.get(2);
+            int slotCount = header.get(3);
+            int charCount = header.get(4);
+            int stateCount = header.get(5);
+            int transitionCount = header.get(6);
+
+            Mapper mapper = new Mapper(channel, HEADER_INTS * Integer.BYTES);
+            IntBuffer tokenSlots = mapper.ints(slotCount);
+            IntBuffer tokenOffsets = mapper.ints(tokenCount + 1);
+            CharBuffer tokenChars = mapper.chars(charCount);
+            IntBuffer transitionOffsets = mapper.ints(stateCount + 1);
+            IntBuffer transitionLabels = mapper.ints(transitionCount);
+            IntBuffer transitionTargets = mapper.ints(transitionCount);
+            IntBuffer failure = mapper.ints(stateCount);
+            IntBuffer output = mapper.ints(stateCount);
+            IntBuffer outputLink = mapper.ints(stateCount);
+
+            return new PhraseAutomaton(tokenCount, tokenSlots, tokenOffsets, tokenChars,
+                    stateCount, transitionOffsets, transitionLabels, transitionTargets, failure,
+                    output, outputLink);
+        }
+    }
+
+    /**
+     * Maps consecutive regions of a file. Each array is mapped separately, so the file as a whole
+     * may exceed the 2GB limit of a single mapping.
+     */
+    private static class Mapper
+    {
+        private final FileChannel channel;
+        private long position;
+
+        Mapper(FileChannel aChannel, long aPosition)
+        {
+            channel = aChannel;
+            position = aPosition;
+        }
+
+        IntBuffer ints(int aCount)
+            throws IOException
+        {
+            return map((long) aCount * Integer.BYTES).asIntBuffer();
+        }
+
+        CharBuffer chars(int aCount)
+            throws IOException
+        {
+            return map((long) aCount * Character.BYTES).asCharBuffer();
+        }
+
+        private ByteBuffer map(long aSize)
+            throws IOException
+        {
+            if (position + aSize > channel.size()) {
+                throw new IOException("Compiled phrase automaton is truncated");
+            }
+            ByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, aSize);
+            position += aSize;
+            return buffer;
+        }
+    }
+
+    /**
+     * Collects phrases and compiles them into a {@link PhraseAutomaton}.
+     */
+    public static class Builder
+    {
+        private final Map<String, Integer> vocabulary = new HashMap<String, Integer>();
+        private final List<String> tokens = new ArrayList<String>();
+        // Trie edges keyed by (state << 32 | label)
+        private final LongIntMap edges = new LongIntMap();
+        private int[] phraseLength = new int[1024];
+        private int stateCount = 1;
+
+        /**
+         * Add a phrase, each array entry is a phrase token.
+         *
+         * @param aTokens
+         *            the phrase.
+         */
+        public void addPhrase(String[] aTokens)
+        {
+            if (aTokens.length == 0) {
+                return;
+            }
+
+            int state = ROOT;
+            for (String token : aTokens) {
+                Integer id = vocabulary.get(token);
+                if (id == null) {
+                    id = tokens.size();
+                    vocabulary.put(token, id);
+                    tokens.add(token);
+                }
+
+                long key = ((long) state << 32) | id;
+                int next = edges.get(key);
+                if (next < 0) {
+                    next = stateCount++;
+                    edges.put(key, next);
+                    if (next == phraseLength.length) {
+                        phraseLength = Arrays.copyOf(phraseLength, phraseLength.length * 2);
+                    }
+                }
+                state = next;
+            }
+            phraseLength[state] = aTokens.length;
+        }
+
+        /**
+         * Compile the phrases added so far.
+         *
+         * @return the automaton.
+         */
+        public PhraseAutomaton build()
+        {
+            // Vocabulary index
+            int tokenCount = tokens.size();
+            int[] slots = new int[Integer.highestOneBit(Math.max(1, tokenCount) * 2 - 1) << 1];
+            Arrays.fill(slots, -1);
+            int[] offsets = new int[tokenCount + 1];
+            int charCount = 0;
+            for (int i = 0; i < tokenCount; i++) {
+                String token = tokens.get(i);
+                int slot = hash(token) & (slots.length - 1);
+                while (slots[slot] >= 0) {
+                    slot = (slot + 1) & (slots.length - 1);
+                }
+                slots[slot] = i;
+                offsets[i] = charCount;
+                charCount += token.length();
+            }
+            offsets[tokenCount] = charCount;
+            char[] chars = new char[charCount];
+            for (int i = 0; i < tokenCount; i++) {
+                tokens.get(i).getChars(0, tokens.get(i).length(), chars, offsets[i]);
+            }
+
+            // Sort the edges by source state and label so the children of each state are
+            // contiguous and ordered
+            long[] keys = edges.keys();
+            Arrays.sort(keys);
+            int[] childOffsets = new int[stateCount + 1];
+            for (long key : keys) {
+                childOffsets[(int) (key >>> 32) + 1]++;
+            }
+            for (int i = 0; i < stateCount; i++) {
+                childOffsets[i + 1] += childOffsets[i];
+            }
+
+            // Renumber the states in breadth-first order
+            int transitionCount = keys.length;
+            int[] oldId = new int[stateCount];
+            int[] transitionOffsets = new int[stateCount + 1];
+            int[] transitionLabels = new int[transitionCount];
+            int[] transitionTargets = new int[transitionCount];
+            int[] output = new int[stateCount];
+            int assigned = 1;
+            int t = 0;
+            for (int s = 0; s < stateCount; s++) {
+                int old = oldId[s];
+                output[s] = phraseLength[old];
+                transitionOffsets[s] = t;
+                for (int e = childOffsets[old]; e < childOffsets[old + 1]; e++) {
+                    int child = edges.get(keys[e]);
+                    oldId[assigned] = child;
+                    transitionLabels[t] = (int) keys[e];
+                    transitionTargets[t] = assigned;
+                    assigned++;
+                    t++;
+                }
+            }
+            transitionOffsets[stateCount] = t;
+
+            PhraseAutomaton automaton = new PhraseAutomaton(tokenCount, IntBuffer.wrap(slots),
+                    IntBuffer.wrap(offsets), CharBuffer.wrap(chars), stateCount,
+                    IntBuffer.wrap(transitionOffsets), IntBuffer.wrap(transitionLabels),
+                    IntBuffer.wrap(transitionTargets), IntBuffer.allocate(stateCount),
+                    IntBuffer.wrap(output), IntBuffer.allocate(stateCount));
+
+            // Failure and output links - parents precede their children in breadth-first order
+            IntBuffer failure = automaton.failure;
+            IntBuffer outputLink = automaton.outputLink;
+            outputLink.put(ROOT, -1);
+            for (int s = 0; s < stateCount; s++) {
+                for (int e = transitionOffsets[s]; e < transitionOffsets[s + 1]; e++) {
+                    int child = transitionTargets[e];
+                    int label = transitionLabels[e];
+                    int fail = ROOT;
+                    if (s != ROOT) {
+                        int f = failure.get(s);
+                        int next = automaton.transition(f, label);
+                        while (next < 0 && f != ROOT) {
+                            f = failure.get(f);
+                            next = automaton.transition(f, label);
+                        }
+                        fail = next < 0 ? ROOT : next;
+                    }
+                    failure.put(child, fail);
+                    outputLink.put(child, output[fail] > 0 ? fail : outputLink.get(fail));
+                }
+            }
+
+            return automaton;
+        }
+    }
+
+    /**
+     * Minimal open-addressing map from long to non-negative int values.
+     */
+    private static class LongIntMap
+    {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        LongIntMap()
+        {
+            Arrays.fill(values, -1);
+        }
+
+        int get(long aKey)
+        {
+            int mask = keys.length - 1;
+            int slot = mix(aKey) & mask;
+            while (values[slot] >= 0) {
+                if (keys[slot] == aKey) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long aKey, int aValue)
+        {
+            if ((size + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                keys = new long[oldKeys.length * 2];
+                values = new int[oldValues.length * 2];
+                Arrays.fill(values, -1);
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldValues[i] >= 0) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+
+            int mask = keys.length - 1;
+            int slot = mix(aKey) & mask;
+            while (values[slot] >= 0 && keys[slot] != aKey) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] < 0) {
+                size++;
+            }
+            keys[slot] = aKey;
+            values[slot] = aValue;
+        }
+
+        long[] keys()
+        {
+            long[] result = new long[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] >= 0) {
+                    result[n++] = keys[i];
+                }
+            }
+            return result;
+        }
+
+        private static int mix(long aKey)
+        {
+            long h = aKey * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -23,13 +23,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.testing.factory.TokenBuilder;
 import org.apache.uima.jcas.JCas;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
@@ -37,6 +41,9 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 
 public class DictionaryAnnotatorTest
 {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void test() throws Exception
 	{
@@ -73,6 +80,30 @@ public class DictionaryAnnotatorTest
 		assertEquals("John Silver", ne.getCoveredText());
 	}
 
+	@Test
+	public void testWithAutomaton() throws Exception
+	{
+		File automaton = new File(folder.getRoot(), "persons.bin");
+
+		// First run compiles the phrases and stores the automaton, second run maps it
+		for (int i = 0; i < 2; i++) {
+			AnalysisEngine ae = createEngine(DictionaryAnnotator.class,
+					DictionaryAnnotator.PARAM_ANNOTATION_TYPE, NamedEntity.class,
+					DictionaryAnnotator.PARAM_MODEL_LOCATION, "src/test/resources/persons.txt",
+					DictionaryAnnotator.PARAM_AUTOMATON_LOCATION, automaton);
+			assertTrue(automaton.isFile());
+
+			JCas jcas = JCasFactory.createJCas();
+			TokenBuilder<Token, Sentence> tb = new TokenBuilder<Token, Sentence>(Token.class, Sentence.class);
+			tb.buildTokens(jcas, "I am John Silver 's ghost .");
+
+			ae.process(jcas);
+
+			NamedEntity ne = selectSingle(jcas, NamedEntity.class);
+			assertEquals("John Silver", ne.getCoveredText());
+		}
+	}
+
 	@Test
 	public void testWithWrongType() throws Exception
 	{
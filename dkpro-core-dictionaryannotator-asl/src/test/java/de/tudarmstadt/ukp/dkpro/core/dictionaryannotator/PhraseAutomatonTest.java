@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.dictionaryannotator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PhraseAutomatonTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PhraseAutomaton phrases;
+
+	@Before
+	public void setUp()
+		throws Exception
+	{
+		PhraseAutomaton.Builder builder = new PhraseAutomaton.Builder();
+		builder.addPhrase("the red dog".split(" "));
+		builder.addPhrase("the red".split(" "));
+		builder.addPhrase("the new kid".split(" "));
+		builder.addPhrase("red dog barks".split(" "));
+		builder.addPhrase("a".split(" "));
+		phrases = builder.build();
+	}
+
+	@Test
+	public void containsTest()
+		throws Exception
+	{
+		assertContains(phrases);
+	}
+
+	@Test
+	public void longestMatchesTest()
+		throws Exception
+	{
+		assertLongestMatches(phrases);
+	}
+
+	@Test
+	public void writeAndLoadTest()
+		throws Exception
+	{
+		File file = folder.newFile("phrases.bin");
+		phrases.write(file);
+
+		PhraseAutomaton loaded = PhraseAutomaton.load(file);
+		assertEquals(phrases.getTokenCount(), loaded.getTokenCount());
+		assertEquals(phrases.getStateCount(), loaded.getStateCount());
+		assertContains(loaded);
+		assertLongestMatches(loaded);
+	}
+
+	private static void assertContains(PhraseAutomaton aPhrases)
+	{
+		assertFalse(aPhrases.contains("the".split(" ")));
+		assertFalse(aPhrases.contains("the new".split(" ")));
+		assertFalse(aPhrases.contains("the new BUNNY".split(" ")));
+		assertFalse(aPhrases.contains("the red dog barks".split(" ")));
+		assertTrue(aPhrases.contains("a".split(" ")));
+		assertTrue(aPhrases.contains("the red dog".split(" ")));
+		assertTrue(aPhrases.contains("the red".split(" ")));
+		assertTrue(aPhrases.contains("the new kid".split(" ")));
+	}
+
+	private static void assertLongestMatches(PhraseAutomaton aPhrases)
+	{
+		// Overlapping phrases starting at different tokens are all found
+		assertArrayEquals(new int[] { 3, 4, -1, -1, -1 },
+				longestMatches(aPhrases, "the red dog barks loudly"));
+
+		// Unknown tokens interrupt phrases
+		assertArrayEquals(new int[] { -1, -1, 3, -1, -1, 6 },
+				longestMatches(aPhrases, "the BUNNY a the new a"));
+
+		assertArrayEquals(new int[] { 2, -1, -1 },
+				longestMatches(aPhrases, "the red cat"));
+	}
+
+	private static int[] longestMatches(PhraseAutomaton aPhrases, String aSentence)
+	{
+		String[] tokens = aSentence.split(" ");
+		int[] ids = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			ids[i] = aPhrases.lookup(tokens[i]);
+		}
+		int[] ends = new int[tokens.length];
+		aPhrases.longestMatches(ids, tokens.length, ends);
+		return ends;
+	}
+}
@@ -18,12 +18,20 @@
 package de.tudarmstadt.ukp.dkpro.core.frequency;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import com.googlecode.jweb1t.JWeb1TIterator;
 import com.googlecode.jweb1t.Searcher;
 
 import de.tudarmstadt.ukp.dkpro.core.api.frequency.provider.FrequencyCountProviderBase;
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.FrequencyUtils;
 
 public abstract class Web1TProviderBase
     extends FrequencyCountProviderBase
@@ -61,6 +69,35 @@ public abstract class Web1TProviderBase
         return searcher.getFrequency(phrase);
     }
 
+    /**
+     * Looks up the distinct phrases grouped by their n-gram size and in lexicographic order. The
+     * n-grams of each size are split into sorted files, so consecutive lookups go to the same file
+     * and the same region of that file until the batch moves on to the next file.
+     */
+    @Override
+    protected Map<String, Long> getFrequenciesFromProvider(Collection<String> phrases)
+        throws IOException
+    {
+        SortedMap<Integer, SortedSet<String>> bySize = new TreeMap<Integer, SortedSet<String>>();
+        for (String phrase : phrases) {
+            int size = FrequencyUtils.getPhraseLength(phrase);
+            SortedSet<String> group = bySize.get(size);
+            if (group == null) {
+                group = new TreeSet<String>();
+                bySize.put(size, group);
+            }
+            group.add(phrase);
+        }
+
+        Map<String, Long> frequencies = new HashMap<String, Long>();
+        for (SortedSet<String> group : bySize.values()) {
+            for (String phrase : group) {
+                frequencies.put(phrase, searcher.getFrequency(phrase));
+            }
+        }
+        return frequencies;
+    }
+
     @Override
     public Iterator<String> getNgramIterator(int n)
         throws IOException
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection;
+
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection.FrequencyCounter.COLUMN_SEPARATOR;
+import static de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection.FrequencyCounter.NGRAM_SEPARATOR_LINE;
+
+/**
+ * Merge count files produced by several {@link FrequencyCounter} instances, e.g. in a scaled-out
+ * deployment, into a single count file.
+ * <p>
+ * The input files must be UTF-8 encoded, sorted alphabetically and must not be filtered by count,
+ * i.e. they must have been written with {@link FrequencyCounter#PARAM_PARTIAL_COUNTS} enabled.
+ * The merge streams over the inputs, so only the n-grams passing the minimum count need to be kept
+ * in memory and only if the output is sorted by count.
+ * <p>
+ * Usage: {@code FrequencyCountMerger [-minCount N] [-sortByCount] <target> <input>...}
+ */
+public class FrequencyCountMerger
+{
+    private FrequencyCountMerger()
+    {
+        // No instances
+    }
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        int minCount = 5;
+        boolean sortByCount = false;
+        int i = 0;
+        while (i < args.length && args[i].startsWith("-")) {
+            if (args[i].equals("-minCount") && i + 1 < args.length) {
+                minCount = Integer.parseInt(args[i + 1]);
+                i += 2;
+            }
+            else if (args[i].equals("-sortByCount")) {
+                sortByCount = true;
+                i++;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown option [" + args[i] + "]");
+            }
+        }
+        if (args.length - i < 2) {
+            throw new IllegalArgumentException("Usage: FrequencyCountMerger [-minCount N] "
+                    + "[-sortByCount] <target> <input>...");
+        }
+
+        File target = new File(args[i]);
+        List<File> inputs = new ArrayList<>();
+        for (int j = i + 1; j < args.length; j++) {
+            inputs.add(new File(args[j]));
+        }
+        merge(inputs, target, minCount, sortByCount);
+    }
+
+    /**
+     * Merge the given count files.
+     *
+     * @param aInputs     the alphabetically sorted, unfiltered count files.
+     * @param aTarget     the target file.
+     * @param aMinCount   n-grams occurring fewer times than this value are omitted.
+     * @param aSortByCount if true, sort output by count (descending order), otherwise
+     *                    alphabetically.
+     * @throws IOException if the files cannot be read or written or if an input is not sorted.
+     */
+    public static void merge(List<File> aInputs, File aTarget, int aMinCount,
+            boolean aSortByCount)
+            throws IOException
+    {
+        List<Cursor> cursors = new ArrayList<>();
+        try {
+            for (File input : aInputs) {
+                cursors.add(new FileCursor(input));
+            }
+            try (OutputStream os = CompressionUtils.getOutputStream(aTarget)) {
+                merge(cursors, os, Charset.defaultCharset(), aMinCount, aSortByCount);
+            }
+        }
+        finally {
+            for (Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    static void merge(List<Cursor> aCursors, OutputStream aOut, Charset aCharset, int aMinCount,
+            boolean aSortByCount)
+            throws IOException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(aOut, aCharset));
+        mergeSection(aCursors, writer, aMinCount, aSortByCount);
+        writer.write(NGRAM_SEPARATOR_LINE + "\n");
+        for (Cursor cursor : aCursors) {
+            cursor.nextSection();
+        }
+        mergeSection(aCursors, writer, aMinCount, aSortByCount);
+        writer.flush();
+    }
+
+    private static void mergeSection(List<Cursor> aCursors, Writer aWriter, int aMinCount,
+            boolean aSortByCount)
+            throws IOException
+    {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, aCursors.size()),
+                (a, b) -> a.key.compareTo(b.key));
+        for (Cursor cursor : aCursors) {
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            Cursor head = queue.poll();
+            String key = head.key;
+            long count = head.count;
+            if (head.advance()) {
+                queue.add(head);
+            }
+            while (!queue.isEmpty() && queue.peek().key.equals(key)) {
+                Cursor other = queue.poll();
+                count += other.count;
+                if (other.advance()) {
+                    queue.add(other);
+                }
+            }
+
+            if (count < aMinCount) {
+                continue;
+            }
+            if (aSortByCount) {
+                keys.add(key);
+                counts.add(count);
+            }
+            else {
+                writeLine(aWriter, key, count);
+            }
+        }
+
+        if (aSortByCount) {
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(counts.get(b), counts.get(a)));
+            for (int i : order) {
+                writeLine(aWriter, keys.get(i), counts.get(i));
+            }
+        }
+    }
+
+    private static void writeLine(Writer aWriter, String aKey, long aCount)
+            throws IOException
+    {
+        aWriter.write(aKey);
+        aWriter.write(COLUMN_SEPARATOR);
+        aWriter.write(Long.toString(aCount));
+        aWriter.write('\n');
+    }
+
+    /**
+     * An alphabetically sorted sequence of n-gram counts consisting of two sections (unigrams and
+     * bigrams).
+     */
+    abstract static class Cursor
+            implements Closeable
+    {
+        String key;
+        long count;
+
+        /**
+         * Move to the next n-gram in the current section.
+         *
+         * @return false if the end of the section has been reached.
+         */
+        abstract boolean advance()
+                throws IOException;
+
+        /**
+         * Switch from the unigram section to the bigram section.
+         */
+        abstract void nextSection()
+                throws IOException;
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            // Nothing to do by default
+        }
+    }
+
+    /**
+     * Reads a count file in the format written by {@link FrequencyCounter}.
+     */
+    static class FileCursor
+            extends Cursor
+    {
+        private final File file;
+        private final BufferedReader reader;
+        private boolean endOfSection;
+
+        FileCursor(File aFile)
+                throws IOException
+        {
+            file = aFile;
+            reader = new BufferedReader(new InputStreamReader(CompressionUtils
+                    .getInputStream(aFile.getName(), new FileInputStream(aFile)),
+                    StandardCharsets.UTF_8));
+        }
+
+        @Override
+        boolean advance()
+                throws IOException
+        {
+            if (endOfSection) {
+                return false;
+            }
+
+            String line = reader.readLine();
+            if (line == null || line.equals(NGRAM_SEPARATOR_LINE)) {
+                endOfSection = true;
+                return false;
+            }
+
+            int sep = line.lastIndexOf(COLUMN_SEPARATOR);
+            if (sep < 0) {
+                throw new IOException("Invalid line in [" + file + "]: " + line);
+            }
+            String previous = key;
+            key = line.substring(0, sep);
+            count = Long.parseLong(line.substring(sep + 1));
+            if (previous != null && previous.compareTo(key) > 0) {
+                throw new IOException("Counts in [" + file + "] are not sorted alphabetically: ["
+                        + previous + "] before [" + key + "]");
+            }
+            return true;
+        }
+
+        @Override
+        void nextSection()
+        {
+            endOfSection = false;
+            key = null;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            reader.close();
+        }
+    }
+}
@@ -23,8 +23,6 @@ import de.tudarmstadt.ukp.dkpro.core.api.io.sequencegenerator.PhraseSequenceGene
 import de.tudarmstadt.ukp.dkpro.core.api.io.sequencegenerator.StringSequenceGenerator;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import org.apache.commons.collections4.Bag;
-import org.apache.commons.collections4.bag.HashBag;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
@@ -34,10 +32,22 @@ import org.apache.uima.resource.ResourceInitializationException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.stream.Stream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * Count unigrams and bigrams in a collection.
+ * <p>
+ * When the number of distinct n-grams held in memory reaches {@link #PARAM_SPILL_THRESHOLD}, the
+ * counts are written to a sorted temporary file and counting starts over. At the end of the
+ * collection, the temporary files are merged into the target file.
+ * <p>
+ * To count in several pipeline instances (e.g. in a scaled-out deployment), enable
+ * {@link #PARAM_PARTIAL_COUNTS} and merge the resulting files using the
+ * {@link FrequencyCountMerger}.
  */
 public class FrequencyCounter
         extends JCasFileWriter_ImplBase
@@ -98,7 +108,9 @@ public class FrequencyCounter
     private boolean sortByCount;
 
     /**
-     * If true, sort output alphabetically.
+     * If true, sort output alphabetically. Since the counts are merged from sorted runs, the
+     * output is also sorted alphabetically if neither this nor {@link #PARAM_SORT_BY_COUNT} is
+     * set.
      */
     public static final String PARAM_SORT_BY_ALPHABET = "sortByAlphabet";
     @ConfigurationParameter(name = PARAM_SORT_BY_ALPHABET, mandatory = true, defaultValue = "false")
@@ -120,8 +132,33 @@ public class FrequencyCounter
     @ConfigurationParameter(name = PARAM_REGEX_REPLACEMENT, mandatory = true, defaultValue = "")
     private String regexReplacement;
 
-    private Bag<String> unigrams;
-    private Bag<String> bigrams;
+    /**
+     * When the number of distinct unigrams and bigrams held in memory reaches this value, the
+     * counts are spilled to a temporary file. Default: 10000000.
+     */
+    public static final String PARAM_SPILL_THRESHOLD = "spillThreshold";
+    @ConfigurationParameter(name = PARAM_SPILL_THRESHOLD, mandatory = true, defaultValue = "10000000")
+    private int spillThreshold;
+
+    /**
+     * The directory for temporary files. Default: the system temporary directory.
+     */
+    public static final String PARAM_SPILL_DIRECTORY = "spillDirectory";
+    @ConfigurationParameter(name = PARAM_SPILL_DIRECTORY, mandatory = false)
+    private File spillDirectory;
+
+    /**
+     * If true, the target location is a directory into which a uniquely named file with the
+     * complete, alphabetically sorted counts of this instance is written (UTF-8 encoded). The
+     * {@link #PARAM_MIN_COUNT} and sorting parameters are ignored. Use the
+     * {@link FrequencyCountMerger} to combine the files of several instances.
+     */
+    public static final String PARAM_PARTIAL_COUNTS = "partialCounts";
+    @ConfigurationParameter(name = PARAM_PARTIAL_COUNTS, mandatory = true, defaultValue = "false")
+    private boolean partialCounts;
+
+    private NgramCounter counter;
+    private List<File> runs;
     private StringSequenceGenerator sequenceGenerator;
 
     @Override
@@ -134,8 +171,8 @@ public class FrequencyCounter
                     "Can only sort either by count or alphabetically."));
         }
 
-        unigrams = new HashBag<>();
-        bigrams = new HashBag<>();
+        counter = new NgramCounter();
+        runs = new ArrayList<>();
 
         /* set feature path to default */
         if (featurePath == null) {
@@ -166,77 +203,93 @@ public class FrequencyCounter
         try {
             /* iterate over sequences (e.g. sentences)*/
             for (String[] sequence : sequenceGenerator.tokenSequences(aJCas)) {
-                /* iterate over tokens in sequence */
-                for (int i = 0; i < sequence.length; i++) {
-                    /* count unigrams */
-                    String unigram = sequence[i]
-                            .replaceAll(COLUMN_SEPARATOR, COLUMN_SEP_REPLACEMENT)
-                            .replaceAll(NEWLINE_REGEX, COLUMN_SEP_REPLACEMENT);
-                    unigrams.add(unigram);
-
-                    /* count bigrams */
-                    if (i + 1 < sequence.length) {
-                        String bigram = unigram + BIGRAM_SEPARATOR + sequence[i + 1]
-                                .replaceAll(COLUMN_SEPARATOR, COLUMN_SEP_REPLACEMENT)
-                                .replaceAll(NEWLINE_REGEX, COLUMN_SEP_REPLACEMENT);
-                        bigrams.add(bigram);
+                /* count tokens, spilling whenever the threshold is reached */
+                int next = 0;
+                do {
+                    next = counter.add(sequence, next, spillThreshold);
+                    if (counter.size() >= spillThreshold) {
+                        spill();
                     }
                 }
+                while (next < sequence.length);
             }
         }
-        catch (FeaturePathException e) {
+        catch (FeaturePathException | IOException e) {
             throw new AnalysisEngineProcessException(e);
         }
     }
 
+    /**
+     * Write the counts held in memory to a sorted temporary file and reset the counter.
+     */
+    private void spill()
+            throws IOException
+    {
+        File run = File.createTempFile("ngrams", ".run", spillDirectory);
+        run.deleteOnExit();
+        getLogger().info("Spilling " + counter.size() + " n-gram counts to " + run);
+        counter.writeRun(run);
+        counter.clear();
+        runs.add(run);
+    }
+
     @Override
     public void collectionProcessComplete()
             throws AnalysisEngineProcessException
     {
-        getLogger().info("Vocabulary size: " + unigrams.uniqueSet().size());
+        List<FrequencyCountMerger.Cursor> cursors = new ArrayList<>();
         try {
-            getLogger().info("Writing frequencies to " + getTargetLocation());
-            OutputStream os = CompressionUtils.getOutputStream(new File(getTargetLocation()));
+            if (runs.isEmpty()) {
+                getLogger().info("Vocabulary size: " + counter.getVocabularySize());
+            }
+            else if (!counter.isEmpty()) {
+                spill();
+            }
 
-            writeNgrams(os, unigrams);
-            os.write((NGRAM_SEPARATOR_LINE + "\n").getBytes());
-            writeNgrams(os, bigrams);
-            os.close();
-        }
-        catch (IOException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-    }
+            for (File run : runs) {
+                cursors.add(new FrequencyCountMerger.FileCursor(run));
+            }
+            if (!counter.isEmpty()) {
+                cursors.add(counter.cursor());
+            }
 
-    /**
-     * Write counter with counts from a bag to an output stream.
-     *
-     * @param os      an {@link OutputStream}
-     * @param counter a {@link Bag} of string counter
-     */
-    private void writeNgrams(OutputStream os, Bag<String> counter)
-    {
-        /* create token stream */
-        Stream<String> stream = counter.uniqueSet().stream()
-                .filter(token -> counter.getCount(token) >= minCount);
+            File target;
+            if (partialCounts) {
+                target = new File(getTargetLocation(), "counts-" + UUID.randomUUID() + ".txt");
+                target.getParentFile().mkdirs();
+            }
+            else {
+                target = new File(getTargetLocation());
+            }
 
-        /* sort output */
-        if (sortByAlphabet) {
-            stream = stream.sorted(String::compareTo);
+            getLogger().info("Writing frequencies to " + target);
+            try (OutputStream os = CompressionUtils.getOutputStream(target)) {
+                if (partialCounts) {
+                    FrequencyCountMerger.merge(cursors, os, StandardCharsets.UTF_8, 1, false);
+                }
+                else {
+                    FrequencyCountMerger.merge(cursors, os, Charset.defaultCharset(), minCount,
+                            sortByCount);
+                }
+            }
         }
-        else if (sortByCount) {
-            stream = stream.sorted((o1, o2) ->
-                    -Integer.compare(counter.getCount(o1), counter.getCount(o2)));
+        catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
         }
-
-        /* write tokens with counts */
-        stream.forEach(token -> {
-            try {
-                os.write((token + COLUMN_SEPARATOR + counter.getCount(token) + "\n").getBytes());
+        finally {
+            for (FrequencyCountMerger.Cursor cursor : cursors) {
+                try {
+                    cursor.close();
+                }
+                catch (IOException e) {
+                    getLogger().warn("Unable to close " + cursor, e);
+                }
             }
-            catch (IOException e) {
-                throw new RuntimeException(e);
+            for (File run : runs) {
+                run.delete();
             }
-        });
+            runs.clear();
+            counter.clear();
+        }
     }
 }
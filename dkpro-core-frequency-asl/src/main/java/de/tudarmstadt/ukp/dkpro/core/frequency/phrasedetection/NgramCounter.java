@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.AbstractLongComparator;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection.FrequencyCounter.BIGRAM_SEPARATOR;
+import static de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection.FrequencyCounter.COLUMN_SEPARATOR;
+import static de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection.FrequencyCounter.COLUMN_SEP_REPLACEMENT;
+import static de.tudarmstadt.ukp.dkpro.core.frequency.phrasedetection.FrequencyCounter.NEWLINE_REGEX;
+
+/**
+ * In-memory unigram and bigram counts. Tokens are mapped to integer ids, unigram counts are kept
+ * in an array indexed by id and bigram counts in a primitive map keyed by the pair of ids.
+ */
+class NgramCounter
+{
+    private static final Pattern NEWLINE_PATTERN = Pattern.compile(NEWLINE_REGEX);
+
+    /**
+     * Maps tokens as they occur in the text to their id, so that each distinct token needs to be
+     * cleaned of column separators and line breaks only once.
+     */
+    private final Object2IntOpenHashMap<String> rawIds = new Object2IntOpenHashMap<>();
+    /**
+     * Maps cleaned tokens to their id.
+     */
+    private final Object2IntOpenHashMap<String> ids = new Object2IntOpenHashMap<>();
+    private final Long2LongOpenHashMap bigramCounts = new Long2LongOpenHashMap();
+    private String[] words = new String[1024];
+    private long[] unigramCounts = new long[1024];
+    private int vocabularySize;
+
+    NgramCounter()
+    {
+        rawIds.defaultReturnValue(-1);
+        ids.defaultReturnValue(-1);
+    }
+
+    /**
+     * Count the unigrams and bigrams in a token sequence, starting at the given token. Counting
+     * stops as soon as the number of distinct n-grams reaches the given limit, so that the caller
+     * can spill the counts and continue with the returned index - even within a long sequence.
+     *
+     * @param aSequence the tokens.
+     * @param aStart the index of the first token to count.
+     * @param aLimit the maximum number of distinct n-grams.
+     * @return the index of the first token which has not been counted yet.
+     */
+    int add(String[] aSequence, int aStart, long aLimit)
+    {
+        // When resuming after a spill, the bigram ending at the first token still needs to be
+        // counted. The preceding token is only registered, its unigram count stays at 0 and is
+        // dropped when the counts are written.
+        int previous = aStart > 0 ? id(aSequence[aStart - 1]) : -1;
+        for (int i = aStart; i < aSequence.length; i++) {
+            int id = id(aSequence[i]);
+            unigramCounts[id]++;
+            if (previous >= 0) {
+                bigramCounts.addTo(((long) previous << 32) | id, 1);
+            }
+            previous = id;
+
+            if (size() >= aLimit) {
+                return i + 1;
+            }
+        }
+        return aSequence.length;
+    }
+
+    private int id(String aToken)
+    {
+        int id = rawIds.getInt(aToken);
+        if (id >= 0) {
+            return id;
+        }
+
+        String word = NEWLINE_PATTERN.matcher(aToken.replace(COLUMN_SEPARATOR,
+                COLUMN_SEP_REPLACEMENT)).replaceAll(COLUMN_SEP_REPLACEMENT);
+        id = ids.getInt(word);
+        if (id < 0) {
+            id = vocabularySize++;
+            if (id == words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+                unigramCounts = Arrays.copyOf(unigramCounts, unigramCounts.length * 2);
+            }
+            words[id] = word;
+            ids.put(word, id);
+        }
+        rawIds.put(aToken, id);
+        return id;
+    }
+
+    /**
+     * @return the number of distinct unigrams.
+     */
+    int getVocabularySize()
+    {
+        return vocabularySize;
+    }
+
+    /**
+     * @return the number of distinct unigrams and bigrams held in memory.
+     */
+    long size()
+    {
+        return (long) vocabularySize + bigramCounts.size();
+    }
+
+    boolean isEmpty()
+    {
+        return vocabularySize == 0;
+    }
+
+    void clear()
+    {
+        rawIds.clear();
+        ids.clear();
+        bigramCounts.clear();
+        Arrays.fill(words, 0, vocabularySize, null);
+        Arrays.fill(unigramCounts, 0, vocabularySize, 0);
+        vocabularySize = 0;
+    }
+
+    /**
+     * Write all counts as alphabetically sorted run which can later be merged with the
+     * {@link FrequencyCountMerger}.
+     *
+     * @param aFile the target file.
+     * @throws IOException if the file cannot be written.
+     */
+    void writeRun(File aFile)
+            throws IOException
+    {
+        try (OutputStream os = new FileOutputStream(aFile)) {
+            FrequencyCountMerger.merge(Collections.singletonList(cursor()), os,
+                    StandardCharsets.UTF_8, 1, false);
+        }
+    }
+
+    /**
+     * @return a cursor over all counts in alphabetical order.
+     */
+    FrequencyCountMerger.Cursor cursor()
+    {
+        return new MemoryCursor();
+    }
+
+    /**
+     * Compare the bigram strings of two bigram keys without building the strings.
+     */
+    private int compareBigrams(long aKey1, long aKey2)
+    {
+        String a1 = words[(int) (aKey1 >>> 32)];
+        String a2 = words[(int) aKey1];
+        String b1 = words[(int) (aKey2 >>> 32)];
+        String b2 = words[(int) aKey2];
+        int lengthA = a1.length() + BIGRAM_SEPARATOR.length() + a2.length();
+        int lengthB = b1.length() + BIGRAM_SEPARATOR.length() + b2.length();
+        int n = Math.min(lengthA, lengthB);
+        for (int i = 0; i < n; i++) {
+            char ca = charAt(a1, a2, i);
+            char cb = charAt(b1, b2, i);
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        return lengthA - lengthB;
+    }
+
+    private static char charAt(String aFirst, String aSecond, int aIndex)
+    {
+        if (aIndex < aFirst.length()) {
+            return aFirst.charAt(aIndex);
+        }
+        int i = aIndex - aFirst.length();
+        if (i < BIGRAM_SEPARATOR.length()) {
+            return BIGRAM_SEPARATOR.charAt(i);
+        }
+        return aSecond.charAt(i - BIGRAM_SEPARATOR.length());
+    }
+
+    private class MemoryCursor
+            extends FrequencyCountMerger.Cursor
+    {
+        private int[] unigramOrder;
+        private long[] bigramOrder;
+        private int next;
+
+        MemoryCursor()
+        {
+            unigramOrder = new int[vocabularySize];
+            for (int i = 0; i < unigramOrder.length; i++) {
+                unigramOrder[i] = i;
+            }
+            IntArrays.quickSort(unigramOrder, new AbstractIntComparator()
+            {
+                @Override
+                public int compare(int aId1, int aId2)
+                {
+                    return words[aId1].compareTo(words[aId2]);
+                }
+            });
+        }
+
+        @Override
+        boolean advance()
+        {
+            if (bigramOrder == null) {
+                if (next == unigramOrder.length) {
+                    return false;
+                }
+                int id = unigramOrder[next++];
+                key = words[id];
+                count = unigramCounts[id];
+            }
+            else {
+                if (next == bigramOrder.length) {
+                    return false;
+                }
+                long bigram = bigramOrder[next++];
+                key = words[(int) (bigram >>> 32)] + BIGRAM_SEPARATOR + words[(int) bigram];
+                count = bigramCounts.get(bigram);
+            }
+            return true;
+        }
+
+        @Override
+        void nextSection()
+        {
+            unigramOrder = null;
+            bigramOrder = bigramCounts.keySet().toLongArray();
+            LongArrays.quickSort(bigramOrder, new AbstractLongComparator()
+            {
+                @Override
+                public int compare(long aKey1, long aKey2)
+                {
+                    return compareBigrams(aKey1, aKey2);
+                }
+            });
+            next = 0;
+        }
+    }
+}
@@ -18,10 +18,10 @@
 package de.tudarmstadt.ukp.dkpro.core.frequency.tfidf;
 
 import java.util.Locale;
-import java.util.Map.Entry;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
@@ -30,21 +30,21 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.Level;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
 import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
-import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathFactory;
 import de.tudarmstadt.ukp.dkpro.core.api.frequency.tfidf.type.Tfidf;
+import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.CompactDfModel;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.DfModel;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.DfStore;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.SharedDfModel;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.util.FreqDist;
-import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.util.TermIterator;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.util.TfidfUtils;
 
 /**
  * This component adds {@link Tfidf} annotations consisting of a term and a tfidf weight. <br>
  * The annotator is type agnostic concerning the input annotation, so you have to specify the
- * annotation type and string representation. It uses a pre-serialized {@link DfStore}, which can be
- * created using the {@link TfidfConsumer}.
+ * annotation type and string representation. It uses a pre-serialized {@link DfStore} or a
+ * memory-mapped {@link CompactDfModel}, which can be created using the {@link TfidfConsumer}.
  * 
  */
 @TypeCapability(outputs = { "de.tudarmstadt.ukp.dkpro.core.api.frequency.tfidf.type.Tfidf" })
@@ -112,6 +112,10 @@ public class TfidfAnnotator
     }
 
     private DfModel dfModel;
+    private CompiledFeaturePath compiledFeaturePath;
+    // The document being processed and its terms, used by getTermFrequencies(JCas)
+    private JCas currentJCas;
+    private String[] currentTerms;
 
     @Override
     public void initialize(UimaContext context)
@@ -130,52 +134,107 @@ public class TfidfAnnotator
     public void process(JCas jcas)
         throws AnalysisEngineProcessException
     {
+        // Extract the terms only once - they are needed for counting and for annotating
+        compileFeaturePath(jcas);
+        AnnotationFS[] annotations = new AnnotationFS[jcas.getCas()
+                .getAnnotationIndex(compiledFeaturePath.getType()).size()];
+        String[] terms = extractTerms(jcas, annotations);
 
-        FreqDist<String> termFrequencies = getTermFrequencies(jcas);
-
+        FreqDist<String> termFrequencies;
+        currentJCas = jcas;
+        currentTerms = terms;
         try {
-            for (Entry<AnnotationFS, String> entry : FeaturePathFactory.select(jcas.getCas(),
-                    featurePath)) {
-                String term = entry.getValue();
-                if (lowercase) {
-                    term = term.toLowerCase();
-                }
-
-                int tf = termFrequencies.getCount(term);
-                int df = dfModel.getDf(term);
-                if (df == 0) {
-                    getContext().getLogger().log(Level.WARNING,
-                            "Term [" + term + "] not found in dfStore!");
-                }
-
-                double tfidf = getWeightedTf(tf) * getWeightedIdf(df, dfModel.getDocumentCount());
-
-                logTfidf(term, tf, df, tfidf);
-
-                Tfidf tfidfAnnotation = new Tfidf(jcas);
-                tfidfAnnotation.setTerm(term);
-                tfidfAnnotation.setTfidfValue(tfidf);
-                tfidfAnnotation.setBegin(entry.getKey().getBegin());
-                tfidfAnnotation.setEnd(entry.getKey().getEnd());
-                tfidfAnnotation.addToIndexes();
-            }
+            termFrequencies = getTermFrequencies(jcas);
         }
-        catch (FeaturePathException e) {
-            throw new AnalysisEngineProcessException(e);
+        finally {
+            currentJCas = null;
+            currentTerms = null;
+        }
+
+        for (int i = 0; i < terms.length; i++) {
+            String term = terms[i];
+
+            int tf = termFrequencies.getCount(term);
+            int df = dfModel.getDf(term);
+            if (df == 0) {
+                getContext().getLogger().log(Level.WARNING,
+                        "Term [" + term + "] not found in dfStore!");
+            }
+
+            double tfidf = getWeightedTf(tf) * getWeightedIdf(df, dfModel.getDocumentCount());
+
+            logTfidf(term, tf, df, tfidf);
+
+            Tfidf tfidfAnnotation = new Tfidf(jcas);
+            tfidfAnnotation.setTerm(term);
+            tfidfAnnotation.setTfidfValue(tfidf);
+            tfidfAnnotation.setBegin(annotations[i].getBegin());
+            tfidfAnnotation.setEnd(annotations[i].getEnd());
+            tfidfAnnotation.addToIndexes();
         }
     }
 
+    /**
+     * Counts the terms of the given document. The default implementation passes the terms
+     * selected by the feature path to {@link #getTermFrequencies(String[])}.
+     */
     protected FreqDist<String> getTermFrequencies(JCas jcas)
         throws AnalysisEngineProcessException
+    {
+        // Re-use the terms extracted by process() instead of evaluating the path again
+        String[] terms;
+        if (jcas == currentJCas) {
+            terms = currentTerms;
+        }
+        else {
+            compileFeaturePath(jcas);
+            terms = extractTerms(jcas, null);
+        }
+        return getTermFrequencies(terms);
+    }
+
+    protected FreqDist<String> getTermFrequencies(String[] terms)
     {
         // count all terms with the given annotation
         FreqDist<String> termFrequencies = new FreqDist<String>();
-        for (String term : TermIterator.create(jcas, featurePath, lowercase)) {
+        for (String term : terms) {
             termFrequencies.count(term);
         }
         return termFrequencies;
     }
 
+    private void compileFeaturePath(JCas jcas)
+        throws AnalysisEngineProcessException
+    {
+        try {
+            compiledFeaturePath = CompiledFeaturePath.compile(jcas.getTypeSystem(), featurePath,
+                    compiledFeaturePath);
+        }
+        catch (FeaturePathException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    /**
+     * Extracts the terms of all annotations selected by the compiled feature path.
+     * 
+     * @param annotations
+     *            receives the annotations or {@code null}.
+     */
+    private String[] extractTerms(JCas jcas, AnnotationFS[] annotations)
+    {
+        CAS cas = jcas.getCas();
+        String[] terms = new String[cas.getAnnotationIndex(compiledFeaturePath.getType())
+                .size()];
+        compiledFeaturePath.extract(cas, compiledFeaturePath.getType(), terms, annotations);
+        if (lowercase) {
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = terms[i].toLowerCase();
+            }
+        }
+        return terms;
+    }
+
     /**
      * Calculates a weighted tf according to given settings.
      */
@@ -17,6 +17,9 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.frequency.tfidf;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
@@ -24,7 +27,11 @@ import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
+import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.CompactDfModel;
+import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.CompactDfModelBuilder;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.DfModel;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.DfStore;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.util.TermIterator;
@@ -62,38 +69,97 @@ public class TfidfConsumer
     @ConfigurationParameter(name = PARAM_FEATURE_PATH, mandatory = true)
     private String featurePath;
 
+    /**
+     * If set to true, the model is written in the compact format of the {@link CompactDfModel},
+     * which can be memory-mapped by the {@link TfidfAnnotator} instead of being deserialized. The
+     * counts are spilled to disk according to {@link #PARAM_SPILL_THRESHOLD}, so large
+     * collections can be processed with a small heap.
+     */
+    public static final String PARAM_COMPACT_MODEL = "compactModel";
+    @ConfigurationParameter(name = PARAM_COMPACT_MODEL, mandatory = true, defaultValue = "false")
+    private boolean compactModel;
+
+    /**
+     * When the number of distinct terms held in memory reaches this value, the counts are spilled
+     * to a temporary file. Only used for the compact model. Default: 5000000.
+     */
+    public static final String PARAM_SPILL_THRESHOLD = "spillThreshold";
+    @ConfigurationParameter(name = PARAM_SPILL_THRESHOLD, mandatory = true,
+            defaultValue = "5000000")
+    private int spillThreshold;
+
+    /**
+     * The directory for temporary files. Default: the system temporary directory.
+     */
+    public static final String PARAM_SPILL_DIRECTORY = "spillDirectory";
+    @ConfigurationParameter(name = PARAM_SPILL_DIRECTORY, mandatory = false)
+    private File spillDirectory;
+
     private DfStore dfStore;
+    private CompactDfModelBuilder dfModelBuilder;
+    private CompiledFeaturePath compiledFeaturePath;
 
     @Override
     public void initialize(UimaContext context)
         throws ResourceInitializationException
     {
         super.initialize(context);
-        dfStore = new DfStore(featurePath, lowercase);
+        if (compactModel) {
+            dfModelBuilder = new CompactDfModelBuilder(featurePath, lowercase, spillThreshold,
+                    spillDirectory);
+        }
+        else {
+            dfStore = new DfStore(featurePath, lowercase);
+        }
     }
 
     @Override
     public void process(JCas jcas)
         throws AnalysisEngineProcessException
     {
-        dfStore.registerNewDocument();
-
-        for (String term : TermIterator.create(jcas, featurePath, lowercase)) {
-            dfStore.countTerm(term);
+        try {
+            compiledFeaturePath = CompiledFeaturePath.compile(jcas.getTypeSystem(), featurePath,
+                    compiledFeaturePath);
+        }
+        catch (FeaturePathException e) {
+            throw new AnalysisEngineProcessException(e);
         }
 
-        dfStore.closeCurrentDocument();
+        if (compactModel) {
+            dfModelBuilder.registerNewDocument();
+            for (String term : TermIterator.create(jcas, compiledFeaturePath, lowercase)) {
+                dfModelBuilder.countTerm(term);
+            }
+            try {
+                dfModelBuilder.closeCurrentDocument();
+            }
+            catch (IOException e) {
+                throw new AnalysisEngineProcessException(e);
+            }
+        }
+        else {
+            dfStore.registerNewDocument();
+            for (String term : TermIterator.create(jcas, compiledFeaturePath, lowercase)) {
+                dfStore.countTerm(term);
+            }
+            dfStore.closeCurrentDocument();
+        }
     }
 
     /**
-     * When this method is called by the framework, the dfModel is serialized.
+     * When this method is called by the framework, the dfModel is written.
      */
     @Override
     public void collectionProcessComplete()
         throws AnalysisEngineProcessException
     {
         try {
-            TfidfUtils.writeDfModel(dfStore, outputPath);
+            if (compactModel) {
+                dfModelBuilder.write(new File(outputPath));
+            }
+            else {
+                TfidfUtils.writeDfModel(dfStore, outputPath);
+            }
         }
         catch (Exception e) {
             throw new AnalysisEngineProcessException(e);
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only {@link DfModel} which memory-maps a file written by the {@link CompactDfModelBuilder}.
+ * Opening the model is independent of its size and the terms and counts are not loaded into the
+ * heap, so a single model file can be shared by all JVMs on a machine through the page cache.
+ * <p>
+ * The file consists of a header, the term dictionary and the document frequencies:
+ * <ul>
+ * <li>The terms are sorted by their UTF-8 bytes and front-coded in blocks of
+ * {@link #BLOCK_SIZE} terms: the first term of each block is stored in full, every other term as
+ * the length of the prefix it shares with its predecessor followed by the remaining bytes.</li>
+ * <li>The block start offsets allow to find the block of a term using binary search over the
+ * first terms of the blocks, then the block is scanned sequentially.</li>
+ * <li>The document frequencies are bit-packed in term order using as many bits per value as are
+ * required to represent the document count.</li>
+ * </ul>
+ * This model cannot be serialized using Java serialization - the file itself is the serialized
+ * form.
+ */
+public class CompactDfModel
+    implements DfModel
+{
+    private static final long serialVersionUID = -3264001767001870711L;
+
+    static final int MAGIC = 0x444b4446; // "DKDF"
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 16;
+
+    /**
+     * The term dictionary is mapped in chunks of this size. Each chunk overlaps the next one by
+     * the size of the largest block, so every block lies completely within a single chunk.
+     */
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    private final String featurePath;
+    private final boolean lowercase;
+    private final int documentCount;
+    private final int termCount;
+    private final int blockCount;
+    private final int bitsPerDf;
+    private final int maxTermLength;
+
+    private final transient LongBuffer blockOffsets;
+    private final transient ByteBuffer[] chunks;
+    private final transient LongBuffer dfs;
+
+    private CompactDfModel(String aFeaturePath, boolean aLowercase, int aDocumentCount,
+            int aTermCount, int aBlockCount, int aBitsPerDf, int aMaxTermLength,
+            LongBuffer aBlockOffsets, ByteBuffer[] aChunks, LongBuffer aDfs)
+    {
+        featurePath = aFeaturePath;
+        lowercase = aLowercase;
+        documentCount = aDocumentCount;
+        termCount = aTermCount;
+        blockCount = aBlockCount;
+        bitsPerDf = aBitsPerDf;
+        maxTermLength = aMaxTermLength;
+        blockOffsets = aBlockOffsets;
+        chunks = aChunks;
+        dfs = aDfs;
+    }
+
+    /**
+     * Checks whether the given file is a compact document frequency model.
+     *
+     * @param aFile
+     *            a file.
+     * @return true if the file starts with the compact model signature.
+     * @throws IOException
+     *             if the file cannot be read.
+     */
+    public static boolean isCompactDfModel(File aFile)
+        throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(aFile))) {
+            return in.readInt() == MAGIC;
+        }
+        catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Memory-maps a model previously written by the {@link CompactDfModelBuilder}.
+     *
+     * @param aFile
+     *            the model file.
+     * @return the model.
+     * @throws IOException
+     *             if the file cannot be read or is not a compact model.
+     */
+    public static CompactDfModel load(File aFile)
+        throws IOException
+    {
+        String featurePath;
+        boolean lowercase;
+        int documentCount;
+        int termCount;
+        int blockCount;
+        int bitsPerDf;
+        int maxTermLength;
+        int maxBlockLength;
+        long dataLength;
+        long headerLength;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(aFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("[" + aFile + "] is not a compact document frequency model");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported document frequency model version [" + version
+                        + "] in [" + aFile + "]");
+            }
+            documentCount = in.readInt();
+            lowercase = in.readBoolean();
+            termCount = in.readInt();
+            blockCount = in.readInt();
+            bitsPerDf = in.readInt();
+            maxTermLength = in.readInt();
+            maxBlockLength = in.readInt();
+            dataLength = in.readLong();
+            featurePath = in.readUTF();
+            headerLength = headerLength(featurePath);
+        }
+        catch (EOFException e) {
+            throw new IOException("[" + aFile + "] is truncated", e);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(aFile, "r")) {
+            FileChannel channel = raf.getChannel();
+            long offsetsStart = align(headerLength);
+            long dataStart = offsetsStart + (long) blockCount * Long.BYTES;
+            long dfsStart = align(dataStart + dataLength);
+            long dfsLength = (long) dfWords(termCount, bitsPerDf) * Long.BYTES;
+            if (dfsStart + dfsLength > channel.size()) {
+                throw new IOException("[" + aFile + "] is truncated");
+            }
+
+            LongBuffer blockOffsets = channel.map(MapMode.READ_ONLY, offsetsStart,
+                    (long) blockCount * Long.BYTES).asLongBuffer();
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((dataLength + CHUNK_SIZE - 1)
+                    / CHUNK_SIZE)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = i * CHUNK_SIZE;
+                long length = Math.min(CHUNK_SIZE + maxBlockLength, dataLength - start);
+                chunks[i] = channel.map(MapMode.READ_ONLY, dataStart + start, length);
+            }
+            LongBuffer dfs = channel.map(MapMode.READ_ONLY, dfsStart, dfsLength)
+                    .asLongBuffer();
+
+            return new CompactDfModel(featurePath.isEmpty() ? null : featurePath, lowercase,
+                    documentCount, termCount, blockCount, bitsPerDf, maxTermLength, blockOffsets,
+                    chunks, dfs);
+        }
+    }
+
+    static long headerLength(String aFeaturePath)
+    {
+        // 8 ints, 1 boolean, 1 long and the modified UTF-8 string written by writeUTF
+        int utfLength = 0;
+        for (int i = 0; i < aFeaturePath.length(); i++) {
+            char c = aFeaturePath.charAt(i);
+            utfLength += (c >= 0x0001 && c <= 0x007F) ? 1 : (c <= 0x07FF ? 2 : 3);
+        }
+        return 8 * Integer.BYTES + 1 + Long.BYTES + 2 + utfLength;
+    }
+
+    static long align(long aPosition)
+    {
+        return (aPosition + Long.BYTES - 1) & ~(Long.BYTES - 1);
+    }
+
+    static int dfWords(int aTermCount, int aBitsPerDf)
+    {
+        return (int) (((long) aTermCount * aBitsPerDf + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    static int bitsPerDf(int aDocumentCount)
+    {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(aDocumentCount));
+    }
+
+    @Override
+    public int getDf(String term)
+    {
+        if (blockCount == 0) {
+            return 0;
+        }
+
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        if (key.length > maxTermLength) {
+            return 0;
+        }
+
+        // Find the last block whose first term is not greater than the key
+        int lo = 0;
+        int hi = blockCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (compareFirstTerm(mid, key) <= 0) {
+                lo = mid;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+
+        // Scan the block
+        long offset = blockOffsets.get(lo);
+        ByteBuffer chunk = chunks[(int) (offset / CHUNK_SIZE)];
+        int pos = (int) (offset % CHUNK_SIZE);
+        byte[] current = new byte[maxTermLength];
+        int length = 0;
+        int end = Math.min(BLOCK_SIZE, termCount - lo * BLOCK_SIZE);
+        for (int i = 0; i < end; i++) {
+            int prefix = 0;
+            if (i > 0) {
+                prefix = readVInt(chunk, pos);
+                pos += vIntLength(prefix);
+            }
+            int suffix = readVInt(chunk, pos);
+            pos += vIntLength(suffix);
+            for (int j = 0; j < suffix; j++) {
+                current[prefix + j] = chunk.get(pos + j);
+            }
+            pos += suffix;
+            length = prefix + suffix;
+
+            int cmp = compare(current, length, key);
+            if (cmp == 0) {
+                return getPackedDf(lo * BLOCK_SIZE + i);
+            }
+            if (cmp > 0) {
+                break;
+            }
+        }
+        return 0;
+    }
+
+    private int compareFirstTerm(int aBlock, byte[] aKey)
+    {
+        long offset = blockOffsets.get(aBlock);
+        ByteBuffer chunk = chunks[(int) (offset / CHUNK_SIZE)];
+        int pos = (int) (offset % CHUNK_SIZE);
+        int length = readVInt(chunk, pos);
+        pos += vIntLength(length);
+        int n = Math.min(length, aKey.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (chunk.get(pos + i) & 0xff) - (aKey[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - aKey.length;
+    }
+
+    private static int compare(byte[] aTerm, int aLength, byte[] aKey)
+    {
+        int n = Math.min(aLength, aKey.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (aTerm[i] & 0xff) - (aKey[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return aLength - aKey.length;
+    }
+
+    private int getPackedDf(int aIndex)
+    {
+        long bit = (long) aIndex * bitsPerDf;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = dfs.get(word) >>> shift;
+        if (shift + bitsPerDf > Long.SIZE) {
+            value |= dfs.get(word + 1) << (Long.SIZE - shift);
+        }
+        return (int) (value & ((1L << bitsPerDf) - 1));
+    }
+
+    private static int readVInt(ByteBuffer aBuffer, int aPosition)
+    {
+        int value = 0;
+        int shift = 0;
+        int pos = aPosition;
+        byte b;
+        do {
+            b = aBuffer.get(pos++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        }
+        while (b < 0);
+        return value;
+    }
+
+    static int vIntLength(int aValue)
+    {
+        int length = 1;
+        int value = aValue >>> 7;
+        while (value != 0) {
+            length++;
+            value >>>= 7;
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of distinct terms in the model.
+     */
+    public int getTermCount()
+    {
+        return termCount;
+    }
+
+    @Override
+    public int getDocumentCount()
+    {
+        return documentCount;
+    }
+
+    @Override
+    public String getFeaturePath()
+    {
+        return featurePath;
+    }
+
+    @Override
+    public boolean getLowercase()
+    {
+        return lowercase;
+    }
+
+    private void writeObject(ObjectOutputStream aOut)
+        throws IOException
+    {
+        throw new NotSerializableException(
+                "A memory-mapped model cannot be serialized - copy the model file instead");
+    }
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model;
+
+import static de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.CompactDfModel.BLOCK_SIZE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Collects document frequencies and writes them as a {@link CompactDfModel}.
+ * <p>
+ * When the number of distinct terms held in memory reaches the spill threshold, the counts are
+ * written to a sorted temporary file and counting starts over. When the model is written, the
+ * temporary files are merged, so the heap only needs to hold the counts of a single run and not
+ * those of the whole collection.
+ */
+public class CompactDfModelBuilder
+{
+    private final String featurePath;
+    private final boolean lowercase;
+    private final int spillThreshold;
+    private final File spillDirectory;
+
+    private final Object2IntOpenHashMap<String> counts = new Object2IntOpenHashMap<String>();
+    private final Set<String> termsInThisDocument = new HashSet<String>();
+    private final List<File> runs = new ArrayList<File>();
+    private int documentCount = 0;
+
+    /**
+     * @param aFeaturePath
+     *            the feature path used to extract the terms.
+     * @param aLowercase
+     *            whether the terms have been converted to lower case.
+     * @param aSpillThreshold
+     *            the number of distinct terms held in memory before they are spilled to disk.
+     * @param aSpillDirectory
+     *            the directory for temporary files or {@code null} to use the system temporary
+     *            directory.
+     */
+    public CompactDfModelBuilder(String aFeaturePath, boolean aLowercase, int aSpillThreshold,
+            File aSpillDirectory)
+    {
+        featurePath = aFeaturePath;
+        lowercase = aLowercase;
+        spillThreshold = aSpillThreshold;
+        spillDirectory = aSpillDirectory;
+    }
+
+    /**
+     * Call this method when starting processing a new document.
+     */
+    public void registerNewDocument()
+    {
+        documentCount++;
+        termsInThisDocument.clear();
+    }
+
+    public void countTerm(String term)
+    {
+        termsInThisDocument.add(term);
+    }
+
+    /**
+     * Call this method when processing of document is over.
+     *
+     * @throws IOException
+     *             if the counts need to be spilled and the temporary file cannot be written.
+     */
+    public void closeCurrentDocument()
+        throws IOException
+    {
+        for (String term : termsInThisDocument) {
+            counts.addTo(term, 1);
+        }
+        termsInThisDocument.clear();
+
+        if (counts.size() >= spillThreshold) {
+            spill();
+        }
+    }
+
+    /**
+     * @return the number of temporary files written so far.
+     */
+    public int getRunCount()
+    {
+        return runs.size();
+    }
+
+    private void spill()
+        throws IOException
+    {
+        File run = File.createTempFile("dfmodel", ".run", spillDirectory);
+        run.deleteOnExit();
+        MemoryCursor cursor = new MemoryCursor();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(run)))) {
+            out.writeInt(counts.size());
+            while (cursor.advance()) {
+                out.writeInt(cursor.term.length);
+                out.write(cursor.term);
+                out.writeInt(cursor.df);
+            }
+        }
+        counts.clear();
+        runs.add(run);
+    }
+
+    /**
+     * Merges the counts and writes the model. Missing parent directories of the target are
+     * created. Temporary files are deleted afterwards.
+     *
+     * @param aTarget
+     *            the model file.
+     * @throws IOException
+     *             if the model cannot be written.
+     */
+    public void write(File aTarget)
+        throws IOException
+    {
+        File parent = aTarget.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        List<Cursor> cursors = new ArrayList<Cursor>();
+        File data = File.createTempFile("dfmodel", ".terms", spillDirectory);
+        File offsets = File.createTempFile("dfmodel", ".offsets", spillDirectory);
+        File dfs = File.createTempFile("dfmodel", ".dfs", spillDirectory);
+        try {
+            for (File run : runs) {
+                cursors.add(new RunCursor(run));
+            }
+            if (counts.size() > 0) {
+                cursors.add(new MemoryCursor());
+            }
+
+            SectionWriter writer = new SectionWriter(data, offsets, dfs,
+                    CompactDfModel.bitsPerDf(documentCount));
+            try {
+                merge(cursors, writer);
+            }
+            finally {
+                writer.close();
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(aTarget)))) {
+                String path = featurePath != null ? featurePath : "";
+                out.writeInt(CompactDfModel.MAGIC);
+                out.writeInt(CompactDfModel.VERSION);
+                out.writeInt(documentCount);
+                out.writeBoolean(lowercase);
+                out.writeInt(writer.termCount);
+                out.writeInt(writer.blockCount);
+                out.writeInt(writer.bitsPerDf);
+                out.writeInt(writer.maxTermLength);
+                out.writeInt(writer.maxBlockLength);
+                out.writeLong(writer.dataLength);
+                out.writeUTF(path);
+                long headerLength = CompactDfModel.headerLength(path);
+                pad(out, headerLength);
+                Files.copy(offsets.toPath(), out);
+                Files.copy(data.toPath(), out);
+                pad(out, CompactDfModel.align(headerLength)
+                        + (long) writer.blockCount * Long.BYTES + writer.dataLength);
+                Files.copy(dfs.toPath(), out);
+            }
+        }
+        finally {
+            for (Cursor cursor : cursors) {
+                cursor.close();
+            }
+            for (File run : runs) {
+                run.delete();
+            }
+            runs.clear();
+            data.delete();
+            offsets.delete();
+            dfs.delete();
+        }
+    }
+
+    private static void pad(OutputStream aOut, long aPosition)
+        throws IOException
+    {
+        for (long i = aPosition; i < CompactDfModel.align(aPosition); i++) {
+            aOut.write(0);
+        }
+    }
+
+    private static void merge(List<Cursor> aCursors, SectionWriter aWriter)
+        throws IOException
+    {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(Math.max(1, aCursors.size()),
+                (a, b) -> compare(a.term, b.term));
+        for (Cursor cursor : aCursors) {
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Cursor head = queue.poll();
+            byte[] term = head.term;
+            int df = head.df;
+            if (head.advance()) {
+                queue.add(head);
+            }
+            while (!queue.isEmpty() && compare(queue.peek().term, term) == 0) {
+                Cursor other = queue.poll();
+                df += other.df;
+                if (other.advance()) {
+                    queue.add(other);
+                }
+            }
+            aWriter.add(term, df);
+        }
+    }
+
+    private static int compare(byte[] aTerm1, byte[] aTerm2)
+    {
+        int n = Math.min(aTerm1.length, aTerm2.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (aTerm1[i] & 0xff) - (aTerm2[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return aTerm1.length - aTerm2.length;
+    }
+
+    /**
+     * Writes the front-coded terms, the block offsets and the packed document frequencies to
+     * separate files which are concatenated afterwards.
+     */
+    private static class SectionWriter
+        implements Closeable
+    {
+        private final DataOutputStream data;
+        private final DataOutputStream offsets;
+        private final DataOutputStream dfs;
+        private final int bitsPerDf;
+
+        private int termCount;
+        private int blockCount;
+        private int maxTermLength;
+        private int maxBlockLength;
+        private long dataLength;
+        private long blockStart;
+        private byte[] previous;
+
+        private long word;
+        private int bitsInWord;
+
+        SectionWriter(File aData, File aOffsets, File aDfs, int aBitsPerDf)
+            throws IOException
+        {
+            data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aData)));
+            offsets = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(aOffsets)));
+            dfs = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(aDfs)));
+            bitsPerDf = aBitsPerDf;
+        }
+
+        void add(byte[] aTerm, int aDf)
+            throws IOException
+        {
+            if (termCount % BLOCK_SIZE == 0) {
+                if (blockCount > 0) {
+                    maxBlockLength = (int) Math.max(maxBlockLength, dataLength - blockStart);
+                }
+                blockStart = dataLength;
+                offsets.writeLong(dataLength);
+                blockCount++;
+                writeVInt(aTerm.length);
+                writeBytes(aTerm, 0);
+            }
+            else {
+                int prefix = 0;
+                int n = Math.min(previous.length, aTerm.length);
+                while (prefix < n && previous[prefix] == aTerm[prefix]) {
+                    prefix++;
+                }
+                writeVInt(prefix);
+                writeVInt(aTerm.length - prefix);
+                writeBytes(aTerm, prefix);
+            }
+            previous = aTerm;
+            maxTermLength = Math.max(maxTermLength, aTerm.length);
+            termCount++;
+
+            word |= (long) aDf << bitsInWord;
+            bitsInWord += bitsPerDf;
+            if (bitsInWord >= Long.SIZE) {
+                dfs.writeLong(word);
+                bitsInWord -= Long.SIZE;
+                word = bitsInWord > 0 ? (long) aDf >>> (bitsPerDf - bitsInWord) : 0;
+            }
+        }
+
+        private void writeVInt(int aValue)
+            throws IOException
+        {
+            int value = aValue;
+            while ((value & ~0x7f) != 0) {
+                data.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data.write(value);
+            dataLength += CompactDfModel.vIntLength(aValue);
+        }
+
+        private void writeBytes(byte[] aTerm, int aOffset)
+            throws IOException
+        {
+            data.write(aTerm, aOffset, aTerm.length - aOffset);
+            dataLength += aTerm.length - aOffset;
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            if (blockCount > 0) {
+                maxBlockLength = (int) Math.max(maxBlockLength, dataLength - blockStart);
+            }
+            if (bitsInWord > 0) {
+                dfs.writeLong(word);
+                bitsInWord = 0;
+            }
+            data.close();
+            offsets.close();
+            dfs.close();
+        }
+    }
+
+    /**
+     * A sequence of terms with their document frequencies sorted by the UTF-8 bytes of the terms.
+     */
+    private abstract static class Cursor
+        implements Closeable
+    {
+        byte[] term;
+        int df;
+
+        abstract boolean advance()
+            throws IOException;
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            // Nothing to do by default
+        }
+    }
+
+    /**
+     * Iterates over the counts held in memory.
+     */
+    private class MemoryCursor
+        extends Cursor
+    {
+        private final byte[][] terms;
+        private final int[] termDfs;
+        private final int[] order;
+        private int next;
+
+        MemoryCursor()
+        {
+            terms = new byte[counts.size()][];
+            termDfs = new int[terms.length];
+            order = new int[terms.length];
+            int i = 0;
+            for (String term : counts.keySet()) {
+                terms[i] = term.getBytes(StandardCharsets.UTF_8);
+                termDfs[i] = counts.getInt(term);
+                order[i] = i;
+                i++;
+            }
+            IntArrays.quickSort(order, new AbstractIntComparator()
+            {
+                @Override
+                public int compare(int aIndex1, int aIndex2)
+                {
+                    return CompactDfModelBuilder.compare(terms[aIndex1], terms[aIndex2]);
+                }
+            });
+        }
+
+        @Override
+        boolean advance()
+        {
+            if (next == order.length) {
+                return false;
+            }
+            term = terms[order[next]];
+            df = termDfs[order[next]];
+            next++;
+            return true;
+        }
+    }
+
+    /**
+     * Reads a temporary file written by {@link CompactDfModelBuilder#spill()}.
+     */
+    private static class RunCursor
+        extends Cursor
+    {
+        private final DataInputStream in;
+        private int remaining;
+
+        RunCursor(File aFile)
+            throws IOException
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(aFile)));
+            remaining = in.readInt();
+        }
+
+        @Override
+        boolean advance()
+            throws IOException
+        {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            term = new byte[in.readInt()];
+            in.readFully(term);
+            df = in.readInt();
+            return true;
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            in.close();
+        }
+    }
+}
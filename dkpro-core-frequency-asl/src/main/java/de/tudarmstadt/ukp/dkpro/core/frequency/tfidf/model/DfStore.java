@@ -18,8 +18,8 @@
 package de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model;
 
 import java.io.Serializable;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.TreeSet;
 
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.TfidfAnnotator;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.TfidfConsumer;
@@ -39,7 +39,7 @@ public class DfStore
     private final FreqDist<String> df;
     private String featurePath;
     private int documentCount = 0;
-    private Set<String> termsInThisDocument;
+    private transient Set<String> termsInThisDocument;
     private final boolean lowercase;
 
     public DfStore()
@@ -61,7 +61,10 @@ public class DfStore
     public void registerNewDocument()
     {
         documentCount++;
-        termsInThisDocument = new TreeSet<String>();
+        if (termsInThisDocument == null) {
+            termsInThisDocument = new HashSet<String>();
+        }
+        termsInThisDocument.clear();
     }
 
     public void countTerm(String term)
@@ -75,7 +78,7 @@ public class DfStore
     public void closeCurrentDocument()
     {
         df.count(termsInThisDocument);
-        termsInThisDocument = null;
+        termsInThisDocument.clear();
     }
 
     @Override
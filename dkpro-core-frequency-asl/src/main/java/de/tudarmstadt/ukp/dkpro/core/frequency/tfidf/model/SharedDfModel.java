@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.ObjectInputStream;
 import java.net.MalformedURLException;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.resource.DataResource;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -44,7 +45,7 @@ public class SharedDfModel
 
     /**
      * Binds a {@link DfModel} to the given {@link AnalysisEngineDescription}. The model is
-     * deserialized from file stream.
+     * deserialized from file stream or memory-mapped if it is a {@link CompactDfModel}.
      * 
      * @param aaed
      *            An aggregate {@link AnalysisEngineDescription}. The binding does not work with
@@ -71,7 +72,14 @@ public class SharedDfModel
         throws ResourceInitializationException
     {
         try {
-            dfModel = (DfModel) new ObjectInputStream(aData.getInputStream()).readObject();
+            // Memory-map compact models instead of reading them through the stream
+            File file = aData.getUrl() != null ? FileUtils.toFile(aData.getUrl()) : null;
+            if (file != null && CompactDfModel.isCompactDfModel(file)) {
+                dfModel = CompactDfModel.load(file);
+            }
+            else {
+                dfModel = (DfModel) new ObjectInputStream(aData.getInputStream()).readObject();
+            }
         }
         catch (Exception e) {
             throw new ResourceInitializationException(e);
@@ -18,14 +18,13 @@
 package de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.util;
 
 import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.jcas.JCas;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
 import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
-import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathFactory;
 
 /**
  * Iterator over terms (Strings) in the JCas.
@@ -35,14 +34,20 @@ public class TermIterator
     implements Iterable<String>, Iterator<String>
 {
 
-    private Iterator<Entry<AnnotationFS, String>> fp;
-    private boolean convertToLowercase;
+    private final String[] terms;
+    private int next;
 
-    private TermIterator(Iterable<Entry<AnnotationFS, String>> fp, boolean convertToLowercase)
+    private TermIterator(String[] terms, boolean convertToLowercase)
     {
         super();
-        this.fp = fp.iterator();
-        this.convertToLowercase = convertToLowercase;
+        this.terms = terms;
+        if (convertToLowercase) {
+            for (int i = 0; i < terms.length; i++) {
+                if (terms[i] != null) {
+                    terms[i] = terms[i].toLowerCase();
+                }
+            }
+        }
     }
 
     /**
@@ -61,9 +66,8 @@ public class TermIterator
     public static TermIterator create(JCas jcas, String featurePath, boolean convertToLowercase)
         throws AnalysisEngineProcessException
     {
-
         try {
-            return new TermIterator(FeaturePathFactory.select(jcas.getCas(), featurePath),
+            return create(jcas, CompiledFeaturePath.compile(jcas.getTypeSystem(), featurePath),
                     convertToLowercase);
         }
         catch (FeaturePathException e) {
@@ -71,6 +75,24 @@ public class TermIterator
         }
     }
 
+    /**
+     * Create a Iterator over all represented strings (specified with the featurePath) in the JCas.
+     * 
+     * @param jcas
+     *            Iterate over all specified Annotations in this jcas
+     * @param featurePath
+     *            Specifies the annotation and its string representation method. The path must
+     *            have been compiled for the type system of the JCas.
+     * @param convertToLowercase
+     *            The terms are converted as specified with this parameter
+     * @return an iterator.
+     */
+    public static TermIterator create(JCas jcas, CompiledFeaturePath featurePath,
+            boolean convertToLowercase)
+    {
+        return new TermIterator(featurePath.extract(jcas.getCas()), convertToLowercase);
+    }
+
     @Override
     public Iterator<String> iterator()
     {
@@ -80,19 +102,22 @@ public class TermIterator
     @Override
     public boolean hasNext()
     {
-        return fp.hasNext();
+        return next < terms.length;
     }
 
     @Override
     public String next()
     {
-        return convertToLowercase ? fp.next().getValue().toLowerCase() : fp.next().getValue();
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return terms[next++];
     }
 
     @Override
     public void remove()
     {
-        fp.remove();
+        throw new UnsupportedOperationException();
     }
 
 }
@@ -27,8 +27,9 @@ import java.io.ObjectOutputStream;
 
 import org.apache.commons.io.FileUtils;
 
+import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.CompactDfModel;
+import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.CompactDfModelBuilder;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.DfModel;
-import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.DfStore;
 
 /**
  * Serialization and deserialization methods.
@@ -54,7 +55,8 @@ public class TfidfUtils
     }
 
     /**
-     * Reads a {@link DfStore} from disk.
+     * Reads a {@link DfModel} from disk. Models in the compact format written by the
+     * {@link CompactDfModelBuilder} are memory-mapped, other files are deserialized.
      * 
      * @param path
      *            the source path.
@@ -65,6 +67,10 @@ public class TfidfUtils
     public static DfModel getDfModel(String path)
         throws IOException
     {
+        File file = new File(path);
+        if (CompactDfModel.isCompactDfModel(file)) {
+            return CompactDfModel.load(file);
+        }
         return deserialize(path);
     }
 
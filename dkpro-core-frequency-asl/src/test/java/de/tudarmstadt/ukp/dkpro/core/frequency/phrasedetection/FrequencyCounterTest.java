@@ -31,10 +31,14 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class FrequencyCounterTest
@@ -149,6 +153,69 @@ public class FrequencyCounterTest
         }
     }
 
+    @Test
+    public void testCountWithSpilling()
+            throws Exception
+    {
+        int minCount = 1;
+
+        File targetFile = new File(DkproTestContext.get().getTestOutputFolder(), "counts.txt");
+        File expectedFile = new File(
+                "src/test/resources/phrasedetection/counts_sorted_alphabetically.txt");
+
+        String sentence = "This is a first test that contains a first test example";
+        String language = "en";
+
+        CollectionReaderDescription reader = createReaderDescription(StringReader.class,
+                StringReader.PARAM_DOCUMENT_TEXT, sentence,
+                StringReader.PARAM_LANGUAGE, language);
+        AnalysisEngineDescription segmenter = createEngineDescription(BreakIteratorSegmenter.class);
+        AnalysisEngineDescription writer = createEngineDescription(FrequencyCounter.class,
+                FrequencyCounter.PARAM_TARGET_LOCATION, targetFile,
+                FrequencyCounter.PARAM_MIN_COUNT, minCount,
+                FrequencyCounter.PARAM_SORT_BY_ALPHABET, true,
+                FrequencyCounter.PARAM_SPILL_THRESHOLD, 1);
+
+        SimplePipeline.runPipeline(reader, segmenter, writer);
+
+        assertArrayEquals("Counts merged from spilled runs invalid.",
+                Files.readAllBytes(expectedFile.toPath()),
+                Files.readAllBytes(targetFile.toPath()));
+    }
+
+    @Test
+    public void testPartialCountsAndMerge()
+            throws Exception
+    {
+        File partialDir = new File(DkproTestContext.get().getTestOutputFolder(), "partial");
+        File targetFile = new File(DkproTestContext.get().getTestOutputFolder(), "counts.txt");
+        File expectedFile = new File(
+                "src/test/resources/phrasedetection/counts_sorted_alphabetically.txt");
+
+        AnalysisEngineDescription segmenter = createEngineDescription(BreakIteratorSegmenter.class);
+        AnalysisEngineDescription writer = createEngineDescription(FrequencyCounter.class,
+                FrequencyCounter.PARAM_TARGET_LOCATION, partialDir,
+                FrequencyCounter.PARAM_PARTIAL_COUNTS, true);
+
+        /* simulate two pipeline instances, each counting a part of the collection */
+        for (String text : new String[] { "This is a first test",
+                "that contains a first test example" }) {
+            SimplePipeline.runPipeline(createReaderDescription(StringReader.class,
+                    StringReader.PARAM_DOCUMENT_TEXT, text,
+                    StringReader.PARAM_LANGUAGE, "en"), segmenter, writer);
+        }
+
+        File[] partialFiles = partialDir.listFiles();
+        assertEquals(2, partialFiles.length);
+        FrequencyCountMerger.merge(Arrays.asList(partialFiles), targetFile, 1, false);
+
+        /* the bigram "test that" spans both parts and is therefore missing */
+        List<String> expected = Files.lines(expectedFile.toPath())
+                .filter(line -> !line.startsWith("test that"))
+                .collect(Collectors.toList());
+        assertEquals(expected, Files.readAllLines(targetFile.toPath()));
+    }
+
     @Test(expected = ResourceInitializationException.class)
     public void testSortBoth()
             throws IOException, UIMAException
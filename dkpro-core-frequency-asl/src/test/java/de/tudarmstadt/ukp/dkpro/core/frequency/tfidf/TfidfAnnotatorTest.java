@@ -29,6 +29,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.collection.CollectionReaderDescription;
 import org.apache.uima.fit.pipeline.JCasIterable;
 import org.apache.uima.fit.pipeline.SimplePipeline;
@@ -44,6 +45,7 @@ import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.TfidfAnnotator.WeightingModeIdf;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.TfidfAnnotator.WeightingModeTf;
+import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.util.FreqDist;
 import de.tudarmstadt.ukp.dkpro.core.io.text.TextReader;
 import de.tudarmstadt.ukp.dkpro.core.tokit.BreakIteratorSegmenter;
 
@@ -173,6 +175,53 @@ public class TfidfAnnotatorTest
         }
     }
 
+    @Test
+    public void tfidfTest_overriddenTermFrequencies()
+        throws Exception
+    {
+        CollectionReaderDescription reader = createReaderDescription(TextReader.class,
+                TextReader.PARAM_SOURCE_LOCATION, CONSUMER_TEST_DATA_PATH, 
+                TextReader.PARAM_PATTERNS, INCLUDE_PREFIX + "*.txt");
+
+        AnalysisEngineDescription segmenter = createEngineDescription(BreakIteratorSegmenter.class);
+
+        AnalysisEngineDescription tfidfAnnotator = createEngineDescription(
+                BinaryTfidfAnnotator.class,
+                TfidfAnnotator.PARAM_FEATURE_PATH, Token.class,
+                TfidfAnnotator.PARAM_TFDF_PATH, model, 
+                TfidfAnnotator.PARAM_TF_MODE, WeightingModeTf.NORMAL, 
+                TfidfAnnotator.PARAM_IDF_MODE, WeightingModeIdf.CONSTANT_ONE);
+
+        // The subclass counts every term only once per document
+        Map<String, Double> expectedDoc1 = new HashMap<String, Double>();
+        expectedDoc1.put("example", 1.0);
+        expectedDoc1.put("sentence", 1.0);
+        expectedDoc1.put("funny", 1.0);
+
+        Map<String, Double> expectedDoc2 = new HashMap<String, Double>();
+        expectedDoc2.put("example", 1.0);
+        expectedDoc2.put("sentence", 1.0);
+
+        for (JCas jcas : new JCasIterable(reader, segmenter, tfidfAnnotator)) {
+            testIt(jcas, expectedDoc1, expectedDoc2);
+        }
+    }
+
+    public static class BinaryTfidfAnnotator
+        extends TfidfAnnotator
+    {
+        @Override
+        protected FreqDist<String> getTermFrequencies(JCas jcas)
+            throws AnalysisEngineProcessException
+        {
+            FreqDist<String> termFrequencies = new FreqDist<String>();
+            for (String term : super.getTermFrequencies(jcas).getProbabilities().keySet()) {
+                termFrequencies.count(term);
+            }
+            return termFrequencies;
+        }
+    }
+
     private void testIt(JCas jcas, Map<String, Double> expectedDoc1,
             Map<String, Double> expectedDoc2)
     {
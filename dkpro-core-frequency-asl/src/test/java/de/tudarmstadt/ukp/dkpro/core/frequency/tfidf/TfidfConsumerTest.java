@@ -23,6 +23,7 @@ import static de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase.
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 
@@ -36,6 +37,7 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.rules.TestName;
 
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.CompactDfModel;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model.DfModel;
 import de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.util.TfidfUtils;
 import de.tudarmstadt.ukp.dkpro.core.io.text.TextReader;
@@ -78,6 +80,40 @@ public class TfidfConsumerTest
         assertEquals(1, dfModel.getDf("funny"));
     }
 
+    @Test
+    public void compactModelTest()
+        throws Exception
+    {
+        File target = folder.newFile(name.getMethodName());
+
+        CollectionReaderDescription reader = createReaderDescription(TextReader.class,
+                PARAM_SOURCE_LOCATION, "src/test/resources/consumer/",
+                PARAM_PATTERNS, INCLUDE_PREFIX + "*.txt");
+
+        AnalysisEngineDescription aggregate = createEngineDescription(
+                createEngineDescription(BreakIteratorSegmenter.class),
+                createEngineDescription(TfidfConsumer.class,
+                        TfidfConsumer.PARAM_FEATURE_PATH, Token.class.getName(),
+                        TfidfConsumer.PARAM_TARGET_LOCATION, target,
+                        TfidfConsumer.PARAM_COMPACT_MODEL, true,
+                        TfidfConsumer.PARAM_SPILL_THRESHOLD, 2,
+                        TfidfConsumer.PARAM_SPILL_DIRECTORY, folder.getRoot()));
+
+        SimplePipeline.runPipeline(reader, aggregate);
+
+        DfModel dfModel = TfidfUtils.getDfModel(target.getPath());
+
+        assertTrue(dfModel instanceof CompactDfModel);
+        assertEquals(2, dfModel.getDocumentCount());
+        assertEquals(Token.class.getName(), dfModel.getFeaturePath());
+        assertEquals(2, dfModel.getDf("example"));
+        assertEquals(2, dfModel.getDf("sentence"));
+        assertEquals(1, dfModel.getDf("funny"));
+        assertEquals(0, dfModel.getDf("unknown"));
+        // Only the model itself is left, temporary files have been removed
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
     @Rule
     public TestName name = new TestName();
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.frequency.tfidf.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompactDfModelTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAgainstDfStore()
+        throws Exception
+    {
+        String[] vocabulary = { "a", "ab", "abc", "b", "über", "Über", "uber", "été",
+                "😀", "￯", "z", "zz", "zzz" };
+        Random random = new Random(42);
+
+        DfStore expected = new DfStore("path", true);
+        CompactDfModelBuilder builder = new CompactDfModelBuilder("path", true, 50,
+                folder.getRoot());
+        for (int d = 0; d < 300; d++) {
+            expected.registerNewDocument();
+            builder.registerNewDocument();
+            for (int t = 0; t < 20; t++) {
+                String term = vocabulary[random.nextInt(vocabulary.length)]
+                        + random.nextInt(d % 7 + 1);
+                expected.countTerm(term);
+                builder.countTerm(term);
+            }
+            expected.closeCurrentDocument();
+            builder.closeCurrentDocument();
+        }
+        assertTrue(builder.getRunCount() > 1);
+
+        File target = new File(folder.getRoot(), "model.bin");
+        builder.write(target);
+        assertEquals(1, folder.getRoot().list().length);
+
+        CompactDfModel model = CompactDfModel.load(target);
+        assertEquals(300, model.getDocumentCount());
+        assertEquals("path", model.getFeaturePath());
+        assertTrue(model.getLowercase());
+
+        Map<String, Integer> terms = new HashMap<String, Integer>();
+        for (String prefix : vocabulary) {
+            for (int i = 0; i < 7; i++) {
+                terms.put(prefix + i, expected.getDf(prefix + i));
+            }
+        }
+        int known = 0;
+        for (Map.Entry<String, Integer> e : terms.entrySet()) {
+            assertEquals(e.getKey(), (int) e.getValue(), model.getDf(e.getKey()));
+            if (e.getValue() > 0) {
+                known++;
+            }
+        }
+        assertEquals(known, model.getTermCount());
+
+        assertEquals(0, model.getDf(""));
+        assertEquals(0, model.getDf("0"));
+        assertEquals(0, model.getDf("zzzz0"));
+    }
+
+    @Test
+    public void testEmpty()
+        throws Exception
+    {
+        CompactDfModelBuilder builder = new CompactDfModelBuilder(null, false, 10, null);
+        File target = folder.newFile("empty.bin");
+        builder.write(target);
+
+        assertTrue(CompactDfModel.isCompactDfModel(target));
+        CompactDfModel model = CompactDfModel.load(target);
+        assertEquals(0, model.getDocumentCount());
+        assertEquals(0, model.getTermCount());
+        assertNull(model.getFeaturePath());
+        assertFalse(model.getLowercase());
+        assertEquals(0, model.getDf("a"));
+    }
+
+    @Test
+    public void testCreatesParentDirectories()
+        throws Exception
+    {
+        CompactDfModelBuilder builder = new CompactDfModelBuilder(null, false, 10, null);
+        builder.registerNewDocument();
+        builder.countTerm("a");
+        builder.closeCurrentDocument();
+        File target = new File(folder.getRoot(), "sub/dir/df.bin");
+        builder.write(target);
+
+        assertTrue(CompactDfModel.isCompactDfModel(target));
+        assertEquals(1, CompactDfModel.load(target).getDf("a"));
+    }
+}
@@ -28,6 +28,8 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.ProcessBuilder.Redirect;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.uima.UimaContext;
@@ -43,6 +45,8 @@ import org.apache.uima.resource.ResourceInitializationException;
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.CasConfigurableProviderBase;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.ExternalToolProtocol;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.ExternalToolSession;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.MappingProvider;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.MappingProviderFactory;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ResourceUtils;
@@ -116,9 +120,32 @@ public class HunPosTagger
     @ConfigurationParameter(name = PARAM_PRINT_TAGSET, mandatory = true, defaultValue = "false")
     protected boolean printTagSet;
 
+    /**
+     * Number of {@code hunpos-tag} processes to keep running across documents. The sentences of a
+     * document are distributed over these processes. If set to {@code 0}, a new process is started
+     * for every document and stopped once the document has been tagged.
+     *
+     * Default: {@code 0}
+     */
+    public static final String PARAM_PROCESS_POOL_SIZE = "processPoolSize";
+    @ConfigurationParameter(name = PARAM_PROCESS_POOL_SIZE, mandatory = true, defaultValue = "0")
+    private int processPoolSize;
+
+    /**
+     * Maximum time in milliseconds a pooled {@code hunpos-tag} process may take to tag a sentence
+     * before it is killed and restarted. If set to {@code 0}, no timeout is enforced. Only used if
+     * {@link #PARAM_PROCESS_POOL_SIZE} is greater than {@code 0}.
+     *
+     * Default: {@code 0}
+     */
+    public static final String PARAM_PROCESS_TIMEOUT = "processTimeout";
+    @ConfigurationParameter(name = PARAM_PROCESS_TIMEOUT, mandatory = true, defaultValue = "0")
+    private long processTimeout;
+
     private CasConfigurableProviderBase<File> modelProvider;
     private RuntimeProvider runtimeProvider;
     private MappingProvider posMappingProvider;
+    private ExternalToolSession processPool;
 
     @Override
     public void initialize(UimaContext aContext)
@@ -182,8 +209,19 @@ public class HunPosTagger
             throw new AnalysisEngineProcessException(e);
         }
 
-        ProcessBuilder pb = new ProcessBuilder(executable.getAbsolutePath(),
-                model.getAbsolutePath());
+        if (processPoolSize > 0) {
+            processPooled(aJCas, executable, model, modelEncoding);
+        }
+        else {
+            processSingle(aJCas, executable, model, modelEncoding);
+        }
+    }
+
+    private void processSingle(JCas aJCas, File aExecutable, File aModel, String aModelEncoding)
+        throws AnalysisEngineProcessException
+    {
+        ProcessBuilder pb = new ProcessBuilder(aExecutable.getAbsolutePath(),
+                aModel.getAbsolutePath());
         pb.redirectError(Redirect.INHERIT);
 
         StringBuffer lastOut = new StringBuffer();
@@ -194,9 +232,9 @@ public class HunPosTagger
             proc = pb.start();
 
             PrintWriter out = new PrintWriter(new OutputStreamWriter(proc.getOutputStream(),
-                    modelEncoding));
+                    aModelEncoding));
             BufferedReader in = new BufferedReader(new InputStreamReader(proc.getInputStream(),
-                    modelEncoding));
+                    aModelEncoding));
 
             for (Sentence sentence : select(aJCas, Sentence.class)) {
                 List<Token> tokens = selectCovered(Token.class, sentence);
@@ -222,17 +260,7 @@ public class HunPosTagger
                 }
                 in.readLine(); // Read extra new line after sentence
 
-                int i = 0;
-                for (Token t : tokens) {
-                    Type posTag = posMappingProvider.getTagType(tags[i]);
-                    POS posAnno = (POS) cas.createAnnotation(posTag, t.getBegin(), t.getEnd());
-                    posAnno.setPosValue(internTags ? tags[i].intern() : tags[i]);
-                    posAnno.setCoarseValue(posAnno.getClass().equals(POS.class) ? null
-                            : posAnno.getType().getShortName().intern());
-                    posAnno.addToIndexes();
-                    t.setPos(posAnno);
-                    i++;
-                }
+                createPosAnnotations(aJCas, tokens, tags);
 
                 lastOut.setLength(0);
             }
@@ -253,9 +281,95 @@ public class HunPosTagger
         }
     }
 
+    private void processPooled(JCas aJCas, File aExecutable, File aModel, String aModelEncoding)
+        throws AnalysisEngineProcessException
+    {
+        List<List<Token>> sentenceTokens = new ArrayList<>();
+        List<List<String>> sentenceTexts = new ArrayList<>();
+        for (Sentence sentence : select(aJCas, Sentence.class)) {
+            List<Token> tokens = selectCovered(Token.class, sentence);
+
+            // Skip empty sentences
+            if (tokens.isEmpty()) {
+                continue;
+            }
+
+            List<String> texts = new ArrayList<>(tokens.size());
+            for (Token token : tokens) {
+                texts.add(token.getCoveredText());
+            }
+            sentenceTokens.add(tokens);
+            sentenceTexts.add(texts);
+        }
+
+        List<String> cmd = Arrays.asList(aExecutable.getAbsolutePath(),
+                aModel.getAbsolutePath());
+        try {
+            // The model may change between documents, e.g. if the document language changes.
+            if (processPool != null && !processPool.isCompatible(cmd, aModelEncoding)) {
+                shutdownProcessPool();
+            }
+            if (processPool == null) {
+                // HunPos answers each token with "token<TAB>tag". Anything else means the
+                // process is broken, so the session restarts it and retries the sentence.
+                processPool = new ExternalToolSession(cmd, aModelEncoding,
+                        ExternalToolProtocol.linePerRecord("")
+                                .withResponseValidator(line -> line.indexOf('\t') != -1),
+                        processPoolSize, processTimeout);
+            }
+
+            List<List<List<String>>> response = processPool.process(sentenceTexts);
+            for (int i = 0; i < sentenceTokens.size(); i++) {
+                List<List<String>> lines = response.get(i);
+                String[] tags = new String[lines.size()];
+                for (int t = 0; t < tags.length; t++) {
+                    String line = lines.get(t).get(0);
+                    tags[t] = line.substring(line.indexOf('\t') + 1).trim();
+                }
+                createPosAnnotations(aJCas, sentenceTokens.get(i), tags);
+            }
+        }
+        catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    private void createPosAnnotations(JCas aJCas, List<Token> aTokens, String[] aTags)
+    {
+        CAS cas = aJCas.getCas();
+        int i = 0;
+        for (Token t : aTokens) {
+            Type posTag = posMappingProvider.getTagType(aTags[i]);
+            POS posAnno = (POS) cas.createAnnotation(posTag, t.getBegin(), t.getEnd());
+            posAnno.setPosValue(internTags ? aTags[i].intern() : aTags[i]);
+            posAnno.setCoarseValue(posAnno.getClass().equals(POS.class) ? null
+                    : posAnno.getType().getShortName().intern());
+            posAnno.addToIndexes();
+            t.setPos(posAnno);
+            i++;
+        }
+    }
+
+    private void shutdownProcessPool()
+    {
+        if (processPool != null) {
+            processPool.close();
+            processPool = null;
+        }
+    }
+
+    @Override
+    public void collectionProcessComplete()
+        throws AnalysisEngineProcessException
+    {
+        shutdownProcessPool();
+        super.collectionProcessComplete();
+    }
+
     @Override
     public void destroy()
     {
+        shutdownProcessPool();
         runtimeProvider.uninstall();
         super.destroy();
     }
@@ -87,6 +87,32 @@ public class HunPosTaggerTest
         		new String[] { "PROPN",   "VERB",   "VERB",        "NOUN",     "PUNCT" });
     }
 
+    @Test
+    public void testEnglishProcessPool()
+        throws Exception
+    {
+        AnalysisEngine engine = createEngine(HunPosTagger.class,
+                HunPosTagger.PARAM_PROCESS_POOL_SIZE, 2);
+
+        try {
+            for (int n = 0; n < 3; n++) {
+                JCas jcas = TestRunner.runTest(engine, "en",
+                        "This is a test .\nA neural net .\nJohn is purchasing oranges .");
+
+                AssertAnnotations.assertPOS(
+                        new String[] { "DET", "VERB", "DET", "NOUN", "PUNCT", "DET", "ADJ",
+                                "NOUN", "PUNCT", "PROPN", "VERB", "VERB", "NOUN", "PUNCT" },
+                        new String[] { "DT", "VBZ", "DT", "NN", ".", "DT", "JJ", "NN", ".",
+                                "NNP", "VBZ", "VBG", "NNS", "." },
+                        select(jcas, POS.class));
+            }
+        }
+        finally {
+            engine.collectionProcessComplete();
+            engine.destroy();
+        }
+    }
+
     @Test
     public void testFarsi()
         throws Exception
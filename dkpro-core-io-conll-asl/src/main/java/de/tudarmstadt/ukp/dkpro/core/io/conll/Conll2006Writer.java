@@ -18,15 +18,10 @@
 package de.tudarmstadt.ukp.dkpro.core.io.conll;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
-import static org.apache.uima.fit.util.JCasUtil.select;
-import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.Writer;
 
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
@@ -35,14 +30,12 @@ import org.apache.uima.fit.descriptor.TypeCapability;
 import org.apache.uima.jcas.JCas;
 
 import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
-import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.morph.MorphologicalFeatures;
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.MimeTypes;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
-import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.DependencyFlavor;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllDocumentIndex;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllEmitter;
 
 /**
  * Writes a file in the CoNLL-2006 format (aka CoNLL-X).
@@ -94,15 +87,18 @@ public class Conll2006Writer
     @ConfigurationParameter(name = PARAM_WRITE_DEPENDENCY, mandatory = true, defaultValue = "true")
     private boolean writeDependency;
 
+    private final ConllEmitter emitter = new ConllEmitter();
+
     @Override
     public void process(JCas aJCas)
         throws AnalysisEngineProcessException
     {
-        PrintWriter out = null;
+        Writer out = null;
         try {
-            out = new PrintWriter(new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix),
-                    encoding));
-            convert(aJCas, out);
+            out = new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix), encoding);
+            emitter.open(out);
+            convert(aJCas, emitter);
+            emitter.flush();
         }
         catch (Exception e) {
             throw new AnalysisEngineProcessException(e);
@@ -112,100 +108,68 @@ public class Conll2006Writer
         }
     }
 
-    private void convert(JCas aJCas, PrintWriter aOut)
+    private void convert(JCas aJCas, ConllEmitter aOut)
+        throws IOException
     {
-        for (Sentence sentence : select(aJCas, Sentence.class)) {
-            HashMap<Token, Row> ctokens = new LinkedHashMap<Token, Row>();
-
-            // Tokens
-            List<Token> tokens = selectCovered(Token.class, sentence);
-            
-            // Check if we should try to include the FEATS in output
-            List<MorphologicalFeatures> morphology = selectCovered(MorphologicalFeatures.class, sentence);
-            boolean useFeats = tokens.size() == morphology.size();
-            
-            for (int i = 0; i < tokens.size(); i++) {
-                Row row = new Row();
-                row.id = i+1;
-                row.token = tokens.get(i);
-                if (useFeats) {
-                    row.feats = morphology.get(i);
-                }
-                ctokens.put(row.token, row);
-            }
+        ConllDocumentIndex doc = new ConllDocumentIndex(aJCas)
+                .indexMorphology(aJCas)
+                .indexDependencies(aJCas, true);
+        String text = aJCas.getDocumentText();
 
-            // Dependencies
-            List<Dependency> basicDeps = selectCovered(Dependency.class, sentence).stream()
-                    .filter(dep -> dep.getFlavor() == null || DependencyFlavor.BASIC.equals(dep.getFlavor()))
-                    .collect(Collectors.toList());
-            for (Dependency rel : basicDeps) {
-                Row row =  ctokens.get(rel.getDependent());
-                if (row.deprel != null) {
-                    throw new IllegalStateException("Illegal basic dependency structure - token ["
-                            + row.token.getCoveredText()
-                            + "] is dependent of more than one dependency.");
-                }
-                row.deprel = rel;
-            }
+        for (int s = 0; s < doc.getSentenceCount(); s++) {
+            int first = doc.getFirstToken(s);
 
             // Write sentence in CONLL 2006 format
-            for (Row row : ctokens.values()) {
+            for (int t = first; t < doc.getEndToken(s); t++) {
+                Token token = doc.getToken(t);
+
                 String lemma = UNUSED;
-                if (writeLemma && (row.token.getLemma() != null)) {
-                    lemma = row.token.getLemma().getValue();
+                if (writeLemma && (token.getLemma() != null)) {
+                    lemma = token.getLemma().getValue();
                 }
 
                 String pos = UNUSED;
-                if (writePos && (row.token.getPos() != null)) {
-                    POS posAnno = row.token.getPos();
+                if (writePos && (token.getPos() != null)) {
+                    POS posAnno = token.getPos();
                     pos = posAnno.getPosValue();
                 }
 
                 String cpos = UNUSED;
-                if (writeCPos && (row.token.getPos() != null)
-                        && row.token.getPos().getCoarseValue() != null) {
-                    POS posAnno = row.token.getPos();
+                if (writeCPos && (token.getPos() != null)
+                        && token.getPos().getCoarseValue() != null) {
+                    POS posAnno = token.getPos();
                     cpos = posAnno.getCoarseValue();
                 }
                 
                 int headId = UNUSED_INT;
                 String deprel = UNUSED;
-                if (writeDependency && (row.deprel != null)) {
-                    deprel = row.deprel.getDependencyType();
-                    headId = ctokens.get(row.deprel.getGovernor()).id;
-                    if (headId == row.id) {
-                        // ROOT dependencies may be modeled as a loop, ignore these.
-                        headId = 0;
-                    }
-                }
-                
-                String head = UNUSED;
-                if (headId != UNUSED_INT) {
-                    head = Integer.toString(headId);
+                if (writeDependency && (doc.getBasicDependency(t) != null)) {
+                    deprel = doc.getBasicDependency(t).getDependencyType();
+                    headId = doc.getHead(t);
                 }
                 
                 String feats = UNUSED;
-                if (writeMorph && (row.feats != null)) {
-                    feats = row.feats.getValue();
+                if (writeMorph && (doc.getMorphology(t) != null)) {
+                    feats = doc.getMorphology(t).getValue();
                 }
                 
                 String phead = UNUSED;
                 String pdeprel = UNUSED;
 
-                aOut.printf("%d\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\n", row.id,
-                        row.token.getCoveredText(), lemma, cpos, pos, feats, head, deprel, phead,
-                        pdeprel);
+                aOut.field(t - first + 1);
+                aOut.field(text, token.getBegin(), token.getEnd());
+                aOut.field(lemma);
+                aOut.field(cpos);
+                aOut.field(pos);
+                aOut.field(feats);
+                aOut.field(headId, UNUSED);
+                aOut.field(deprel);
+                aOut.field(phead);
+                aOut.field(pdeprel);
+                aOut.endLine();
             }
 
-            aOut.println();
+            aOut.endLine();
         }
     }
-
-    private static final class Row
-    {
-        int id;
-        Token token;
-        MorphologicalFeatures feats;
-        Dependency deprel;
-    }
 }
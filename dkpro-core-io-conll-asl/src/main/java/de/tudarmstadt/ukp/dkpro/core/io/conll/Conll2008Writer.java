@@ -18,36 +18,25 @@
 package de.tudarmstadt.ukp.dkpro.core.io.conll;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
-import static org.apache.uima.fit.util.JCasUtil.*;
 
+import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.io.Writer;
 
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.descriptor.MimeTypeCapability;
 import org.apache.uima.fit.descriptor.TypeCapability;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.cas.FSArray;
 
 import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
-import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.morph.MorphologicalFeatures;
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.MimeTypes;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemArg;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemArgLink;
-import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemPred;
-import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
-import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.DependencyFlavor;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllDocumentIndex;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllEmitter;
 
 /**
  * Writes a file in the CoNLL-2008 format.
@@ -106,15 +95,18 @@ public class Conll2008Writer
     @ConfigurationParameter(name = PARAM_WRITE_SEMANTIC_PREDICATE, mandatory = true, defaultValue = "true")
     private boolean writeSemanticPredicate;
 
+    private final ConllEmitter emitter = new ConllEmitter();
+
     @Override
     public void process(JCas aJCas)
         throws AnalysisEngineProcessException
     {
-        PrintWriter out = null;
+        Writer out = null;
         try {
-            out = new PrintWriter(new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix),
-                    encoding));
-            convert(aJCas, out);
+            out = new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix), encoding);
+            emitter.open(out);
+            convert(aJCas, emitter);
+            emitter.flush();
         }
         catch (Exception e) {
             throw new AnalysisEngineProcessException(e);
@@ -124,79 +116,29 @@ public class Conll2008Writer
         }
     }
 
-    private void convert(JCas aJCas, PrintWriter aOut)
+    private void convert(JCas aJCas, ConllEmitter aOut)
+        throws IOException
     {
-        Map<Token, Collection<SemPred>> predIdx = indexCovered(aJCas, Token.class, SemPred.class);
-        Map<SemArg, Collection<Token>> argIdx = indexCovered(aJCas, SemArg.class, Token.class);
-        for (Sentence sentence : select(aJCas, Sentence.class)) {
-            HashMap<Token, Row> ctokens = new LinkedHashMap<Token, Row>();
+        ConllDocumentIndex doc = new ConllDocumentIndex(aJCas).indexDependencies(aJCas, true);
+        if (writeSemanticPredicate) {
+            doc.indexSemantics(aJCas);
+        }
+        String text = aJCas.getDocumentText();
 
-            // Tokens
-            List<Token> tokens = selectCovered(Token.class, sentence);
-            
-            // Check if we should try to include the FEATS in output
-            List<MorphologicalFeatures> morphology = selectCovered(MorphologicalFeatures.class,
-                    sentence);
-            boolean useFeats = tokens.size() == morphology.size();
+        for (int s = 0; s < doc.getSentenceCount(); s++) {
+            int first = doc.getFirstToken(s);
 
-            List<SemPred> preds = selectCovered(SemPred.class, sentence);
-            
-            for (int i = 0; i < tokens.size(); i++) {
-                Row row = new Row();
-                row.id = i+1;
-                row.token = tokens.get(i);
-                row.args = new SemArgLink[preds.size()];
-                if (useFeats) {
-                    row.feats = morphology.get(i);
-                }
-                
-                // If there are multiple semantic predicates for the current token, then 
-                // we keep only the first
-                Collection<SemPred> predsForToken = predIdx.get(row.token);
-                if (predsForToken != null && !predsForToken.isEmpty()) {
-                    row.pred = predsForToken.iterator().next();
-                }
-                ctokens.put(row.token, row);
-            }
+            // Write sentence in CONLL 2008 format
+            for (int t = first; t < doc.getEndToken(s); t++) {
+                Token token = doc.getToken(t);
 
-            // Dependencies
-            List<Dependency> basicDeps = selectCovered(Dependency.class, sentence).stream()
-                    .filter(dep -> dep.getFlavor() == null || DependencyFlavor.BASIC.equals(dep.getFlavor()))
-                    .collect(Collectors.toList());
-            for (Dependency rel : basicDeps) {
-                Row row =  ctokens.get(rel.getDependent());
-                if (row.deprel != null) {
-                    throw new IllegalStateException("Illegal basic dependency structure - token ["
-                            + row.token.getCoveredText()
-                            + "] is dependent of more than one dependency.");
-                }
-                row.deprel = rel;
-            }
-
-            // Semantic arguments
-            for (int p = 0; p < preds.size(); p++) {
-                FSArray args = preds.get(p).getArguments();
-                for (SemArgLink arg : select(args, SemArgLink.class)) {
-                    for (Token t : argIdx.get(arg.getTarget())) {
-                        Row row = ctokens.get(t);
-                        row.args[p] = arg;
-                    }
-                }
-            }
-            
-            // Write sentence in CONLL 2009 format
-            for (Row row : ctokens.values()) {
-                int id = row.id;
-                
-                String form = row.token.getCoveredText();
-                
                 String lemma = UNUSED;
-                if (writeLemma && (row.token.getLemma() != null)) {
-                    lemma = row.token.getLemma().getValue();
+                if (writeLemma && (token.getLemma() != null)) {
+                    lemma = token.getLemma().getValue();
                 }
                 String gpos = UNUSED;
-                if (writePos && (row.token.getPos() != null)) {
-                    POS posAnno = row.token.getPos();
+                if (writePos && (token.getPos() != null)) {
+                    POS posAnno = token.getPos();
                     gpos = posAnno.getPosValue();
                 }
 
@@ -210,51 +152,46 @@ public class Conll2008Writer
 
                 int headId = UNUSED_INT;
                 String deprel = UNUSED;
-                if (writeDependency && (row.deprel != null)) {
-                    deprel = row.deprel.getDependencyType();
-                    headId = ctokens.get(row.deprel.getGovernor()).id;
-                    if (headId == row.id) {
-                        // ROOT dependencies may be modeled as a loop, ignore these.
-                        headId = 0;
-                    }
+                if (writeDependency && (doc.getBasicDependency(t) != null)) {
+                    deprel = doc.getBasicDependency(t).getDependencyType();
+                    headId = doc.getHead(t);
                 }
 
-                String head = UNUSED;
-                if (headId != UNUSED_INT) {
-                    head = Integer.toString(headId);
-                }
-                
                 String pred = UNUSED;
-                StringBuilder apreds = new StringBuilder();
-                if (writeSemanticPredicate) {
-                    if (row.pred != null) {
-                        pred = row.pred.getCategory();
-                    }
-                    
-                    for (SemArgLink arg : row.args) {
-                        if (apreds.length() > 0) {
-                            apreds.append('\t');
-                        }
-                        apreds.append(arg != null ? arg.getRole() : UNUSED);
-                    }
+                if (writeSemanticPredicate && doc.getPredicate(t) != null) {
+                    pred = doc.getPredicate(t).getCategory();
                 }
 
-                aOut.printf("%d\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\n", id,
-                        form, lemma, gpos, ppos, split_form, split_lemma, pposs, head, deprel, pred,
-                        apreds);
+                aOut.field(t - first + 1);
+                aOut.field(text, token.getBegin(), token.getEnd());
+                aOut.field(lemma);
+                aOut.field(gpos);
+                aOut.field(ppos);
+                aOut.field(split_form);
+                aOut.field(split_lemma);
+                aOut.field(pposs);
+                aOut.field(headId, UNUSED);
+                aOut.field(deprel);
+                aOut.field(pred);
+                writeArguments(aOut, doc, t);
+                aOut.endLine();
             }
 
-            aOut.println();
+            aOut.endLine();
         }
     }
 
-    private static final class Row
+    private void writeArguments(ConllEmitter aOut, ConllDocumentIndex aDoc, int aToken)
     {
-        int id;
-        Token token;
-        MorphologicalFeatures feats;
-        Dependency deprel;
-        SemPred pred;
-        SemArgLink[] args; // These are the arguments roles for the current token!
+        SemArgLink[] args = writeSemanticPredicate ? aDoc.getArguments(aToken) : null;
+        if (args == null || args.length == 0) {
+            // The APREDs column is still separated from the PRED column if it is empty
+            aOut.field("");
+            return;
+        }
+        
+        for (SemArgLink arg : args) {
+            aOut.field(arg != null ? arg.getRole() : UNUSED);
+        }
     }
 }
@@ -22,14 +22,14 @@ import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.uima.fit.util.JCasUtil.indexCovered;
 import static org.apache.uima.fit.util.JCasUtil.indexCovering;
 import static org.apache.uima.fit.util.JCasUtil.select;
-import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,7 +40,6 @@ import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.descriptor.MimeTypeCapability;
 import org.apache.uima.fit.descriptor.TypeCapability;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.cas.FSArray;
 
 import de.tudarmstadt.ukp.dkpro.core.api.coref.type.CoreferenceChain;
 import de.tudarmstadt.ukp.dkpro.core.api.coref.type.CoreferenceLink;
@@ -52,11 +51,12 @@ import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.MimeTypes;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemArg;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemArgLink;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemPred;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.WordSense;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.constituent.ROOT;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllDocumentIndex;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllEmitter;
 import de.tudarmstadt.ukp.dkpro.core.io.penntree.PennTreeNode;
 import de.tudarmstadt.ukp.dkpro.core.io.penntree.PennTreeUtils;
 
@@ -103,14 +103,17 @@ public class Conll2012Writer
     @ConfigurationParameter(name = PARAM_WRITE_SEMANTIC_PREDICATE, mandatory = true, defaultValue = "true")
     private boolean writeSemanticPredicate;
 
+    private final ConllEmitter emitter = new ConllEmitter(' ');
+    private final StringBuilder corefBuffer = new StringBuilder();
+
     @Override
     public void process(JCas aJCas)
         throws AnalysisEngineProcessException
     {
-        PrintWriter out = null;
+        Writer out = null;
         try {
-            out = new PrintWriter(new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix),
-                    encoding));
+            out = new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix), encoding);
+            emitter.open(out);
             
             String documentId = DocumentMetaData.get(aJCas).getDocumentId();
             int partNumber = 0;
@@ -118,9 +121,12 @@ public class Conll2012Writer
                 partNumber = Integer.parseInt(StringUtils.substringAfterLast(documentId, "#"));
                 documentId = StringUtils.substringBeforeLast(documentId, "#");
             }
-            out.printf("#begin document (%s); part %03d%n", documentId, partNumber);
+            emitter.append("#begin document (").append(documentId).append("); part ")
+                    .appendZeroPadded(partNumber, 3);
+            emitter.endLine();
             
-            convert(aJCas, out);
+            convert(aJCas, emitter);
+            emitter.flush();
         }
         catch (Exception e) {
             throw new AnalysisEngineProcessException(e);
@@ -130,10 +136,16 @@ public class Conll2012Writer
         }
     }
 
-    private void convert(JCas aJCas, PrintWriter aOut)
+    private void convert(JCas aJCas, ConllEmitter aOut)
+        throws IOException
     {
-        Map<Token, Collection<SemPred>> predIdx = indexCovered(aJCas, Token.class, SemPred.class);
-        Map<SemArg, Collection<Token>> argIdx = indexCovered(aJCas, SemArg.class, Token.class);
+        ConllDocumentIndex doc = new ConllDocumentIndex(aJCas);
+        if (writeSemanticPredicate) {
+            doc.indexSemantics(aJCas);
+        }
+        String text = aJCas.getDocumentText();
+        
+        Map<Sentence, Collection<ROOT>> rootIdx = indexCovered(aJCas, Sentence.class, ROOT.class);
         Map<Token, Collection<NamedEntity>> neIdx = indexCovering(aJCas, Token.class,
                 NamedEntity.class);
         Map<Token, Collection<WordSense>> wordSenseIdx = indexCovered(aJCas, Token.class,
@@ -150,174 +162,161 @@ public class Conll2012Writer
             chainId++;
         }
         
-        for (Sentence sentence : select(aJCas, Sentence.class)) {
-            HashMap<Token, Row> ctokens = new LinkedHashMap<Token, Row>();
-
-            // Tokens
-            List<Token> tokens = selectCovered(Token.class, sentence);
+        String documentId = DocumentMetaData.get(aJCas).getDocumentId();
+        if (StringUtils.isBlank(documentId)) {
+            documentId = UNUSED;
+        }
+        
+        int partNumber = 0;
+        
+        if (documentId.contains("#")) {
+            partNumber = Integer.parseInt(StringUtils.substringAfterLast(documentId, "#"));
+            documentId = StringUtils.substringBeforeLast(documentId, "#");
+        }
+        
+        for (int s = 0; s < doc.getSentenceCount(); s++) {
+            int first = doc.getFirstToken(s);
             
-            List<SemPred> preds = selectCovered(SemPred.class, sentence);
-
             String[] parseFragments = null;
-            List<ROOT> root = selectCovered(ROOT.class, sentence);
-            if (root.size() == 1) {
-                PennTreeNode rootNode = PennTreeUtils.convertPennTree(root.get(0));
+            Collection<ROOT> root = rootIdx.get(doc.getSentence(s));
+            if (root != null && root.size() == 1) {
+                PennTreeNode rootNode = PennTreeUtils.convertPennTree(root.iterator().next());
                 if ("ROOT".equals(rootNode.getLabel())) {
                     rootNode.setLabel("TOP");
                 }
                 parseFragments = toPrettyPennTree(rootNode);
             }
             
-            if (parseFragments != null && parseFragments.length != tokens.size()) {
+            if (parseFragments != null && parseFragments.length != doc.getTokenCount(s)) {
+                List<Token> tokens = new ArrayList<>();
+                for (int t = first; t < doc.getEndToken(s); t++) {
+                    tokens.add(doc.getToken(t));
+                }
                 throw new IllegalStateException("Parse fragments do not match tokens - tokens: "
                         + tokens + " parse: " + asList(parseFragments));
             }
             
-            for (int i = 0; i < tokens.size(); i++) {
-                Row row = new Row();
-                row.id = i;
-                row.token = tokens.get(i);
-                row.args = new SemArgLink[preds.size()];
-                row.parse = parseFragments != null ? parseFragments[i] : UNUSED;
-                
-                // If there are multiple semantic predicates for the current token, then 
-                // we keep only the first
-                Collection<SemPred> predsForToken = predIdx.get(row.token);
-                if (predsForToken != null && !predsForToken.isEmpty()) {
-                    row.pred = predsForToken.iterator().next();
-                }
-                
-                // If there are multiple named entities for the current token, we keep only the
-                // first
-                Collection<NamedEntity> neForToken = neIdx.get(row.token);
-                if (neForToken != null && !neForToken.isEmpty()) {
-                    row.ne = neForToken.iterator().next();
-                }
-
-                // If there are multiple word senses for the current token, we keep only the
-                // first
-                Collection<WordSense> senseForToken = wordSenseIdx.get(row.token);
-                if (senseForToken != null && !senseForToken.isEmpty()) {
-                    row.wordSense = senseForToken.iterator().next();
-                }
-
-                row.coref = corefIdx.get(row.token);
-                
-                ctokens.put(row.token, row);
-            }
-
-            // Semantic arguments
-            for (int p = 0; p < preds.size(); p++) {
-                FSArray args = preds.get(p).getArguments();
-                for (SemArgLink arg : select(args, SemArgLink.class)) {
-                    for (Token t : argIdx.get(arg.getTarget())) {
-                        Row row = ctokens.get(t);
-                        row.args[p] = arg;
-                    }
-                }
-            }
-            
             // Write sentence in CONLL 2012 format
-            for (Row row : ctokens.values()) {
-                String documentId = DocumentMetaData.get(aJCas).getDocumentId();
-                if (StringUtils.isBlank(documentId)) {
-                    documentId = UNUSED;
-                }
-                
-                int partNumber = 0;
-                
-                if (documentId.contains("#")) {
-                    partNumber = Integer.parseInt(StringUtils.substringAfterLast(documentId, "#"));
-                    documentId = StringUtils.substringBeforeLast(documentId, "#");
-                }
-                
-                int id = row.id;
-                
-                String form = row.token.getCoveredText();
+            for (int t = first; t < doc.getEndToken(s); t++) {
+                Token token = doc.getToken(t);
                 
                 String lemma = UNUSED + " ";
-                if (writeLemma && (row.token.getLemma() != null)) {
-                    lemma = row.token.getLemma().getValue();
+                if (writeLemma && (token.getLemma() != null)) {
+                    lemma = token.getLemma().getValue();
                 }
 
                 String pos = UNUSED;
-                if (writePos && (row.token.getPos() != null)) {
-                    POS posAnno = row.token.getPos();
+                if (writePos && (token.getPos() != null)) {
+                    POS posAnno = token.getPos();
                     pos = posAnno.getPosValue();
                 }
 
-                String parse = row.parse;
-                if (!parse.endsWith(")")) {
-                    // This is just the curious way that the CoNLL files are encoded...
-                    parse += " ";
-                }
+                String parse = parseFragments != null ? parseFragments[t - first] : UNUSED;
+                // This is just the curious way that the CoNLL files are encoded...
+                boolean parseSpace = !parse.endsWith(")");
                 
+                // If there are multiple word senses for the current token, we keep only the
+                // first
                 String wordSense = UNUSED;
-                if (row.wordSense != null) {
-                    wordSense = row.wordSense.getValue();
+                Collection<WordSense> senseForToken = wordSenseIdx.get(token);
+                if (senseForToken != null && !senseForToken.isEmpty()) {
+                    wordSense = senseForToken.iterator().next().getValue();
                 }
                 
                 String speaker = UNUSED; // FIXME
                 
+                // If there are multiple named entities for the current token, we keep only the
+                // first
                 String namedEntity = ALT_UNUSED + " ";
-                if (row.ne != null) {
-                    namedEntity = encodeMultiTokenAnnotation(row.token, row.ne, row.ne.getValue());
+                Collection<NamedEntity> neForToken = neIdx.get(token);
+                if (neForToken != null && !neForToken.isEmpty()) {
+                    NamedEntity ne = neForToken.iterator().next();
+                    namedEntity = encodeMultiTokenAnnotation(token, ne, ne.getValue());
                 }
                 
                 String pred = UNUSED;
-                StringBuilder apreds = new StringBuilder();
-                if (writeSemanticPredicate) {
-                    if (row.pred != null) {
-                        pred = row.pred.getCategory();
-                    }
-                    
-                    for (SemArgLink link : row.args) {
-                        
-                        if (apreds.length() > 0) {
-                            apreds.append("             ");
-                        }
-                        
-                        String value;
-                        if (link == null) {
-                            if (row.pred != null && row.pred.getBegin() == row.token.getBegin()
-                                    && row.pred.getEnd() == row.token.getEnd()) {
-                                value = "(V*)";
-                            }
-                            else {
-                                value = ALT_UNUSED + ' ';
-                            }
-                        }
-                        else {
-                            value = encodeMultiTokenAnnotation(row.token, link.getTarget(),
-                                    link.getRole());
-                        }
-                        apreds.append(String.format("%10s", value));
-                    }
-                }
-                
-                StringBuilder coref = new StringBuilder();
-                if (!row.coref.isEmpty()) {
-                    for (CoreferenceLink link : row.coref) {
-                        if (coref.length() > 0) {
-                            coref.append('|');
-                        }
-                        coref.append(encodeMultiTokenLink(row.token, link,
-                                corefChainIdx.get(link)));
-                    }
-                }
-                if (coref.length() == 0) {
-                    coref.append(UNUSED);
+                if (writeSemanticPredicate && doc.getPredicate(t) != null) {
+                    pred = doc.getPredicate(t).getCategory();
                 }
 
-                aOut.printf("%s %3d %3d %10s %5s %13s %9s %3s %3s %10s %10s %10s %s\n", documentId,
-                        partNumber, id, form, pos, parse, lemma, pred, wordSense, speaker,
-                        namedEntity, apreds, coref);
+                aOut.field(documentId);
+                aOut.paddedField(partNumber, 3);
+                aOut.paddedField(t - first, 3);
+                aOut.paddedField(text, token.getBegin(), token.getEnd(), 10);
+                aOut.paddedField(pos, 5);
+                aOut.paddedField(parse, parseSpace ? 12 : 13);
+                if (parseSpace) {
+                    aOut.append(' ');
+                }
+                aOut.paddedField(lemma, 9);
+                aOut.paddedField(pred, 3);
+                aOut.paddedField(wordSense, 3);
+                aOut.paddedField(speaker, 10);
+                aOut.paddedField(namedEntity, 10);
+                writeArguments(aOut, doc, t);
+                writeCoreference(aOut, token, corefIdx.get(token), corefChainIdx);
+                aOut.endLine();
             }
 
-            aOut.println();
+            aOut.endLine();
         }
         
-        aOut.println("#end document");
+        aOut.append("#end document");
+        aOut.endLine();
+    }
+    
+    private void writeArguments(ConllEmitter aOut, ConllDocumentIndex aDoc, int aToken)
+    {
+        SemArgLink[] args = writeSemanticPredicate ? aDoc.getArguments(aToken) : null;
+        if (args == null || args.length == 0) {
+            aOut.paddedField("", 10);
+            return;
+        }
+        
+        Token token = aDoc.getToken(aToken);
+        SemPred pred = aDoc.getPredicate(aToken);
+        for (int i = 0; i < args.length; i++) {
+            SemArgLink link = args[i];
+            
+            String value;
+            if (link == null) {
+                if (pred != null && pred.getBegin() == token.getBegin()
+                        && pred.getEnd() == token.getEnd()) {
+                    value = "(V*)";
+                }
+                else {
+                    value = ALT_UNUSED + ' ';
+                }
+            }
+            else {
+                value = encodeMultiTokenAnnotation(token, link.getTarget(), link.getRole());
+            }
+            
+            if (i == 0) {
+                aOut.paddedField(value, 10);
+            }
+            else {
+                aOut.append("             ").appendPadded(value, 10);
+            }
+        }
+    }
+    
+    private void writeCoreference(ConllEmitter aOut, Token aToken,
+            Collection<CoreferenceLink> aLinks, Map<CoreferenceLink, Integer> aChainIdx)
+    {
+        corefBuffer.setLength(0);
+        if (aLinks != null) {
+            for (CoreferenceLink link : aLinks) {
+                if (corefBuffer.length() > 0) {
+                    corefBuffer.append('|');
+                }
+                corefBuffer.append(encodeMultiTokenLink(aToken, link, aChainIdx.get(link)));
+            }
+        }
+        if (corefBuffer.length() == 0) {
+            corefBuffer.append(UNUSED);
+        }
+        aOut.field(corefBuffer);
     }
     
     private String encodeMultiTokenAnnotation(Token aToken, AnnotationFS aAnnotation, String aLabel)
@@ -366,18 +365,6 @@ public class Conll2012Writer
         return buf.toString();
     }
 
-    private static final class Row
-    {
-        NamedEntity ne;
-        String parse;
-        WordSense wordSense;
-        int id;
-        Token token;
-        SemPred pred;
-        SemArgLink[] args; // These are the arguments roles for the current token!
-        Collection<CoreferenceLink> coref;
-    }
-    
     public static String[] toPrettyPennTree(PennTreeNode aNode)
     {
         StringBuilder sb = new StringBuilder();
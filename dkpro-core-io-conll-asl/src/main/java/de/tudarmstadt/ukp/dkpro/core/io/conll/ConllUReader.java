@@ -17,14 +17,23 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.io.conll;
 
+import static de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllUSentenceReader.parseInt;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -53,11 +62,18 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.DependencyFlavor;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.ROOT;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllUSentenceReader;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
 /**
  * Reads a file in the CoNLL-U format.
+ * <p>
+ * By default, each file is read into a single CAS. Large treebanks can instead be split into
+ * multiple documents of a fixed number of sentences (see {@link #PARAM_SENTENCES_PER_DOCUMENT})
+ * or at {@code # newdoc} comments (see {@link #PARAM_SPLIT_AT_NEWDOC}). The file is then read
+ * incrementally and the document ID of each CAS is the file path qualified by the number of the
+ * document within the file, e.g. {@code en-ud-train.conllu#3}.
  * 
  * @see <a href="http://universaldependencies.github.io/docs/format.html">CoNLL-U Format</a>
  */
@@ -119,6 +135,31 @@ public class ConllUReader
     @ConfigurationParameter(name = PARAM_READ_DEPENDENCY, mandatory = true, defaultValue = "true")
     private boolean readDependency;
     
+    /**
+     * Split each file into documents of at most this many sentences, producing one CAS per
+     * document. This allows reading treebanks that are too large to fit into a single CAS. If set
+     * to {@code 0} or less, documents are not limited in size.
+     */
+    public static final String PARAM_SENTENCES_PER_DOCUMENT = "sentencesPerDocument";
+    @ConfigurationParameter(name = PARAM_SENTENCES_PER_DOCUMENT, mandatory = true, defaultValue = "0")
+    private int sentencesPerDocument;
+
+    /**
+     * Start a new document, i.e. a new CAS, at every {@code # newdoc} comment.
+     */
+    public static final String PARAM_SPLIT_AT_NEWDOC = "splitAtNewDoc";
+    @ConfigurationParameter(name = PARAM_SPLIT_AT_NEWDOC, mandatory = true, defaultValue = "false")
+    private boolean splitAtNewDoc;
+
+    /**
+     * Read and split the lines of the next document in a background thread while the current CAS
+     * is processed by the pipeline. Only has an effect if files are split into multiple documents
+     * using {@link #PARAM_SENTENCES_PER_DOCUMENT} or {@link #PARAM_SPLIT_AT_NEWDOC}.
+     */
+    public static final String PARAM_READ_AHEAD = "readAhead";
+    @ConfigurationParameter(name = PARAM_READ_AHEAD, mandatory = true, defaultValue = "false")
+    private boolean readAhead;
+
     private static final String UNUSED = "_";
 
     private static final int ID = 0;
@@ -134,6 +175,17 @@ public class ConllUReader
 
     private MappingProvider posMappingProvider;
 
+    private final StringBuilder keyBuffer = new StringBuilder();
+
+    // Streaming mode - the file currently being split into documents
+    private Resource currentResource;
+    private ConllUSentenceReader currentSentenceReader;
+    private int currentDocumentNumber;
+    private List<String[]> pendingSentence;
+    private Document nextDocument;
+    private Future<Document> readAheadDocument;
+    private ExecutorService readAheadExecutor;
+
     @Override
     public void initialize(UimaContext aContext)
         throws ResourceInitializationException
@@ -142,12 +194,52 @@ public class ConllUReader
         
         posMappingProvider = MappingProviderFactory.createPosMappingProvider(posMappingLocation,
                 posTagset, getLanguage());
+        
+        if (isStreaming() && readAhead) {
+            readAheadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, getClass().getSimpleName() + "-read-ahead");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    @Override
+    public boolean hasNext()
+        throws IOException, CollectionException
+    {
+        if (isStreaming()) {
+            return peekDocument() != null;
+        }
+        return super.hasNext();
     }
     
     @Override
     public void getNext(JCas aJCas)
         throws IOException, CollectionException
     {
+        if (isStreaming()) {
+            Document document = peekDocument();
+            if (document == null) {
+                throw new NoSuchElementException();
+            }
+            nextDocument = null;
+            
+            // Read the following document while this one is being processed
+            if (readAheadExecutor != null) {
+                readAheadDocument = readAheadExecutor.submit(this::readDocument);
+            }
+            
+            initCas(aJCas, document.resource, String.valueOf(document.number));
+            configurePosMapping(aJCas);
+            JCasBuilder doc = new JCasBuilder(aJCas);
+            for (List<String[]> words : document.sentences) {
+                convertSentence(aJCas, doc, words);
+            }
+            doc.close();
+            return;
+        }
+        
         Resource res = nextFile();
         initCas(aJCas, res);
         BufferedReader reader = null;
@@ -162,162 +254,213 @@ public class ConllUReader
         }
     }
 
-    public void convert(JCas aJCas, BufferedReader aReader)
+    @Override
+    public void close()
         throws IOException
     {
-        if (readPos) {
-            try{
-                posMappingProvider.configure(aJCas.getCas());
+        if (readAheadExecutor != null) {
+            readAheadExecutor.shutdownNow();
+            try {
+                // Make sure the background thread no longer uses the sentence reader
+                readAheadExecutor.awaitTermination(1, TimeUnit.MINUTES);
             }
-            catch(AnalysisEngineProcessException e){
-                throw new IOException(e);
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            readAheadExecutor = null;
         }
+        closeCurrentResource();
+        super.close();
+    }
+
+    public void convert(JCas aJCas, BufferedReader aReader)
+        throws IOException
+    {
+        configurePosMapping(aJCas);
         
         JCasBuilder doc = new JCasBuilder(aJCas);
 
+        ConllUSentenceReader sentenceReader = new ConllUSentenceReader(aReader);
         List<String[]> words;
-        while ((words = readSentence(aReader)) != null) {
+        while ((words = sentenceReader.readSentence()) != null) {
             if (words.isEmpty()) {
                  // Ignore empty sentences. This can happen when there are multiple end-of-sentence
                  // markers following each other.
                 continue; 
             }
 
-            int sentenceBegin = doc.getPosition();
-            int sentenceEnd = sentenceBegin;
+            convertSentence(aJCas, doc, words);
+        }
 
-            int surfaceBegin = -1;
-            int surfaceEnd = -1;
-            String surfaceString = null;
+        doc.close();
+    }
+    
+    private void configurePosMapping(JCas aJCas)
+        throws IOException
+    {
+        if (readPos) {
+            try{
+                posMappingProvider.configure(aJCas.getCas());
+            }
+            catch(AnalysisEngineProcessException e){
+                throw new IOException(e);
+            }
+        }
+    }
+    
+    private void convertSentence(JCas aJCas, JCasBuilder doc, List<String[]> words)
+    {
+        int sentenceBegin = doc.getPosition();
+        int sentenceEnd = sentenceBegin;
+
+        int surfaceBegin = -1;
+        int surfaceEnd = -1;
+        String surfaceString = null;
+        
+        // Tokens, Lemma, POS
+        Int2ObjectMap<Token> tokens = new Int2ObjectOpenHashMap<>();
+        Iterator<String[]> wordIterator = words.iterator();
+        while (wordIterator.hasNext()) {
+            String[] word = wordIterator.next();
+            int dash = word[ID].indexOf('-');
+            if (dash != -1) {
+                surfaceBegin = parseInt(word[ID], 0, dash);
+                surfaceEnd = parseInt(word[ID], dash + 1, word[ID].length());
+                surfaceString = word[FORM];
+                continue;
+            }
             
-            // Tokens, Lemma, POS
-            Int2ObjectMap<Token> tokens = new Int2ObjectOpenHashMap<>();
-            Iterator<String[]> wordIterator = words.iterator();
-            while (wordIterator.hasNext()) {
-                String[] word = wordIterator.next();
-                if (word[ID].contains("-")) {
-                    String[] fragments = word[ID].split("-");
-                    surfaceBegin = Integer.valueOf(fragments[0]);
-                    surfaceEnd = Integer.valueOf(fragments[1]);
-                    surfaceString = word[FORM];
-                    continue;
-                }
-                
-                // Read token
-                int tokenIdx = Integer.valueOf(word[ID]);
-                Token token = doc.add(word[FORM], Token.class);
-                tokens.put(tokenIdx, token);
-                if (!StringUtils.contains(word[MISC], "SpaceAfter=No") && wordIterator.hasNext()) {
-                    doc.add(" ");
-                }
+            // Read token
+            int tokenIdx = parseInt(word[ID], 0, word[ID].length());
+            Token token = doc.add(word[FORM], Token.class);
+            tokens.put(tokenIdx, token);
+            if (!StringUtils.contains(word[MISC], "SpaceAfter=No") && wordIterator.hasNext()) {
+                doc.add(" ");
+            }
 
-                // Read lemma
-                if (!UNUSED.equals(word[LEMMA]) && readLemma) {
-                    Lemma lemma = new Lemma(aJCas, token.getBegin(), token.getEnd());
-                    lemma.setValue(word[LEMMA]);
-                    lemma.addToIndexes();
-                    token.setLemma(lemma);
-                }
+            // Read lemma
+            if (!UNUSED.equals(word[LEMMA]) && readLemma) {
+                Lemma lemma = new Lemma(aJCas, token.getBegin(), token.getEnd());
+                lemma.setValue(word[LEMMA]);
+                lemma.addToIndexes();
+                token.setLemma(lemma);
+            }
 
-                // Read part-of-speech tag
-                POS pos = null;
-                String tag = useCPosAsPos ? word[CPOSTAG] : word[POSTAG];
-                if (!UNUSED.equals(tag) && readPos) {
-                    Type posTag = posMappingProvider.getTagType(tag);
-                    pos = (POS) aJCas.getCas().createAnnotation(posTag, token.getBegin(),
-                            token.getEnd());
-                    pos.setPosValue(tag.intern());
-                }
+            // Read part-of-speech tag
+            POS pos = null;
+            String tag = useCPosAsPos ? word[CPOSTAG] : word[POSTAG];
+            if (!UNUSED.equals(tag) && readPos) {
+                Type posTag = posMappingProvider.getTagType(tag);
+                pos = (POS) aJCas.getCas().createAnnotation(posTag, token.getBegin(),
+                        token.getEnd());
+                pos.setPosValue(tag.intern());
+            }
 
-                // Read coarse part-of-speech tag
-                if (!UNUSED.equals(word[CPOSTAG]) && readCPos && pos != null) {
-                    pos.setCoarseValue(word[CPOSTAG].intern());
-                }
-                
-                if (pos != null) {
-                    pos.addToIndexes();
-                    token.setPos(pos);
-                }
+            // Read coarse part-of-speech tag
+            if (!UNUSED.equals(word[CPOSTAG]) && readCPos && pos != null) {
+                pos.setCoarseValue(word[CPOSTAG].intern());
+            }
+            
+            if (pos != null) {
+                pos.addToIndexes();
+                token.setPos(pos);
+            }
 
-                // Read morphological features
-                if (!UNUSED.equals(word[FEATS]) && readMorph) {
-                    MorphologicalFeatures morphtag = new MorphologicalFeatures(aJCas,
-                            token.getBegin(), token.getEnd());
-                    morphtag.setValue(word[FEATS]);
-                    morphtag.addToIndexes();
-                    token.setMorph(morphtag);
-                    
-                    // Try parsing out individual feature values. Since the DKPro Core
-                    // MorphologicalFeatures type is based on the definition from the UD project,
-                    // we can do this rather straightforwardly.
-                    Type morphType = morphtag.getType();
-                    String[] items = word[FEATS].split("\\|");
-                    for (String item : items) {
-                        String[] keyValue = item.split("=");
-                        StringBuilder key = new StringBuilder(keyValue[0]);
-                        key.setCharAt(0, Character.toLowerCase(key.charAt(0)));
-                        String value = keyValue[1];
+            // Read morphological features
+            if (!UNUSED.equals(word[FEATS]) && readMorph) {
+                MorphologicalFeatures morphtag = new MorphologicalFeatures(aJCas,
+                        token.getBegin(), token.getEnd());
+                morphtag.setValue(word[FEATS]);
+                morphtag.addToIndexes();
+                token.setMorph(morphtag);
+                
+                // Try parsing out individual feature values. Since the DKPro Core
+                // MorphologicalFeatures type is based on the definition from the UD project,
+                // we can do this rather straightforwardly.
+                Type morphType = morphtag.getType();
+                String feats = word[FEATS];
+                int itemBegin = 0;
+                while (itemBegin < feats.length()) {
+                    int itemEnd = feats.indexOf('|', itemBegin);
+                    if (itemEnd == -1) {
+                        itemEnd = feats.length();
+                    }
+                    int eq = feats.indexOf('=', itemBegin);
+                    if (eq > itemBegin && eq < itemEnd) {
+                        keyBuffer.setLength(0);
+                        keyBuffer.append(Character.toLowerCase(feats.charAt(itemBegin)));
+                        keyBuffer.append(feats, itemBegin + 1, eq);
                         
-                        Feature feat = morphType.getFeatureByBaseName(key.toString());
+                        Feature feat = morphType.getFeatureByBaseName(keyBuffer.toString());
                         if (feat != null) {
-                            morphtag.setStringValue(feat, value);
+                            morphtag.setStringValue(feat, feats.substring(eq + 1, itemEnd));
                         }
                     }
+                    itemBegin = itemEnd + 1;
                 }
+            }
+
+            // Read surface form
+            if (tokenIdx == surfaceEnd) {
+                int begin = tokens.get(surfaceBegin).getBegin();
+                int end = tokens.get(surfaceEnd).getEnd();
+                SurfaceForm surfaceForm = new SurfaceForm(aJCas, begin, end);
+                surfaceForm.setValue(surfaceString);
+                surfaceForm.addToIndexes();
+                surfaceBegin = -1;
+                surfaceEnd = -1;
+                surfaceString = null;
+            }
+            
+            sentenceEnd = token.getEnd();
+        }
 
-                // Read surface form
-                if (tokenIdx == surfaceEnd) {
-                    int begin = tokens.get(surfaceBegin).getBegin();
-                    int end = tokens.get(surfaceEnd).getEnd();
-                    SurfaceForm surfaceForm = new SurfaceForm(aJCas, begin, end);
-                    surfaceForm.setValue(surfaceString);
-                    surfaceForm.addToIndexes();
-                    surfaceBegin = -1;
-                    surfaceEnd = -1;
-                    surfaceString = null;
+        // Dependencies
+        if (readDependency) {
+            for (String[] word : words) {
+                if (!UNUSED.equals(word[DEPREL])) {
+                    int depId = parseInt(word[ID], 0, word[ID].length());
+                    int govId = parseInt(word[HEAD], 0, word[HEAD].length());
+
+                    // Model the root as a loop onto itself
+                    makeDependency(aJCas, govId, depId, word[DEPREL], DependencyFlavor.BASIC,
+                            tokens, word);
                 }
                 
-                sentenceEnd = token.getEnd();
-            }
+                if (!UNUSED.equals(word[DEPS])) {
+                    // list items separated by vertical bar, each item is "head:deprel" where
+                    // the deprel may itself contain colons
+                    String deps = word[DEPS];
+                    int depId = parseInt(word[ID], 0, word[ID].length());
+                    int itemBegin = 0;
+                    while (itemBegin < deps.length()) {
+                        int itemEnd = deps.indexOf('|', itemBegin);
+                        if (itemEnd == -1) {
+                            itemEnd = deps.length();
+                        }
+                        int colon = deps.indexOf(':', itemBegin);
+                        if (colon == -1 || colon > itemEnd) {
+                            colon = itemEnd;
+                        }
+                        
+                        int govId = parseInt(deps, itemBegin, colon);
+                        String label = colon < itemEnd ? deps.substring(colon + 1, itemEnd)
+                                : null;
 
-            // Dependencies
-            if (readDependency) {
-                for (String[] word : words) {
-                    if (!UNUSED.equals(word[DEPREL])) {
-                        int depId = Integer.valueOf(word[ID]);
-                        int govId = Integer.valueOf(word[HEAD]);
-    
-                        // Model the root as a loop onto itself
-                        makeDependency(aJCas, govId, depId, word[DEPREL], DependencyFlavor.BASIC,
+                        makeDependency(aJCas, govId, depId, label, DependencyFlavor.ENHANCED,
                                 tokens, word);
-                    }
-                    
-                    if (!UNUSED.equals(word[DEPS])) {
-                        // list items separated by vertical bar
-                        String[] items = word[DEPS].split("\\|");
-                        for (String item : items) {
-                            String[] sItem = item.split(":");
-                            
-                            int depId = Integer.valueOf(word[ID]);
-                            int govId = Integer.valueOf(sItem[0]);
-
-                            makeDependency(aJCas, govId, depId, sItem[1], DependencyFlavor.ENHANCED,
-                                    tokens, word);
-                        }
+                        itemBegin = itemEnd + 1;
                     }
                 }
             }
-
-            // Sentence
-            Sentence sentence = new Sentence(aJCas, sentenceBegin, sentenceEnd);
-            sentence.addToIndexes();
-
-            // Once sentence per line.
-            doc.add("\n");
         }
 
-        doc.close();
+        // Sentence
+        Sentence sentence = new Sentence(aJCas, sentenceBegin, sentenceEnd);
+        sentence.addToIndexes();
+
+        // Once sentence per line.
+        doc.add("\n");
     }
     
     private Dependency makeDependency(JCas aJCas, int govId, int depId, String label, String flavor,
@@ -345,36 +488,132 @@ public class ConllUReader
         return rel;
     }
 
+    private boolean isStreaming()
+    {
+        return sentencesPerDocument > 0 || splitAtNewDoc;
+    }
+    
     /**
-     * Read a single sentence.
+     * Get the next document without consuming it, waiting for the read-ahead thread if necessary.
+     * 
+     * @return the next document or {@code null} if all files have been read.
      */
-    private static List<String[]> readSentence(BufferedReader aReader)
-        throws IOException
+    private Document peekDocument()
+        throws IOException, CollectionException
     {
-        List<String[]> words = new ArrayList<String[]>();
-        String line;
-        while ((line = aReader.readLine()) != null) {
-            if (StringUtils.isBlank(line)) {
-                break; // End of sentence
+        if (nextDocument == null) {
+            if (readAheadDocument != null) {
+                try {
+                    nextDocument = readAheadDocument.get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading ahead");
+                }
+                catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new CollectionException(e.getCause());
+                }
+                finally {
+                    readAheadDocument = null;
+                }
             }
-            if (line.startsWith("#")) {
-                // Comment line
-                continue;
+            else {
+                nextDocument = readDocument();
             }
-            String[] fields = line.split("\t");
-            if (fields.length != 10) {
-                throw new IOException(
-                        "Invalid file format. Line needs to have 10 tab-separated fields, but it has "
-                                + fields.length + ": [" + line + "]");
+        }
+        return nextDocument;
+    }
+    
+    /**
+     * Read the sentences of the next document, opening the next file if the current one has been
+     * read completely. A document never spans multiple files.
+     * 
+     * @return the next document or {@code null} if all files have been read.
+     */
+    private Document readDocument()
+        throws IOException, CollectionException
+    {
+        while (true) {
+            if (currentSentenceReader == null) {
+                if (!super.hasNext()) {
+                    return null;
+                }
+                
+                currentResource = nextFile();
+                currentSentenceReader = new ConllUSentenceReader(new BufferedReader(
+                        new InputStreamReader(CompressionUtils.getInputStream(
+                                currentResource.getLocation(), currentResource.getInputStream()),
+                                encoding)));
+                currentDocumentNumber = 0;
+            }
+            
+            List<List<String[]>> sentences = new ArrayList<>();
+            if (pendingSentence != null) {
+                sentences.add(pendingSentence);
+                pendingSentence = null;
+            }
+            
+            List<String[]> words;
+            while ((words = currentSentenceReader.readSentence()) != null) {
+                if (words.isEmpty()) {
+                    continue;
+                }
+                
+                if (splitAtNewDoc && currentSentenceReader.isNewDocument()
+                        && !sentences.isEmpty()) {
+                    // This sentence starts the next document
+                    pendingSentence = words;
+                    break;
+                }
+                
+                sentences.add(words);
+                if (sentencesPerDocument > 0 && sentences.size() >= sentencesPerDocument) {
+                    break;
+                }
+            }
+            
+            Resource resource = currentResource;
+            if (words == null) {
+                closeCurrentResource();
+            }
+            
+            if (!sentences.isEmpty()) {
+                currentDocumentNumber++;
+                return new Document(resource, currentDocumentNumber, sentences);
             }
-            words.add(fields);
         }
-
-        if (line == null && words.isEmpty()) {
-            return null;
+    }
+    
+    private void closeCurrentResource()
+    {
+        if (currentSentenceReader != null) {
+            try {
+                currentSentenceReader.close();
+            }
+            catch (IOException e) {
+                // Ignore - we are done with the file anyway
+            }
+            currentSentenceReader = null;
         }
-        else {
-            return words;
+    }
+    
+    /**
+     * The sentences of one document produced in streaming mode.
+     */
+    private static final class Document
+    {
+        final Resource resource;
+        final int number;
+        final List<List<String[]>> sentences;
+
+        Document(Resource aResource, int aNumber, List<List<String[]>> aSentences)
+        {
+            resource = aResource;
+            number = aNumber;
+            sentences = aSentences;
         }
     }
 }
@@ -20,18 +20,14 @@ package de.tudarmstadt.ukp.dkpro.core.io.conll;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.uima.fit.util.JCasUtil.indexCovered;
 import static org.apache.uima.fit.util.JCasUtil.select;
-import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.io.Writer;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.descriptor.MimeTypeCapability;
@@ -42,11 +38,11 @@ import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.MimeTypes;
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.SurfaceForm;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
-import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.DependencyFlavor;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllDocumentIndex;
+import de.tudarmstadt.ukp.dkpro.core.io.conll.internal.ConllEmitter;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
@@ -102,15 +98,18 @@ public class ConllUWriter
     @ConfigurationParameter(name = PARAM_WRITE_DEPENDENCY, mandatory = true, defaultValue = "true")
     private boolean writeDependency;
     
+    private final ConllEmitter emitter = new ConllEmitter();
+
     @Override
     public void process(JCas aJCas)
         throws AnalysisEngineProcessException
     {
-        PrintWriter out = null;
+        Writer out = null;
         try {
-            out = new PrintWriter(new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix),
-                    encoding));
-            convert(aJCas, out);
+            out = new OutputStreamWriter(getOutputStream(aJCas, filenameSuffix), encoding);
+            emitter.open(out);
+            convert(aJCas, emitter);
+            emitter.flush();
         }
         catch (Exception e) {
             throw new AnalysisEngineProcessException(e);
@@ -120,8 +119,12 @@ public class ConllUWriter
         }
     }
 
-    private void convert(JCas aJCas, PrintWriter aOut)
+    private void convert(JCas aJCas, ConllEmitter aOut)
+        throws IOException
     {
+        ConllDocumentIndex doc = new ConllDocumentIndex(aJCas).indexDependencies(aJCas, false);
+        String text = aJCas.getDocumentText();
+
         Map<SurfaceForm, Collection<Token>> surfaceIdx = indexCovered(aJCas, SurfaceForm.class,
                 Token.class);
         Int2ObjectMap<SurfaceForm> surfaceBeginIdx = new Int2ObjectOpenHashMap<>();
@@ -129,124 +132,99 @@ public class ConllUWriter
             surfaceBeginIdx.put(sf.getBegin(), sf);
         }
         
-        
-        for (Sentence sentence : select(aJCas, Sentence.class)) {
-            HashMap<Token, Row> ctokens = new LinkedHashMap<Token, Row>();
-
-            // Tokens
-            List<Token> tokens = selectCovered(Token.class, sentence);
-            
-            for (int i = 0; i < tokens.size(); i++) {
-                Row row = new Row();
-                row.id = i+1;
-                row.token = tokens.get(i);
-                row.noSpaceAfter = (i+1 < tokens.size()) && row.token.getEnd() == tokens.get(i+1).getBegin();
-                ctokens.put(row.token, row);
-            }
-
-            // Dependencies
-            for (Dependency rel : selectCovered(Dependency.class, sentence)) {
-                if (StringUtils.isBlank(rel.getFlavor()) || DependencyFlavor.BASIC.equals(rel.getFlavor())) {
-                    ctokens.get(rel.getDependent()).deprel = rel;
-                }
-                else {
-                    ctokens.get(rel.getDependent()).deps.add(rel);
-                }
-            }
+        for (int s = 0; s < doc.getSentenceCount(); s++) {
+            int first = doc.getFirstToken(s);
+            int end = doc.getEndToken(s);
 
             // Write sentence in CONLL-U format
-            for (Row row : ctokens.values()) {
+            for (int t = first; t < end; t++) {
+                Token token = doc.getToken(t);
+                int id = t - first + 1;
+                
                 String lemma = UNUSED;
-                if (writeLemma && (row.token.getLemma() != null)) {
-                    lemma = row.token.getLemma().getValue();
+                if (writeLemma && (token.getLemma() != null)) {
+                    lemma = token.getLemma().getValue();
                 }
 
                 String pos = UNUSED;
-                if (writePos && (row.token.getPos() != null)) {
-                    POS posAnno = row.token.getPos();
+                if (writePos && (token.getPos() != null)) {
+                    POS posAnno = token.getPos();
                     pos = posAnno.getPosValue();
                 }
 
                 String cpos = UNUSED;
-                if (writeCPos && (row.token.getPos() != null)
-                        && row.token.getPos().getCoarseValue() != null) {
-                    POS posAnno = row.token.getPos();
+                if (writeCPos && (token.getPos() != null)
+                        && token.getPos().getCoarseValue() != null) {
+                    POS posAnno = token.getPos();
                     cpos = posAnno.getCoarseValue();
                 }
 
                 int headId = UNUSED_INT;
                 String deprel = UNUSED;
-                String deps = UNUSED;
-                if (writeDependency) {
-                    if ((row.deprel != null)) {
-                        deprel = row.deprel.getDependencyType();
-                        headId = ctokens.get(row.deprel.getGovernor()).id;
-                        if (headId == row.id) {
-                            // ROOT dependencies may be modeled as a loop, ignore these.
-                            headId = 0;
-                        }
-                    }
-                    
-                    StringBuilder depsBuf = new StringBuilder();
-                    for (Dependency d : row.deps) {
-                        if (depsBuf.length() > 0) {
-                            depsBuf.append('|');
-                        }
-                        // Resolve self-looping root to 0-indexed root
-                        int govId = ctokens.get(d.getGovernor()).id;
-                        if (govId == row.id) {
-                            govId = 0;
-                        }
-                        depsBuf.append(govId);
-                        depsBuf.append(':');
-                        depsBuf.append(d.getDependencyType());
-                    }
-                    if (depsBuf.length() > 0) {
-                        deps = depsBuf.toString();
-                    }
-                }
-                
-                String head = UNUSED;
-                if (headId != UNUSED_INT) {
-                    head = Integer.toString(headId);
+                if (writeDependency && (doc.getBasicDependency(t) != null)) {
+                    deprel = doc.getBasicDependency(t).getDependencyType();
+                    headId = doc.getHead(t);
                 }
                 
                 String feats = UNUSED;
-                if (writeMorph && (row.token.getMorph() != null)) {
-                    feats = row.token.getMorph().getValue();
+                if (writeMorph && (token.getMorph() != null)) {
+                    feats = token.getMorph().getValue();
                 }
                 
-                String misc = UNUSED;
-                if (row.noSpaceAfter) {
-                    misc = "SpaceAfter=No";
-                }
+                boolean noSpaceAfter = (t + 1 < end)
+                        && token.getEnd() == doc.getToken(t + 1).getBegin();
 
-                SurfaceForm sf = surfaceBeginIdx.get(row.token.getBegin());
+                SurfaceForm sf = surfaceBeginIdx.get(token.getBegin());
                 if (sf != null) {
                     @SuppressWarnings({ "unchecked", "rawtypes" })
                     List<Token> covered = (List) surfaceIdx.get(sf);
-                    int id1 = ctokens.get(covered.get(0)).id;
-                    int id2 = ctokens.get(covered.get(covered.size()-1)).id;
-                    aOut.printf("%d-%d\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\n", id1, id2,
-                            sf.getValue(), UNUSED, UNUSED, UNUSED, UNUSED, UNUSED, UNUSED, UNUSED,
-                            UNUSED);
+                    int id1 = doc.getId(s, covered.get(0), -1);
+                    int id2 = doc.getId(s, covered.get(covered.size() - 1), -1);
+                    aOut.field(id1).append('-').append(id2);
+                    aOut.field(sf.getValue());
+                    for (int i = 0; i < 8; i++) {
+                        aOut.field(UNUSED);
+                    }
+                    aOut.endLine();
                 }
                 
-                aOut.printf("%d\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\n", row.id,
-                        row.token.getCoveredText(), lemma, cpos, pos, feats, head, deprel, deps,
-                        misc);
+                aOut.field(id);
+                aOut.field(text, token.getBegin(), token.getEnd());
+                aOut.field(lemma);
+                aOut.field(cpos);
+                aOut.field(pos);
+                aOut.field(feats);
+                aOut.field(headId, UNUSED);
+                aOut.field(deprel);
+                writeDeps(aOut, doc, s, t);
+                aOut.field(noSpaceAfter ? "SpaceAfter=No" : UNUSED);
+                aOut.endLine();
             }
 
-            aOut.println();
+            aOut.endLine();
         }
     }
-
-    private static final class Row
+    
+    private void writeDeps(ConllEmitter aOut, ConllDocumentIndex aDoc, int aSentence, int aToken)
     {
-        int id;
-        Token token;
-        boolean noSpaceAfter;
-        Dependency deprel;
-        List<Dependency> deps = new ArrayList<>();
+        List<Dependency> deps = aDoc.getEnhancedDependencies(aToken);
+        if (!writeDependency || deps.isEmpty()) {
+            aOut.field(UNUSED);
+            return;
+        }
+        
+        for (int i = 0; i < deps.size(); i++) {
+            Dependency d = deps.get(i);
+            // Resolve self-looping root to 0-indexed root
+            int govId = aDoc.getId(aSentence, d.getGovernor(), aToken);
+            if (i == 0) {
+                aOut.field(govId);
+            }
+            else {
+                aOut.append('|').append(govId);
+            }
+            aOut.append(':');
+            aOut.append(d.getDependencyType());
+        }
     }
 }
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab and FG Language Technology
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.io.conll.internal;
+
+import static org.apache.uima.fit.util.JCasUtil.indexCovered;
+import static org.apache.uima.fit.util.JCasUtil.select;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.morph.MorphologicalFeatures;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemArg;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemArgLink;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemPred;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.DependencyFlavor;
+
+/**
+ * Covered-annotation indexes of a document as needed by the CoNLL writers. The indexes are built
+ * once per document using {@code indexCovered} instead of calling {@code selectCovered} for every
+ * sentence.
+ * <p>
+ * The tokens of all sentences are stored in one array in sentence order. A token is addressed by
+ * its position in this array. The CoNLL ID of a token is its position relative to the first token
+ * of its sentence plus one. Per-token information (morphology, dependencies, predicates) is kept in
+ * arrays parallel to the token array.
+ */
+public class ConllDocumentIndex
+{
+    public static final int NO_HEAD = -1;
+
+    private final Sentence[] sentences;
+    private final int[] sentenceStart;
+    private final Token[] tokens;
+    private final int[] tokenBegin;
+
+    private MorphologicalFeatures[] morphology;
+
+    private Dependency[] basicDependencies;
+    private int[] heads;
+    private List<List<Dependency>> enhancedDependencies;
+
+    private SemPred[] predicates;
+    private SemArgLink[][] arguments;
+    private int[] predicateCounts;
+
+    public ConllDocumentIndex(JCas aJCas)
+    {
+        Map<Sentence, Collection<Token>> tokenIdx = indexCovered(aJCas, Sentence.class,
+                Token.class);
+
+        Collection<Sentence> sentenceColl = select(aJCas, Sentence.class);
+        sentences = sentenceColl.toArray(new Sentence[sentenceColl.size()]);
+        sentenceStart = new int[sentences.length + 1];
+
+        int total = 0;
+        for (int s = 0; s < sentences.length; s++) {
+            sentenceStart[s] = total;
+            total += covered(tokenIdx, sentences[s]).size();
+        }
+        sentenceStart[sentences.length] = total;
+
+        tokens = new Token[total];
+        tokenBegin = new int[total];
+        int t = 0;
+        for (Sentence sentence : sentences) {
+            for (Token token : covered(tokenIdx, sentence)) {
+                tokens[t] = token;
+                tokenBegin[t] = token.getBegin();
+                t++;
+            }
+        }
+    }
+
+    /**
+     * Attach the morphological features covered by each sentence to its tokens. As in the
+     * original writers, this is only done for sentences in which there are exactly as many
+     * feature annotations as tokens.
+     */
+    public ConllDocumentIndex indexMorphology(JCas aJCas)
+    {
+        Map<Sentence, Collection<MorphologicalFeatures>> morphIdx = indexCovered(aJCas,
+                Sentence.class, MorphologicalFeatures.class);
+
+        morphology = new MorphologicalFeatures[tokens.length];
+        for (int s = 0; s < sentences.length; s++) {
+            Collection<MorphologicalFeatures> morphs = covered(morphIdx, sentences[s]);
+            if (morphs.size() == getTokenCount(s)) {
+                int t = sentenceStart[s];
+                for (MorphologicalFeatures morph : morphs) {
+                    morphology[t++] = morph;
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Attach the dependency relations covered by each sentence to their dependents. Relations
+     * without a flavor or with the {@link DependencyFlavor#BASIC basic} flavor form the basic tree;
+     * all other relations are collected as enhanced dependencies.
+     *
+     * @param aStrict
+     *            if a token may be the dependent of only one basic relation. Otherwise, the last
+     *            relation wins.
+     */
+    public ConllDocumentIndex indexDependencies(JCas aJCas, boolean aStrict)
+    {
+        Map<Sentence, Collection<Dependency>> depIdx = indexCovered(aJCas, Sentence.class,
+                Dependency.class);
+
+        basicDependencies = new Dependency[tokens.length];
+        heads = new int[tokens.length];
+        enhancedDependencies = new ArrayList<>(Collections.nCopies(tokens.length, null));
+
+        for (int s = 0; s < sentences.length; s++) {
+            for (Dependency rel : covered(depIdx, sentences[s])) {
+                int dep = lookup(s, rel.getDependent());
+
+                if (StringUtils.isBlank(rel.getFlavor())
+                        || DependencyFlavor.BASIC.equals(rel.getFlavor())) {
+                    if (aStrict && basicDependencies[dep] != null) {
+                        throw new IllegalStateException(
+                                "Illegal basic dependency structure - token ["
+                                        + tokens[dep].getCoveredText()
+                                        + "] is dependent of more than one dependency.");
+                    }
+                    basicDependencies[dep] = rel;
+                    heads[dep] = getId(s, rel.getGovernor(), dep);
+                }
+                else {
+                    List<Dependency> deps = enhancedDependencies.get(dep);
+                    if (deps == null) {
+                        deps = new ArrayList<>();
+                        enhancedDependencies.set(dep, deps);
+                    }
+                    deps.add(rel);
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Attach the semantic predicates and the roles of their arguments to the tokens. If there are
+     * multiple predicates covered by a token, only the first one is kept.
+     */
+    public ConllDocumentIndex indexSemantics(JCas aJCas)
+    {
+        Map<Token, Collection<SemPred>> predIdx = indexCovered(aJCas, Token.class, SemPred.class);
+        Map<SemArg, Collection<Token>> argIdx = indexCovered(aJCas, SemArg.class, Token.class);
+        Map<Sentence, Collection<SemPred>> sentencePredIdx = indexCovered(aJCas, Sentence.class,
+                SemPred.class);
+
+        predicates = new SemPred[tokens.length];
+        arguments = new SemArgLink[tokens.length][];
+        predicateCounts = new int[sentences.length];
+
+        for (int s = 0; s < sentences.length; s++) {
+            Collection<SemPred> preds = covered(sentencePredIdx, sentences[s]);
+            predicateCounts[s] = preds.size();
+
+            for (int t = sentenceStart[s]; t < sentenceStart[s + 1]; t++) {
+                arguments[t] = new SemArgLink[preds.size()];
+                Collection<SemPred> predsForToken = predIdx.get(tokens[t]);
+                if (predsForToken != null && !predsForToken.isEmpty()) {
+                    predicates[t] = predsForToken.iterator().next();
+                }
+            }
+
+            int p = 0;
+            for (SemPred pred : preds) {
+                FSArray args = pred.getArguments();
+                if (args != null) {
+                    for (SemArgLink arg : select(args, SemArgLink.class)) {
+                        for (Token token : covered(argIdx, arg.getTarget())) {
+                            arguments[lookup(s, token)][p] = arg;
+                        }
+                    }
+                }
+                p++;
+            }
+        }
+
+        return this;
+    }
+
+    public int getSentenceCount()
+    {
+        return sentences.length;
+    }
+
+    public Sentence getSentence(int aSentence)
+    {
+        return sentences[aSentence];
+    }
+
+    public int getTokenCount(int aSentence)
+    {
+        return sentenceStart[aSentence + 1] - sentenceStart[aSentence];
+    }
+
+    /**
+     * @return the position of the first token of the given sentence.
+     */
+    public int getFirstToken(int aSentence)
+    {
+        return sentenceStart[aSentence];
+    }
+
+    /**
+     * @return the position after the last token of the given sentence.
+     */
+    public int getEndToken(int aSentence)
+    {
+        return sentenceStart[aSentence + 1];
+    }
+
+    public Token getToken(int aToken)
+    {
+        return tokens[aToken];
+    }
+
+    public MorphologicalFeatures getMorphology(int aToken)
+    {
+        return morphology[aToken];
+    }
+
+    public Dependency getBasicDependency(int aToken)
+    {
+        return basicDependencies[aToken];
+    }
+
+    /**
+     * @return the CoNLL ID of the governor of the token's basic dependency relation, {@code 0}
+     *         for the root or {@link #NO_HEAD} if the token has no basic dependency relation.
+     */
+    public int getHead(int aToken)
+    {
+        return basicDependencies[aToken] != null ? heads[aToken] : NO_HEAD;
+    }
+
+    public List<Dependency> getEnhancedDependencies(int aToken)
+    {
+        List<Dependency> deps = enhancedDependencies.get(aToken);
+        return deps != null ? deps : Collections.emptyList();
+    }
+
+    public SemPred getPredicate(int aToken)
+    {
+        return predicates[aToken];
+    }
+
+    /**
+     * @return the argument links of the token with one slot per predicate in the sentence. A slot
+     *         is {@code null} if the token is not an argument of the respective predicate.
+     */
+    public SemArgLink[] getArguments(int aToken)
+    {
+        return arguments[aToken];
+    }
+
+    public int getPredicateCount(int aSentence)
+    {
+        return predicateCounts[aSentence];
+    }
+
+    /**
+     * Determines the CoNLL ID of a token of the given sentence. ROOT relations may be modeled as a
+     * loop, so if the token is the one at position {@code aSelf}, {@code 0} is returned.
+     */
+    public int getId(int aSentence, AnnotationFS aToken, int aSelf)
+    {
+        int t = lookup(aSentence, aToken);
+        return t == aSelf ? 0 : t - sentenceStart[aSentence] + 1;
+    }
+
+    /**
+     * Finds the position of a token in the given sentence by a binary search on the token
+     * offsets.
+     *
+     * @return the position of the token or {@code -1} if it is not part of the sentence.
+     */
+    public int indexOf(int aSentence, AnnotationFS aToken)
+    {
+        int begin = aToken.getBegin();
+        int lo = sentenceStart[aSentence];
+        int hi = sentenceStart[aSentence + 1];
+
+        // Find the leftmost token starting at the offset
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tokenBegin[mid] < begin) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+
+        // Tokens may share a start offset, so check them all
+        int end = sentenceStart[aSentence + 1];
+        for (int t = lo; t < end && tokenBegin[t] == begin; t++) {
+            if (tokens[t].equals(aToken)) {
+                return t;
+            }
+        }
+
+        return -1;
+    }
+
+    private int lookup(int aSentence, AnnotationFS aToken)
+    {
+        int t = indexOf(aSentence, aToken);
+        if (t == -1) {
+            throw new IllegalStateException("Token [" + aToken.getCoveredText() + "] at ["
+                    + aToken.getBegin() + "-" + aToken.getEnd() + "] is not part of sentence ["
+                    + sentences[aSentence].getBegin() + "-" + sentences[aSentence].getEnd()
+                    + "]");
+        }
+        return t;
+    }
+
+    private static <K, V> Collection<V> covered(Map<K, Collection<V>> aIndex, K aKey)
+    {
+        Collection<V> values = aIndex.get(aKey);
+        return values != null ? values : Collections.emptyList();
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab and FG Language Technology
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.io.conll.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Assembles CoNLL lines in a reusable buffer and passes them on to a {@link Writer} in large
+ * chunks. Fields are appended directly to the buffer, so no intermediate strings are created for
+ * numbers, padding or covered text.
+ * <p>
+ * An emitter can be reused for multiple documents, but it is not thread-safe.
+ */
+public class ConllEmitter
+{
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE + 1024);
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private final char separator;
+
+    private Writer out;
+    private boolean lineStart = true;
+
+    public ConllEmitter()
+    {
+        this('\t');
+    }
+
+    /**
+     * @param aSeparator
+     *            the character placed between the fields added via the {@code field} methods.
+     */
+    public ConllEmitter(char aSeparator)
+    {
+        separator = aSeparator;
+    }
+
+    /**
+     * Starts writing to the given writer. Any content left over from a previous document is
+     * discarded.
+     */
+    public void open(Writer aOut)
+    {
+        out = aOut;
+        buffer.setLength(0);
+        lineStart = true;
+    }
+
+    public ConllEmitter field(CharSequence aValue)
+    {
+        separate();
+        buffer.append(aValue);
+        return this;
+    }
+
+    public ConllEmitter field(int aValue)
+    {
+        separate();
+        buffer.append(aValue);
+        return this;
+    }
+
+    /**
+     * Adds the number as a field or the placeholder if the number is negative, e.g. for an
+     * unknown head.
+     */
+    public ConllEmitter field(int aValue, String aPlaceholder)
+    {
+        return aValue < 0 ? field(aPlaceholder) : field(aValue);
+    }
+
+    /**
+     * Adds the text between the given offsets as a field, e.g. the covered text of an annotation.
+     */
+    public ConllEmitter field(String aText, int aBegin, int aEnd)
+    {
+        separate();
+        buffer.append(aText, aBegin, aEnd);
+        return this;
+    }
+
+    /**
+     * Adds the value as a field, right-aligned in a column of the given width.
+     */
+    public ConllEmitter paddedField(CharSequence aValue, int aWidth)
+    {
+        separate();
+        return appendPadded(aValue, aWidth);
+    }
+
+    /**
+     * Adds the number as a field, right-aligned in a column of the given width.
+     */
+    public ConllEmitter paddedField(int aValue, int aWidth)
+    {
+        separate();
+        return appendPadded(aValue, aWidth);
+    }
+
+    /**
+     * Adds the text between the given offsets as a field, right-aligned in a column of the given
+     * width.
+     */
+    public ConllEmitter paddedField(String aText, int aBegin, int aEnd, int aWidth)
+    {
+        separate();
+        return appendPadded(aText, aBegin, aEnd, aWidth);
+    }
+
+    /**
+     * Appends to the current field without a separator.
+     */
+    public ConllEmitter append(CharSequence aValue)
+    {
+        buffer.append(aValue);
+        lineStart = false;
+        return this;
+    }
+
+    public ConllEmitter append(char aValue)
+    {
+        buffer.append(aValue);
+        lineStart = false;
+        return this;
+    }
+
+    public ConllEmitter append(int aValue)
+    {
+        buffer.append(aValue);
+        lineStart = false;
+        return this;
+    }
+
+    public ConllEmitter append(String aText, int aBegin, int aEnd)
+    {
+        buffer.append(aText, aBegin, aEnd);
+        lineStart = false;
+        return this;
+    }
+
+    /**
+     * Appends the value right-aligned in a column of the given width, like {@code %10s}.
+     */
+    public ConllEmitter appendPadded(CharSequence aValue, int aWidth)
+    {
+        // Like String.format(), render null values as "null"
+        CharSequence value = aValue != null ? aValue : "null";
+        pad(aWidth - value.length());
+        return append(value);
+    }
+
+    /**
+     * Appends the text between the given offsets right-aligned in a column of the given width.
+     */
+    public ConllEmitter appendPadded(String aText, int aBegin, int aEnd, int aWidth)
+    {
+        pad(aWidth - (aEnd - aBegin));
+        return append(aText, aBegin, aEnd);
+    }
+
+    /**
+     * Appends the number right-aligned in a column of the given width, like {@code %3d}.
+     */
+    public ConllEmitter appendPadded(int aValue, int aWidth)
+    {
+        pad(aWidth - digits(aValue));
+        return append(aValue);
+    }
+
+    /**
+     * Appends the number left-padded with zeros to the given width, like {@code %03d}.
+     */
+    public ConllEmitter appendZeroPadded(int aValue, int aWidth)
+    {
+        int value = aValue;
+        if (value < 0) {
+            buffer.append('-');
+            value = -value;
+            aWidth--;
+        }
+        for (int i = digits(value); i < aWidth; i++) {
+            buffer.append('0');
+        }
+        return append(value);
+    }
+
+    /**
+     * Terminates the current line. Once enough lines have been collected, they are passed on to
+     * the writer.
+     */
+    public void endLine()
+        throws IOException
+    {
+        buffer.append('\n');
+        lineStart = true;
+        if (buffer.length() >= CHUNK_SIZE) {
+            drain();
+        }
+    }
+
+    /**
+     * Passes all buffered lines on to the writer and flushes it.
+     */
+    public void flush()
+        throws IOException
+    {
+        drain();
+        out.flush();
+    }
+
+    private void drain()
+        throws IOException
+    {
+        int length = buffer.length();
+        for (int offset = 0; offset < length; offset += chunk.length) {
+            int n = Math.min(chunk.length, length - offset);
+            buffer.getChars(offset, offset + n, chunk, 0);
+            out.write(chunk, 0, n);
+        }
+        buffer.setLength(0);
+    }
+
+    private void separate()
+    {
+        if (!lineStart) {
+            buffer.append(separator);
+        }
+        lineStart = false;
+    }
+
+    private void pad(int aCount)
+    {
+        for (int i = 0; i < aCount; i++) {
+            buffer.append(' ');
+        }
+    }
+
+    static int digits(int aValue)
+    {
+        if (aValue == Integer.MIN_VALUE) {
+            return 11;
+        }
+
+        int value = Math.abs(aValue);
+        int digits = aValue < 0 ? 2 : 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab and FG Language Technology
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.io.conll.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Reads the sentences of a CoNLL-U file one at a time. Lines are split into their fields by
+ * scanning for tabs instead of using regular expressions.
+ * <p>
+ * The reader also tracks {@code # newdoc} comments, so callers can split a file into documents at
+ * the positions where the original corpus documents start.
+ */
+public class ConllUSentenceReader
+{
+    public static final int FIELD_COUNT = 10;
+
+    private static final String NEWDOC = "newdoc";
+
+    private final BufferedReader reader;
+
+    private boolean pendingNewDocument;
+    private boolean newDocument;
+
+    public ConllUSentenceReader(BufferedReader aReader)
+    {
+        reader = aReader;
+    }
+
+    /**
+     * Read a single sentence. The list is empty if there are multiple end-of-sentence markers
+     * following each other.
+     *
+     * @return the fields of the words of the sentence or {@code null} if the end of the input has
+     *         been reached.
+     */
+    public List<String[]> readSentence()
+        throws IOException
+    {
+        List<String[]> words = new ArrayList<String[]>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (StringUtils.isBlank(line)) {
+                break; // End of sentence
+            }
+            if (line.startsWith("#")) {
+                // Comment line
+                if (isNewDocumentComment(line)) {
+                    pendingNewDocument = true;
+                }
+                continue;
+            }
+            words.add(splitFields(line));
+        }
+
+        if (words.isEmpty()) {
+            newDocument = false;
+            return line == null ? null : words;
+        }
+
+        newDocument = pendingNewDocument;
+        pendingNewDocument = false;
+        return words;
+    }
+
+    /**
+     * @return if the sentence last returned by {@link #readSentence()} was preceded by a
+     *         {@code # newdoc} comment.
+     */
+    public boolean isNewDocument()
+    {
+        return newDocument;
+    }
+
+    public void close()
+        throws IOException
+    {
+        reader.close();
+    }
+
+    /**
+     * Split a line into its ten tab-separated fields.
+     */
+    public static String[] splitFields(String aLine)
+        throws IOException
+    {
+        String[] fields = new String[FIELD_COUNT];
+        int count = 0;
+        int begin = 0;
+        while (true) {
+            int end = aLine.indexOf('\t', begin);
+            if (end == -1) {
+                end = aLine.length();
+            }
+            if (count < FIELD_COUNT) {
+                fields[count] = aLine.substring(begin, end);
+            }
+            count++;
+            if (end == aLine.length()) {
+                break;
+            }
+            begin = end + 1;
+        }
+
+        if (count != FIELD_COUNT) {
+            throw new IOException(
+                    "Invalid file format. Line needs to have 10 tab-separated fields, but it has "
+                            + count + ": [" + aLine + "]");
+        }
+
+        return fields;
+    }
+
+    /**
+     * Parse a non-negative decimal number from the given range of a string without creating a
+     * substring.
+     */
+    public static int parseInt(String aValue, int aBegin, int aEnd)
+    {
+        if (aBegin >= aEnd) {
+            throw new NumberFormatException("Empty number in [" + aValue + "]");
+        }
+
+        int result = 0;
+        for (int i = aBegin; i < aEnd; i++) {
+            char c = aValue.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("For input string: \""
+                        + aValue.substring(aBegin, aEnd) + "\"");
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean isNewDocumentComment(String aLine)
+    {
+        int i = 1;
+        while (i < aLine.length() && aLine.charAt(i) == ' ') {
+            i++;
+        }
+        if (!aLine.startsWith(NEWDOC, i)) {
+            return false;
+        }
+        // Either "# newdoc" alone or "# newdoc id = ..."
+        int end = i + NEWDOC.length();
+        return end == aLine.length() || Character.isWhitespace(aLine.charAt(end));
+    }
+}
@@ -33,6 +33,15 @@ public class Conll2008ReaderWriterTest
                 "conll/2008/en-orig.conll");
     }
 
+    @Test
+    public void testPredicates()
+        throws Exception
+    {
+        testOneWay(Conll2008Reader.class, Conll2008Writer.class,
+                "conll/2008/en-predicates-ref.conll",
+                "conll/2008/en-predicates-orig.conll");
+    }
+
     @Rule
     public DkproTestContext testContext = new DkproTestContext();
 }
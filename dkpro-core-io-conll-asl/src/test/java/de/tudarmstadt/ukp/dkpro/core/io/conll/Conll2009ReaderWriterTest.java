@@ -33,6 +33,15 @@ public class Conll2009ReaderWriterTest
                 "conll/2009/en-orig.conll");
     }
 
+    @Test
+    public void testPredicates()
+        throws Exception
+    {
+        testOneWay(Conll2009Reader.class, Conll2009Writer.class,
+                "conll/2009/en-predicates-ref.conll",
+                "conll/2009/en-predicates-orig.conll");
+    }
+
     @Rule
     public DkproTestContext testContext = new DkproTestContext();
 }
@@ -20,9 +20,17 @@ package de.tudarmstadt.ukp.dkpro.core.io.conll;
 import static de.tudarmstadt.ukp.dkpro.core.testing.AssertAnnotations.assertMorph;
 import static de.tudarmstadt.ukp.dkpro.core.testing.AssertAnnotations.assertPOS;
 import static de.tudarmstadt.ukp.dkpro.core.testing.AssertAnnotations.assertSentence;
+import static java.util.Arrays.asList;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
 import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.StringUtils;
 import org.apache.uima.collection.CollectionReaderDescription;
 import org.apache.uima.fit.pipeline.JCasIterable;
 import org.apache.uima.jcas.JCas;
@@ -31,6 +39,7 @@ import org.junit.Test;
 
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.morph.MorphologicalFeatures;
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.testing.DkproTestContext;
 
@@ -74,6 +83,66 @@ public class ConllUReaderTest
         assertMorph(morphologicalFeeatures, select(jcas, MorphologicalFeatures.class));
     }
 
+    @Test
+    public void testSplitAtNewDoc()
+        throws Exception
+    {
+        CollectionReaderDescription reader = createReaderDescription(
+                ConllUReader.class, 
+                ConllUReader.PARAM_LANGUAGE, "en",
+                ConllUReader.PARAM_SOURCE_LOCATION, "src/test/resources/conll/u/", 
+                ConllUReader.PARAM_PATTERNS, "conllu-en-newdoc.conll",
+                ConllUReader.PARAM_SPLIT_AT_NEWDOC, true);
+        
+        Map<String, List<String>> documents = readSentences(reader);
+        
+        assertEquals(2, documents.size());
+        assertEquals(asList("They buy and sell books.", "I have not a clue."),
+                documents.get("conllu-en-newdoc.conll#1"));
+        assertEquals(asList("They buy and sell books."),
+                documents.get("conllu-en-newdoc.conll#2"));
+    }
+
+    @Test
+    public void testSplitBySentenceCountWithReadAhead()
+        throws Exception
+    {
+        CollectionReaderDescription reader = createReaderDescription(
+                ConllUReader.class, 
+                ConllUReader.PARAM_LANGUAGE, "en",
+                ConllUReader.PARAM_SOURCE_LOCATION, "src/test/resources/conll/u/", 
+                ConllUReader.PARAM_PATTERNS, new String[] { "conllu-en-orig.conll",
+                        "conllu-en-newdoc.conll" },
+                ConllUReader.PARAM_SENTENCES_PER_DOCUMENT, 1,
+                ConllUReader.PARAM_READ_AHEAD, true);
+        
+        Map<String, List<String>> documents = readSentences(reader);
+        
+        assertEquals(5, documents.size());
+        assertEquals(asList("They buy and sell books."),
+                documents.get("conllu-en-orig.conll#1"));
+        assertEquals(asList("I have not a clue."), documents.get("conllu-en-orig.conll#2"));
+        assertEquals(asList("They buy and sell books."),
+                documents.get("conllu-en-newdoc.conll#1"));
+        assertEquals(asList("I have not a clue."), documents.get("conllu-en-newdoc.conll#2"));
+        assertEquals(asList("They buy and sell books."),
+                documents.get("conllu-en-newdoc.conll#3"));
+    }
+
+    private static Map<String, List<String>> readSentences(CollectionReaderDescription aReader)
+    {
+        Map<String, List<String>> documents = new TreeMap<>();
+        for (JCas jcas : new JCasIterable(aReader)) {
+            List<String> sentences = new ArrayList<>();
+            for (Sentence s : select(jcas, Sentence.class)) {
+                sentences.add(s.getCoveredText());
+            }
+            String id = DocumentMetaData.get(jcas).getDocumentId();
+            documents.put(StringUtils.substringAfterLast("/" + id, "/"), sentences);
+        }
+        return documents;
+    }
+
     @Rule
     public DkproTestContext testContext = new DkproTestContext();
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab and FG Language Technology
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.io.conll;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+
+import java.io.File;
+
+import org.apache.uima.analysis_component.AnalysisComponent;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.morph.MorphologicalFeatures;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.DependencyFlavor;
+import de.tudarmstadt.ukp.dkpro.core.testing.DkproTestContext;
+
+/**
+ * Compares the throughput of the {@link Conll2006Writer} to the per-sentence
+ * {@code selectCovered} implementation it used to have (cf. {@link LegacyConll2006Writer}). The
+ * output of the CoNLL writers is checked by the reader/writer tests.
+ */
+public class ConllWriterBenchmarkTest
+{
+    private static final int TOKENS_PER_SENTENCE = 25;
+
+    @Ignore("Used at times for offline testing / development")
+    @Test
+    public void throughput()
+        throws Exception
+    {
+        JCas jcas = createDocument(40000);
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            write(jcas, LegacyConll2006Writer.class, "legacy");
+            long legacyTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            write(jcas, Conll2006Writer.class, "current");
+            long currentTime = System.nanoTime() - start;
+
+            System.out.printf("Round %d: legacy %d ms, current %d ms (%.1fx)%n", round,
+                    legacyTime / 1000000, currentTime / 1000000,
+                    (double) legacyTime / currentTime);
+        }
+    }
+
+    private void write(JCas aJCas, Class<? extends AnalysisComponent> aWriter, String aFolder)
+        throws Exception
+    {
+        File folder = new File(testContext.getTestOutputFolder(), aFolder);
+        AnalysisEngine writer = createEngine(aWriter,
+                JCasFileWriter_ImplBase.PARAM_TARGET_LOCATION, folder,
+                JCasFileWriter_ImplBase.PARAM_USE_DOCUMENT_ID, true,
+                JCasFileWriter_ImplBase.PARAM_OVERWRITE, true);
+        writer.process(aJCas);
+        writer.collectionProcessComplete();
+        writer.destroy();
+    }
+
+    private JCas createDocument(int aSentences)
+        throws Exception
+    {
+        JCas jcas = JCasFactory.createJCas();
+        DocumentMetaData.create(jcas).setDocumentId("document");
+
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < aSentences; s++) {
+            for (int t = 0; t < TOKENS_PER_SENTENCE; t++) {
+                text.append("word").append(t).append(' ');
+            }
+            text.append('\n');
+        }
+        jcas.setDocumentText(text.toString());
+
+        int offset = 0;
+        for (int s = 0; s < aSentences; s++) {
+            Sentence sentence = new Sentence(jcas, offset, offset);
+            Token[] tokens = new Token[TOKENS_PER_SENTENCE];
+            for (int t = 0; t < TOKENS_PER_SENTENCE; t++) {
+                int end = text.indexOf(" ", offset);
+                Token token = new Token(jcas, offset, end);
+
+                POS pos = new POS(jcas, offset, end);
+                pos.setPosValue(t % 2 == 0 ? "NN" : "VB");
+                pos.setCoarseValue(t % 2 == 0 ? "NOUN" : "VERB");
+                pos.addToIndexes();
+                token.setPos(pos);
+
+                Lemma lemma = new Lemma(jcas, offset, end);
+                lemma.setValue("lemma" + t);
+                lemma.addToIndexes();
+                token.setLemma(lemma);
+
+                MorphologicalFeatures morph = new MorphologicalFeatures(jcas, offset, end);
+                morph.setValue("Case=Nom|Number=Sing");
+                morph.addToIndexes();
+
+                token.addToIndexes();
+                tokens[t] = token;
+                offset = end + 1;
+            }
+            sentence.setEnd(tokens[TOKENS_PER_SENTENCE - 1].getEnd());
+            sentence.addToIndexes();
+            offset++;
+
+            for (int t = 0; t < TOKENS_PER_SENTENCE; t++) {
+                Token dependent = tokens[t];
+                Token governor = t == 0 ? dependent : tokens[(t - 1) / 2];
+                Dependency dep = new Dependency(jcas, dependent.getBegin(), dependent.getEnd());
+                dep.setDependent(dependent);
+                dep.setGovernor(governor);
+                dep.setDependencyType(t == 0 ? "ROOT" : "dep");
+                dep.setFlavor(DependencyFlavor.BASIC);
+                dep.addToIndexes();
+            }
+        }
+
+        return jcas;
+    }
+
+    @Rule
+    public DkproTestContext testContext = new DkproTestContext();
+}
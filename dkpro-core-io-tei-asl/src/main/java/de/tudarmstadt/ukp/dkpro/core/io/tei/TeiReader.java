@@ -21,6 +21,7 @@ import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.ATTR_FU
 import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.ATTR_LEMMA;
 import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.ATTR_POS;
 import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.ATTR_TYPE;
+import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.E_TEI_TEI;
 import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.TAG_CHARACTER;
 import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.TAG_MULTIWORD;
 import static de.tudarmstadt.ukp.dkpro.core.io.tei.internal.TeiConstants.TAG_PARAGRAPH;
@@ -44,6 +45,15 @@ import java.util.List;
 import java.util.Stack;
 import java.util.zip.GZIPInputStream;
 
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.uima.UimaContext;
@@ -71,6 +81,7 @@ import org.jaxen.dom4j.Dom4jXPath;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
@@ -90,6 +101,11 @@ import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.constituent.ROOT;
 
 /**
  * Reader for the TEI XML.
+ * <p>
+ * By default, each file is parsed into a DOM tree from which the TEI elements are extracted. In
+ * streaming mode (see {@link #PARAM_STREAMING}), the file is instead read event by event and a CAS
+ * is produced as soon as a TEI element has been read completely. The memory required then only
+ * depends on the size of the largest TEI element, not on the size of the file.
  */
 @MimeTypeCapability({MimeTypes.APPLICATION_TEI_XML})
 @TypeCapability(
@@ -202,11 +218,25 @@ public class TeiReader
     @ConfigurationParameter(name = PARAM_UTTERANCES_AS_SENTENCES, mandatory = true, defaultValue = "false")
     private boolean utterancesAsSentences;
 
+	/**
+	 * Read the TEI elements one at a time while parsing the file instead of building a DOM tree of
+	 * the whole file first. Use this for large corpus files containing many TEI elements. TEI
+	 * elements nested within other TEI elements are not read separately in this mode.
+	 */
+	public static final String PARAM_STREAMING = "streaming";
+	@ConfigurationParameter(name = PARAM_STREAMING, mandatory = true, defaultValue = "false")
+	private boolean streaming;
+
 	private Iterator<Element> teiElementIterator;
 	private Element currentTeiElement;
 	private Resource currentResource;
 	private int currentTeiElementNumber;
 
+	// Streaming mode - the reader is positioned at the start of the next TEI element, if any
+	private XMLInputFactory xmlInputFactory;
+	private InputStream xmlInputStream;
+	private XMLEventReader xmlEventReader;
+
 	private MappingProvider posMappingProvider;
 
 	@Override
@@ -221,11 +251,19 @@ public class TeiReader
 		}
 
 		try {
-			// Init with an empty iterator
-			teiElementIterator = asList(new Element[0]).iterator();
+			if (streaming) {
+				xmlInputFactory = XMLInputFactory.newInstance();
 
-			// Make sure we know about the first element;
-			nextTeiElement();
+				// Make sure we know about the first element;
+				nextTeiElementStreaming();
+			}
+			else {
+				// Init with an empty iterator
+				teiElementIterator = asList(new Element[0]).iterator();
+
+				// Make sure we know about the first element;
+				nextTeiElement();
+			}
 		}
 		catch (CollectionException | IOException e) {
 			throw new ResourceInitializationException(e);
@@ -291,10 +329,124 @@ public class TeiReader
 		}
 	}
 
+	/**
+	 * Position the event reader at the start of the next TEI element, opening the next file if
+	 * the current one does not contain any further TEI elements. If there are no more TEI elements,
+	 * the event reader is set to {@code null}.
+	 */
+	private void nextTeiElementStreaming()
+		throws CollectionException, IOException
+	{
+		try {
+			while (true) {
+				if (xmlEventReader != null) {
+					while (xmlEventReader.hasNext()) {
+						XMLEvent event = xmlEventReader.peek();
+						if (event.isStartElement()
+								&& E_TEI_TEI.equals(event.asStartElement().getName())) {
+							currentTeiElementNumber++;
+							return;
+						}
+						xmlEventReader.nextEvent();
+					}
+					closeXmlEventReader();
+				}
+
+				if (!super.hasNext()) {
+					return;
+				}
+
+				currentResource = nextFile();
+				xmlInputStream = currentResource.getInputStream();
+				if (currentResource.getPath().endsWith(".gz")) {
+					xmlInputStream = new GZIPInputStream(xmlInputStream);
+				}
+				xmlEventReader = xmlInputFactory.createXMLEventReader(
+						currentResource.getLocation(), xmlInputStream);
+				currentTeiElementNumber = 0;
+			}
+		}
+		catch (XMLStreamException e) {
+			closeXmlEventReader();
+			throw new IOException(e);
+		}
+	}
+
+	private void closeXmlEventReader()
+	{
+		if (xmlEventReader != null) {
+			try {
+				xmlEventReader.close();
+			}
+			catch (XMLStreamException e) {
+				// Ignore - the underlying stream is closed below anyway
+			}
+			xmlEventReader = null;
+		}
+		closeQuietly(xmlInputStream);
+		xmlInputStream = null;
+	}
+
+	/**
+	 * Pass the events of the TEI element at which the event reader is positioned to the given
+	 * handler.
+	 */
+	private void streamTeiElement(Handler aHandler)
+		throws XMLStreamException, SAXException
+	{
+		int depth = 0;
+		do {
+			XMLEvent event = xmlEventReader.nextEvent();
+			if (event.isStartElement()) {
+				StartElement element = event.asStartElement();
+				AttributesImpl attributes = new AttributesImpl();
+				Iterator<?> i = element.getAttributes();
+				while (i.hasNext()) {
+					Attribute attribute = (Attribute) i.next();
+					QName name = attribute.getName();
+					attributes.addAttribute(name.getNamespaceURI(), name.getLocalPart(),
+							getQualifiedName(name), "CDATA", attribute.getValue());
+				}
+				QName name = element.getName();
+				aHandler.startElement(name.getNamespaceURI(), name.getLocalPart(),
+						getQualifiedName(name), attributes);
+				depth++;
+			}
+			else if (event.isEndElement()) {
+				QName name = event.asEndElement().getName();
+				aHandler.endElement(name.getNamespaceURI(), name.getLocalPart(),
+						getQualifiedName(name));
+				depth--;
+			}
+			else if (event.isCharacters()) {
+				Characters characters = event.asCharacters();
+				char[] data = characters.getData().toCharArray();
+				if (characters.isIgnorableWhiteSpace()) {
+					aHandler.ignorableWhitespace(data, 0, data.length);
+				}
+				else {
+					aHandler.characters(data, 0, data.length);
+				}
+			}
+		}
+		while (depth > 0);
+	}
+
+	private static String getQualifiedName(QName aName)
+	{
+		if (aName.getPrefix().isEmpty()) {
+			return aName.getLocalPart();
+		}
+		return aName.getPrefix() + ":" + aName.getLocalPart();
+	}
+
 	@Override
 	public boolean hasNext()
 		throws IOException, CollectionException
 	{
+		if (streaming) {
+			return xmlEventReader != null;
+		}
 		return teiElementIterator != null || currentTeiElement != null;
 	}
 
@@ -328,8 +480,13 @@ public class TeiReader
 			handler.setLogger(getLogger());
 
 			// Parse TEI text
-			SAXWriter writer = new SAXWriter(handler);
-			writer.write(currentTeiElement);
+			if (streaming) {
+				streamTeiElement(handler);
+			}
+			else {
+				SAXWriter writer = new SAXWriter(handler);
+				writer.write(currentTeiElement);
+			}
 			handler.endDocument();
 		}
 		catch (CASException e) {
@@ -338,12 +495,29 @@ public class TeiReader
 		catch (SAXException e) {
 			throw new IOException(e);
 		}
+		catch (XMLStreamException e) {
+			closeXmlEventReader();
+			throw new IOException(e);
+		}
 		finally {
 			closeQuietly(is);
 		}
 
 		// Move currentTeiElement to the next text
-		nextTeiElement();
+		if (streaming) {
+			nextTeiElementStreaming();
+		}
+		else {
+			nextTeiElement();
+		}
+	}
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		closeXmlEventReader();
+		super.close();
 	}
 
 	protected Handler newSaxHandler()
@@ -17,13 +17,16 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.io.tei;
 
+import static java.util.Arrays.asList;
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
 import static org.junit.Assert.assertEquals;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
@@ -174,6 +177,113 @@ public class TeiReaderTest
                 FileUtils.readFileToString(output, "UTF-8"));
     }
 
+    @Test
+    public void brownReaderStreamingTest()
+        throws Exception
+    {
+        File reference = new File("src/test/resources/brown_ims.txt");
+        File output = new File("target/test-output/brown_ims_streaming.txt");
+
+        CollectionReaderDescription reader = createReaderDescription(
+                TeiReader.class,
+                TeiReader.PARAM_LANGUAGE, "en",
+                TeiReader.PARAM_SOURCE_LOCATION, "classpath:/brown_tei/",
+                TeiReader.PARAM_PATTERNS, new String[] { "[+]*.xml" },
+                TeiReader.PARAM_STREAMING, true);
+
+        AnalysisEngineDescription writer = createEngineDescription(ImsCwbWriter.class,
+                ImsCwbWriter.PARAM_TARGET_LOCATION, output,
+                ImsCwbWriter.PARAM_WRITE_CPOS, true,
+                ImsCwbWriter.PARAM_SENTENCE_TAG, "sentence");
+
+        SimplePipeline.runPipeline(reader, writer);
+
+        assertEquals(
+                FileUtils.readFileToString(reference, "UTF-8"),
+                FileUtils.readFileToString(output, "UTF-8"));
+    }
+
+    @Test
+    public void digibibStreamingTest()
+        throws Exception
+    {
+        Map<String, String> expected = new LinkedHashMap<String, String>();
+        for (JCas jcas : new JCasIterable(createReaderDescription(
+                TeiReader.class,
+                TeiReader.PARAM_LANGUAGE, "de",
+                TeiReader.PARAM_SOURCE_LOCATION, "classpath:/digibib",
+                TeiReader.PARAM_PATTERNS, new String[] { "[+]*.xml" }))) {
+            expected.put(DocumentMetaData.get(jcas).getDocumentId(), jcas.getDocumentText());
+        }
+
+        Map<String, String> actual = new LinkedHashMap<String, String>();
+        for (JCas jcas : new JCasIterable(createReaderDescription(
+                TeiReader.class,
+                TeiReader.PARAM_LANGUAGE, "de",
+                TeiReader.PARAM_SOURCE_LOCATION, "classpath:/digibib",
+                TeiReader.PARAM_PATTERNS, new String[] { "[+]*.xml" },
+                TeiReader.PARAM_STREAMING, true))) {
+            actual.put(DocumentMetaData.get(jcas).getDocumentId(), jcas.getDocumentText());
+        }
+
+        assertEquals(17, actual.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void resumeInterruptedMultiDocumentFile()
+        throws Exception
+    {
+        File target = new File("target/resumeInterruptedMultiDocumentFile");
+        FileUtils.deleteQuietly(target);
+        File journal = new File(target, "journal.txt");
+
+        // Interrupt after the first two of the seven texts in the second file
+        AnalysisEngine writer = createEngine(TextWriter.class,
+                TextWriter.PARAM_USE_DOCUMENT_ID, true,
+                TextWriter.PARAM_TARGET_LOCATION, new File(target, "out"),
+                TextWriter.PARAM_CHECKPOINT_JOURNAL, journal);
+        int written = 0;
+        for (JCas jcas : new JCasIterable(createReaderDescription(
+                TeiReader.class,
+                TeiReader.PARAM_LANGUAGE, "de",
+                TeiReader.PARAM_SOURCE_LOCATION, "classpath:/digibib",
+                TeiReader.PARAM_PATTERNS, new String[] { "[+]*.xml" },
+                TeiReader.PARAM_CHECKPOINT_JOURNAL, journal))) {
+            writer.process(jcas);
+            written++;
+            if (written == 7) {
+                break;
+            }
+        }
+        writer.destroy();
+
+        // Only the first file is skipped, the interrupted one is read again completely
+        List<String> resumed = new ArrayList<String>();
+        for (JCas jcas : new JCasIterable(createReaderDescription(
+                TeiReader.class,
+                TeiReader.PARAM_LANGUAGE, "de",
+                TeiReader.PARAM_SOURCE_LOCATION, "classpath:/digibib",
+                TeiReader.PARAM_PATTERNS, new String[] { "[+]*.xml" },
+                TeiReader.PARAM_CHECKPOINT_JOURNAL, journal))) {
+            resumed.add(DocumentMetaData.get(jcas).getDocumentId());
+        }
+
+        assertEquals(asList(
+                "Literatur-Besser,-Johann-von.xml#1",
+                "Literatur-Besser,-Johann-von.xml#2",
+                "Literatur-Besser,-Johann-von.xml#3",
+                "Literatur-Besser,-Johann-von.xml#4",
+                "Literatur-Besser,-Johann-von.xml#5",
+                "Literatur-Besser,-Johann-von.xml#6",
+                "Literatur-Besser,-Johann-von.xml#7",
+                "Literatur-Kobell,-Franz-von.xml#1",
+                "Literatur-Kobell,-Franz-von.xml#2",
+                "Literatur-Kobell,-Franz-von.xml#3",
+                "Literatur-Marcel,-Gabriel.xml#1",
+                "Literatur-Meister,-Johann-Gottlieb.xml#1"), resumed);
+    }
+
     @Test
     public void brownReaderTest_noSentences()
         throws Exception
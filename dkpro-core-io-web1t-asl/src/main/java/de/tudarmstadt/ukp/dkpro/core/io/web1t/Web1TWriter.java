@@ -131,6 +131,24 @@ public class Web1TWriter
     @ConfigurationParameter(name = PARAM_CONTEXT_TYPE, mandatory = true, defaultValue="de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence")
     protected String contextType;
 
+    /**
+     * The number of threads used to sort and consolidate the n-gram files when the collection
+     * processing is complete. Set to {@link ComponentParameters#AUTO_NUM_THREADS} to use one
+     * thread per available processor.
+     */
+    public static final String PARAM_NUM_THREADS = ComponentParameters.PARAM_NUM_THREADS;
+    @ConfigurationParameter(name = PARAM_NUM_THREADS, mandatory = true, defaultValue = "1")
+    private int numThreads;
+
+    /**
+     * The memory in megabytes used for sorting the n-gram files, shared by all threads. If a file
+     * does not fit, it is sorted in compressed runs on disk. Use zero or a negative value to use half
+     * of the maximum heap size.
+     */
+    public static final String PARAM_MEMORY_BUDGET = "memoryBudget";
+    @ConfigurationParameter(name = PARAM_MEMORY_BUDGET, mandatory = true, defaultValue = "0")
+    private int memoryBudget;
+
 
 	private Web1TConverter converter;
 
@@ -152,6 +170,8 @@ public class Web1TWriter
 		converter.setMinFrequency(minFreq);
 		converter.setToLowercase(lowercase);
 		converter.setOutputEncoding(outputEncoding);
+		converter.setThreads(ComponentParameters.computeNumThreads(numThreads));
+		converter.setMemoryBudget(memoryBudget * 1024L * 1024L);
 	}
 
     @Override
@@ -38,7 +38,10 @@ import java.util.PriorityQueue;
 *  April 2010
 * originally posted at 
 *  http://www.daniel-lemire.com/blog/archives/2010/04/01/external-memory-sorting-in-java/
+*
+* @deprecated The index files are sorted by {@link Web1TIndexBuilder} now.
 */
+@Deprecated
 public class ExternalSort {
 	
 	static int DEFAULTMAXTEMPFILES = 1024;
@@ -17,26 +17,20 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.io.web1t.util;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -45,8 +39,8 @@ import org.apache.uima.jcas.JCas;
 
 import com.googlecode.jweb1t.JWeb1TIndexer;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
 import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
-import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathInfo;
 import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.ConditionalFrequencyDistribution;
 import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.FrequencyDistribution;
 import de.tudarmstadt.ukp.dkpro.core.ngrams.util.NGramStringIterable;
@@ -68,9 +62,12 @@ public class Web1TConverter
     private boolean toLowercase = false;
     private boolean writeIndexes = true;
     private float splitThreshold = 1.0f;
+    private int threads = 1;
+    private long memoryBudget = 0;
 
     private Map<Integer, BufferedWriter> ngramWriters;
     private Map<Integer, FrequencyDistribution<String>> letterFDs;
+    private Map<String, CompiledFeaturePath> compiledPaths = new HashMap<String, CompiledFeaturePath>();
 
     public Web1TConverter(String outputPath)
         throws IOException
@@ -106,24 +103,28 @@ public class Web1TConverter
 
         CAS cas = jcas.getCas();
 
-        for (AnnotationFS annotation : CasUtil.select(cas, sentenceType)) {
+        // Resolve the feature paths once per CAS instead of once per sentence
+        List<CompiledFeaturePath> paths = new ArrayList<CompiledFeaturePath>();
+        for (String path : inputPaths) {
+            CompiledFeaturePath fp;
+            try {
+                fp = CompiledFeaturePath.compile(cas.getTypeSystem(), path,
+                        compiledPaths.get(path));
+            }
+            catch (FeaturePathException e) {
+                throw new IOException(e);
+            }
+            compiledPaths.put(path, fp);
+            paths.add(fp);
+        }
 
-            for (String path : inputPaths) {
+        for (AnnotationFS annotation : CasUtil.select(cas, sentenceType)) {
 
-                String[] segments = path.split("/", 2);
-                String typeName = segments[0];
+            for (CompiledFeaturePath fp : paths) {
 
-                Type type = getInputType(cas, typeName);
+                List<AnnotationFS> tokens = CasUtil.selectCovered(cas, fp.getType(), annotation);
 
-                List<AnnotationFS> tokens = CasUtil.selectCovered(cas, type, annotation);
-
-                List<String> tokenStrings;
-                try {
-                    tokenStrings = createStringList(tokens, segments);
-                }
-                catch (AnalysisEngineProcessException e) {
-                    throw new IOException(e);
-                }
+                List<String> tokenStrings = createStringList(tokens, fp);
 
                 for (int ngramLength = minNgramLength; ngramLength <= maxNgramLength; ngramLength++) {
                     cfd.incAll(ngramLength, new NGramStringIterable(tokenStrings, ngramLength,
@@ -144,25 +145,19 @@ public class Web1TConverter
     public void createIndex()
         throws IOException
     {
-
         closeWriters(ngramWriters.values());
 
-        Comparator<String> comparator = new Comparator<String>()
-        {
-            @Override
-            public int compare(String r1, String r2)
-            {
-                return r1.compareTo(r2);
-            }
-        };
-
         // read the file with the counts per file and create the final
         // aggregated counts
-        for (int level = minNgramLength; level <= maxNgramLength; level++) {
-            Integer nextFreeFileNumber = processInputFileForLevel(level, comparator);
-
-            processCreatedMiscFileAgain(level, comparator, nextFreeFileNumber);
+        Web1TIndexBuilder builder = new Web1TIndexBuilder(outputPath);
+        builder.setOutputEncoding(outputEncoding);
+        builder.setMinFrequency(minFrequency);
+        builder.setSplitThreshold(splitThreshold);
+        builder.setThreads(threads);
+        if (memoryBudget > 0) {
+            builder.setMemoryBudget(memoryBudget);
         }
+        builder.build(letterFDs);
 
         if (writeIndexes) {
             JWeb1TIndexer indexer = new JWeb1TIndexer(outputPath, maxNgramLength);
@@ -170,50 +165,6 @@ public class Web1TConverter
         }
     }
 
-    private int processInputFileForLevel(int level, Comparator<String> comparator)
-        throws IOException
-    {
-
-        File unsortedInputFile = new File(outputPath, level + ".txt");
-
-        File outputFolder = getOutputFolder(level);
-        outputFolder.mkdir();
-
-        FrequencyDistribution<String> letterFD = letterFDs.get(level);
-
-        Web1TFileSplitter splitter = new Web1TFileSplitter(unsortedInputFile, outputFolder,
-                outputEncoding, letterFD, splitThreshold, 0);
-
-        splitter.split();
-        List<File> splitFiles = splitter.getFiles();
-
-        Web1TFileSorter sorter = new Web1TFileSorter(splitFiles, comparator);
-        sorter.sort();
-        splitter.cleanUp(); // Remove files from previous step
-
-        LinkedList<File> sortedFiles = sorter.getSortedFiles();
-
-        Web1TFileConsolidator consolidator = new Web1TFileConsolidator(sortedFiles, comparator,
-                outputEncoding, minFrequency);
-
-        consolidator.consolidate();
-        sorter.cleanUp(); // Remove files from previous step
-
-        LinkedList<File> consolidatedFiles = consolidator.getConsolidatedFiles();
-
-        // rename consolidated files -> final index files
-        for (File file : consolidatedFiles) {
-            String name = Web1TUtil.cutOffUnderscoredSuffixFromFileName(file);
-            file.renameTo(new File(name));
-        }
-
-        consolidator.cleanUp();
-
-        unsortedInputFile.delete();
-
-        return splitter.getNextUnusedFileNumber();
-    }
-
     /**
      * Write the frequency distributions to the corresponding n-gram files.
      */
@@ -259,18 +210,15 @@ public class Web1TConverter
         writer.flush();
     }
 
-    private List<String> createStringList(List<AnnotationFS> tokens, String[] segments)
-        throws AnalysisEngineProcessException
+    private List<String> createStringList(List<AnnotationFS> tokens, CompiledFeaturePath fp)
     {
+        String[] values = new String[tokens.size()];
+        fp.extract(tokens, values, 0);
 
-        List<String> tokenStrings = new ArrayList<String>();
+        List<String> tokenStrings = new ArrayList<String>(values.length + 2);
         tokenStrings.add(SENTENCE_START);
 
-        FeaturePathInfo fp = new FeaturePathInfo();
-        initializeFeaturePathInfoFrom(fp, segments);
-
-        for (AnnotationFS annotation : tokens) {
-            String value = fp.getValue(annotation);
+        for (String value : values) {
             if (!StringUtils.isBlank(value)) {
                 if (toLowercase) {
                     value = value.toLowerCase();
@@ -284,130 +232,6 @@ public class Web1TConverter
         return tokenStrings;
     }
 
-    private Type getInputType(CAS cas, String typeName)
-    {
-        Type type = cas.getTypeSystem().getType(typeName);
-        if (type == null) {
-            throw new IllegalStateException("Type [" + typeName + "] not found in type system");
-        }
-
-        return type;
-    }
-
-    private void initializeFeaturePathInfoFrom(FeaturePathInfo aFp, String[] featurePathString)
-        throws AnalysisEngineProcessException
-
-    {
-        try {
-            if (featurePathString.length > 1) {
-                aFp.initialize(featurePathString[1]);
-            }
-            else {
-                aFp.initialize("");
-            }
-        }
-        catch (FeaturePathException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-    }
-
-    /**
-     * The default file for words which do not account for <code>thresholdSplit</code> percent may
-     * have grown large. In order to prevent an real large misc. file we split again.
-     */
-    private void processCreatedMiscFileAgain(int level, Comparator<String> comparator,
-            int nextFileNumber)
-        throws IOException
-    {
-        File folder = getOutputFolder(level);
-        File misc = new File(folder, "99999999");
-
-        if (!misc.exists()) {
-            return;
-        }
-
-        FrequencyDistribution<String> letterFD = createFreqDistForMiscFile(misc);
-
-        float oldThreshold = splitThreshold;
-        // Make sure that the misc file is split into little pieces
-        splitThreshold /= 10;
-
-        Web1TFileSplitter splitter = new Web1TFileSplitter(misc, folder, "UTF-8", letterFD,
-                splitThreshold, nextFileNumber);
-        splitter.split();
-        List<File> splittedFiles = splitter.getFiles();
-
-        Web1TFileSorter sorter = new Web1TFileSorter(splittedFiles, comparator);
-        sorter.sort();
-        List<File> sortedFiles = splitter.getFiles();
-
-        splitThreshold = oldThreshold;
-        misc.delete();
-
-        Web1TFileConsolidator consolidator = new Web1TFileConsolidator(sortedFiles, comparator,
-                outputEncoding, minFrequency);
-        consolidator.consolidate();
-
-        LinkedList<File> consolidatedFiles = consolidator.getConsolidatedFiles();
-
-        // rename consolidated files -> final index files
-        for (File file : consolidatedFiles) {
-            String name = Web1TUtil.cutOffUnderscoredSuffixFromFileName(file);
-            file.renameTo(new File(name));
-        }
-
-        splitter.cleanUp();
-        sorter.cleanUp();
-        consolidator.cleanUp();
-    }
-
-    /**
-     * Creates a new frequency distribution over the starting letters in the misc file as
-     * preparation for splitting
-     */
-    private FrequencyDistribution<String> createFreqDistForMiscFile(File misc)
-        throws IOException
-    {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(misc),
-                outputEncoding));
-
-        FrequencyDistribution<String> letterFD = new FrequencyDistribution<String>();
-
-        String readLine = null;
-        while ((readLine = reader.readLine()) != null) {
-            int indexOfTab = readLine.indexOf(TAB);
-            String key = getStartingLetters(readLine, indexOfTab);
-            letterFD.addSample(key, 1);
-        }
-        reader.close();
-        return letterFD;
-    }
-
-    // private void writeToLog(String desc, String entry) {
-    // getContext().getLogger().log(Level.WARNING, desc + entry);
-    // }
-
-    private File getOutputFolder(int level)
-    {
-
-        return new File(outputPath + "/" + level + "gms");
-    }
-
-    private String getStartingLetters(String readLine, int indexOfTab)
-    {
-        String line = readLine.substring(0, indexOfTab);
-
-        String key = null;
-        if (line.length() > 1) {
-            key = readLine.substring(0, 2);
-        }
-        else {
-            key = readLine.substring(0, 1);
-        }
-        key = key.toLowerCase();
-        return key;
-    }
-
     private Map<Integer, FrequencyDistribution<String>> initializeLetterFDs(int min, int max)
     {
 
@@ -511,6 +335,38 @@ public class Web1TConverter
         this.minFrequency = minFrequency;
     }
 
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * @param threads
+     *            the number of threads used to sort and consolidate the n-gram files.
+     */
+    public void setThreads(int threads)
+    {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be >= 1");
+        }
+        this.threads = threads;
+    }
+
+    public long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    /**
+     * @param memoryBudget
+     *            the memory in bytes used for sorting the n-gram files. If not positive, half of
+     *            the maximum heap size is used.
+     */
+    public void setMemoryBudget(long memoryBudget)
+    {
+        this.memoryBudget = memoryBudget;
+    }
+
     public boolean isToLowercase()
     {
         return toLowercase;
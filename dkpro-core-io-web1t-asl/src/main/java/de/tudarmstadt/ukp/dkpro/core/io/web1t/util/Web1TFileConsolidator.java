@@ -29,7 +29,10 @@ import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 
-
+/**
+ * @deprecated The index files are sorted and consolidated by {@link Web1TIndexBuilder} now.
+ */
+@Deprecated
 public class Web1TFileConsolidator
 {
 
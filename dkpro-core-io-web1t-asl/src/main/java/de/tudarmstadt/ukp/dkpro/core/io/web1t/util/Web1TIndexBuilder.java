@@ -0,0 +1,651 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.io.web1t.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.FrequencyDistribution;
+
+/**
+ * Builds the sorted and consolidated Web1T n-gram files from the unsorted per-level count files
+ * written by the {@link Web1TConverter}.
+ * <p>
+ * The build runs in two phases on a pool of worker threads. First, the count file of each n-gram
+ * level is split into shards by the starting letters of the n-grams (see
+ * {@link Web1TFileSplitter}). Then each shard is sorted and consolidated independently. Sorting
+ * compares the encoded bytes of the n-grams instead of decoded strings. Each worker buffers at most
+ * its part of the memory budget; if a shard is larger, sorted runs are written to compressed
+ * temporary files and merged afterwards. Equal n-grams are consolidated while writing the runs and
+ * while merging them.
+ * <p>
+ * For UTF-8 and single-byte encodings, the byte order corresponds to the code point order of the
+ * n-grams.
+ */
+public class Web1TIndexBuilder
+{
+    private static final String MISC_FILE = "99999999";
+
+    private static final byte TAB = '\t';
+    private static final byte LF = '\n';
+
+    // Approximate heap overhead of a buffered line (array header and list reference)
+    private static final int LINE_OVERHEAD = 32;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Log log = LogFactory.getLog(getClass());
+
+    private final String outputPath;
+    private String outputEncoding = "UTF-8";
+    private int minFrequency = 1;
+    private float splitThreshold = 1.0f;
+    private int threads = 1;
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+
+    public Web1TIndexBuilder(String aOutputPath)
+    {
+        outputPath = aOutputPath;
+    }
+
+    /**
+     * Build the n-gram files of the given levels. For each level, the unsorted counts are expected
+     * in the file {@code <level>.txt} in the output path. The file is removed after the n-gram
+     * files have been written to the folder {@code <level>gms}.
+     *
+     * @param aLetterFDs
+     *            the distribution of the starting letters of the n-grams per level.
+     * @throws IOException
+     *             if the files cannot be read or written.
+     */
+    public void build(Map<Integer, FrequencyDistribution<String>> aLetterFDs)
+        throws IOException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Phase 1: split the count file of each level into shards
+            Phase split = new Phase("split");
+            List<Future<List<File>>> splits = new ArrayList<Future<List<File>>>();
+            for (Entry<Integer, FrequencyDistribution<String>> e : aLetterFDs.entrySet()) {
+                int level = e.getKey();
+                FrequencyDistribution<String> letterFD = e.getValue();
+                splits.add(executor.submit(() -> split(level, letterFD, split)));
+            }
+            List<File> shards = new ArrayList<File>();
+            for (Future<List<File>> f : splits) {
+                shards.addAll(await(f));
+            }
+            split.finish(shards.size());
+
+            // Phase 2: sort and consolidate each shard
+            Phase sort = new Phase("sort");
+            long shardBudget = Math.max(1024 * 1024, memoryBudget / threads);
+            List<Future<File>> sorts = new ArrayList<Future<File>>();
+            for (File shard : shards) {
+                sorts.add(executor.submit(() -> sortAndConsolidate(shard, shardBudget, sort)));
+            }
+            for (Future<File> f : sorts) {
+                await(f);
+            }
+            sort.finish(shards.size());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<File> split(int aLevel, FrequencyDistribution<String> aLetterFD, Phase aPhase)
+        throws IOException
+    {
+        File input = new File(outputPath, aLevel + ".txt");
+        File folder = new File(outputPath, aLevel + "gms");
+        folder.mkdirs();
+        aPhase.add(input.length());
+
+        Web1TFileSplitter splitter = new Web1TFileSplitter(input, folder, outputEncoding, aLetterFD,
+                splitThreshold, 0);
+        splitter.split();
+        List<File> shards = splitter.getFiles();
+        input.delete();
+
+        // The shard for the n-grams with infrequent starting letters may have grown large.
+        // Split it again into smaller pieces.
+        File misc = new File(folder, MISC_FILE + "_unsorted").getAbsoluteFile();
+        if (splitThreshold > 0 && misc.exists()) {
+            File miscInput = new File(folder, MISC_FILE + "_misc");
+            if (!misc.renameTo(miscInput)) {
+                throw new IOException("Unable to rename [" + misc + "] to [" + miscInput + "]");
+            }
+            shards.remove(misc);
+
+            Web1TFileSplitter miscSplitter = new Web1TFileSplitter(miscInput, folder,
+                    outputEncoding, createLetterFD(miscInput), splitThreshold / 10,
+                    splitter.getNextUnusedFileNumber());
+            miscSplitter.split();
+            shards.addAll(miscSplitter.getFiles());
+            miscInput.delete();
+        }
+
+        return shards;
+    }
+
+    private FrequencyDistribution<String> createLetterFD(File aFile)
+        throws IOException
+    {
+        FrequencyDistribution<String> letterFD = new FrequencyDistribution<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(aFile),
+                    outputEncoding));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    letterFD.addSample(Web1TUtil.getStartingLetters(line, tab), 1);
+                }
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(reader);
+        }
+        return letterFD;
+    }
+
+    /**
+     * Sort and consolidate a shard. The result is written to the shard file name without the
+     * {@code _unsorted} suffix and the shard is removed.
+     */
+    private File sortAndConsolidate(File aShard, long aBudget, Phase aPhase)
+        throws IOException
+    {
+        File target = new File(Web1TUtil.cutOffUnderscoredSuffixFromFileName(aShard));
+        aPhase.add(aShard.length());
+
+        List<File> runs = new ArrayList<File>();
+        List<byte[]> lines = new ArrayList<byte[]>();
+        long buffered = 0;
+        LineReader reader = new LineReader(new FileInputStream(aShard));
+        try {
+            byte[] line;
+            while ((line = reader.next()) != null) {
+                if (keyLength(line) < 0) {
+                    log.warn("No tab found in line: " + new String(line, outputEncoding));
+                    continue;
+                }
+                lines.add(line);
+                buffered += line.length + LINE_OVERHEAD;
+                if (buffered >= aBudget) {
+                    runs.add(writeRun(aShard, lines));
+                    lines.clear();
+                    buffered = 0;
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+
+        try {
+            if (runs.isEmpty()) {
+                lines.sort(KEY_ORDER);
+                try (OutputStream os = openOutput(target, false)) {
+                    consolidate(Arrays.asList(new ListCursor(lines)), os, minFrequency);
+                }
+            }
+            else {
+                if (!lines.isEmpty()) {
+                    runs.add(writeRun(aShard, lines));
+                    lines.clear();
+                }
+                log.debug("Merging " + runs.size() + " runs for [" + target + "]");
+                List<Cursor> cursors = new ArrayList<Cursor>();
+                try {
+                    for (File run : runs) {
+                        cursors.add(new RunCursor(run));
+                    }
+                    try (OutputStream os = openOutput(target, false)) {
+                        consolidate(cursors, os, minFrequency);
+                    }
+                }
+                finally {
+                    for (Cursor c : cursors) {
+                        IOUtils.closeQuietly(c);
+                    }
+                }
+            }
+        }
+        finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+
+        aShard.delete();
+        return target;
+    }
+
+    private File writeRun(File aShard, List<byte[]> aLines)
+        throws IOException
+    {
+        aLines.sort(KEY_ORDER);
+        File run = File.createTempFile(aShard.getName(), "_run", aShard.getParentFile());
+        try (OutputStream os = openOutput(run, true)) {
+            // Consolidate within the run already to keep it small
+            consolidate(Arrays.asList(new ListCursor(aLines)), os, 1);
+        }
+        return run;
+    }
+
+    private static OutputStream openOutput(File aFile, boolean aCompressed)
+        throws IOException
+    {
+        OutputStream os = new FileOutputStream(aFile);
+        if (aCompressed) {
+            // Temporary runs favor speed over compression ratio
+            return new GZIPOutputStream(os, BUFFER_SIZE)
+            {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        return new BufferedOutputStream(os, BUFFER_SIZE);
+    }
+
+    /**
+     * Merge the sorted cursors, summing up the counts of equal n-grams, and write the n-grams
+     * occurring at least the given number of times.
+     */
+    private static void consolidate(List<? extends Cursor> aCursors, OutputStream aOut,
+            int aMinFrequency)
+        throws IOException
+    {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(Math.max(1, aCursors.size()),
+                (a, b) -> KEY_ORDER.compare(a.line, b.line));
+        for (Cursor c : aCursors) {
+            if (c.advance()) {
+                queue.add(c);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Cursor head = queue.poll();
+            byte[] line = head.line;
+            int keyLength = keyLength(line);
+            long count = parseCount(line, keyLength);
+            if (head.advance()) {
+                queue.add(head);
+            }
+
+            while (!queue.isEmpty() && compareKeys(queue.peek().line, line) == 0) {
+                Cursor c = queue.poll();
+                count += parseCount(c.line, keyLength(c.line));
+                if (c.advance()) {
+                    queue.add(c);
+                }
+            }
+
+            if (count >= aMinFrequency) {
+                aOut.write(line, 0, keyLength);
+                aOut.write(TAB);
+                aOut.write(Long.toString(count).getBytes("US-ASCII"));
+                aOut.write(LF);
+            }
+        }
+    }
+
+    private static final Comparator<byte[]> KEY_ORDER = Web1TIndexBuilder::compareKeys;
+
+    /**
+     * Compare the n-grams (the part before the tab) of two lines byte by byte, treating the bytes
+     * as unsigned.
+     */
+    static int compareKeys(byte[] aLine1, byte[] aLine2)
+    {
+        int length1 = keyLength(aLine1);
+        int length2 = keyLength(aLine2);
+        int n = Math.min(length1, length2);
+        for (int i = 0; i < n; i++) {
+            int b1 = aLine1[i] & 0xff;
+            int b2 = aLine2[i] & 0xff;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return length1 - length2;
+    }
+
+    private static int keyLength(byte[] aLine)
+    {
+        for (int i = 0; i < aLine.length; i++) {
+            if (aLine[i] == TAB) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseCount(byte[] aLine, int aKeyLength)
+        throws IOException
+    {
+        long count = 0;
+        int start = aKeyLength + 1;
+        if (start >= aLine.length) {
+            throw new IOException("Missing count in line: " + new String(aLine, "UTF-8"));
+        }
+        for (int i = start; i < aLine.length; i++) {
+            int digit = aLine[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Invalid count in line: " + new String(aLine, "UTF-8"));
+            }
+            count = count * 10 + digit;
+        }
+        return count;
+    }
+
+    private static <T> T await(Future<T> aFuture)
+        throws IOException
+    {
+        try {
+            return aFuture.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Tracks the progress and throughput of a build phase.
+     */
+    private class Phase
+    {
+        private final String name;
+        private final long start = System.currentTimeMillis();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong files = new AtomicLong();
+
+        Phase(String aName)
+        {
+            name = aName;
+        }
+
+        void add(long aBytes)
+        {
+            long total = bytes.addAndGet(aBytes);
+            long n = files.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Phase [" + name + "]: started file " + n + " (" + (total >> 20)
+                        + " MB so far)");
+            }
+        }
+
+        void finish(int aOutputFiles)
+        {
+            long millis = Math.max(1, System.currentTimeMillis() - start);
+            double megabytes = bytes.get() / (1024.0 * 1024.0);
+            log.info(String.format("Phase [%s] finished: %d input files (%.1f MB) -> %d files "
+                    + "in %.1f s (%.1f MB/s)", name, files.get(), megabytes, aOutputFiles,
+                    millis / 1000.0, megabytes * 1000.0 / millis));
+        }
+    }
+
+    /**
+     * A sorted sequence of lines.
+     */
+    private abstract static class Cursor
+        implements Closeable
+    {
+        byte[] line;
+
+        abstract boolean advance()
+            throws IOException;
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            // Nothing to do by default
+        }
+    }
+
+    private static class ListCursor
+        extends Cursor
+    {
+        private final List<byte[]> lines;
+        private int next;
+
+        ListCursor(List<byte[]> aLines)
+        {
+            lines = aLines;
+        }
+
+        @Override
+        boolean advance()
+        {
+            if (next == lines.size()) {
+                return false;
+            }
+            line = lines.get(next++);
+            return true;
+        }
+    }
+
+    private static class RunCursor
+        extends Cursor
+    {
+        private final LineReader reader;
+
+        RunCursor(File aRun)
+            throws IOException
+        {
+            reader = new LineReader(new GZIPInputStream(new FileInputStream(aRun), BUFFER_SIZE));
+        }
+
+        @Override
+        boolean advance()
+            throws IOException
+        {
+            line = reader.next();
+            return line != null;
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads LF-terminated lines as bytes without decoding them. The input is read in blocks which
+     * are scanned for line feeds, so a line is copied only once unless it spans two blocks.
+     */
+    private static class LineReader
+        implements Closeable
+    {
+        private final InputStream is;
+        private final byte[] block = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        // Collects the beginning of a line which spans two or more blocks
+        private byte[] carry = new byte[256];
+
+        LineReader(InputStream aInputStream)
+        {
+            is = aInputStream;
+        }
+
+        byte[] next()
+            throws IOException
+        {
+            int carried = 0;
+            while (true) {
+                if (position == limit) {
+                    limit = is.read(block, 0, block.length);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        return carried > 0 ? line(carry, 0, carried) : null;
+                    }
+                    continue;
+                }
+
+                int start = position;
+                while (position < limit && block[position] != LF) {
+                    position++;
+                }
+
+                if (position < limit) {
+                    // Line feed found - skip it and return the line
+                    int end = position++;
+                    if (carried == 0) {
+                        return line(block, start, end);
+                    }
+                    carried = append(carried, start, end);
+                    return line(carry, 0, carried);
+                }
+
+                // No line feed in the rest of the block - keep the part and read on
+                carried = append(carried, start, position);
+            }
+        }
+
+        private int append(int aCarried, int aBegin, int aEnd)
+        {
+            int length = aEnd - aBegin;
+            if (aCarried + length > carry.length) {
+                carry = Arrays.copyOf(carry, Math.max(carry.length * 2, aCarried + length));
+            }
+            System.arraycopy(block, aBegin, carry, aCarried, length);
+            return aCarried + length;
+        }
+
+        private static byte[] line(byte[] aBuffer, int aBegin, int aEnd)
+        {
+            int end = aEnd;
+            if (end > aBegin && aBuffer[end - 1] == '\r') {
+                end--;
+            }
+            return Arrays.copyOfRange(aBuffer, aBegin, end);
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            is.close();
+        }
+    }
+
+    public String getOutputEncoding()
+    {
+        return outputEncoding;
+    }
+
+    public void setOutputEncoding(String aOutputEncoding)
+    {
+        outputEncoding = aOutputEncoding;
+    }
+
+    public int getMinFrequency()
+    {
+        return minFrequency;
+    }
+
+    public void setMinFrequency(int aMinFrequency)
+    {
+        minFrequency = aMinFrequency;
+    }
+
+    public float getSplitThreshold()
+    {
+        return splitThreshold;
+    }
+
+    public void setSplitThreshold(float aSplitThreshold)
+    {
+        splitThreshold = aSplitThreshold;
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * @param aThreads
+     *            the number of worker threads.
+     */
+    public void setThreads(int aThreads)
+    {
+        if (aThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be >= 1");
+        }
+        threads = aThreads;
+    }
+
+    public long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    /**
+     * @param aMemoryBudget
+     *            the memory in bytes available for buffering n-grams, shared by all workers.
+     */
+    public void setMemoryBudget(long aMemoryBudget)
+    {
+        memoryBudget = aMemoryBudget;
+    }
+}
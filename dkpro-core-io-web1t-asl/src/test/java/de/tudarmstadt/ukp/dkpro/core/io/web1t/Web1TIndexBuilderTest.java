@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.io.web1t;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.FrequencyDistribution;
+import de.tudarmstadt.ukp.dkpro.core.io.web1t.util.Web1TIndexBuilder;
+import de.tudarmstadt.ukp.dkpro.core.testing.DkproTestContext;
+
+public class Web1TIndexBuilderTest
+{
+    @Rule
+    public DkproTestContext testContext = new DkproTestContext();
+
+    @Test
+    public void testBuild()
+        throws Exception
+    {
+        File folder = testContext.getTestOutputFolder();
+
+        List<String> unigrams = asList("often\t1", "a\t2", "oil\t30", "a\t1", "out\t2",
+                "annoying\t5", "often\t2", "über\t3", "out-of-order\t5", "although\t4");
+        List<String> bigrams = asList("a b\t1", "a b\t1", "a c\t1", "a b\t1");
+
+        Map<Integer, FrequencyDistribution<String>> letterFDs =
+                new HashMap<Integer, FrequencyDistribution<String>>();
+        letterFDs.put(1, writeCounts(folder, 1, unigrams));
+        letterFDs.put(2, writeCounts(folder, 2, bigrams));
+
+        Web1TIndexBuilder builder = new Web1TIndexBuilder(folder.getPath());
+        builder.setThreads(2);
+        builder.setMinFrequency(2);
+        builder.setSplitThreshold(20);
+        builder.build(letterFDs);
+
+        assertEquals(asList("a\t3", "although\t4", "annoying\t5", "often\t3", "oil\t30",
+                "out\t2", "out-of-order\t5", "über\t3"), readCounts(new File(folder, "1gms")));
+        assertEquals(asList("a b\t3"), readCounts(new File(folder, "2gms")));
+    }
+
+    @Test
+    public void testBuildWithSpilledRuns()
+        throws Exception
+    {
+        File folder = testContext.getTestOutputFolder();
+
+        // Enough lines to exceed the minimum memory budget of a worker several times, so the
+        // shard is sorted in runs which are merged afterwards
+        List<String> unigrams = new ArrayList<String>();
+        for (int i = 0; i < 60000; i++) {
+            unigrams.add("word" + (i % 1000) + "\t" + (i % 3 + 1));
+        }
+
+        Map<Integer, FrequencyDistribution<String>> letterFDs =
+                new HashMap<Integer, FrequencyDistribution<String>>();
+        letterFDs.put(1, writeCounts(folder, 1, unigrams));
+
+        Web1TIndexBuilder builder = new Web1TIndexBuilder(folder.getPath());
+        builder.setMemoryBudget(1);
+        builder.setSplitThreshold(0);
+        builder.build(letterFDs);
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            // Each word occurs 60 times, i.e. 20 times with each of the counts 1, 2 and 3
+            expected.add("word" + i + "\t" + 120);
+        }
+        Collections.sort(expected);
+        assertEquals(expected, readCounts(new File(folder, "1gms")));
+    }
+
+    private FrequencyDistribution<String> writeCounts(File aFolder, int aLevel,
+            List<String> aLines)
+        throws Exception
+    {
+        FrequencyDistribution<String> letterFD = new FrequencyDistribution<String>();
+        for (String line : aLines) {
+            String ngram = line.substring(0, line.indexOf('\t'));
+            letterFD.addSample(ngram.substring(0, Math.min(2, ngram.length())).toLowerCase(), 1);
+        }
+        Files.write(new File(aFolder, aLevel + ".txt").toPath(), aLines, StandardCharsets.UTF_8);
+        return letterFD;
+    }
+
+    private List<String> readCounts(File aFolder)
+        throws Exception
+    {
+        // The n-grams are sorted within each file, but the files are ordered by the frequency of
+        // their starting letters
+        List<String> lines = new ArrayList<String>();
+        for (File file : aFolder.listFiles()) {
+            lines.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -39,6 +40,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.anomaly.type.SpellingAnomaly;
 import de.tudarmstadt.ukp.dkpro.core.api.anomaly.type.SuggestedAction;
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.provider.CachingFrequencyCountProvider;
 import de.tudarmstadt.ukp.dkpro.core.api.frequency.provider.FrequencyCountProvider;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
@@ -58,14 +60,27 @@ public class CorrectionsContextualizer
     @ExternalResource(key = FREQUENCY_PROVIDER_RESOURCE)
     private FrequencyCountProvider provider;
     
+    /**
+     * The maximum number of n-gram frequencies which are cached.
+     */
+    public static final String PARAM_CACHE_SIZE = "cacheSize";
+    @ConfigurationParameter(name = PARAM_CACHE_SIZE, mandatory = true, defaultValue = "100000")
+    private int cacheSize;
+    
+    /**
+     * A view of the cached n-gram frequencies.
+     */
     protected Map<String,Long> countCache;
     
+    private CachingFrequencyCountProvider cachingProvider;
+    
     @Override
     public void initialize(UimaContext context)
         throws ResourceInitializationException
     {
         super.initialize(context);
-        countCache = new HashMap<String,Long>();
+        cachingProvider = new CachingFrequencyCountProvider(provider, cacheSize);
+        countCache = cachingProvider.asMap();
     }
 
     @Override
@@ -133,18 +148,23 @@ public class CorrectionsContextualizer
             trigrams.add(trigram);
         }
         
-        // FIXME - implement backoff or linear interpolation
-
+        // Collect all n-grams of the sentence so they can be looked up in a single batch
+        List<String> ngrams = new ArrayList<String>();
         for (String trigram : trigrams) {
-            long trigramFreq = getNGramCount(trigram);
-
             String[] parts = StringUtils.split(trigram, " ");
-            
-            String bigram = StringUtils.join(Arrays.copyOfRange(parts, 0, 2), " ");
-            long bigramFreq = getNGramCount(bigram);
-            
-            String unigram = StringUtils.join(Arrays.copyOfRange(parts, 0, 1), " ");
-            long unigramFreq = getNGramCount(unigram);
+            ngrams.add(trigram);
+            ngrams.add(StringUtils.join(Arrays.copyOfRange(parts, 0, 2), " "));
+            ngrams.add(StringUtils.join(Arrays.copyOfRange(parts, 0, 1), " "));
+        }
+        
+        Map<String, Long> counts = getNGramCounts(ngrams);
+        
+        // FIXME - implement backoff or linear interpolation
+
+        for (int i = 0; i < ngrams.size(); i += 3) {
+            long trigramFreq = counts.get(ngrams.get(i));
+            long bigramFreq = counts.get(ngrams.get(i + 1));
+            long unigramFreq = counts.get(ngrams.get(i + 2));
 
             if (trigramFreq < 1) {
                 trigramFreq = 1;
@@ -169,15 +189,28 @@ public class CorrectionsContextualizer
     }
     
     protected long getNGramCount(String ngram) throws AnalysisEngineProcessException {
-        if (!countCache.containsKey(ngram)) {
-            try {
-                countCache.put(ngram, provider.getFrequency(ngram));
-            }
-            catch (Exception e) {
-                throw new AnalysisEngineProcessException(e);
+        try {
+            return cachingProvider.getFrequency(ngram);
+        }
+        catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+    
+    /**
+     * Get the counts of several n-grams at once. This is called once per sentence with all
+     * n-grams needed to score it. Override this method to look up the n-grams in a single batch.
+     * By default, {@link #getNGramCount(String)} is called for each n-gram.
+     */
+    protected Map<String, Long> getNGramCounts(List<String> ngrams)
+        throws AnalysisEngineProcessException
+    {
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (String ngram : ngrams) {
+            if (!counts.containsKey(ngram)) {
+                counts.put(ngram, getNGramCount(ngram));
             }
         }
-        
-        return countCache.get(ngram);
+        return counts;
     }
 }
\ No newline at end of file
@@ -35,7 +35,7 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.frequency.provider.FrequencyCountProvider;
-import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.FrequencyUtils;
+import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.ngrams.util.NGramStringIterable;
 
@@ -69,8 +69,27 @@ public class LanguageDetectorWeb1T
     @ConfigurationParameter(name = PARAM_MAX_NGRAM_SIZE, mandatory = true, defaultValue = "3")
     private int maxNGramSize;
 
+    /**
+     * The number of languages which are scored in parallel.
+     */
+    public static final String PARAM_NUM_THREADS = ComponentParameters.PARAM_NUM_THREADS;
+    @ConfigurationParameter(name = PARAM_NUM_THREADS, mandatory = true, defaultValue = "1")
+    private int numThreads;
+
+    /**
+     * Stop scoring a document once the leading language is ahead of every other language by this
+     * many standard deviations of the score projected for the full document. Longer documents are
+     * then only partially scored. Default is 0, which always scores the full document.
+     */
+    public static final String PARAM_EARLY_STOPPING_CONFIDENCE = "earlyStoppingConfidence";
+    @ConfigurationParameter(name = PARAM_EARLY_STOPPING_CONFIDENCE, mandatory = true,
+            defaultValue = "0")
+    private double earlyStoppingConfidence;
+
     private Map<String,FrequencyCountProvider> providerMap;
     
+    private LanguageScorer scorer;
+    
     @Override
     public void initialize(UimaContext context)
         throws ResourceInitializationException
@@ -87,6 +106,14 @@ public class LanguageDetectorWeb1T
                 throw new ResourceInitializationException(e);
             }
         }
+        
+        try {
+            scorer = new LanguageScorer(providerMap,
+                    ComponentParameters.computeNumThreads(numThreads), earlyStoppingConfidence);
+        }
+        catch (Exception e) {
+            throw new ResourceInitializationException(e);
+        }
     }
 
     @Override
@@ -110,7 +137,7 @@ public class LanguageDetectorWeb1T
         }
                 
         try {
-            Map<String,Double> langProbs = getLanguageProbabilities(ngrams);
+            Map<String,Double> langProbs = scorer.score(ngrams);
             
             String maxLanguage = "x-unspecified";
             double maxLogProb = Double.NEGATIVE_INFINITY;
@@ -120,7 +147,7 @@ public class LanguageDetectorWeb1T
                     maxLogProb = prob;
                     maxLanguage = lang;
                 }
-                System.out.println(lang + " - " + prob);
+                getLogger().debug(lang + " - " + prob);
             }
             jcas.setDocumentLanguage(maxLanguage);
         }
@@ -129,55 +156,13 @@ public class LanguageDetectorWeb1T
         }
     }
     
-    private Map<String,Double> getLanguageProbabilities(List<String> ngrams)
-            throws Exception
+    @Override
+    public void destroy()
     {
-        Map<String,Double> langProbs = new HashMap<String,Double>();
-       
-        for (String lang : providerMap.keySet()) {
-                                    
-            FrequencyCountProvider provider = providerMap.get(lang);
-            
-            long nrOfUnigrams = provider.getNrOfNgrams(1);
-            long nrOfBigrams  = provider.getNrOfNgrams(2);
-            long nrOfTrigrams = provider.getNrOfNgrams(3);
-            
-            double textLogProbability = 0.0;
-            
-            for (String ngram : ngrams) {
-                
-                long frequency = provider.getFrequency(ngram);
-
-                int ngramSize = FrequencyUtils.getPhraseLength(ngram);
-                                
-                long normalization = 1;
-                int weighting = 1;
-                if (ngramSize == 1) {
-                    normalization = nrOfUnigrams;
-                }
-                else if (ngramSize == 2) {
-                    weighting = 2;
-                    normalization = nrOfBigrams;
-                }
-                else if (ngramSize == 3) {
-                    weighting = 4;
-                    normalization = nrOfTrigrams;
-                }
-    
-                if (frequency > 0) {
-                    double logProb = Math.log( weighting * ((double) frequency) / normalization );
-                    
-                    textLogProbability += logProb;
-                }
-                else {
-                    textLogProbability += Math.log( 1.0 / normalization);
-                }
-            }
-            
-            langProbs.put(lang, textLogProbability);
+        if (scorer != null) {
+            scorer.close();
         }
-        
-        return langProbs;
+        super.destroy();
     }
     
     private String getNgram(String ...strings) {
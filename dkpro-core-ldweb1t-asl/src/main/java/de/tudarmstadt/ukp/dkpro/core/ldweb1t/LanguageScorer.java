@@ -0,0 +1,272 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.ldweb1t;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.provider.FrequencyCountProvider;
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.util.FrequencyUtils;
+
+/**
+ * Scores a text against the n-gram frequencies of several languages. The score of a language is
+ * the sum of the weighted and normalized log probabilities of the n-grams of the text.
+ * <p>
+ * Each distinct n-gram is looked up only once and its log probability is multiplied by the number
+ * of its occurrences. The numbers of n-grams used to normalize the frequencies are retrieved once
+ * when the scorer is created. The languages are scored in parallel if more than one thread is
+ * used.
+ * <p>
+ * If early stopping is enabled, the distinct n-grams are scored in rounds of increasing size.
+ * After each round, the per-occurrence score differences between the leading language and each
+ * other language are treated as samples. Scoring stops once the projected final margin of the
+ * leading language exceeds the given number of standard deviations of the projection for every
+ * other language. The scores returned in this case only cover the n-grams scored so far.
+ */
+public class LanguageScorer
+    implements Closeable
+{
+    private static final int FIRST_ROUND = 64;
+
+    private final String[] languages;
+    private final FrequencyCountProvider[] providers;
+    private final long[][] normalizations;
+    private final double confidence;
+    private final ExecutorService executor;
+
+    /**
+     * @param aProviders
+     *            the frequency provider for each language.
+     * @param aThreads
+     *            the number of languages to score in parallel.
+     * @param aConfidence
+     *            the number of standard deviations by which the leading language must be ahead to
+     *            stop scoring early. Use 0 to always score the full text.
+     * @throws IOException
+     *             if the n-gram counts cannot be retrieved from a provider.
+     */
+    public LanguageScorer(Map<String, FrequencyCountProvider> aProviders, int aThreads,
+            double aConfidence)
+        throws IOException
+    {
+        languages = aProviders.keySet().toArray(new String[aProviders.size()]);
+        providers = new FrequencyCountProvider[languages.length];
+        normalizations = new long[languages.length][];
+        for (int i = 0; i < languages.length; i++) {
+            providers[i] = aProviders.get(languages[i]);
+            normalizations[i] = new long[] { providers[i].getNrOfNgrams(1),
+                    providers[i].getNrOfNgrams(2), providers[i].getNrOfNgrams(3) };
+        }
+
+        confidence = aConfidence;
+
+        int threads = Math.min(aThreads, languages.length);
+        executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    }
+
+    /**
+     * Scores the given n-grams for every language.
+     *
+     * @param aNgrams
+     *            the n-grams of the text, including repetitions.
+     * @return the log probability of the text for every language.
+     * @throws IOException
+     *             if the frequencies cannot be retrieved.
+     */
+    public Map<String, Double> score(List<String> aNgrams)
+        throws IOException
+    {
+        // Count the n-grams, keeping the order of their first occurrence
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        for (String ngram : aNgrams) {
+            Integer count = counts.get(ngram);
+            counts.put(ngram, count == null ? 1 : count + 1);
+        }
+
+        String[] ngrams = counts.keySet().toArray(new String[counts.size()]);
+        int[] sizes = new int[ngrams.length];
+        int[] occurrences = new int[ngrams.length];
+        for (int i = 0; i < ngrams.length; i++) {
+            sizes[i] = FrequencyUtils.getPhraseLength(ngrams[i]);
+            occurrences[i] = counts.get(ngrams[i]);
+        }
+
+        double[][] logProbs = new double[languages.length][ngrams.length];
+        double[] scores = new double[languages.length];
+
+        boolean earlyStopping = confidence > 0 && languages.length > 1;
+        int scored = 0;
+        int round = earlyStopping ? FIRST_ROUND : ngrams.length;
+        while (scored < ngrams.length) {
+            int end = (int) Math.min((long) scored + round, ngrams.length);
+            scoreRound(ngrams, sizes, occurrences, scored, end, logProbs, scores);
+            scored = end;
+            round *= 2;
+
+            if (earlyStopping && scored < ngrams.length
+                    && isDecisive(occurrences, scored, aNgrams.size(), logProbs, scores)) {
+                break;
+            }
+        }
+
+        Map<String, Double> result = new HashMap<String, Double>();
+        for (int i = 0; i < languages.length; i++) {
+            result.put(languages[i], scores[i]);
+        }
+        return result;
+    }
+
+    private void scoreRound(String[] aNgrams, int[] aSizes, int[] aOccurrences, int aBegin,
+            int aEnd, double[][] aLogProbs, double[] aScores)
+        throws IOException
+    {
+        List<String> batch = new ArrayList<String>(aEnd - aBegin);
+        for (int i = aBegin; i < aEnd; i++) {
+            batch.add(aNgrams[i]);
+        }
+
+        if (executor == null) {
+            for (int l = 0; l < languages.length; l++) {
+                aScores[l] += scoreLanguage(l, batch, aSizes, aOccurrences, aBegin,
+                        aLogProbs[l]);
+            }
+            return;
+        }
+
+        List<Future<Double>> futures = new ArrayList<Future<Double>>();
+        for (int l = 0; l < languages.length; l++) {
+            final int language = l;
+            futures.add(executor.submit(new Callable<Double>()
+            {
+                @Override
+                public Double call()
+                    throws IOException
+                {
+                    return scoreLanguage(language, batch, aSizes, aOccurrences, aBegin,
+                            aLogProbs[language]);
+                }
+            }));
+        }
+
+        for (int l = 0; l < languages.length; l++) {
+            try {
+                aScores[l] += futures.get(l).get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private double scoreLanguage(int aLanguage, List<String> aBatch, int[] aSizes,
+            int[] aOccurrences, int aBegin, double[] aLogProbs)
+        throws IOException
+    {
+        Map<String, Long> frequencies = providers[aLanguage].getFrequencies(aBatch);
+
+        double score = 0.0;
+        for (int i = 0; i < aBatch.size(); i++) {
+            int n = aBegin + i;
+            long frequency = frequencies.get(aBatch.get(i));
+
+            long normalization = 1;
+            int weighting = 1;
+            if (aSizes[n] >= 1 && aSizes[n] <= 3) {
+                normalization = normalizations[aLanguage][aSizes[n] - 1];
+                weighting = 1 << (aSizes[n] - 1);
+            }
+
+            if (frequency > 0) {
+                aLogProbs[n] = Math.log(weighting * ((double) frequency) / normalization);
+            }
+            else {
+                aLogProbs[n] = Math.log(1.0 / normalization);
+            }
+            score += aOccurrences[n] * aLogProbs[n];
+        }
+        return score;
+    }
+
+    private boolean isDecisive(int[] aOccurrences, int aScored, int aTotal,
+            double[][] aLogProbs, double[] aScores)
+    {
+        int leader = 0;
+        for (int l = 1; l < languages.length; l++) {
+            if (aScores[l] > aScores[leader]) {
+                leader = l;
+            }
+        }
+
+        for (int other = 0; other < languages.length; other++) {
+            if (other == leader) {
+                continue;
+            }
+
+            long seen = 0;
+            double margin = 0.0;
+            for (int i = 0; i < aScored; i++) {
+                seen += aOccurrences[i];
+                margin += aOccurrences[i] * (aLogProbs[leader][i] - aLogProbs[other][i]);
+            }
+            double mean = margin / seen;
+            double variance = 0.0;
+            for (int i = 0; i < aScored; i++) {
+                double d = aLogProbs[leader][i] - aLogProbs[other][i] - mean;
+                variance += aOccurrences[i] * d * d;
+            }
+            variance /= seen;
+
+            // The remaining occurrences are assumed to follow the observed distribution. The
+            // spread of the projection covers both the remaining samples and the uncertainty of
+            // the estimated mean.
+            long remaining = aTotal - seen;
+            double projected = margin + remaining * mean;
+            double deviation = Math.sqrt(variance * (remaining + (double) remaining * remaining
+                    / seen));
+            if (!(projected > confidence * deviation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close()
+    {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
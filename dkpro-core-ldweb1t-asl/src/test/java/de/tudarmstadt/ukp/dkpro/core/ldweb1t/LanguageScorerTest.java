@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.ldweb1t;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.provider.FrequencyCountProvider;
+import de.tudarmstadt.ukp.dkpro.core.api.frequency.provider.FrequencyCountProviderBase;
+
+public class LanguageScorerTest
+{
+    @Test
+    public void testScore()
+        throws Exception
+    {
+        Map<String, FrequencyCountProvider> providers = new HashMap<>();
+        providers.put("a", new VowelProvider('a'));
+        providers.put("e", new VowelProvider('e'));
+
+        List<String> ngrams = new ArrayList<>();
+        ngrams.add("ba");
+        ngrams.add("ba");
+        ngrams.add("ba be");
+        ngrams.add("x y z");
+        ngrams.add("w x y z");
+
+        try (LanguageScorer scorer = new LanguageScorer(providers, 1, 0)) {
+            Map<String, Double> scores = scorer.score(ngrams);
+            // 2 * log(10 / 1000) + log(2 * 10 / 100) + log(1 / 10) + log(1 / 1)
+            assertEquals(2 * Math.log(0.01) + Math.log(0.2) + Math.log(0.1),
+                    scores.get("a"), 1e-9);
+            // 2 * log(1 / 1000) + log(2 * 10 / 100) + log(1 / 10) + log(1 / 1)
+            assertEquals(2 * Math.log(0.001) + Math.log(0.2) + Math.log(0.1),
+                    scores.get("e"), 1e-9);
+        }
+    }
+
+    @Test
+    public void testParallelAndEarlyStopping()
+        throws Exception
+    {
+        Map<String, FrequencyCountProvider> providers = new HashMap<>();
+        VowelProvider a = new VowelProvider('a');
+        VowelProvider e = new VowelProvider('e');
+        VowelProvider i = new VowelProvider('i');
+        providers.put("a", a);
+        providers.put("e", e);
+        providers.put("i", i);
+
+        Random random = new Random(42);
+        List<String> ngrams = new ArrayList<>();
+        for (int n = 0; n < 5000; n++) {
+            ngrams.add("b" + (random.nextInt(4) == 0 ? "e" : "a") + random.nextInt(2000));
+        }
+
+        Map<String, Double> expected;
+        try (LanguageScorer scorer = new LanguageScorer(providers, 1, 0)) {
+            expected = scorer.score(ngrams);
+        }
+        long lookups = a.lookups;
+
+        try (LanguageScorer scorer = new LanguageScorer(providers, 3, 0)) {
+            Map<String, Double> scores = scorer.score(ngrams);
+            for (String language : expected.keySet()) {
+                assertEquals(expected.get(language), scores.get(language), 1e-6);
+            }
+        }
+
+        a.lookups = 0;
+        try (LanguageScorer scorer = new LanguageScorer(providers, 3, 3)) {
+            Map<String, Double> scores = scorer.score(ngrams);
+            assertTrue(scores.get("a") > scores.get("e"));
+            assertTrue(scores.get("a") > scores.get("i"));
+        }
+        assertTrue(a.lookups < lookups / 2);
+    }
+
+    /**
+     * Frequent phrases are those containing the vowel of the language.
+     */
+    private static class VowelProvider
+        extends FrequencyCountProviderBase
+    {
+        private final char vowel;
+        private volatile long lookups;
+
+        public VowelProvider(char aVowel)
+        {
+            vowel = aVowel;
+        }
+
+        @Override
+        protected long getFrequencyFromProvider(String phrase)
+        {
+            lookups++;
+            return phrase.indexOf(vowel) >= 0 ? 10 : 0;
+        }
+
+        @Override
+        public long getNrOfNgrams(int n)
+        {
+            return (long) Math.pow(10, 4 - n);
+        }
+
+        @Override
+        public long getNrOfTokens()
+        {
+            return getNrOfNgrams(1);
+        }
+
+        @Override
+        public long getNrOfDistinctNgrams(int n)
+        {
+            return getNrOfNgrams(n);
+        }
+
+        @Override
+        public Iterator<String> getNgramIterator(int n)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getLanguage()
+        {
+            return String.valueOf(vowel);
+        }
+    }
+}
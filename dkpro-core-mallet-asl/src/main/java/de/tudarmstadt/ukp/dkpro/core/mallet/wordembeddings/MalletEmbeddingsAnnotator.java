@@ -17,17 +17,18 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.mallet.wordembeddings;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.mallet.MalletModelTrainer;
 import de.tudarmstadt.ukp.dkpro.core.mallet.type.WordEmbedding;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.cas.Type;
+import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.descriptor.TypeCapability;
-import org.apache.uima.fit.util.CasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FloatArray;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -37,7 +38,11 @@ import org.dkpro.core.api.embeddings.text.TextFormatVectorizer;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Reads word embeddings from a file and adds {@link WordEmbedding} annotations to tokens/lemmas.
@@ -93,6 +98,7 @@ public class MalletEmbeddingsAnnotator
     public static final String PARAM_TOKEN_FEATURE_PATH = MalletModelTrainer.PARAM_TOKEN_FEATURE_PATH;
     @ConfigurationParameter(name = PARAM_TOKEN_FEATURE_PATH, mandatory = true, defaultValue = "de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token")
     private String tokenFeaturePath;
+    private CompiledFeaturePath featurePath;
 
     /**
      * If set to true (default: false), all tokens are lowercased.
@@ -101,6 +107,16 @@ public class MalletEmbeddingsAnnotator
     @ConfigurationParameter(name = PARAM_LOWERCASE, mandatory = true, defaultValue = "false")
     private boolean lowercase;
 
+    /**
+     * If set to true (default: false), all annotations for the same word within a document share
+     * a single {@link FloatArray} holding the embedding. This saves memory and time, but the arrays
+     * must then not be modified by downstream components. Note that formats which do not support
+     * multiple references to the same array (e.g. XMI) store a separate copy per annotation.
+     */
+    public static final String PARAM_SHARE_EMBEDDING_ARRAYS = "shareEmbeddingArrays";
+    @ConfigurationParameter(name = PARAM_SHARE_EMBEDDING_ARRAYS, mandatory = true, defaultValue = "false")
+    private boolean shareEmbeddingArrays;
+
     @Override
     public void initialize(UimaContext context)
             throws ResourceInitializationException
@@ -130,59 +146,78 @@ public class MalletEmbeddingsAnnotator
     public void process(JCas aJCas)
             throws AnalysisEngineProcessException
     {
-        Type type = aJCas.getTypeSystem().getType(tokenFeaturePath);
+        CAS cas = aJCas.getCas();
+        try {
+            featurePath = CompiledFeaturePath.compile(cas.getTypeSystem(), tokenFeaturePath,
+                    featurePath);
+        }
+        catch (FeaturePathException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
 
-        for (AnnotationFS token : CasUtil.select(aJCas.getCas(), type)) {
-            try {
-                addAnnotation(aJCas, token.getCoveredText(), token.getBegin(), token.getEnd());
+        int size = cas.getAnnotationIndex(featurePath.getType()).size();
+        String[] texts = new String[size];
+        AnnotationFS[] tokens = new AnnotationFS[size];
+        featurePath.extract(cas, featurePath.getType(), texts, tokens);
+
+        // Map each token to its word type so each distinct word is looked up only once
+        int[] tokenTypes = new int[size];
+        Map<String, Integer> typeIndex = new HashMap<>();
+        List<String> types = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (texts[i] == null) {
+                // Feature path cannot be evaluated for this token, e.g. no lemma
+                tokenTypes[i] = -1;
+                continue;
             }
-            catch (IOException e) {
-                throw new AnalysisEngineProcessException(e);
+            String type = lowercase ? texts[i].toLowerCase(Locale.ROOT) : texts[i];
+            Integer index = typeIndex.get(type);
+            if (index == null) {
+                index = types.size();
+                types.add(type);
+                typeIndex.put(type, index);
             }
+            tokenTypes[i] = index;
         }
-    }
 
-    private void addAnnotation(JCas aJCas, String text, int begin, int end)
-            throws IOException
-    {
-        if (lowercase) {
-            text = text.toLowerCase();
+        List<float[]> vectors;
+        try {
+            vectors = vectorizer.vectorizeAll(types);
+        }
+        catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
         }
-        Optional<float[]> vector = getVector(text);
 
-        if (vector.isPresent()) {
-            WordEmbedding embedding = new WordEmbedding(aJCas, begin, end);
-            FloatArray array = new FloatArray(aJCas, vector.get().length);
-            for (int i = 0; i < vector.get().length; i++) {
-                array.set(i, vector.get()[i]);
+        FloatArray[] sharedArrays = shareEmbeddingArrays ? new FloatArray[types.size()] : null;
+        for (int i = 0; i < size; i++) {
+            int index = tokenTypes[i];
+            if (index < 0) {
+                continue;
+            }
+            // Unknown tokens are reported as null. If they are to be annotated, they get a
+            // stable random vector. Otherwise, they are skipped.
+            float[] vector = vectors.get(index);
+            if (vector == null) {
+                if (!annotateUnknownTokens) {
+                    getLogger().debug(types.get(index) + " not found in embeddings list.");
+                    continue;
+                }
+                vector = vectorizer.unknownVector();
             }
+
+            FloatArray array = sharedArrays != null ? sharedArrays[index] : null;
+            if (array == null) {
+                array = new FloatArray(aJCas, vector.length);
+                array.copyFromArray(vector, 0, 0, vector.length);
+                if (sharedArrays != null) {
+                    sharedArrays[index] = array;
+                }
+            }
+
+            AnnotationFS token = tokens[i];
+            WordEmbedding embedding = new WordEmbedding(aJCas, token.getBegin(), token.getEnd());
             embedding.setWordEmbedding(array);
             embedding.addToIndexes(aJCas);
         }
-        else {
-            getLogger().debug(text + " not found in embeddings list.");
-        }
-    }
-
-    /**
-     * If {@link #PARAM_ANNOTATE_UNKNOWN_TOKENS} is set to true, always return a vector retrieved
-     * from the vectorizer, which should hold a stable random vector for unknown tokens.
-     * Otherwise, return a vector for known tokens, or none if the token is unknown.
-     *
-     * @param token a token for which to look up an embedding
-     * @return an {@code Optional<float[]>} that holds the token embedding or is empty if no embeddings is available for the token
-     * @throws IOException if an I/O error occurs
-     */
-    private Optional<float[]> getVector(String token)
-            throws IOException
-    {
-        if (annotateUnknownTokens) {
-            return Optional.of(vectorizer.vectorize(token));
-        }
-        else {
-            return vectorizer.contains(token) ?
-                    Optional.of(vectorizer.vectorize(token)) :
-                    Optional.empty();
-        }
     }
 }
@@ -26,6 +26,7 @@ import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.collection.CollectionReaderDescription;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FloatArray;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.dkpro.core.api.embeddings.VectorizerUtils;
 import org.junit.Before;
@@ -35,12 +36,15 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class MalletEmbeddingsAnnotatorTest
@@ -168,6 +172,33 @@ public class MalletEmbeddingsAnnotatorTest
         }
     }
 
+    @Test
+    public void testShareEmbeddingArrays()
+            throws ResourceInitializationException
+    {
+        CollectionReaderDescription reader = createReaderDescription(TextReader.class,
+                TextReader.PARAM_SOURCE_LOCATION, TXT_DIR,
+                TextReader.PARAM_PATTERNS, TXT_FILE_PATTERN,
+                TextReader.PARAM_LANGUAGE, "en");
+        AnalysisEngineDescription segmenter = createEngineDescription(BreakIteratorSegmenter.class);
+
+        AnalysisEngineDescription inferencer = createEngineDescription(
+                MalletEmbeddingsAnnotator.class,
+                MalletEmbeddingsAnnotator.PARAM_MODEL_LOCATION, modelFile,
+                MalletEmbeddingsAnnotator.PARAM_SHARE_EMBEDDING_ARRAYS, true);
+
+        for (JCas jcas : SimplePipeline.iteratePipeline(reader, segmenter, inferencer)) {
+            Map<String, FloatArray> arrays = new HashMap<>();
+            for (WordEmbedding embedding : select(jcas, WordEmbedding.class)) {
+                FloatArray previous = arrays.putIfAbsent(embedding.getCoveredText(),
+                        embedding.getWordEmbedding());
+                if (previous != null) {
+                    assertSame(previous, embedding.getWordEmbedding());
+                }
+            }
+        }
+    }
+
     @Test(expected = ResourceInitializationException.class)
     public void testLowercaseCaseless()
             throws UIMAException, IOException
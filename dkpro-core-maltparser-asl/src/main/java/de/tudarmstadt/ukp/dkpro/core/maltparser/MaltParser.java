@@ -27,10 +27,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -63,6 +67,7 @@ import de.tudarmstadt.ukp.dkpro.core.api.metadata.SingletonTagset;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.CasConfigurableProviderBase;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ModelProviderBase;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.SentenceParallelExecutor;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
@@ -100,6 +105,9 @@ public class MaltParser
 	extends JCasAnnotator_ImplBase
 {
     private static final String UNUSED = "_";
+
+    // Option container 0 is used by the default parser, additional parsers each need their own
+    private static final AtomicInteger OPTION_CONTAINER = new AtomicInteger();
     
 	/**
 	 * Use this language instead of the document language to resolve the model.
@@ -141,17 +149,30 @@ public class MaltParser
     @ConfigurationParameter(name = PARAM_IGNORE_MISSING_FEATURES, mandatory = true, defaultValue = "false")
     protected boolean ignoreMissingFeatures;
 
+	/**
+	 * Number of sentences to parse in parallel. MaltParser is not thread-safe, so every thread
+	 * loads its own copy of the model.
+	 *
+	 * Default: {@code 1}
+	 */
+	public static final String PARAM_NUM_THREADS = ComponentParameters.PARAM_NUM_THREADS;
+	@ConfigurationParameter(name = PARAM_NUM_THREADS, mandatory = true, defaultValue = "1")
+	private int numThreads;
+
 	// Not sure if we'll ever have to use different symbol tables
     // public static final String SYMBOL_TABLE = "symbolTableName";
     // @ConfigurationParameter(name = SYMBOL_TABLE, mandatory = true, defaultValue = "DEPREL")
 	private final String symbolTableName = "DEPREL";
 
 	private Logger logger;
-	private SymbolTable symbolTable;
 	private File workingDir;
 
 	private CasConfigurableProviderBase<MaltParserService> modelProvider;
 	private Set<String> features;
+	private SentenceParallelExecutor<String[], List<Arc>> executor;
+	// One parser per thread, each parse borrows a parser which is not used by any other thread
+	private final BlockingQueue<MaltParserService> parsers =
+			new LinkedBlockingQueue<MaltParserService>();
 
 
 	@Override
@@ -162,6 +183,9 @@ public class MaltParser
 
 		logger = getContext().getLogger();
 
+		numThreads = ComponentParameters.computeNumThreads(numThreads);
+		executor = new SentenceParallelExecutor<String[], List<Arc>>(numThreads);
+
 		try {
 			workingDir = File.createTempFile("maltparser", ".tmp");
 			workingDir.delete();
@@ -173,8 +197,6 @@ public class MaltParser
 		}
 
 		modelProvider = new ModelProviderBase<MaltParserService>(this, "maltparser", "parser") {
-			private MaltParserService parser;
-
 			{
 				setDefault(VARIANT, "linear");
 			}
@@ -182,17 +204,7 @@ public class MaltParser
 			@Override
 			protected MaltParserService produceResource(URL aUrl) throws IOException
 			{
-				if (parser != null) {
-					// Terminates the parser model
-					try {
-						parser.terminateParserModel();
-						parser = null;
-					}
-					catch (MaltChainedException e) {
-						logger.log(Level.SEVERE,
-								"MaltParser exception while terminating parser model: " + e.getMessage());
-					}
-				}
+				terminateParsers();
 
 				try {
 				    // Warn if the model uses features that we currently do not support
@@ -242,10 +254,21 @@ public class MaltParser
 					}
 
 					// Ok, now we can finally initialize the parser
-					parser = new MaltParserService();
+					MaltParserService parser = new MaltParserService();
 					parser.initializeParserModel("-w " + workingDir + " -c " + modelFile.getName()
 							+ " -m parse");
 					// parser.initializeParserModel("-u " + modelUrl.toString() + " -m parse");
+					parsers.add(parser);
+
+					// The additional parsers are initialized here on the calling thread because
+					// the option manager they register with is not thread-safe
+					for (int i = 1; i < numThreads; i++) {
+						MaltParserService workerParser = new MaltParserService(
+								OPTION_CONTAINER.incrementAndGet());
+						workerParser.initializeParserModel("-w " + workingDir + " -c "
+								+ modelFile.getName() + " -m parse");
+						parsers.add(workerParser);
+					}
 
 
 	                Properties metadata = getResourceMetaData();
@@ -300,12 +323,43 @@ public class MaltParser
 		}
 	}
 
+	@Override
+	public void destroy()
+	{
+		if (executor != null) {
+			executor.close();
+		}
+		terminateParsers();
+
+		super.destroy();
+	}
+
+	private void terminateParsers()
+	{
+		MaltParserService parser;
+		while ((parser = parsers.poll()) != null) {
+			// Terminates the parser model
+			try {
+				parser.terminateParserModel();
+			}
+			catch (MaltChainedException e) {
+				logger.log(Level.SEVERE,
+						"MaltParser exception while terminating parser model: " + e.getMessage());
+			}
+		}
+	}
+
 	@Override
 	public void process(JCas aJCas)
 		throws AnalysisEngineProcessException
 	{
 		modelProvider.configure(aJCas.getCas());
 
+		// Extract the parser input of all sentences first, then parse them in parallel and add
+		// the dependencies to the CAS in order
+		List<List<Token>> sentenceTokens = new ArrayList<List<Token>>();
+		List<String[]> parserInputs = new ArrayList<String[]>();
+
 		// Iterate over all sentences
 		for (Sentence curSentence : select(aJCas, Sentence.class)) {
 
@@ -377,73 +431,110 @@ public class MaltParser
                         postag, feats);
 			}
 
-			// Parse sentence
-			DependencyStructure graph = null;
+			sentenceTokens.add(tokens);
+			parserInputs.add(parserInput);
+		}
+
+		executor.process(parserInputs, parserInput -> {
+			MaltParserService parser = parsers.take();
 			try {
-				// Parses the sentence
-				graph = modelProvider.getResource().parse(parserInput);
-				symbolTable = graph.getSymbolTables().getSymbolTable(symbolTableName);
+				return parse(parser, parserInput);
 			}
-			catch (MaltChainedException e) {
-				logger.log(Level.WARNING,
-						"MaltParser exception while parsing sentence: " + e.getMessage(), e);
-				// don't pass on exception - go on with next sentence
-				continue;
+			finally {
+				parsers.put(parser);
 			}
+		}, (i, arcs) -> {
+			if (arcs != null) {
+				createDependencies(aJCas, sentenceTokens.get(i), arcs);
+			}
+		});
+	}
 
-			/*
-			 * Generate annotations: NOTE: Index of token in tokenList corresponds to node in
-			 * DependencyGraph with NodeIndex+1
-			 */
-			try {
-				// iterate over all tokens in current sentence
-				for (int i = 0; i < tokens.size(); i++) {
-					// Start with Node 1 - we omit ROOT-dependencies,
-					// because we don't have a ROOT-token.
-					TokenNode curNode = graph.getTokenNode(i + 1);
-
-					// iterate over all dependencies for current token
-					for (Edge edge : curNode.getHeadEdges()) {
-						int sourceIdx = edge.getSource().getIndex();
-						int targetIdx = edge.getTarget().getIndex();
-
-						// get corresponding token for node in DependencyGraph
-						Token sourceToken = sourceIdx > 0 ? tokens.get(sourceIdx - 1) : null;
-						Token targetToken = targetIdx > 0 ? tokens.get(targetIdx - 1) : null;
-
-						// create dep-annotation for current edge
-						if (sourceToken != null && targetToken != null) {
-							Dependency dep = new Dependency(aJCas);
-                            dep.setDependencyType(edge.getLabelSymbol(symbolTable));
-                            dep.setFlavor(DependencyFlavor.BASIC);
-							dep.setGovernor(sourceToken); // TODO check if source=Governor
-							dep.setDependent(targetToken); // TODO check if target=Dependent
-		                    dep.setBegin(dep.getDependent().getBegin());
-		                    dep.setEnd(dep.getDependent().getEnd());
-							dep.addToIndexes();
-						}
-						else if (targetToken != null && sourceToken == null) {
-                            Dependency dep = new ROOT(aJCas);
-                            // Trying to get the label triggers Exception
-                            dep.setDependencyType("ROOT");
-                            dep.setFlavor(DependencyFlavor.BASIC);
-                            dep.setGovernor(targetToken);
-                            dep.setDependent(targetToken);
-                            dep.setBegin(dep.getDependent().getBegin());
-                            dep.setEnd(dep.getDependent().getEnd());
-                            dep.addToIndexes();
-						}
-						else {
-						    throw new IllegalStateException("Source token must exist.");
-						}
-					}
+	/**
+	 * Parses a sentence and extracts the arcs from the graph. This has to happen while the parser
+	 * is still borrowed because labels are resolved through the symbol tables of the parser.
+	 *
+	 * @return the arcs or {@code null} if the sentence could not be parsed.
+	 */
+	private List<Arc> parse(MaltParserService aParser, String[] aParserInput)
+	{
+		// Parse sentence
+		DependencyStructure graph = null;
+		SymbolTable symbolTable = null;
+		try {
+			// Parses the sentence
+			graph = aParser.parse(aParserInput);
+			symbolTable = graph.getSymbolTables().getSymbolTable(symbolTableName);
+		}
+		catch (MaltChainedException e) {
+			logger.log(Level.WARNING,
+					"MaltParser exception while parsing sentence: " + e.getMessage(), e);
+			// don't pass on exception - go on with next sentence
+			return null;
+		}
+
+		/*
+		 * NOTE: Index of token in tokenList corresponds to node in DependencyGraph with
+		 * NodeIndex+1
+		 */
+		try {
+			List<Arc> arcs = new ArrayList<Arc>();
+			// iterate over all tokens in current sentence
+			for (int i = 0; i < aParserInput.length; i++) {
+				// Start with Node 1 - we omit ROOT-dependencies,
+				// because we don't have a ROOT-token.
+				TokenNode curNode = graph.getTokenNode(i + 1);
+
+				// iterate over all dependencies for current token
+				for (Edge edge : curNode.getHeadEdges()) {
+					int sourceIdx = edge.getSource().getIndex();
+					int targetIdx = edge.getTarget().getIndex();
+					// Trying to get the label of a ROOT edge triggers Exception
+					String label = sourceIdx > 0 && targetIdx > 0
+							? edge.getLabelSymbol(symbolTable) : "ROOT";
+					arcs.add(new Arc(sourceIdx, targetIdx, label));
 				}
 			}
-			catch (MaltChainedException e) {
-				logger.log(Level.WARNING, "MaltParser exception creating dependency annotations: "
-						+ e.getMessage(), e);
-				// don't pass on exception - go on with next sentence
-				continue;
+			return arcs;
+		}
+		catch (MaltChainedException e) {
+			logger.log(Level.WARNING, "MaltParser exception creating dependency annotations: "
+					+ e.getMessage(), e);
+			// don't pass on exception - go on with next sentence
+			return null;
+		}
+	}
+
+	private void createDependencies(JCas aJCas, List<Token> aTokens, List<Arc> aArcs)
+	{
+		for (Arc arc : aArcs) {
+			// get corresponding token for node in DependencyGraph
+			Token sourceToken = arc.source > 0 ? aTokens.get(arc.source - 1) : null;
+			Token targetToken = arc.target > 0 ? aTokens.get(arc.target - 1) : null;
+
+			// create dep-annotation for current edge
+			if (sourceToken != null && targetToken != null) {
+				Dependency dep = new Dependency(aJCas);
+				dep.setDependencyType(arc.label);
+				dep.setFlavor(DependencyFlavor.BASIC);
+				dep.setGovernor(sourceToken); // TODO check if source=Governor
+				dep.setDependent(targetToken); // TODO check if target=Dependent
+				dep.setBegin(dep.getDependent().getBegin());
+				dep.setEnd(dep.getDependent().getEnd());
+				dep.addToIndexes();
+			}
+			else if (targetToken != null && sourceToken == null) {
+				Dependency dep = new ROOT(aJCas);
+				dep.setDependencyType(arc.label);
+				dep.setFlavor(DependencyFlavor.BASIC);
+				dep.setGovernor(targetToken);
+				dep.setDependent(targetToken);
+				dep.setBegin(dep.getDependent().getBegin());
+				dep.setEnd(dep.getDependent().getEnd());
+				dep.addToIndexes();
+			}
+			else {
+				throw new IllegalStateException("Source token must exist.");
 			}
 		}
 	}
@@ -522,4 +613,18 @@ public class MaltParser
             IOUtils.closeQuietly(jis);
         }
 	}
+
+	private static class Arc
+	{
+		final int source;
+		final int target;
+		final String label;
+
+		Arc(int aSource, int aTarget, String aLabel)
+		{
+			source = aSource;
+			target = aTarget;
+			label = aLabel;
+		}
+	}
 }
@@ -51,6 +51,7 @@ import de.tudarmstadt.ukp.dkpro.core.nlp4j.internal.Uima2EmoryNlp;
 import edu.emory.mathcs.nlp.common.util.NLPUtils;
 import edu.emory.mathcs.nlp.component.dep.DEPState;
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica;
 import edu.emory.mathcs.nlp.component.template.node.NLPNode;
 
 /**
@@ -123,6 +124,7 @@ public class Nlp4JDependencyParser
     protected boolean ignoreMissingFeatures;
     
     private Nlp4JDependencyParserModelProvider modelProvider;
+    private GlobalLexica<NLPNode> lexica;
     private MappingProvider mappingProvider;
     
     @Override
@@ -148,7 +150,7 @@ public class Nlp4JDependencyParser
         
         for (Sentence sentence : select(aJCas, Sentence.class)) {
             List<Token> tokens = selectCovered(aJCas, Token.class, sentence);
-            NLPNode[] nodes = Uima2EmoryNlp.convertSentence(tokens);
+            NLPNode[] nodes = Uima2EmoryNlp.convertSentence(tokens, lexica);
             
             // Process the sentences - new results will be stored in the existing NLPNodes
             modelProvider.getResource().process(nodes);
@@ -175,8 +177,6 @@ public class Nlp4JDependencyParser
                         "Emory NLP4J supports only English"));
             }
             
-            EmoryNlpUtils.initGlobalLexica();
-
             // Load the POS tagger model from the location the model provider offers
             OnlineComponent<NLPNode, DEPState<NLPNode>> component = (OnlineComponent) 
                     NLPUtils.getComponent(aStream);
@@ -224,6 +224,9 @@ public class Nlp4JDependencyParser
                 }
             }
 
+            // Load only the lexica the model actually uses
+            lexica = EmoryNlpUtils.createGlobalLexica(features);
+
             return component;
         }
     };
@@ -49,6 +49,7 @@ import de.tudarmstadt.ukp.dkpro.core.nlp4j.internal.Uima2EmoryNlp;
 import edu.emory.mathcs.nlp.common.util.NLPUtils;
 import edu.emory.mathcs.nlp.component.ner.NERState;
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica;
 import edu.emory.mathcs.nlp.component.template.node.NLPNode;
 
 /**
@@ -120,6 +121,7 @@ public class Nlp4JNamedEntityRecognizer
     protected boolean ignoreMissingFeatures;
 
     private Nlp4JNamedEntityRecognizerModelProvider modelProvider;
+    private GlobalLexica<NLPNode> lexica;
     private MappingProvider mappingProvider;
 
     @Override
@@ -151,7 +153,7 @@ public class Nlp4JNamedEntityRecognizer
 
         for (Sentence sentence : select(aJCas, Sentence.class)) {
             List<Token> tokens = selectCovered(aJCas, Token.class, sentence);
-            NLPNode[] nodes = Uima2EmoryNlp.convertSentence(tokens);
+            NLPNode[] nodes = Uima2EmoryNlp.convertSentence(tokens, lexica);
             
             // Process the sentences - new results will be stored in the existing NLPNodes
             modelProvider.getResource().process(nodes);
@@ -179,8 +181,6 @@ public class Nlp4JNamedEntityRecognizer
                         "Emory NLP4J supports only English"));
             }
 
-            EmoryNlpUtils.initGlobalLexica();
-
             // Load the POS tagger model from the location the model provider offers
             OnlineComponent<NLPNode, NERState<NLPNode>> component = (OnlineComponent) NLPUtils
                     .getComponent(aStream);
@@ -210,6 +210,9 @@ public class Nlp4JNamedEntityRecognizer
                 }
             }
 
+            // Load only the lexica the model actually uses
+            lexica = EmoryNlpUtils.createGlobalLexica(features);
+
             return component;
         }
     };
@@ -48,6 +48,7 @@ import de.tudarmstadt.ukp.dkpro.core.nlp4j.internal.OnlineComponentTagsetDescrip
 import de.tudarmstadt.ukp.dkpro.core.nlp4j.internal.Uima2EmoryNlp;
 import edu.emory.mathcs.nlp.component.pos.POSState;
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica;
 import edu.emory.mathcs.nlp.component.template.node.NLPNode;
 import edu.emory.mathcs.nlp.common.util.NLPUtils;
 
@@ -120,6 +121,7 @@ public class Nlp4JPosTagger
     protected boolean ignoreMissingFeatures;
 
 	private Nlp4JPosTaggerModelProvider modelProvider;
+	private GlobalLexica<NLPNode> lexica;
 	private MappingProvider mappingProvider;
 
 	@Override
@@ -150,7 +152,7 @@ public class Nlp4JPosTagger
 
         for (Sentence sentence : select(aJCas, Sentence.class)) {
             List<Token> tokens = selectCovered(aJCas, Token.class, sentence);
-            NLPNode[] nodes = Uima2EmoryNlp.convertSentence(tokens);
+            NLPNode[] nodes = Uima2EmoryNlp.convertSentence(tokens, lexica);
             
             // Process the sentences - new results will be stored in the existing NLPNodes
             modelProvider.getResource().process(nodes);
@@ -178,8 +180,6 @@ public class Nlp4JPosTagger
                         "Emory NLP4J supports only English"));
             }
             
-            EmoryNlpUtils.initGlobalLexica();
-
             // Load the POS tagger model from the location the model provider offers
             OnlineComponent<NLPNode, POSState<NLPNode>> component = (OnlineComponent) 
                     NLPUtils.getComponent(aStream);
@@ -209,6 +209,9 @@ public class Nlp4JPosTagger
                 }
             }
 
+            // Load only the lexica the model actually uses
+            lexica = EmoryNlpUtils.createGlobalLexica(features);
+
             // Create a new POS tagger instance from the loaded model
             return component;
         }
@@ -19,17 +19,26 @@ package de.tudarmstadt.ukp.dkpro.core.nlp4j.internal;
 
 import static java.util.Arrays.asList;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.util.Level;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -45,56 +54,189 @@ import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexicon;;
 
 public class EmoryNlpUtils
 {
-    private static GlobalLexica<NLPNode> lexica;
-    
-    public static synchronized void initGlobalLexica()
-        throws IOException, ParserConfigurationException
-    {
-        if (lexica != null) {
-            return;
-        }
+    /**
+     * System property pointing to the directory in which the lexicon snapshots are created. The
+     * snapshots are created from the NLP4J lexica on first use and memory-mapped afterwards. A
+     * snapshot is re-created if the size or the modification time of its lexicon changes. If
+     * the property is set to an empty value, no snapshots are used and the lexica are
+     * deserialized directly. Default: {@code nlp4j-lexica} in {@code $DKPRO_HOME} or, if that is
+     * not set, in {@code ~/.dkpro}.
+     */
+    public static final String PROP_LEXICA_SNAPSHOT_DIR = "dkpro.nlp4j.lexica.snapshotDir";
 
-        // Cf. classpath:/edu/emory/mathcs/nlp/configuration/config-decode-en.xml
-        
-        String LEXICA_PREFIX = "classpath:/edu/emory/mathcs/nlp/lexica/";
+    // Cf. classpath:/edu/emory/mathcs/nlp/configuration/config-decode-en.xml
+    private static final String LEXICA_PREFIX = "classpath:/edu/emory/mathcs/nlp/lexica/";
+
+    private static final String AMBIGUITY_CLASSES = "en-ambiguity-classes-simplified-lowercase";
+    private static final String WORD_CLUSTERS = "en-brown-clusters-simplified-lowercase";
+    private static final String NAMED_ENTITY_GAZETTEERS = "en-named-entity-gazetteers-simplified";
+    private static final String WORD_EMBEDDINGS = "en-word-embeddings-undigitalized";
+
+    // Each lexicon is loaded on first use only, so e.g. a component using only embeddings does not
+    // have to load the gazetteers
+    private static final LazyLexicon<Map<String, List<String>>> ambiguityClasses =
+            new LazyLexicon<>(() -> loadSnapshot(AMBIGUITY_CLASSES, false,
+                    LexiconSnapshot::asListMap));
+    private static final LazyLexicon<Map<String, Set<String>>> wordClusters =
+            new LazyLexicon<>(() -> loadSnapshot(WORD_CLUSTERS, false,
+                    LexiconSnapshot::asSetMap));
+    // The gazetteers are a prefix tree which is not backed by a snapshot
+    private static final LazyLexicon<PrefixTree<String, Set<String>>> namedEntityGazetteers =
+            new LazyLexicon<>(() -> loadLexicon(NAMED_ENTITY_GAZETTEERS));
+    private static final LazyLexicon<Map<String, float[]>> wordEmbeddings =
+            new LazyLexicon<>(() -> loadSnapshot(WORD_EMBEDDINGS, true,
+                    LexiconSnapshot::asVectorMap));
 
+    /**
+     * Creates the global lexica required by a model. Only the lexica for the given features are
+     * loaded. The lexica themselves are shared between all callers.
+     * 
+     * @param aFeatures
+     *            the features used by the model, cf. {@link #extractFeatures(OnlineComponent)}.
+     * @return the lexica.
+     * @throws IOException
+     *             if a lexicon cannot be loaded.
+     * @throws ParserConfigurationException
+     *             if the lexica cannot be created.
+     */
+    public static GlobalLexica<NLPNode> createGlobalLexica(Set<String> aFeatures)
+        throws IOException, ParserConfigurationException
+    {
         DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
         Document xmlDoc = builder.newDocument();                
         Element root = xmlDoc.createElement("dummy");
         
-        lexica = new GlobalLexica<>(root);
+        GlobalLexica<NLPNode> lexica = new GlobalLexica<>(root);
         
-        lexica.setAmbiguityClasses(new GlobalLexicon<Map<String, List<String>>>(
-                loadLexicon(LEXICA_PREFIX + "en-ambiguity-classes-simplified-lowercase.xz"),
-                Field.word_form_simplified_lowercase, "en-ambiguity-classes-simplified-lowercase"));
+        if (aFeatures.contains("ambiguity_classes")) {
+            lexica.setAmbiguityClasses(new GlobalLexicon<Map<String, List<String>>>(
+                    ambiguityClasses.get(), Field.word_form_simplified_lowercase,
+                    AMBIGUITY_CLASSES));
+        }
 
-        lexica.setWordClusters(new GlobalLexicon<Map<String,Set<String>>>(
-                loadLexicon(LEXICA_PREFIX + "en-brown-clusters-simplified-lowercase.xz"),
-                Field.word_form_simplified_lowercase, "en-brown-clusters-simplified-lowercase"));
+        if (aFeatures.contains("word_clusters")) {
+            lexica.setWordClusters(new GlobalLexicon<Map<String, Set<String>>>(
+                    wordClusters.get(), Field.word_form_simplified_lowercase, WORD_CLUSTERS));
+        }
 
-        lexica.setNamedEntityGazetteers(new GlobalLexicon<PrefixTree<String,Set<String>>>(
-                loadLexicon(LEXICA_PREFIX + "en-named-entity-gazetteers-simplified.xz"),
-                Field.word_form_simplified, "en-named-entity-gazetteers-simplified"));
+        if (aFeatures.contains("named_entity_gazetteers")) {
+            lexica.setNamedEntityGazetteers(new GlobalLexicon<PrefixTree<String, Set<String>>>(
+                    namedEntityGazetteers.get(), Field.word_form_simplified,
+                    NAMED_ENTITY_GAZETTEERS));
+        }
         
-        lexica.setWordEmbeddings(new GlobalLexicon<Map<String,float[]>>(
-                loadLexicon(LEXICA_PREFIX + "en-word-embeddings-undigitalized.xz"),
-                Field.word_form_undigitalized, "en-word-embeddings-undigitalized"));
+        if (aFeatures.contains("word_embedding")) {
+            lexica.setWordEmbeddings(new GlobalLexicon<Map<String, float[]>>(
+                    wordEmbeddings.get(), Field.word_form_undigitalized, WORD_EMBEDDINGS));
+        }
 
 //        lexica.setStopWords(
 //                loadLexicon(LEXICA_PREFIX + "en-stop-words-simplified-lowercase.xz"));
+        
+        return lexica;
     }
     
-    public static void assignGlobalLexica(NLPNode[] aNodes)
+    /**
+     * Memory-maps the snapshot of a lexicon, creating the snapshot first if it does not exist or
+     * is outdated. If snapshots are disabled or the snapshot cannot be written, the deserialized
+     * lexicon is returned instead.
+     */
+    private static <T> T loadSnapshot(String aName, boolean aVectors,
+            Function<LexiconSnapshot, T> aView)
+        throws IOException
     {
-        lexica.process(aNodes);
+        String dir = System.getProperty(PROP_LEXICA_SNAPSHOT_DIR, getDefaultSnapshotDir());
+        if (dir.isEmpty()) {
+            return loadLexicon(aName);
+        }
+        
+        // The snapshot is specific to the location of the lexicon and records the size and the
+        // modification time of the lexicon, so a changed lexicon does not use a stale snapshot
+        URL url = ResourceUtils.resolveLocation(LEXICA_PREFIX + aName + ".xz");
+        long size;
+        long lastModified;
+        URLConnection connection = url.openConnection();
+        try {
+            size = connection.getContentLengthLong();
+            lastModified = connection.getLastModified();
+        }
+        finally {
+            connection.getInputStream().close();
+        }
+        
+        File snapshot = new File(dir, String.format("%s-%08x.dklx", aName,
+                url.toString().hashCode()));
+        if (snapshot.exists()) {
+            try {
+                LexiconSnapshot lexicon = LexiconSnapshot.load(snapshot);
+                if (lexicon.isSnapshotOf(size, lastModified)) {
+                    return aView.apply(lexicon);
+                }
+            }
+            catch (IOException e) {
+                // Snapshot from an older version or damaged - re-create it below
+            }
+        }
+        
+        T lexicon = loadLexicon(aName);
+        File tmp = null;
+        try {
+            snapshot.getParentFile().mkdirs();
+            // Write to a temporary file first so concurrent processes never see a partial file
+            tmp = File.createTempFile(aName, ".tmp", snapshot.getParentFile());
+            writeSnapshot(tmp, lexicon, aVectors, size, lastModified);
+            Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return aView.apply(LexiconSnapshot.load(snapshot));
+        }
+        catch (IOException e) {
+            UIMAFramework.getLogger(EmoryNlpUtils.class).log(Level.WARNING,
+                    "Unable to create lexicon snapshot [" + snapshot + "] - using the "
+                            + "deserialized lexicon instead", e);
+            return lexicon;
+        }
+        finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+    
+    private static String getDefaultSnapshotDir()
+    {
+        String home = System.getenv("DKPRO_HOME");
+        if (home == null) {
+            home = new File(System.getProperty("user.home"), ".dkpro").getPath();
+        }
+        return new File(home, "nlp4j-lexica").getPath();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static void writeSnapshot(File aFile, Object aLexicon, boolean aVectors, long aSize,
+            long aLastModified)
+        throws IOException
+    {
+        if (aVectors) {
+            LexiconSnapshot.writeVectors(aFile, (Map<String, float[]>) aLexicon, aSize,
+                    aLastModified);
+        }
+        else {
+            LexiconSnapshot.writeStrings(aFile, (Map<String, Collection<String>>) aLexicon,
+                    aSize, aLastModified);
+        }
+    }
+    
+    public static void assignGlobalLexica(GlobalLexica<NLPNode> aLexica, NLPNode[] aNodes)
+    {
+        aLexica.process(aNodes);
     }
     
     @SuppressWarnings("unchecked")
-    private static <T> T loadLexicon(String aLocation)
+    private static <T> T loadLexicon(String aName)
         throws IOException
     {
         try (ObjectInputStream is = IOUtils.createObjectXZBufferedInputStream(
-                ResourceUtils.resolveLocation(aLocation).openStream())) {
+                ResourceUtils.resolveLocation(LEXICA_PREFIX + aName + ".xz").openStream())) {
             return (T) is.readObject();
         }
         catch (ClassNotFoundException e) {
@@ -161,4 +303,30 @@ public class EmoryNlpUtils
 
         return unsupportedFeatures;
     }
+    
+    private interface LexiconLoader<T>
+    {
+        T load()
+            throws IOException;
+    }
+    
+    private static class LazyLexicon<T>
+    {
+        private final LexiconLoader<T> loader;
+        private T lexicon;
+        
+        public LazyLexicon(LexiconLoader<T> aLoader)
+        {
+            loader = aLoader;
+        }
+        
+        public synchronized T get()
+            throws IOException
+        {
+            if (lexicon == null) {
+                lexicon = loader.load();
+            }
+            return lexicon;
+        }
+    }
 }
@@ -0,0 +1,701 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.nlp4j.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only lexicon mapping words either to a collection of strings (e.g. ambiguity classes or
+ * word clusters) or to a vector of fixed dimension (e.g. word embeddings). It is created from the
+ * deserialized NLP4J lexicon once using {@link #writeStrings(File, Map)} or
+ * {@link #writeVectors(File, Map)} and then memory-mapped using {@link #load(File)}, so loading
+ * does neither depend on the size of the lexicon nor use any heap for the words and vectors.
+ *
+ * The words are stored in a flat character array and found through an open-addressing hash table.
+ * String values are stored as indexes into a table of the distinct values, which is the only part
+ * of the lexicon held on the heap. Values are kept in the iteration order of the original lexicon.
+ *
+ * A snapshot can record the size and the modification time of the lexicon it was created from,
+ * so that an outdated snapshot can be detected using {@link #isSnapshotOf(long, long)}.
+ *
+ * The lexicon is exposed as a {@link Map} via {@link #asListMap()}, {@link #asSetMap()} and
+ * {@link #asVectorMap()}, so it can be used in place of the original lexicon. Every lookup
+ * returns a new collection or array.
+ */
+public class LexiconSnapshot
+{
+    static final int MAGIC = 0x444b4c58; // "DKLX"
+    static final int VERSION = 2;
+
+    static final int TYPE_STRINGS = 1;
+    static final int TYPE_VECTORS = 2;
+
+    private static final int HEADER_LENGTH = 9 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final long sourceSize;
+    private final long sourceLastModified;
+    private final int type;
+    private final int keyCount;
+    private final IntBuffer slots;
+    private final IntBuffer keyOffsets;
+    private final CharBuffer keyChars;
+
+    // TYPE_STRINGS
+    private final IntBuffer valueOffsets;
+    private final IntBuffer values;
+    private final String[] symbols;
+
+    // TYPE_VECTORS
+    private final int dimension;
+    private final FloatBuffer vectors;
+
+    private LexiconSnapshot(long aSourceSize, long aSourceLastModified, int aType, int aKeyCount,
+            IntBuffer aSlots, IntBuffer aKeyOffsets, CharBuffer aKeyChars,
+            IntBuffer aValueOffsets, IntBuffer aValues, String[] aSymbols, int aDimension,
+            FloatBuffer aVectors)
+    {
+        sourceSize = aSourceSize;
+        sourceLastModified = aSourceLastModified;
+        type = aType;
+        keyCount = aKeyCount;
+        slots = aSlots;
+        keyOffsets = aKeyOffsets;
+        keyChars = aKeyChars;
+        valueOffsets = aValueOffsets;
+        values = aValues;
+        symbols = aSymbols;
+        dimension = aDimension;
+        vectors = aVectors;
+    }
+
+    /**
+     * @return the number of words in the lexicon.
+     */
+    public int size()
+    {
+        return keyCount;
+    }
+
+    /**
+     * @param aSourceSize
+     *            the size of the lexicon source.
+     * @param aSourceLastModified
+     *            the modification time of the lexicon source.
+     * @return whether the snapshot was created from a source with the given size and
+     *         modification time.
+     */
+    public boolean isSnapshotOf(long aSourceSize, long aSourceLastModified)
+    {
+        return sourceSize == aSourceSize && sourceLastModified == aSourceLastModified;
+    }
+
+    /**
+     * @return the dimension of the vectors or 0 if the lexicon maps to strings.
+     */
+    public int getDimension()
+    {
+        return dimension;
+    }
+
+    private int find(Object aKey)
+    {
+        if (!(aKey instanceof String)) {
+            return -1;
+        }
+
+        String key = (String) aKey;
+        int mask = slots.limit() - 1;
+        for (int slot = mix(key.hashCode()) & mask;; slot = (slot + 1) & mask) {
+            int k = slots.get(slot);
+            if (k == 0) {
+                return -1;
+            }
+            if (keyEquals(k - 1, key)) {
+                return k - 1;
+            }
+        }
+    }
+
+    private boolean keyEquals(int aIndex, String aKey)
+    {
+        int begin = keyOffsets.get(aIndex);
+        int end = keyOffsets.get(aIndex + 1);
+        if (end - begin != aKey.length()) {
+            return false;
+        }
+        for (int i = 0; i < aKey.length(); i++) {
+            if (keyChars.get(begin + i) != aKey.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getKey(int aIndex)
+    {
+        int begin = keyOffsets.get(aIndex);
+        int end = keyOffsets.get(aIndex + 1);
+        char[] chars = new char[end - begin];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = keyChars.get(begin + i);
+        }
+        return new String(chars);
+    }
+
+    private <C extends Collection<String>> C getStrings(int aIndex, C aTarget)
+    {
+        int end = valueOffsets.get(aIndex + 1);
+        for (int i = valueOffsets.get(aIndex); i < end; i++) {
+            aTarget.add(symbols[values.get(i)]);
+        }
+        return aTarget;
+    }
+
+    private float[] getVector(int aIndex)
+    {
+        float[] vector = new float[dimension];
+        int offset = aIndex * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = vectors.get(offset + i);
+        }
+        return vector;
+    }
+
+    /**
+     * @return the lexicon as a map from words to lists of strings.
+     */
+    public Map<String, List<String>> asListMap()
+    {
+        checkType(TYPE_STRINGS);
+        return new SnapshotMap<List<String>>()
+        {
+            @Override
+            List<String> getValue(int aIndex)
+            {
+                int size = valueOffsets.get(aIndex + 1) - valueOffsets.get(aIndex);
+                return getStrings(aIndex, new ArrayList<String>(size));
+            }
+        };
+    }
+
+    /**
+     * @return the lexicon as a map from words to sets of strings.
+     */
+    public Map<String, Set<String>> asSetMap()
+    {
+        checkType(TYPE_STRINGS);
+        return new SnapshotMap<Set<String>>()
+        {
+            @Override
+            Set<String> getValue(int aIndex)
+            {
+                return getStrings(aIndex, new LinkedHashSet<String>());
+            }
+        };
+    }
+
+    /**
+     * @return the lexicon as a map from words to vectors.
+     */
+    public Map<String, float[]> asVectorMap()
+    {
+        checkType(TYPE_VECTORS);
+        return new SnapshotMap<float[]>()
+        {
+            @Override
+            float[] getValue(int aIndex)
+            {
+                return getVector(aIndex);
+            }
+        };
+    }
+
+    private void checkType(int aType)
+    {
+        if (type != aType) {
+            throw new IllegalStateException("Lexicon does not map to "
+                    + (aType == TYPE_STRINGS ? "strings" : "vectors"));
+        }
+    }
+
+    /**
+     * Writes a lexicon mapping words to collections of strings. Words mapped to {@code null} are
+     * skipped.
+     *
+     * @param aFile
+     *            the target file.
+     * @param aLexicon
+     *            the lexicon.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public static void writeStrings(File aFile,
+            Map<String, ? extends Collection<String>> aLexicon)
+        throws IOException
+    {
+        writeStrings(aFile, aLexicon, -1, -1);
+    }
+
+    /**
+     * Writes a lexicon mapping words to collections of strings. Words mapped to {@code null} are
+     * skipped.
+     *
+     * @param aFile
+     *            the target file.
+     * @param aLexicon
+     *            the lexicon.
+     * @param aSourceSize
+     *            the size of the source the lexicon was loaded from.
+     * @param aSourceLastModified
+     *            the modification time of the source the lexicon was loaded from.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public static void writeStrings(File aFile,
+            Map<String, ? extends Collection<String>> aLexicon, long aSourceSize,
+            long aSourceLastModified)
+        throws IOException
+    {
+        List<String> keys = new ArrayList<String>(aLexicon.size());
+        List<String> symbols = new ArrayList<String>();
+        Map<String, Integer> symbolIds = new HashMap<String, Integer>();
+        int[] valueOffsets = new int[aLexicon.size() + 1];
+        IntList values = new IntList();
+        for (Entry<String, ? extends Collection<String>> e : aLexicon.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                continue;
+            }
+            for (String value : e.getValue()) {
+                Integer id = symbolIds.get(value);
+                if (id == null) {
+                    id = symbols.size();
+                    symbols.add(value);
+                    symbolIds.put(value, id);
+                }
+                values.add(id);
+            }
+            keys.add(e.getKey());
+            valueOffsets[keys.size()] = values.size();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(aFile)))) {
+            int[] symbolOffsets = offsets(symbols);
+            writeHeader(out, aSourceSize, aSourceLastModified, TYPE_STRINGS, keys,
+                    values.size(), symbols.size(), symbolOffsets[symbols.size()]);
+            writeKeyTable(out, keys);
+            for (int i = 0; i <= keys.size(); i++) {
+                out.writeInt(valueOffsets[i]);
+            }
+            for (int i = 0; i < values.size(); i++) {
+                out.writeInt(values.get(i));
+            }
+            for (int offset : symbolOffsets) {
+                out.writeInt(offset);
+            }
+            writeChars(out, keys);
+            writeChars(out, symbols);
+        }
+    }
+
+    /**
+     * Writes a lexicon mapping words to vectors. All vectors must have the same dimension. Words
+     * mapped to {@code null} are skipped.
+     *
+     * @param aFile
+     *            the target file.
+     * @param aLexicon
+     *            the lexicon.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public static void writeVectors(File aFile, Map<String, float[]> aLexicon)
+        throws IOException
+    {
+        writeVectors(aFile, aLexicon, -1, -1);
+    }
+
+    /**
+     * Writes a lexicon mapping words to vectors. All vectors must have the same dimension. Words
+     * mapped to {@code null} are skipped.
+     *
+     * @param aFile
+     *            the target file.
+     * @param aLexicon
+     *            the lexicon.
+     * @param aSourceSize
+     *            the size of the source the lexicon was loaded from.
+     * @param aSourceLastModified
+     *            the modification time of the source the lexicon was loaded from.
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public static void writeVectors(File aFile, Map<String, float[]> aLexicon, long aSourceSize,
+            long aSourceLastModified)
+        throws IOException
+    {
+        List<String> keys = new ArrayList<String>(aLexicon.size());
+        List<float[]> vectors = new ArrayList<float[]>(aLexicon.size());
+        int dimension = -1;
+        for (Entry<String, float[]> e : aLexicon.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                continue;
+            }
+            if (dimension == -1) {
+                dimension = e.getValue().length;
+            }
+            else if (dimension != e.getValue().length) {
+                throw new IOException("Vector of [" + e.getKey() + "] has dimension ["
+                        + e.getValue().length + "] instead of [" + dimension + "]");
+            }
+            keys.add(e.getKey());
+            vectors.add(e.getValue());
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(aFile)))) {
+            writeHeader(out, aSourceSize, aSourceLastModified, TYPE_VECTORS, keys,
+                    Math.max(dimension, 0), 0, 0);
+            writeKeyTable(out, keys);
+            for (float[] vector : vectors) {
+                for (float f : vector) {
+                    out.writeFloat(f);
+                }
+            }
+            writeChars(out, keys);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream aOut, long aSourceSize,
+            long aSourceLastModified, int aType, List<String> aKeys, int aParam1, int aParam2,
+            int aParam3)
+        throws IOException
+    {
+        aOut.writeInt(MAGIC);
+        aOut.writeInt(VERSION);
+        aOut.writeLong(aSourceSize);
+        aOut.writeLong(aSourceLastModified);
+        aOut.writeInt(aType);
+        aOut.writeInt(aKeys.size());
+        aOut.writeInt(slotCount(aKeys.size()));
+        aOut.writeInt(offsets(aKeys)[aKeys.size()]);
+        aOut.writeInt(aParam1);
+        aOut.writeInt(aParam2);
+        aOut.writeInt(aParam3);
+    }
+
+    private static void writeKeyTable(DataOutputStream aOut, List<String> aKeys)
+        throws IOException
+    {
+        int[] slots = new int[slotCount(aKeys.size())];
+        int mask = slots.length - 1;
+        for (int i = 0; i < aKeys.size(); i++) {
+            int slot = mix(aKeys.get(i).hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+        for (int slot : slots) {
+            aOut.writeInt(slot);
+        }
+        for (int offset : offsets(aKeys)) {
+            aOut.writeInt(offset);
+        }
+    }
+
+    private static void writeChars(DataOutputStream aOut, List<String> aStrings)
+        throws IOException
+    {
+        for (String s : aStrings) {
+            aOut.writeChars(s);
+        }
+    }
+
+    private static int[] offsets(List<String> aStrings)
+        throws IOException
+    {
+        int[] offsets = new int[aStrings.size() + 1];
+        long offset = 0;
+        for (int i = 0; i < aStrings.size(); i++) {
+            offset += aStrings.get(i).length();
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Lexicon is too large");
+            }
+            offsets[i + 1] = (int) offset;
+        }
+        return offsets;
+    }
+
+    private static int slotCount(int aKeyCount)
+    {
+        // Keep the load factor of the table at most 0.5
+        int slots = 2;
+        while (slots < 2L * aKeyCount) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    private static int mix(int aHash)
+    {
+        int h = aHash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Memory-maps a lexicon previously written using {@link #writeStrings(File, Map)} or
+     * {@link #writeVectors(File, Map)}.
+     *
+     * @param aFile
+     *            the lexicon file.
+     * @return the lexicon.
+     * @throws IOException
+     *             if the file cannot be read or is not a lexicon snapshot.
+     */
+    public static LexiconSnapshot load(File aFile)
+        throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(aFile, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException("[" + aFile + "] is not a lexicon snapshot");
+            }
+
+            ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("[" + aFile + "] is not a lexicon snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported lexicon snapshot version [" + version
+                        + "] in [" + aFile + "]");
+            }
+            long sourceSize = header.getLong();
+            long sourceLastModified = header.getLong();
+            int type = header.getInt();
+            int keyCount = header.getInt();
+            int slotCount = header.getInt();
+            int keyCharCount = header.getInt();
+            int param1 = header.getInt();
+            int param2 = header.getInt();
+            int param3 = header.getInt();
+            if (type != TYPE_STRINGS && type != TYPE_VECTORS) {
+                throw new IOException("Unsupported lexicon snapshot type [" + type + "] in ["
+                        + aFile + "]");
+            }
+
+            Sections sections = new Sections(channel, aFile, HEADER_LENGTH);
+            IntBuffer slots = sections.ints(slotCount);
+            IntBuffer keyOffsets = sections.ints(keyCount + 1L);
+
+            if (type == TYPE_STRINGS) {
+                IntBuffer valueOffsets = sections.ints(keyCount + 1L);
+                IntBuffer values = sections.ints(param1);
+                IntBuffer symbolOffsets = sections.ints(param2 + 1L);
+                CharBuffer keyChars = sections.chars(keyCharCount);
+                CharBuffer symbolChars = sections.chars(param3);
+
+                String[] symbols = new String[param2];
+                for (int i = 0; i < symbols.length; i++) {
+                    int begin = symbolOffsets.get(i);
+                    char[] chars = new char[symbolOffsets.get(i + 1) - begin];
+                    symbolChars.position(begin);
+                    symbolChars.get(chars);
+                    symbols[i] = new String(chars);
+                }
+
+                return new LexiconSnapshot(sourceSize, sourceLastModified, type, keyCount, slots,
+                        keyOffsets, keyChars, valueOffsets, values, symbols, 0, null);
+            }
+            else {
+                FloatBuffer vectors = sections.floats((long) keyCount * param1);
+                CharBuffer keyChars = sections.chars(keyCharCount);
+
+                return new LexiconSnapshot(sourceSize, sourceLastModified, type, keyCount, slots,
+                        keyOffsets, keyChars, null, null, null, param1, vectors);
+            }
+        }
+    }
+
+    /**
+     * Maps the consecutive sections of a snapshot file.
+     */
+    private static class Sections
+    {
+        private final FileChannel channel;
+        private final File file;
+        private long position;
+
+        Sections(FileChannel aChannel, File aFile, long aPosition)
+        {
+            channel = aChannel;
+            file = aFile;
+            position = aPosition;
+        }
+
+        IntBuffer ints(long aCount)
+            throws IOException
+        {
+            return map(aCount, Integer.BYTES).asIntBuffer();
+        }
+
+        FloatBuffer floats(long aCount)
+            throws IOException
+        {
+            return map(aCount, Float.BYTES).asFloatBuffer();
+        }
+
+        CharBuffer chars(long aCount)
+            throws IOException
+        {
+            return map(aCount, Character.BYTES).asCharBuffer();
+        }
+
+        private ByteBuffer map(long aCount, int aBytes)
+            throws IOException
+        {
+            long length = aCount * aBytes;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("[" + file + "] is too large to be mapped");
+            }
+            if (position + length > channel.size()) {
+                throw new IOException("[" + file + "] is truncated");
+            }
+            ByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, length);
+            position += length;
+            return buffer;
+        }
+    }
+
+    /**
+     * Read-only view of the snapshot. Lookups are thread-safe since they only use absolute reads
+     * on the mapped buffers.
+     */
+    private abstract class SnapshotMap<V>
+        extends AbstractMap<String, V>
+    {
+        abstract V getValue(int aIndex);
+
+        @Override
+        public V get(Object aKey)
+        {
+            int index = find(aKey);
+            return index == -1 ? null : getValue(index);
+        }
+
+        @Override
+        public boolean containsKey(Object aKey)
+        {
+            return find(aKey) != -1;
+        }
+
+        @Override
+        public int size()
+        {
+            return keyCount;
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet()
+        {
+            return new AbstractSet<Entry<String, V>>()
+            {
+                @Override
+                public Iterator<Entry<String, V>> iterator()
+                {
+                    return new Iterator<Entry<String, V>>()
+                    {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return next < keyCount;
+                        }
+
+                        @Override
+                        public Entry<String, V> next()
+                        {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new SimpleImmutableEntry<String, V>(getKey(index),
+                                    getValue(index));
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return keyCount;
+                }
+            };
+        }
+    }
+
+    private static class IntList
+    {
+        private int[] data = new int[1024];
+        private int size;
+
+        void add(int aValue)
+        {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = aValue;
+        }
+
+        int get(int aIndex)
+        {
+            return data[aIndex];
+        }
+
+        int size()
+        {
+            return size;
+        }
+    }
+}
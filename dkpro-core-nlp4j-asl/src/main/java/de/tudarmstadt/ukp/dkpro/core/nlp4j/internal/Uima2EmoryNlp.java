@@ -20,11 +20,12 @@ package de.tudarmstadt.ukp.dkpro.core.nlp4j.internal;
 import java.util.List;
 
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica;
 import edu.emory.mathcs.nlp.component.template.node.NLPNode;
 
 public class Uima2EmoryNlp
 {
-    public static NLPNode[] convertSentence(List<Token> aTokens)
+    public static NLPNode[] convertSentence(List<Token> aTokens, GlobalLexica<NLPNode> aLexica)
     {
         NLPNode[] nodes = new NLPNode[aTokens.size()+1];
         
@@ -52,7 +53,7 @@ public class Uima2EmoryNlp
             i++;
         }
         
-        EmoryNlpUtils.assignGlobalLexica(nodes);
+        EmoryNlpUtils.assignGlobalLexica(aLexica, nodes);
         
         return nodes;
     }
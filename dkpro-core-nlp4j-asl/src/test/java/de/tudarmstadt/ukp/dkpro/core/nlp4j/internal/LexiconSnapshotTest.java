@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.nlp4j.internal;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LexiconSnapshotTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStrings()
+        throws Exception
+    {
+        Random random = new Random(42);
+        Map<String, Set<String>> lexicon = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            Set<String> clusters = new HashSet<>();
+            int count = random.nextInt(4);
+            for (int j = 0; j < count; j++) {
+                clusters.add(Integer.toBinaryString(random.nextInt(256)));
+            }
+            lexicon.put("wörd" + i, clusters);
+        }
+        lexicon.put("", new HashSet<>(asList("empty")));
+
+        File file = new File(folder.getRoot(), "clusters.dklx");
+        LexiconSnapshot.writeStrings(file, lexicon);
+        LexiconSnapshot snapshot = LexiconSnapshot.load(file);
+        Map<String, Set<String>> sets = snapshot.asSetMap();
+        Map<String, List<String>> lists = snapshot.asListMap();
+
+        assertEquals(lexicon.size(), snapshot.size());
+        assertEquals(0, snapshot.getDimension());
+        for (Map.Entry<String, Set<String>> e : lexicon.entrySet()) {
+            // Same elements in the same order
+            assertEquals(new ArrayList<>(e.getValue()), new ArrayList<>(sets.get(e.getKey())));
+            assertEquals(new ArrayList<>(e.getValue()), lists.get(e.getKey()));
+        }
+        assertNull(sets.get("wörd5000"));
+        assertNull(sets.get(null));
+        assertFalse(sets.containsKey("wörd"));
+        assertTrue(sets.containsKey(""));
+        assertEquals(lexicon, sets);
+    }
+
+    @Test
+    public void testVectors()
+        throws Exception
+    {
+        Random random = new Random(42);
+        Map<String, float[]> lexicon = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            float[] vector = new float[50];
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] = random.nextFloat() - 0.5f;
+            }
+            lexicon.put("w" + i, vector);
+        }
+
+        File file = new File(folder.getRoot(), "embeddings.dklx");
+        LexiconSnapshot.writeVectors(file, lexicon);
+        LexiconSnapshot snapshot = LexiconSnapshot.load(file);
+        Map<String, float[]> vectors = snapshot.asVectorMap();
+
+        assertEquals(lexicon.size(), vectors.size());
+        assertEquals(50, snapshot.getDimension());
+        for (Map.Entry<String, float[]> e : lexicon.entrySet()) {
+            assertArrayEquals(e.getValue(), vectors.get(e.getKey()), 0.0f);
+        }
+        assertNull(vectors.get("w2000"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongType()
+        throws Exception
+    {
+        Map<String, float[]> lexicon = new HashMap<>();
+        lexicon.put("a", new float[] { 1.0f });
+
+        File file = new File(folder.getRoot(), "embeddings.dklx");
+        LexiconSnapshot.writeVectors(file, lexicon);
+        LexiconSnapshot.load(file).asSetMap();
+    }
+
+    @Test
+    public void testSourceStamp()
+        throws Exception
+    {
+        Map<String, float[]> lexicon = new HashMap<>();
+        lexicon.put("a", new float[] { 1.0f });
+
+        File file = new File(folder.getRoot(), "embeddings.dklx");
+        LexiconSnapshot.writeVectors(file, lexicon, 1234, 1500000000000L);
+        LexiconSnapshot snapshot = LexiconSnapshot.load(file);
+
+        assertTrue(snapshot.isSnapshotOf(1234, 1500000000000L));
+        assertFalse(snapshot.isSnapshotOf(1235, 1500000000000L));
+        assertFalse(snapshot.isSnapshotOf(1234, 1500000000001L));
+    }
+}
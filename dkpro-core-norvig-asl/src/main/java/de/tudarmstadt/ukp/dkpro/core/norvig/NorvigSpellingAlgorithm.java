@@ -18,13 +18,16 @@
 package de.tudarmstadt.ukp.dkpro.core.norvig;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -37,6 +40,16 @@ import static java.lang.Double.parseDouble;
 
 /**
  * Spelling corrector based on Norvig's algorithm.
+ * <p>
+ * By default, all variants within two edits of a misspelled word are generated and looked up in
+ * the dictionary. Alternatively, a precomputed index of the dictionary words with up to two
+ * characters deleted can be used to find the candidate corrections (see
+ * {@link #setUseDeleteIndex(boolean)}). It yields the same corrections, but is much faster for
+ * longer words and can be used by several threads concurrently. The index is built on demand
+ * after training and can be written to a file using {@link #writeIndex(File)}.
+ * <p>
+ * Corrections are cached in a thread-safe cache which holds up to
+ * {@link #DEFAULT_CACHE_SIZE} words unless configured otherwise.
  *
  * @see <a href="http://norvig.com/spell-correct.html">Norvig&#39;s algorithm</a>
  */
@@ -44,12 +57,18 @@ public class NorvigSpellingAlgorithm
 {
 	private final static Pattern WORD_PATTERN = Pattern.compile("\\w+");
 
+	public static final int DEFAULT_CACHE_SIZE = 100000;
+
 	private final Map<String, AtomicInteger> nWords = new HashMap<String, AtomicInteger>();
 
-	private Map<String, String> cachedCorrections = new HashMap<String, String>();
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+	private Map<String, String> cachedCorrections = createCache();
 	private int bestScore = -1;
 	private String bestCandidate;
 
+	private boolean useDeleteIndex = false;
+	private volatile SymmetricDeleteIndex deleteIndex;
+
 	protected void resetScore()
 	{
 		bestScore = -1;
@@ -59,7 +78,101 @@ public class NorvigSpellingAlgorithm
 	public void reset()
 	{
 		resetScore();
-		cachedCorrections = new HashMap<String, String>();
+		cachedCorrections = createCache();
+	}
+
+	private Map<String, String> createCache()
+	{
+		final int maxSize = cacheSize;
+		return Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> aEldest)
+			{
+				return size() > maxSize;
+			}
+		});
+	}
+
+	/**
+	 * Set the maximum number of corrections to cache. The least recently used corrections are
+	 * evicted first. Changing the size clears the cache.
+	 *
+	 * @param aCacheSize
+	 *            the maximum number of cached corrections.
+	 */
+	public void setCacheSize(int aCacheSize)
+	{
+		if (aCacheSize < 0) {
+			throw new IllegalArgumentException("Cache size must not be negative: " + aCacheSize);
+		}
+		cacheSize = aCacheSize;
+		cachedCorrections = createCache();
+	}
+
+	/**
+	 * Use the symmetric delete index to find corrections instead of generating all variants of a
+	 * misspelled word. The corrections found are the same.
+	 *
+	 * @param aUseDeleteIndex
+	 *            whether to use the index.
+	 */
+	public void setUseDeleteIndex(boolean aUseDeleteIndex)
+	{
+		useDeleteIndex = aUseDeleteIndex;
+	}
+
+	private SymmetricDeleteIndex getDeleteIndex()
+	{
+		SymmetricDeleteIndex index = deleteIndex;
+		if (index == null) {
+			synchronized (this) {
+				index = deleteIndex;
+				if (index == null) {
+					index = SymmetricDeleteIndex.build(nWords);
+					deleteIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Write the dictionary and the symmetric delete index built from it to the given file.
+	 *
+	 * @param aFile
+	 *            the file.
+	 * @throws IOException
+	 *             if the index cannot be written.
+	 */
+	public void writeIndex(File aFile)
+		throws IOException
+	{
+		getDeleteIndex().write(aFile);
+	}
+
+	/**
+	 * Replace the dictionary with one previously written using {@link #writeIndex(File)} and
+	 * use the index to find corrections.
+	 *
+	 * @param aFile
+	 *            the file.
+	 * @throws IOException
+	 *             if the index cannot be read.
+	 */
+	public void readIndex(File aFile)
+		throws IOException
+	{
+		SymmetricDeleteIndex index = SymmetricDeleteIndex.read(aFile);
+		synchronized (this) {
+			nWords.clear();
+			index.getWords(nWords);
+			deleteIndex = index;
+		}
+		useDeleteIndex = true;
+		reset();
 	}
 
 	/**
@@ -91,6 +204,10 @@ public class NorvigSpellingAlgorithm
 
 			line = in.readLine();
 		}
+
+		// The index and the cached corrections no longer match the dictionary
+		deleteIndex = null;
+		cachedCorrections.clear();
 	}
 
     /**
@@ -152,7 +269,8 @@ public class NorvigSpellingAlgorithm
 	/**
 	 * Try to find a correction for the given word. The word may contain up to two edits. If no
 	 * better alternative is found, the word is returned verbatim. For performance reasons
-	 * corrections are cached.
+	 * corrections are cached. If the symmetric delete index is used, this method can be called
+	 * by several threads concurrently.
 	 *
 	 * @param aWord
 	 *            the word to correct (has to be lower-case)
@@ -211,6 +329,10 @@ public class NorvigSpellingAlgorithm
 			return word;
 		}
 
+		if (useDeleteIndex) {
+			return getDeleteIndex().getBestCandidate(word);
+		}
+
 		// Reset score
 		resetScore();
 
@@ -49,6 +49,12 @@ public class NorvigSpellingCorrector
 {
 	public static final String PARAM_MODEL_FILE = ComponentParameters.PARAM_MODEL_LOCATION;
 
+	/**
+	 * Use a precomputed index of the dictionary to find corrections. This yields the same
+	 * corrections, but is faster for longer words. Default: {@code false}
+	 */
+	public static final String PARAM_USE_DELETE_INDEX = "useDeleteIndex";
+
 	private NorvigSpellingAlgorithm spellingCorrector;
 
 	@Override
@@ -59,7 +65,11 @@ public class NorvigSpellingCorrector
 		try {
 			String trainingFile = (String) context.getConfigParameterValue(PARAM_MODEL_FILE);
 
+			Boolean useDeleteIndex = (Boolean) context.getConfigParameterValue(
+					PARAM_USE_DELETE_INDEX);
+
 			spellingCorrector = new NorvigSpellingAlgorithm();
+			spellingCorrector.setUseDeleteIndex(Boolean.TRUE.equals(useDeleteIndex));
 			spellingCorrector.train(getContext().getResourceURL(trainingFile), "UTF-8");
 		}
 		catch (Exception e) {
@@ -0,0 +1,502 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.norvig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the same corrections as {@link NorvigSpellingAlgorithm} without enumerating all
+ * variants of a word.
+ * <p>
+ * All variants of the dictionary words with up to two characters deleted are hashed and stored
+ * with the ID of their word in a sorted array. Every dictionary word within two edits of a
+ * misspelled word shares a variant with it, so looking up the variants of the misspelled word
+ * yields all candidate corrections. The candidates are then checked against the edits which
+ * {@link NorvigSpellingAlgorithm#edits(String)} generates. Ties are broken in the order in
+ * which the edits are generated there, so the results are identical.
+ * <p>
+ * The index is immutable and can be used by several threads concurrently.
+ */
+class SymmetricDeleteIndex
+{
+	private static final int MAGIC = 0x444b5344; // "DKSD"
+	private static final int VERSION = 1;
+
+	private static final int ID_BITS = 24;
+	private static final long ID_MASK = (1L << ID_BITS) - 1;
+	private static final int MAX_DELETES = 2;
+
+	// Number of edits generated per character by NorvigSpellingAlgorithm.edits(): one delete and
+	// a replace and an insert for each letter
+	private static final int EDITS_PER_CHAR = 53;
+	private static final int LETTERS = 26;
+
+	private final String[] words;
+	private final int[] counts;
+	private final long[] entries;
+
+	private SymmetricDeleteIndex(String[] aWords, int[] aCounts, long[] aEntries)
+	{
+		words = aWords;
+		counts = aCounts;
+		entries = aEntries;
+	}
+
+	/**
+	 * Build an index over the given word counts.
+	 *
+	 * @param aWords
+	 *            the words and their counts.
+	 * @return the index.
+	 */
+	public static SymmetricDeleteIndex build(Map<String, AtomicInteger> aWords)
+	{
+		if (aWords.size() > ID_MASK) {
+			throw new IllegalStateException("Too many words to index: " + aWords.size());
+		}
+
+		String[] words = new String[aWords.size()];
+		int[] counts = new int[aWords.size()];
+		int id = 0;
+		for (Map.Entry<String, AtomicInteger> e : aWords.entrySet()) {
+			words[id] = e.getKey();
+			counts[id] = e.getValue().get();
+			id++;
+		}
+
+		return new SymmetricDeleteIndex(words, counts, buildEntries(words));
+	}
+
+	private static long[] buildEntries(String[] aWords)
+	{
+		long size = 0;
+		for (String word : aWords) {
+			size += variantCount(word.length());
+		}
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Too many variants to index: " + size);
+		}
+
+		long[] entries = new long[(int) size];
+		int n = 0;
+		for (int id = 0; id < aWords.length; id++) {
+			String word = aWords[id];
+			int length = word.length();
+			entries[n++] = entry(hash(word, -1, -1), id);
+			for (int i = 0; i < length; i++) {
+				entries[n++] = entry(hash(word, i, -1), id);
+				for (int j = i + 1; j < length; j++) {
+					entries[n++] = entry(hash(word, i, j), id);
+				}
+			}
+		}
+
+		// Sort by hash and drop variants which a word produces more than once
+		Arrays.sort(entries);
+		int unique = 0;
+		for (int i = 0; i < entries.length; i++) {
+			if (unique == 0 || entries[i] != entries[unique - 1]) {
+				entries[unique++] = entries[i];
+			}
+		}
+		return Arrays.copyOf(entries, unique);
+	}
+
+	private static long variantCount(int aLength)
+	{
+		return 1 + aLength + (long) aLength * (aLength - 1) / 2;
+	}
+
+	private static long entry(long aHash, int aId)
+	{
+		return (aHash << ID_BITS) | aId;
+	}
+
+	/**
+	 * Hash the given word skipping the characters at the given positions (-1 to skip none). The
+	 * hash has {@code 64 - ID_BITS} bits and is non-negative when shifted into an entry.
+	 */
+	private static long hash(String aWord, int aSkip1, int aSkip2)
+	{
+		long h = 0x9e3779b97f4a7c15L;
+		for (int i = 0; i < aWord.length(); i++) {
+			if (i != aSkip1 && i != aSkip2) {
+				h = (h ^ aWord.charAt(i)) * 0x100000001b3L;
+			}
+		}
+		// fmix64 from MurmurHash3
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h >>> (ID_BITS + 1);
+	}
+
+	/**
+	 * Find the best correction for the given lower-case word as
+	 * {@link NorvigSpellingAlgorithm#getBestCandidate(String)} would.
+	 *
+	 * @param aWord
+	 *            the word to correct.
+	 * @return the correction or the word itself if there is none.
+	 */
+	public String getBestCandidate(String aWord)
+	{
+		int[] candidates = lookup(aWord);
+		char[] word = aWord.toCharArray();
+
+		// Words within one edit - the most frequent one wins, ties are broken by the order in
+		// which the edits are generated
+		int best = -1;
+		int bestIndex = -1;
+		for (int id : candidates) {
+			if (words[id].equals(aWord)) {
+				// The word is in the dictionary, it is probably correct
+				return aWord;
+			}
+			int index = editIndex(word, word.length, words[id]);
+			if (index >= 0 && (best == -1 || counts[id] > counts[best]
+					|| (counts[id] == counts[best] && index < bestIndex))) {
+				best = id;
+				bestIndex = index;
+			}
+		}
+		if (best != -1) {
+			return words[best];
+		}
+
+		// Words within two edits - check the candidates in groups of equal count starting with
+		// the most frequent ones
+		Integer[] byCount = new Integer[candidates.length];
+		for (int i = 0; i < candidates.length; i++) {
+			byCount[i] = candidates[i];
+		}
+		Arrays.sort(byCount, (a, b) -> Integer.compare(counts[b], counts[a]));
+
+		int start = 0;
+		while (start < byCount.length) {
+			int end = start + 1;
+			while (end < byCount.length && counts[byCount[end]] == counts[byCount[start]]) {
+				end++;
+			}
+			best = findFirstEdit2(aWord, byCount, start, end);
+			if (best != -1) {
+				return words[best];
+			}
+			start = end;
+		}
+
+		return aWord;
+	}
+
+	/**
+	 * Look up the IDs of all words which share a variant with the given word.
+	 */
+	private int[] lookup(String aWord)
+	{
+		int length = aWord.length();
+		int[][] ids = { new int[64] };
+		int n = lookup(hash(aWord, -1, -1), ids, 0);
+		for (int i = 0; i < length; i++) {
+			n = lookup(hash(aWord, i, -1), ids, n);
+			for (int j = i + 1; j < length; j++) {
+				n = lookup(hash(aWord, i, j), ids, n);
+			}
+		}
+
+		// Remove duplicates and words which cannot be within two edits
+		int[] found = ids[0];
+		Arrays.sort(found, 0, n);
+		int unique = 0;
+		for (int i = 0; i < n; i++) {
+			if ((unique == 0 || found[i] != found[unique - 1])
+					&& Math.abs(words[found[i]].length() - length) <= MAX_DELETES) {
+				found[unique++] = found[i];
+			}
+		}
+		return Arrays.copyOf(found, unique);
+	}
+
+	/**
+	 * Append the IDs of the words having a variant with the given hash to the array in the given
+	 * holder, replacing the array by a larger one if necessary.
+	 *
+	 * @return the number of IDs in the array.
+	 */
+	private int lookup(long aHash, int[][] aIds, int aSize)
+	{
+		long from = aHash << ID_BITS;
+		int pos = Arrays.binarySearch(entries, from);
+		if (pos < 0) {
+			pos = -pos - 1;
+		}
+		int n = aSize;
+		while (pos < entries.length && (entries[pos] & ~ID_MASK) == from) {
+			if (n == aIds[0].length) {
+				aIds[0] = Arrays.copyOf(aIds[0], n * 2);
+			}
+			aIds[0][n++] = (int) (entries[pos] & ID_MASK);
+			pos++;
+		}
+		return n;
+	}
+
+	/**
+	 * Among the given candidates, find the one which is generated first when generating the edits
+	 * of all edits of the given word.
+	 *
+	 * @return the ID of the first candidate or -1 if none of them is within two edits.
+	 */
+	private int findFirstEdit2(String aWord, Integer[] aCandidates, int aStart, int aEnd)
+	{
+		int length = aWord.length();
+		char[] edit = new char[length + 1];
+
+		// Generate the edits in the order of NorvigSpellingAlgorithm.edits()
+		for (int i = 0; i < length; i++) {
+			// deletes
+			aWord.getChars(0, i, edit, 0);
+			aWord.getChars(i + 1, length, edit, i);
+			int found = findFirstEdit1(edit, length - 1, aCandidates, aStart, aEnd);
+			if (found != -1) {
+				return found;
+			}
+
+			for (char c = 'a'; c <= 'z'; c++) {
+				// replaces
+				aWord.getChars(0, length, edit, 0);
+				edit[i] = c;
+				found = findFirstEdit1(edit, length, aCandidates, aStart, aEnd);
+				if (found != -1) {
+					return found;
+				}
+
+				// inserts
+				aWord.getChars(0, i, edit, 0);
+				edit[i] = c;
+				aWord.getChars(i, length, edit, i + 1);
+				found = findFirstEdit1(edit, length + 1, aCandidates, aStart, aEnd);
+				if (found != -1) {
+					return found;
+				}
+			}
+		}
+
+		// inserts at the end
+		aWord.getChars(0, length, edit, 0);
+		for (char c = 'a'; c <= 'z'; c++) {
+			edit[length] = c;
+			int found = findFirstEdit1(edit, length + 1, aCandidates, aStart, aEnd);
+			if (found != -1) {
+				return found;
+			}
+		}
+
+		// transposes
+		for (int i = 0; i < length - 1; i++) {
+			aWord.getChars(0, length, edit, 0);
+			edit[i] = aWord.charAt(i + 1);
+			edit[i + 1] = aWord.charAt(i);
+			int found = findFirstEdit1(edit, length, aCandidates, aStart, aEnd);
+			if (found != -1) {
+				return found;
+			}
+		}
+
+		return -1;
+	}
+
+	private int findFirstEdit1(char[] aWord, int aLength, Integer[] aCandidates, int aStart,
+			int aEnd)
+	{
+		int best = -1;
+		int bestIndex = -1;
+		for (int i = aStart; i < aEnd; i++) {
+			int index = editIndex(aWord, aLength, words[aCandidates[i]]);
+			if (index >= 0 && (best == -1 || index < bestIndex)) {
+				best = aCandidates[i];
+				bestIndex = index;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Get the position at which the given target is first generated by
+	 * {@link NorvigSpellingAlgorithm#edits(String)} for the given word.
+	 *
+	 * @return the position or -1 if the target is not among the edits.
+	 */
+	static int editIndex(char[] aWord, int aLength, String aTarget)
+	{
+		int targetLength = aTarget.length();
+
+		// Length of the common prefix and suffix
+		int maxCommon = Math.min(aLength, targetLength);
+		int prefix = 0;
+		while (prefix < maxCommon && aWord[prefix] == aTarget.charAt(prefix)) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < maxCommon
+				&& aWord[aLength - 1 - suffix] == aTarget.charAt(targetLength - 1 - suffix)) {
+			suffix++;
+		}
+
+		if (targetLength == aLength - 1) {
+			// delete
+			int i = Math.max(0, aLength - 1 - suffix);
+			return i <= prefix ? i * EDITS_PER_CHAR : -1;
+		}
+
+		if (targetLength == aLength + 1) {
+			// insert
+			for (int i = Math.max(0, aLength - suffix); i <= prefix; i++) {
+				char c = aTarget.charAt(i);
+				if (isLetter(c)) {
+					return i < aLength ? i * EDITS_PER_CHAR + 2 + 2 * (c - 'a')
+							: aLength * EDITS_PER_CHAR + (c - 'a');
+				}
+			}
+			return -1;
+		}
+
+		if (targetLength == aLength) {
+			if (prefix == aLength) {
+				// Replacing a letter by itself or transposing two equal characters
+				for (int i = 0; i < aLength; i++) {
+					if (isLetter(aWord[i])) {
+						return i * EDITS_PER_CHAR + 1 + 2 * (aWord[i] - 'a');
+					}
+				}
+				for (int i = 0; i < aLength - 1; i++) {
+					if (aWord[i] == aWord[i + 1]) {
+						return aLength * EDITS_PER_CHAR + LETTERS + i;
+					}
+				}
+				return -1;
+			}
+
+			int mismatches = aLength - prefix - suffix;
+			if (mismatches == 1) {
+				// replace
+				char c = aTarget.charAt(prefix);
+				return isLetter(c) ? prefix * EDITS_PER_CHAR + 1 + 2 * (c - 'a') : -1;
+			}
+			if (mismatches == 2 && aWord[prefix] == aTarget.charAt(prefix + 1)
+					&& aWord[prefix + 1] == aTarget.charAt(prefix)) {
+				// transpose
+				return aLength * EDITS_PER_CHAR + LETTERS + prefix;
+			}
+		}
+
+		return -1;
+	}
+
+	private static boolean isLetter(char aChar)
+	{
+		return aChar >= 'a' && aChar <= 'z';
+	}
+
+	/**
+	 * Copy the indexed words and their counts to the given map.
+	 *
+	 * @param aTarget
+	 *            the map.
+	 */
+	public void getWords(Map<String, AtomicInteger> aTarget)
+	{
+		for (int i = 0; i < words.length; i++) {
+			aTarget.put(words[i], new AtomicInteger(counts[i]));
+		}
+	}
+
+	/**
+	 * Write the index to the given file.
+	 *
+	 * @param aFile
+	 *            the file.
+	 * @throws IOException
+	 *             if the index cannot be written.
+	 */
+	public void write(File aFile)
+		throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(aFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(words.length);
+			for (int i = 0; i < words.length; i++) {
+				out.writeUTF(words[i]);
+				out.writeInt(counts[i]);
+			}
+			out.writeInt(entries.length);
+			for (long entry : entries) {
+				out.writeLong(entry);
+			}
+		}
+	}
+
+	/**
+	 * Read an index previously written using {@link #write(File)}.
+	 *
+	 * @param aFile
+	 *            the file.
+	 * @return the index.
+	 * @throws IOException
+	 *             if the index cannot be read.
+	 */
+	public static SymmetricDeleteIndex read(File aFile)
+		throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(aFile)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("[" + aFile + "] is not a spelling index");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported spelling index version [" + version + "] in ["
+						+ aFile + "]");
+			}
+			String[] words = new String[in.readInt()];
+			int[] counts = new int[words.length];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = in.readUTF();
+				counts[i] = in.readInt();
+			}
+			long[] entries = new long[in.readInt()];
+			for (int i = 0; i < entries.length; i++) {
+				entries[i] = in.readLong();
+			}
+			return new SymmetricDeleteIndex(words, counts, entries);
+		}
+	}
+}
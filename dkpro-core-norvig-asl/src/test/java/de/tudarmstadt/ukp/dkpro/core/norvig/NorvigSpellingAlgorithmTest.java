@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.norvig;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NorvigSpellingAlgorithmTest
+{
+	// Several words occur equally often, so ties have to be broken in the same way
+	private static final String DICTIONARY =
+			"the cat sat on the mat . the car is in the cart . a bat and a hat\n"
+			+ "the bar and the bat are near the barn . care for the core of the cart\n"
+			+ "spelling speling corrector correction correct correctly form from fro\n"
+			+ "abc acb bac bca cab cba ab ba x1y2 snake_case under_score 42nd 2nd";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testDeleteIndexMatchesEdits()
+		throws Exception
+	{
+		NorvigSpellingAlgorithm edits = train();
+		NorvigSpellingAlgorithm index = train();
+		index.setUseDeleteIndex(true);
+
+		for (String word : testWords()) {
+			assertEquals("Correction of [" + word + "]", edits.correct(word),
+					index.correct(word));
+		}
+	}
+
+	@Test
+	public void testTies()
+		throws Exception
+	{
+		NorvigSpellingAlgorithm edits = train();
+		NorvigSpellingAlgorithm index = train();
+		index.setUseDeleteIndex(true);
+
+		// Edit-1 ties: "cat"/"bat"/"hat"/"mat"/"sat" and "car"/"bar"
+		// Edit-2 ties: "cart"/"care"/"core"/"barn"
+		// Transpositions: "abc" and its permutations, "form"/"from"
+		// Non-letter characters: digits and underscores are part of words
+		for (String word : asList("xat", "dar", "cax", "xxt", "cxxe", "bxxn", "acbx", "bcax",
+				"fomr", "frmo", "rfom", "x1y3", "x2y1", "snake_csae", "under_scoer", "4nd",
+				"2dn", "speling", "spleling", "corection", "corretcly")) {
+			assertEquals("Correction of [" + word + "]", edits.correct(word),
+					index.correct(word));
+		}
+	}
+
+	@Test
+	public void testWriteAndReadIndex()
+		throws Exception
+	{
+		NorvigSpellingAlgorithm original = train();
+		File file = new File(folder.getRoot(), "norvig.idx");
+		original.writeIndex(file);
+
+		NorvigSpellingAlgorithm restored = new NorvigSpellingAlgorithm();
+		restored.readIndex(file);
+
+		for (String word : testWords()) {
+			assertEquals("Correction of [" + word + "]", original.correct(word),
+					restored.correct(word));
+		}
+
+		// The dictionary has been restored as well, so training adds to the original counts
+		restored.train(new StringReader("fro fro fro fro"));
+		assertEquals("fro", restored.correct("frm"));
+	}
+
+	@Test
+	public void testCacheEviction()
+		throws Exception
+	{
+		CountingAlgorithm algorithm = new CountingAlgorithm();
+		algorithm.train(new StringReader(DICTIONARY));
+		algorithm.setCacheSize(2);
+
+		algorithm.correct("xat");
+		algorithm.correct("dar");
+		assertEquals(asList("xat", "dar"), algorithm.computed);
+
+		// Cached - and now the most recently used entry
+		algorithm.correct("xat");
+		assertEquals(asList("xat", "dar"), algorithm.computed);
+
+		// Evicts the least recently used entry "dar"
+		algorithm.correct("cax");
+		algorithm.correct("xat");
+		algorithm.correct("dar");
+		assertEquals(asList("xat", "dar", "cax", "dar"), algorithm.computed);
+
+		// A cache size of 0 disables caching
+		algorithm.setCacheSize(0);
+		algorithm.correct("xat");
+		algorithm.correct("xat");
+		assertEquals(asList("xat", "dar", "cax", "dar", "xat", "xat"), algorithm.computed);
+	}
+
+	private NorvigSpellingAlgorithm train()
+		throws Exception
+	{
+		NorvigSpellingAlgorithm algorithm = new NorvigSpellingAlgorithm();
+		algorithm.train(new StringReader(DICTIONARY));
+		return algorithm;
+	}
+
+	/**
+	 * All dictionary words with one and two random edits applied, including transpositions and
+	 * edits involving digits and underscores.
+	 */
+	private List<String> testWords()
+	{
+		String alphabet = "abcdefghijklmnopqrstuvwxyz0123456789_";
+		Random rnd = new Random(42);
+		Set<String> words = new LinkedHashSet<String>();
+		for (String word : DICTIONARY.split("\\W+")) {
+			if (word.isEmpty()) {
+				continue;
+			}
+			words.add(word);
+			String edit1 = randomEdit(word, alphabet, rnd);
+			words.add(edit1);
+			words.add(randomEdit(edit1, alphabet, rnd));
+			words.add(randomEdit(randomEdit(edit1, alphabet, rnd), alphabet, rnd));
+		}
+		return new ArrayList<String>(words);
+	}
+
+	private static String randomEdit(String aWord, String aAlphabet, Random aRnd)
+	{
+		if (aWord.isEmpty()) {
+			return aWord;
+		}
+		int i = aRnd.nextInt(aWord.length());
+		char c = aAlphabet.charAt(aRnd.nextInt(aAlphabet.length()));
+		switch (aRnd.nextInt(4)) {
+		case 0: // delete
+			return aWord.substring(0, i) + aWord.substring(i + 1);
+		case 1: // replace
+			return aWord.substring(0, i) + c + aWord.substring(i + 1);
+		case 2: // insert
+			return aWord.substring(0, i) + c + aWord.substring(i);
+		default: // transpose
+			if (i == aWord.length() - 1) {
+				return aWord;
+			}
+			return aWord.substring(0, i) + aWord.charAt(i + 1) + aWord.charAt(i)
+					+ aWord.substring(i + 2);
+		}
+	}
+
+	private static class CountingAlgorithm
+		extends NorvigSpellingAlgorithm
+	{
+		final List<String> computed = new ArrayList<String>();
+
+		@Override
+		protected String getBestCandidate(String aWord)
+		{
+			computed.add(aWord);
+			return super.getBestCandidate(aWord);
+		}
+	}
+}
@@ -19,27 +19,18 @@ package de.tudarmstadt.ukp.dkpro.core.opennlp;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Collections;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.uima.UimaContext;
-import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.fit.component.JCasConsumer_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
-import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.opennlp.internal.CasNameSampleStream;
+import de.tudarmstadt.ukp.dkpro.core.opennlp.internal.OpenNlpTrainerBase;
 import opennlp.tools.ml.BeamSearch;
 import opennlp.tools.ml.EventTrainer;
 import opennlp.tools.ml.maxent.GIS;
@@ -53,12 +44,13 @@ import opennlp.tools.namefind.TokenNameFinderFactory;
 import opennlp.tools.namefind.TokenNameFinderModel;
 import opennlp.tools.util.SequenceCodec;
 import opennlp.tools.util.TrainingParameters;
+import opennlp.tools.util.model.BaseModel;
 
 /**
  * Train a POS tagging model for OpenNLP.
  */
 public class OpenNlpNamedEntityRecognizerTrainer
-    extends JCasConsumer_ImplBase
+    extends OpenNlpTrainerBase<CasNameSampleStream>
 {
     public static enum SequenceEncoding {
         BIO(BioCodec.class), BILOU(BilouCodec.class);
@@ -85,10 +77,6 @@ public class OpenNlpNamedEntityRecognizerTrainer
     @ConfigurationParameter(name = PARAM_LANGUAGE, mandatory = true)
     private String language;
 
-    public static final String PARAM_TARGET_LOCATION = ComponentParameters.PARAM_TARGET_LOCATION;
-    @ConfigurationParameter(name = PARAM_TARGET_LOCATION, mandatory = true)
-    private File targetLocation;
-
     /**
      * @see GIS#MAXENT_VALUE
      * @see QNTrainer#MAXENT_QN_VALUE
@@ -126,19 +114,16 @@ public class OpenNlpNamedEntityRecognizerTrainer
     @ConfigurationParameter(name = PARAM_SEQUENCE_ENCODING, mandatory = true, defaultValue="BILOU")
     private SequenceEncoding sequenceEncoding;
 
-    
-    private CasNameSampleStream stream;
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
-    private Future<TokenNameFinderModel> future;
+    @Override
+    public CasNameSampleStream makeSampleStream()
+    {
+        return new CasNameSampleStream();
+    }
     
     @Override
-    public void initialize(UimaContext aContext)
+    public Callable<? extends BaseModel> makeTrainer()
         throws ResourceInitializationException
     {
-        super.initialize(aContext);
-        
-        stream = new CasNameSampleStream();
-        
         TrainingParameters params = new TrainingParameters();
         params.put(TrainingParameters.ALGORITHM_PARAM, algorithm);
 //        params.put(TrainingParameters.TRAINER_TYPE_PARAM,
@@ -151,54 +136,18 @@ public class OpenNlpNamedEntityRecognizerTrainer
         
         Callable<TokenNameFinderModel> trainTask = () -> {
             try {
-                return NameFinderME.train(language, null, stream, params,
+                return NameFinderME.train(language, null, getStream(), params,
                         new TokenNameFinderFactory(featureGenCfg,
                                 Collections.<String, Object> emptyMap(),
                                 sequenceEncoding.getCodec()));
             }
             catch (Throwable e) {
-                stream.close();
+                getStream().close();
                 throw e;
             }
         };
         
-        future = executor.submit(trainTask);
-    }
-    
-    @Override
-    public void process(JCas aJCas)
-        throws AnalysisEngineProcessException
-    {
-        if (!future.isCancelled()) {
-            stream.send(aJCas);
-        }
-    }
-    
-    @Override
-    public void collectionProcessComplete()
-        throws AnalysisEngineProcessException
-    {
-        try {
-            stream.close();
-        }
-        catch (IOException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-        
-        TokenNameFinderModel model;
-        try {
-            model = future.get();
-        }
-        catch (InterruptedException | ExecutionException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-        
-        try (OutputStream out = new FileOutputStream(targetLocation)) {
-            model.serialize(out);
-        }
-        catch (IOException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
+        return trainTask;
     }
 
     private byte[] loadFeatureGen(File aFile)
@@ -17,50 +17,37 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.opennlp;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.URL;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
-import org.apache.uima.UimaContext;
-import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.fit.component.JCasConsumer_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
-import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ResourceUtils;
 import de.tudarmstadt.ukp.dkpro.core.opennlp.internal.CasSentenceSampleStream;
+import de.tudarmstadt.ukp.dkpro.core.opennlp.internal.OpenNlpTrainerBase;
 import opennlp.tools.dictionary.Dictionary;
 import opennlp.tools.ml.EventTrainer;
 import opennlp.tools.sentdetect.SentenceDetectorFactory;
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
 import opennlp.tools.util.TrainingParameters;
+import opennlp.tools.util.model.BaseModel;
 
 /**
  * Train a sentence splitter model for OpenNLP.
  */
 public class OpenNlpSentenceTrainer
-    extends JCasConsumer_ImplBase
+    extends OpenNlpTrainerBase<CasSentenceSampleStream>
 {
     public static final String PARAM_LANGUAGE = ComponentParameters.PARAM_LANGUAGE;
     @ConfigurationParameter(name = PARAM_LANGUAGE, mandatory = true)
     private String language;
 
-    public static final String PARAM_TARGET_LOCATION = ComponentParameters.PARAM_TARGET_LOCATION;
-    @ConfigurationParameter(name = PARAM_TARGET_LOCATION, mandatory = true)
-    private File targetLocation;
-
     public static final String PARAM_ALGORITHM = "algorithm";
     @ConfigurationParameter(name = PARAM_ALGORITHM, mandatory = true, defaultValue = "MAXENT")
     private String algorithm;
@@ -89,29 +76,27 @@ public class OpenNlpSentenceTrainer
     @ConfigurationParameter(name = PARAM_ABBREVIATION_DICTIONARY_ENCODING, mandatory = true, defaultValue = "UTF-8")
     private String abbreviationDictionaryEncoding;
 
-    private CasSentenceSampleStream stream;
-    private Dictionary abbreviationDictionary;
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
-    private Future<SentenceModel> future;
+    @Override
+    public CasSentenceSampleStream makeSampleStream()
+    {
+        return new CasSentenceSampleStream();
+    }
     
     @Override
-    public void initialize(UimaContext aContext)
+    public Callable<? extends BaseModel> makeTrainer()
         throws ResourceInitializationException
     {
-        super.initialize(aContext);
-        
-        stream = new CasSentenceSampleStream();
-        
         TrainingParameters params = new TrainingParameters();
         params.put(TrainingParameters.ALGORITHM_PARAM, algorithm);
         params.put(TrainingParameters.TRAINER_TYPE_PARAM, trainerType);
         params.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(iterations));
         params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(cutoff));
         
+        Dictionary abbreviationDictionary;
         if (abbreviationDictionaryLocation != null) {
             try {
                 URL abbrevUrl = ResourceUtils.resolveLocation(abbreviationDictionaryLocation,
-                        aContext);
+                        getContext());
                 try (InputStream is = abbrevUrl.openStream()) {
                     abbreviationDictionary = Dictionary.parseOneEntryPerLine(
                             new InputStreamReader(is, abbreviationDictionaryEncoding));
@@ -129,50 +114,14 @@ public class OpenNlpSentenceTrainer
             try {
                 SentenceDetectorFactory factory = new SentenceDetectorFactory(language, true,
                         abbreviationDictionary, eosCharacters);
-                return SentenceDetectorME.train(language, stream, factory, params);
+                return SentenceDetectorME.train(language, getStream(), factory, params);
             }
             catch (Throwable e) {
-                stream.close();
+                getStream().close();
                 throw e;
             }
         };
         
-        future = executor.submit(trainTask);
-    }
-    
-    @Override
-    public void process(JCas aJCas)
-        throws AnalysisEngineProcessException
-    {
-        if (!future.isCancelled()) {
-            stream.send(aJCas);
-        }
-    }
-    
-    @Override
-    public void collectionProcessComplete()
-        throws AnalysisEngineProcessException
-    {
-        try {
-            stream.close();
-        }
-        catch (IOException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-        
-        SentenceModel model;
-        try {
-            model = future.get();
-        }
-        catch (InterruptedException | ExecutionException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-        
-        try (OutputStream out = new FileOutputStream(targetLocation)) {
-            model.serialize(out);
-        }
-        catch (IOException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
+        return trainTask;
     }
 }
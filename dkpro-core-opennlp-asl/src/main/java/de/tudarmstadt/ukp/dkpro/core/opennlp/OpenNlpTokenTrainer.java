@@ -17,30 +17,20 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.opennlp;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.URL;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
-import org.apache.uima.UimaContext;
-import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.fit.component.JCasConsumer_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
-import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ResourceUtils;
 import de.tudarmstadt.ukp.dkpro.core.opennlp.internal.CasTokenSampleStream;
+import de.tudarmstadt.ukp.dkpro.core.opennlp.internal.OpenNlpTrainerBase;
 import opennlp.tools.dictionary.Dictionary;
 import opennlp.tools.ml.EventTrainer;
 import opennlp.tools.tokenize.TokenizerFactory;
@@ -48,21 +38,18 @@ import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
 import opennlp.tools.tokenize.lang.Factory;
 import opennlp.tools.util.TrainingParameters;
+import opennlp.tools.util.model.BaseModel;
 
 /**
  * Train a sentence splitter model for OpenNLP.
  */
 public class OpenNlpTokenTrainer
-    extends JCasConsumer_ImplBase
+    extends OpenNlpTrainerBase<CasTokenSampleStream>
 {
     public static final String PARAM_LANGUAGE = ComponentParameters.PARAM_LANGUAGE;
     @ConfigurationParameter(name = PARAM_LANGUAGE, mandatory = true)
     private String language;
 
-    public static final String PARAM_TARGET_LOCATION = ComponentParameters.PARAM_TARGET_LOCATION;
-    @ConfigurationParameter(name = PARAM_TARGET_LOCATION, mandatory = true)
-    private File targetLocation;
-
     public static final String PARAM_ALGORITHM = "algorithm";
     @ConfigurationParameter(name = PARAM_ALGORITHM, mandatory = true, defaultValue = "MAXENT")
     private String algorithm;
@@ -95,29 +82,27 @@ public class OpenNlpTokenTrainer
     @ConfigurationParameter(name = PARAM_ABBREVIATION_DICTIONARY_ENCODING, mandatory = true, defaultValue = "UTF-8")
     private String abbreviationDictionaryEncoding;
 
-    private CasTokenSampleStream stream;
-    private Dictionary abbreviationDictionary;
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
-    private Future<TokenizerModel> future;
+    @Override
+    public CasTokenSampleStream makeSampleStream()
+    {
+        return new CasTokenSampleStream();
+    }
     
     @Override
-    public void initialize(UimaContext aContext)
+    public Callable<? extends BaseModel> makeTrainer()
         throws ResourceInitializationException
     {
-        super.initialize(aContext);
-        
-        stream = new CasTokenSampleStream();
-        
         TrainingParameters params = new TrainingParameters();
         params.put(TrainingParameters.ALGORITHM_PARAM, algorithm);
         params.put(TrainingParameters.TRAINER_TYPE_PARAM, trainerType);
         params.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(iterations));
         params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(cutoff));
         
+        Dictionary abbreviationDictionary;
         if (abbreviationDictionaryLocation != null) {
             try {
                 URL abbrevUrl = ResourceUtils.resolveLocation(abbreviationDictionaryLocation,
-                        aContext);
+                        getContext());
                 try (InputStream is = abbrevUrl.openStream()) {
                     abbreviationDictionary = Dictionary.parseOneEntryPerLine(
                             new InputStreamReader(is, abbreviationDictionaryEncoding));
@@ -135,50 +120,14 @@ public class OpenNlpTokenTrainer
             try {
                 TokenizerFactory factory = new TokenizerFactory(language,
                         abbreviationDictionary, useAlphaNumericOptimization, alphaNumericPattern);
-                return TokenizerME.train(stream, factory, params);
+                return TokenizerME.train(getStream(), factory, params);
             }
             catch (Throwable e) {
-                stream.close();
+                getStream().close();
                 throw e;
             }
         };
         
-        future = executor.submit(trainTask);
-    }
-    
-    @Override
-    public void process(JCas aJCas)
-        throws AnalysisEngineProcessException
-    {
-        if (!future.isCancelled()) {
-            stream.send(aJCas);
-        }
-    }
-    
-    @Override
-    public void collectionProcessComplete()
-        throws AnalysisEngineProcessException
-    {
-        try {
-            stream.close();
-        }
-        catch (IOException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-        
-        TokenizerModel model;
-        try {
-            model = future.get();
-        }
-        catch (InterruptedException | ExecutionException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
-        
-        try (OutputStream out = new FileOutputStream(targetLocation)) {
-            model.serialize(out);
-        }
-        catch (IOException e) {
-            throw new AnalysisEngineProcessException(e);
-        }
+        return trainTask;
     }
 }
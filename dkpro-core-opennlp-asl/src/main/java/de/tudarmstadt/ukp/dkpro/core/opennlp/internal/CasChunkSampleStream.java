@@ -20,6 +20,9 @@ package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -65,11 +68,6 @@ public class CasChunkSampleStream
         // Process present sentences
         Sentence sentence = sentences.next();
         
-        // Block on next call to read
-        if (!sentences.hasNext()) {
-            documentComplete();
-        }
-        
         List<String> words = new ArrayList<>();
         List<String> tags = new ArrayList<>();
         List<String> preds = new ArrayList<>();
@@ -85,4 +83,20 @@ public class CasChunkSampleStream
         
         return new ChunkSample(words, tags, preds);
     }
+
+    @Override
+    public void writeSample(DataOutputStream aOut, ChunkSample aSample)
+        throws IOException
+    {
+        writeStrings(aOut, aSample.getSentence());
+        writeStrings(aOut, aSample.getTags());
+        writeStrings(aOut, aSample.getPreds());
+    }
+
+    @Override
+    public ChunkSample readSample(DataInputStream aIn)
+        throws IOException
+    {
+        return new ChunkSample(readStrings(aIn), readStrings(aIn), readStrings(aIn));
+    }
 }
@@ -20,6 +20,9 @@ package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -53,11 +56,6 @@ public class CasLemmaSampleStream
         // Process present sentences
         Sentence sentence = sentences.next();
         
-        // Block on next call to read
-        if (!sentences.hasNext()) {
-            documentComplete();
-        }
-        
         List<String> words = new ArrayList<>();
         List<String> tags = new ArrayList<>();
         List<String> lemmas = new ArrayList<>();
@@ -80,4 +78,20 @@ public class CasLemmaSampleStream
         
         return new LemmaSample(words, tags, lemmas);
     }
+
+    @Override
+    public void writeSample(DataOutputStream aOut, LemmaSample aSample)
+        throws IOException
+    {
+        writeStrings(aOut, aSample.getTokens());
+        writeStrings(aOut, aSample.getTags());
+        writeStrings(aOut, aSample.getLemmas());
+    }
+
+    @Override
+    public LemmaSample readSample(DataInputStream aIn)
+        throws IOException
+    {
+        return new LemmaSample(readStrings(aIn), readStrings(aIn), readStrings(aIn));
+    }
 }
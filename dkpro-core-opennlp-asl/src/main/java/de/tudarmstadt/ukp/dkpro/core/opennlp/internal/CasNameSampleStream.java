@@ -20,6 +20,9 @@ package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -98,11 +101,22 @@ public class CasNameSampleStream
         // will re-set it to true
         clearAdaptiveData = false;
         
-        // Block on next call to read
-        if (!sentences.hasNext()) {
-            documentComplete();
-        }
-        
         return sample;
     }
+
+    @Override
+    public void writeSample(DataOutputStream aOut, NameSample aSample)
+        throws IOException
+    {
+        writeStrings(aOut, aSample.getSentence());
+        writeSpans(aOut, aSample.getNames());
+        aOut.writeBoolean(aSample.isClearAdaptiveDataSet());
+    }
+
+    @Override
+    public NameSample readSample(DataInputStream aIn)
+        throws IOException
+    {
+        return new NameSample(readStrings(aIn), readSpans(aIn), aIn.readBoolean());
+    }
 }
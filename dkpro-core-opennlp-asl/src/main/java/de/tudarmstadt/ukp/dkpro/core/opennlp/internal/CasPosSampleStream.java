@@ -20,6 +20,9 @@ package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -52,11 +55,6 @@ public class CasPosSampleStream
         // Process present sentences
         Sentence sentence = sentences.next();
         
-        // Block on next call to read
-        if (!sentences.hasNext()) {
-            documentComplete();
-        }
-        
         List<String> words = new ArrayList<>();
         List<String> tags = new ArrayList<>();
         
@@ -70,4 +68,19 @@ public class CasPosSampleStream
         
         return new POSSample(words, tags);
     }
+
+    @Override
+    public void writeSample(DataOutputStream aOut, POSSample aSample)
+        throws IOException
+    {
+        writeStrings(aOut, aSample.getSentence());
+        writeStrings(aOut, aSample.getTags());
+    }
+
+    @Override
+    public POSSample readSample(DataInputStream aIn)
+        throws IOException
+    {
+        return new POSSample(readStrings(aIn), readStrings(aIn));
+    }
 }
@@ -17,113 +17,367 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.uima.jcas.JCas;
 
 import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.Span;
 
+/**
+ * Passes training samples from the UIMA pipeline to an OpenNLP trainer running in another thread.
+ * <p>
+ * The samples of each CAS are extracted in the pipeline thread when the CAS is sent, so the
+ * pipeline can continue with the next CAS while the trainer consumes the samples. Up to
+ * {@link #DEFAULT_BUFFER_SIZE} CASes worth of samples are buffered (see
+ * {@link #setBufferSize(int)}). If the buffer is full, sending blocks until the trainer has
+ * caught up.
+ * <p>
+ * If spooling is enabled (see {@link #setSpoolEnabled(boolean)}), the samples are also written to
+ * a temporary file while they are read. This allows trainers which make several passes over the
+ * data to {@link #reset()} the stream without running the pipeline again.
+ */
 public abstract class CasSampleStreamBase<T>
     implements ObjectStream<T>
 {
-    private boolean complete = false;
-    private boolean inProduction = false;
-    private AtomicReference<JCas> jcasReference = new AtomicReference<>();
-    private Thread readingThread;
-    private Thread sendingThread;
-    
+    public static final int DEFAULT_BUFFER_SIZE = 16;
+
+    private final List<T> endOfInput = new ArrayList<>();
+
+    private BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(DEFAULT_BUFFER_SIZE);
+    private volatile boolean closed = false;
+
+    // Only accessed by the reading thread
+    private Iterator<T> currentBatch;
+    private boolean inputComplete = false;
+    private boolean spoolEnabled = false;
+    private boolean spoolComplete = false;
+    private File spoolFile;
+    private DataOutputStream spoolOut;
+    private DataInputStream spoolIn;
+
     public CasSampleStreamBase()
     {
         // Nothing to do
     }
-    
-    public void send(JCas aJCas) {
-        jcasReference.set(aJCas);
-        
-        if (readingThread != null) {
-            readingThread.interrupt();
-        }
-        
-        // Wait for the CAS to have been processed
-        while (inProduction || (!complete && jcasReference.get() != null)) {
-            try {
-                sendingThread = Thread.currentThread();
-                TimeUnit.MILLISECONDS.sleep(10);
+
+    /**
+     * Set the number of CASes worth of samples which can be buffered. Must be called before the
+     * first CAS is sent.
+     *
+     * @param aBufferSize
+     *            the number of buffered CASes.
+     */
+    public void setBufferSize(int aBufferSize)
+    {
+        queue = new ArrayBlockingQueue<>(aBufferSize);
+    }
+
+    /**
+     * Write the samples to a temporary file while they are read, so the stream can be reset. Must
+     * be called before the first sample is read.
+     *
+     * @param aSpoolEnabled
+     *            whether to spool the samples.
+     */
+    public void setSpoolEnabled(boolean aSpoolEnabled)
+    {
+        spoolEnabled = aSpoolEnabled;
+    }
+
+    public void send(JCas aJCas)
+    {
+        if (closed) {
+            // The trainer is no longer reading
+            return;
+        }
+
+        List<T> batch = new ArrayList<>();
+        try {
+            init(aJCas);
+            while (isActive()) {
+                batch.add(produce(aJCas));
             }
-            catch (InterruptedException e) {
-                sendingThread = null;
-                Thread.interrupted();
-                // Ignore
+        }
+        catch (RuntimeException e) {
+            // Do not leave the trainer waiting for more samples
+            closed = true;
+            queue.offer(endOfInput);
+            throw e;
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Wake up regularly to notice if the trainer has given up while the buffer is full
+            while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    return;
+                }
             }
         }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-    
+
     @Override
     public T read()
         throws IOException
     {
-        if (complete) {
-            // Nothing more to read
-            return null;
+        if (spoolIn != null) {
+            return spoolIn.readBoolean() ? readSample(spoolIn) : null;
         }
-        
-        // Block while the processing is not complete and we do not have a CAS
-        while (jcasReference.get() == null || !isActive()) {
-            if (complete) {
-                // Nothing more to read
-                return null;
-            }
-            
-            // Get sentences if any available
-            if (jcasReference.get() != null) {
-                init(jcasReference.get());
+
+        T sample = readInput();
+        if (spoolEnabled) {
+            spool(sample);
+        }
+        return sample;
+    }
+
+    private T readInput()
+        throws IOException
+    {
+        while (!inputComplete) {
+            if (currentBatch != null && currentBatch.hasNext()) {
+                return currentBatch.next();
             }
-            else {
-                try {
-                    readingThread = Thread.currentThread();
-                    TimeUnit.MILLISECONDS.sleep(10);
+
+            List<T> batch = queue.poll();
+            if (batch == null) {
+                if (closed) {
+                    // Pick up anything sent before the stream was closed
+                    batch = queue.poll();
                 }
-                catch (InterruptedException e) {
-                    Thread.interrupted();
-                    readingThread = null;
-                    // Ignore
+                else {
+                    try {
+                        batch = queue.take();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
                 }
             }
+
+            if (batch == null || batch == endOfInput) {
+                inputComplete = true;
+                currentBatch = null;
+            }
+            else {
+                currentBatch = batch.iterator();
+            }
         }
-    
-        try {
-            inProduction = true;
-            return produce(jcasReference.get());
+        return null;
+    }
+
+    private void spool(T aSample)
+        throws IOException
+    {
+        if (spoolComplete) {
+            return;
         }
-        finally {
-            inProduction = false;
+
+        if (spoolOut == null) {
+            spoolFile = File.createTempFile("dkpro-opennlp-samples", ".bin");
+            spoolFile.deleteOnExit();
+            spoolOut = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(spoolFile)));
+        }
+
+        if (aSample != null) {
+            spoolOut.writeBoolean(true);
+            writeSample(spoolOut, aSample);
+        }
+        else {
+            spoolOut.writeBoolean(false);
+            spoolOut.close();
+            spoolOut = null;
+            spoolComplete = true;
         }
     }
-    
+
     public abstract void init(JCas aJCas);
-    
+
     public abstract boolean isActive();
-    
+
     public abstract T produce(JCas aJCas);
-    
-    public void documentComplete()
-    {
-        jcasReference.set(null);
-    }
 
+    /**
+     * Write a sample to the spool.
+     *
+     * @param aOut
+     *            the spool.
+     * @param aSample
+     *            the sample.
+     * @throws IOException
+     *             if the sample cannot be written.
+     */
+    public abstract void writeSample(DataOutputStream aOut, T aSample)
+        throws IOException;
+
+    /**
+     * Read a sample written by {@link #writeSample(DataOutputStream, Object)} from the spool.
+     *
+     * @param aIn
+     *            the spool.
+     * @return the sample.
+     * @throws IOException
+     *             if the sample cannot be read.
+     */
+    public abstract T readSample(DataInputStream aIn)
+        throws IOException;
+
+    /**
+     * Restart reading from the first sample. This requires spooling to be enabled. If not all
+     * samples have been read yet, this waits for the pipeline to send the remaining CASes.
+     */
     @Override
     public void reset()
         throws IOException, UnsupportedOperationException
     {
-        throw new UnsupportedOperationException();
+        if (!spoolEnabled) {
+            throw new UnsupportedOperationException(
+                    "Sample spooling must be enabled to reset the stream");
+        }
+
+        if (spoolIn == null) {
+            // Make sure all samples have been spooled
+            T sample;
+            do {
+                sample = readInput();
+                spool(sample);
+            }
+            while (sample != null);
+        }
+        else {
+            spoolIn.close();
+        }
+
+        spoolIn = new DataInputStream(new BufferedInputStream(new FileInputStream(spoolFile)));
     }
 
+    /**
+     * Signal that no more CASes will be sent. When called from the trainer, pending and further
+     * CASes are discarded.
+     */
     @Override
     public void close()
         throws IOException
     {
-        complete = true;
+        if (!closed) {
+            closed = true;
+            // If the buffer is full, the trainer notices that the stream has been closed once it
+            // has consumed the buffered samples
+            queue.offer(endOfInput);
+        }
+    }
+
+    /**
+     * Delete the spool file, if any. Call this once the trainer is done with the stream.
+     */
+    public void deleteSpool()
+    {
+        try {
+            if (spoolOut != null) {
+                spoolOut.close();
+            }
+            if (spoolIn != null) {
+                spoolIn.close();
+            }
+        }
+        catch (IOException e) {
+            // Ignore - the file is deleted anyway
+        }
+        spoolOut = null;
+        spoolIn = null;
+
+        if (spoolFile != null) {
+            spoolFile.delete();
+            spoolFile = null;
+        }
+    }
+
+    protected static void writeString(DataOutputStream aOut, String aString)
+        throws IOException
+    {
+        if (aString == null) {
+            aOut.writeInt(-1);
+        }
+        else {
+            aOut.writeInt(aString.length());
+            aOut.writeChars(aString);
+        }
+    }
+
+    protected static String readString(DataInputStream aIn)
+        throws IOException
+    {
+        int length = aIn.readInt();
+        if (length == -1) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = aIn.readChar();
+        }
+        return new String(chars);
+    }
+
+    protected static void writeStrings(DataOutputStream aOut, String[] aStrings)
+        throws IOException
+    {
+        aOut.writeInt(aStrings.length);
+        for (String s : aStrings) {
+            writeString(aOut, s);
+        }
+    }
+
+    protected static String[] readStrings(DataInputStream aIn)
+        throws IOException
+    {
+        String[] strings = new String[aIn.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(aIn);
+        }
+        return strings;
+    }
+
+    protected static void writeSpans(DataOutputStream aOut, Span[] aSpans)
+        throws IOException
+    {
+        aOut.writeInt(aSpans.length);
+        for (Span span : aSpans) {
+            aOut.writeInt(span.getStart());
+            aOut.writeInt(span.getEnd());
+            writeString(aOut, span.getType());
+        }
+    }
+
+    protected static Span[] readSpans(DataInputStream aIn)
+        throws IOException
+    {
+        Span[] spans = new Span[aIn.readInt()];
+        for (int i = 0; i < spans.length; i++) {
+            spans[i] = new Span(aIn.readInt(), aIn.readInt(), readString(aIn));
+        }
+        return spans;
     }
 }
@@ -19,6 +19,9 @@ package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
 
 import static org.apache.uima.fit.util.JCasUtil.select;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -57,10 +60,24 @@ public class CasSentenceSampleStream
         SentenceSample sample = new SentenceSample(text,
                 sentences.toArray(new Span[sentences.size()]));
         
-        documentComplete();
         sentences = null;
         text = null;
         
         return sample;
     }
+
+    @Override
+    public void writeSample(DataOutputStream aOut, SentenceSample aSample)
+        throws IOException
+    {
+        writeString(aOut, aSample.getDocument());
+        writeSpans(aOut, aSample.getSentences());
+    }
+
+    @Override
+    public SentenceSample readSample(DataInputStream aIn)
+        throws IOException
+    {
+        return new SentenceSample(readString(aIn), readSpans(aIn));
+    }
 }
\ No newline at end of file
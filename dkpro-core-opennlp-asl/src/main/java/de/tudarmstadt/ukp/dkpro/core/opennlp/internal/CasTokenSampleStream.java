@@ -19,6 +19,9 @@ package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
 
 import static org.apache.uima.fit.util.JCasUtil.select;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,10 +59,24 @@ public class CasTokenSampleStream
     {
         TokenSample sample = new TokenSample(text, tokens.toArray(new Span[tokens.size()]));
 
-        documentComplete();
         tokens = null;
         text = null;
 
         return sample;
     }
+
+    @Override
+    public void writeSample(DataOutputStream aOut, TokenSample aSample)
+        throws IOException
+    {
+        writeString(aOut, aSample.getText());
+        writeSpans(aOut, aSample.getTokenSpans());
+    }
+
+    @Override
+    public TokenSample readSample(DataInputStream aIn)
+        throws IOException
+    {
+        return new TokenSample(readString(aIn), readSpans(aIn));
+    }
 }
\ No newline at end of file
@@ -47,6 +47,21 @@ public abstract class OpenNlpTrainerBase<T extends CasSampleStreamBase>
     @ConfigurationParameter(name = PARAM_TARGET_LOCATION, mandatory = true)
     private File targetLocation;
 
+    /**
+     * Number of documents whose training samples are buffered while the trainer is busy.
+     */
+    public static final String PARAM_SAMPLE_BUFFER_SIZE = "sampleBufferSize";
+    @ConfigurationParameter(name = PARAM_SAMPLE_BUFFER_SIZE, mandatory = true, defaultValue = "16")
+    private int sampleBufferSize;
+
+    /**
+     * Write the training samples to a temporary file so that trainers which make several passes
+     * over the data (e.g. {@code PERCEPTRON_SEQUENCE}) can re-read them.
+     */
+    public static final String PARAM_SPOOL_SAMPLES = "spoolSamples";
+    @ConfigurationParameter(name = PARAM_SPOOL_SAMPLES, mandatory = true, defaultValue = "false")
+    private boolean spoolSamples;
+
     private T stream;
     private ExecutorService executor = Executors.newSingleThreadExecutor();
     private Future<? extends BaseModel> future;
@@ -58,6 +73,8 @@ public abstract class OpenNlpTrainerBase<T extends CasSampleStreamBase>
         super.initialize(aContext);
         
         stream = makeSampleStream();
+        stream.setBufferSize(sampleBufferSize);
+        stream.setSpoolEnabled(spoolSamples);
         
         Callable<? extends BaseModel> trainTask = makeTrainer();
         
@@ -66,7 +83,8 @@ public abstract class OpenNlpTrainerBase<T extends CasSampleStreamBase>
     
     public abstract T makeSampleStream();
     
-    public abstract Callable<? extends BaseModel> makeTrainer();
+    public abstract Callable<? extends BaseModel> makeTrainer()
+        throws ResourceInitializationException;
     
     public T getStream()
     {
@@ -100,6 +118,9 @@ public abstract class OpenNlpTrainerBase<T extends CasSampleStreamBase>
         catch (InterruptedException | ExecutionException e) {
             throw new AnalysisEngineProcessException(e);
         }
+        finally {
+            stream.deleteSpool();
+        }
         
         try (OutputStream out = new FileOutputStream(targetLocation)) {
             model.serialize(out);
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.dkpro.core.opennlp.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import opennlp.tools.postag.POSSample;
+
+public class CasPosSampleStreamTest
+{
+    @Test
+    public void testSpoolAndReset()
+        throws Exception
+    {
+        CasPosSampleStream stream = new CasPosSampleStream();
+        stream.setBufferSize(2);
+        stream.setSpoolEnabled(true);
+
+        // Read all samples twice in a separate thread like a trainer would
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<List<String>> future = executor.submit(() -> {
+            List<String> samples = new ArrayList<>();
+            for (int pass = 0; pass < 2; pass++) {
+                if (pass > 0) {
+                    stream.reset();
+                }
+                POSSample sample;
+                while ((sample = stream.read()) != null) {
+                    samples.add(sample.toString());
+                }
+            }
+            return samples;
+        });
+
+        JCas jcas = JCasFactory.createJCas();
+        List<String> expected = new ArrayList<>();
+        for (int doc = 0; doc < 10; doc++) {
+            jcas.reset();
+            jcas.setDocumentText("a" + doc + " b . c d" + doc + " .");
+            addSentence(jcas, 0, "a" + doc, "b", ".");
+            addSentence(jcas, jcas.getDocumentText().indexOf('c'), "c", "d" + doc, ".");
+            expected.add("a" + doc + "_X b_X ._X");
+            expected.add("c_X d" + doc + "_X ._X");
+            stream.send(jcas);
+        }
+        stream.close();
+
+        List<String> actual = future.get();
+        executor.shutdown();
+        stream.deleteSpool();
+
+        List<String> twice = new ArrayList<>(expected);
+        twice.addAll(expected);
+        assertEquals(twice, actual);
+    }
+
+    private static void addSentence(JCas aJCas, int aBegin, String... aTokens)
+    {
+        int begin = aBegin;
+        for (String t : aTokens) {
+            Token token = new Token(aJCas, begin, begin + t.length());
+            POS pos = new POS(aJCas, token.getBegin(), token.getEnd());
+            pos.setPosValue("X");
+            pos.addToIndexes();
+            token.setPos(pos);
+            token.addToIndexes();
+            begin = token.getEnd() + 1;
+        }
+        new Sentence(aJCas, aBegin, begin - 1).addToIndexes();
+    }
+}
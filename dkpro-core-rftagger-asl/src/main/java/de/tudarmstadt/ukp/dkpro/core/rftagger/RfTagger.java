@@ -17,17 +17,10 @@
  */
 package de.tudarmstadt.ukp.dkpro.core.rftagger;
 
-import static org.apache.commons.io.IOUtils.closeQuietly;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.lang.ProcessBuilder.Redirect;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,6 +41,8 @@ import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.morph.MorphologicalFeatur
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.SingletonTagset;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.ExternalToolProtocol;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.ExternalToolSession;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.LittleEndianDataInputStream;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.MappingProvider;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.MappingProviderFactory;
@@ -118,12 +113,30 @@ public class RfTagger
     @ConfigurationParameter(name = PARAM_PRINT_TAGSET, mandatory = true, defaultValue = "false")
     protected boolean printTagSet;
 
+    /**
+     * Number of {@code rft-annotate} processes to keep running. The sentences of a document are
+     * distributed over these processes.
+     *
+     * Default: {@code 1}
+     */
+    public static final String PARAM_PROCESS_POOL_SIZE = "processPoolSize";
+    @ConfigurationParameter(name = PARAM_PROCESS_POOL_SIZE, mandatory = true, defaultValue = "1")
+    private int processPoolSize;
+
+    /**
+     * Maximum time in milliseconds a {@code rft-annotate} process may take to tag a sentence
+     * before it is killed and restarted. If set to {@code 0}, no timeout is enforced.
+     *
+     * Default: {@code 0}
+     */
+    public static final String PARAM_PROCESS_TIMEOUT = "processTimeout";
+    @ConfigurationParameter(name = PARAM_PROCESS_TIMEOUT, mandatory = true, defaultValue = "0")
+    private long processTimeout;
+
     private MappingProvider mappingProvider;
     private RuntimeProvider runtimeProvider;
     private ModelProviderBase<File> modelProvider;
-    private Process process;
-    private BufferedWriter writer;
-    private BufferedReader reader;
+    private ExternalToolSession session;
     private MorphologicalFeaturesParser featuresParser;
 
     private String encodingLoadedFromModel;
@@ -171,12 +184,7 @@ public class RfTagger
                 if (printTagSet) {
                     getLogger().info(getTagset().toString());
                 }
-                
-                // FIXME Actually, this is the place where the rftagger process should be
-                // started/stopped so that if the language changes during processing, the
-                // rftagger is reloaded with the required model.
-                // It might not be easy to fix this - but then at least a bug should be
-                // opened.
+
                 return ResourceUtils.getUrlAsFile(aUrl, true);
             }
 
@@ -202,32 +210,45 @@ public class RfTagger
     private void ensureTaggerRunning()
         throws AnalysisEngineProcessException
     {
-        if (process == null) {
-            try {
+        try {
+            File executableFile = runtimeProvider.getFile("rft-annotate");
+
+            List<String> cmd = new ArrayList<>();
+            cmd.add(executableFile.getAbsolutePath());
+            cmd.add("-q"); // quiet mode
+            cmd.add(modelProvider.getResource().getAbsolutePath());
+
+            // If the model changed, e.g. because the document language changed, the tagger
+            // needs to be restarted with the new model.
+            if (session != null && !session.isCompatible(cmd, getEncoding())) {
+                stopTagger();
+            }
+
+            if (session == null) {
                 PlatformDetector pd = new PlatformDetector();
                 String platform = pd.getPlatformId();
                 getLogger().info("Load binary for platform: [" + platform + "]");
 
-                File executableFile = runtimeProvider.getFile("rft-annotate");
-
-                List<String> cmd = new ArrayList<>();
-                cmd.add(executableFile.getAbsolutePath());
-                cmd.add("-q"); // quiet mode
-                cmd.add(modelProvider.getResource().getAbsolutePath());
-                ProcessBuilder pb = new ProcessBuilder();
-                pb.redirectError(Redirect.INHERIT);
-                pb.command(cmd);
-                process = pb.start();
-
-                writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(),
-                        getEncoding()));
-                reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
-                        getEncoding()));
-            }
-            catch (Exception e) {
-                throw new AnalysisEngineProcessException(e);
+                // the tagger waits of an empty line to mark end of sequence before it
+                // starts tagging. Each token is answered with "token<TAB>tag" - anything else
+                // means the process is broken and the session restarts it.
+                session = new ExternalToolSession(cmd, getEncoding(),
+                        ExternalToolProtocol.linePerRecord("", "")
+                                .withResponseValidator(line -> line.indexOf('\t') != -1),
+                        processPoolSize, processTimeout);
             }
         }
+        catch (Exception e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    private void stopTagger()
+    {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
     }
 
     private String getEncoding()
@@ -250,17 +271,29 @@ public class RfTagger
         configure(aJCas);
         ensureTaggerRunning();
 
-        try {
-            for (Sentence sentence : JCasUtil.select(aJCas, Sentence.class)) {
-                StringBuilder sb = new StringBuilder();
-                List<Token> tokens = JCasUtil.selectCovered(aJCas, Token.class,
-                        sentence.getBegin(), sentence.getEnd());
-                for (Token token : tokens) {
-                    sb.append(token.getCoveredText() + "\n");
-                }
+        List<List<Token>> sentenceTokens = new ArrayList<>();
+        List<List<String>> sentenceTexts = new ArrayList<>();
+        for (Sentence sentence : JCasUtil.select(aJCas, Sentence.class)) {
+            List<Token> tokens = JCasUtil.selectCovered(aJCas, Token.class,
+                    sentence.getBegin(), sentence.getEnd());
 
-                writeInput(sb);
-                annotateOutput(readOutput(), aJCas, tokens);
+            // Skip empty sentences
+            if (tokens.isEmpty()) {
+                continue;
+            }
+
+            List<String> texts = new ArrayList<>(tokens.size());
+            for (Token token : tokens) {
+                texts.add(token.getCoveredText());
+            }
+            sentenceTokens.add(tokens);
+            sentenceTexts.add(texts);
+        }
+
+        try {
+            List<List<List<String>>> output = session.process(sentenceTexts);
+            for (int i = 0; i < sentenceTokens.size(); i++) {
+                annotateOutput(output.get(i), aJCas, sentenceTokens.get(i));
             }
         }
         catch (IOException e) {
@@ -276,14 +309,10 @@ public class RfTagger
         featuresParser.configure(aJCas.getCas());
     }
 
-    private void annotateOutput(List<String> readOutput, JCas aJCas, List<Token> tokens)
+    private void annotateOutput(List<List<String>> aOutput, JCas aJCas, List<Token> tokens)
     {
-        for (int i = 0; i < readOutput.size(); i++) {
-            String line = readOutput.get(i);
-            if (line.isEmpty()) {
-                // end of sequence
-                continue;
-            }
+        for (int i = 0; i < aOutput.size(); i++) {
+            String line = aOutput.get(i).get(0);
 
             String[] split = line.split("\t");
 
@@ -314,41 +343,18 @@ public class RfTagger
         return string.substring(0, idx);
     }
 
-    private List<String> readOutput()
-        throws IOException
-    {
-        List<String> readLines = new ArrayList<>();
-
-        String line = null;
-        while ((line = reader.readLine()) != null) {
-            readLines.add(line);
-            if (!reader.ready()) {
-                break;
-            }
-        }
-
-        return readLines;
-    }
-
-    private void writeInput(StringBuilder sb)
-        throws IOException
+    @Override
+    public void collectionProcessComplete()
+        throws AnalysisEngineProcessException
     {
-        // the tagger waits of an empty line to mark end of sequence before it
-        // starts tagging
-        sb.append("\n");
-        sb.append("\n");
-
-        writer.write(sb.toString());
-        writer.flush();
+        stopTagger();
+        super.collectionProcessComplete();
     }
 
     @Override
-    public void collectionProcessComplete()
-        throws AnalysisEngineProcessException
+    public void destroy()
     {
-        closeQuietly(writer);
-        closeQuietly(reader);
-        process.destroy();
-        process = null;
+        stopTagger();
+        super.destroy();
     }
 }
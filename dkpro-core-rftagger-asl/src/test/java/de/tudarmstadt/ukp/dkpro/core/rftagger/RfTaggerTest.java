@@ -23,12 +23,17 @@ import static de.tudarmstadt.ukp.dkpro.core.testing.AssertAnnotations.assertTags
 import static de.tudarmstadt.ukp.dkpro.core.testing.AssertAnnotations.assertTagsetParser;
 import static de.tudarmstadt.ukp.dkpro.core.testing.AssertAnnotations.assertToken;
 import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
 import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.jcas.JCas;
@@ -2375,6 +2380,42 @@ public class RfTaggerTest
         // assertTagsetParser(MorphologicalFeatures.class, "snk-rftagger", unmappedTags, jcas);
     }    
     
+    @Test
+    public void testGermanProcessPool()
+        throws Exception
+    {
+        String text = "Der Arzt arbeitet im Krankenhaus .\nDie Katze schläft .\n"
+                + "Er liest ein Buch .";
+
+        List<String> expected = tagsOf(TestRunner.runTest(
+                createEngine(RfTagger.class), "de", text));
+
+        AnalysisEngine engine = createEngine(RfTagger.class,
+                RfTagger.PARAM_PROCESS_POOL_SIZE, 2);
+        try {
+            // Run several documents through the same engine to reuse the pooled processes
+            for (int n = 0; n < 3; n++) {
+                assertEquals(expected, tagsOf(TestRunner.runTest(engine, "de", text)));
+            }
+        }
+        finally {
+            engine.collectionProcessComplete();
+            engine.destroy();
+        }
+    }
+
+    private List<String> tagsOf(JCas aJCas)
+    {
+        List<String> tags = new ArrayList<>();
+        for (MorphologicalFeatures morph : select(aJCas, MorphologicalFeatures.class)) {
+            tags.add(morph.getBegin() + "-" + morph.getEnd() + " " + morph.getValue());
+        }
+        for (POS pos : select(aJCas, POS.class)) {
+            tags.add(pos.getBegin() + "-" + pos.getEnd() + " " + pos.getPosValue());
+        }
+        return tags;
+    }
+
     private JCas runTest(String aLanguage, String aVariant, String aText)
         throws Exception
     {
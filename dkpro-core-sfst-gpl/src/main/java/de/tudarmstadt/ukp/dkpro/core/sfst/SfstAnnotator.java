@@ -21,16 +21,13 @@ package de.tudarmstadt.ukp.dkpro.core.sfst;
 import static org.apache.uima.fit.util.JCasUtil.select;
 import static org.apache.uima.fit.util.JCasUtil.selectCovered;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.lang.ProcessBuilder.Redirect;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 
@@ -47,6 +44,8 @@ import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.morph.MorphologicalFeaturesPar
 import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.morph.MorphologicalFeatures;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.SingletonTagset;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.ExternalToolProtocol;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.ExternalToolSession;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.LittleEndianDataInputStream;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ModelProviderBase;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ResourceUtils;
@@ -135,9 +134,30 @@ public class SfstAnnotator
     @ConfigurationParameter(name = PARAM_MORPH_MAPPING_LOCATION, mandatory = false)
     private String morphMappingLocation;
 
+    /**
+     * Number of {@code fst-infl2} processes to keep running. The sentences of a document are
+     * distributed over these processes.
+     *
+     * Default: {@code 1}
+     */
+    public static final String PARAM_PROCESS_POOL_SIZE = "processPoolSize";
+    @ConfigurationParameter(name = PARAM_PROCESS_POOL_SIZE, mandatory = true, defaultValue = "1")
+    private int processPoolSize;
+
+    /**
+     * Maximum time in milliseconds a {@code fst-infl2} process may take to analyze a sentence
+     * before it is killed and restarted. If set to {@code 0}, no timeout is enforced.
+     *
+     * Default: {@code 0}
+     */
+    public static final String PARAM_PROCESS_TIMEOUT = "processTimeout";
+    @ConfigurationParameter(name = PARAM_PROCESS_TIMEOUT, mandatory = true, defaultValue = "0")
+    private long processTimeout;
+
     private ModelProviderBase<File> modelProvider;
     private MorphologicalFeaturesParser featuresParser;
     private RuntimeProvider runtimeProvider;
+    private ExternalToolSession session;
     
     @Override
     public void initialize(UimaContext aContext)
@@ -228,113 +248,115 @@ public class SfstAnnotator
             throw new AnalysisEngineProcessException(e);
         }
 
-        ProcessBuilder pb = new ProcessBuilder(executable.getAbsolutePath(), "-s", "-q",
+        List<String> cmd = Arrays.asList(executable.getAbsolutePath(), "-s", "-q",
                 model.getAbsolutePath());
-        pb.redirectError(Redirect.INHERIT);
-
-        StringBuffer lastOut = new StringBuffer();
-        String lastIn = null;
-        boolean success = false;
-        Process proc = null;
-        try {
-            proc = pb.start();
 
-            PrintWriter out = new PrintWriter(new OutputStreamWriter(proc.getOutputStream(),
-                    modelEncoding));
-            BufferedReader in = new BufferedReader(new InputStreamReader(proc.getInputStream(),
-                    modelEncoding));
+        List<List<Token>> sentenceTokens = new ArrayList<>();
+        List<List<String>> sentenceTexts = new ArrayList<>();
+        for (Sentence sentence : select(aJCas, Sentence.class)) {
+            List<Token> tokens = selectCovered(Token.class, sentence);
 
-            for (Sentence sentence : select(aJCas, Sentence.class)) {
-                List<Token> tokens = selectCovered(Token.class, sentence);
+            // Skip empty sentences
+            if (tokens.isEmpty()) {
+                continue;
+            }
 
-                // Skip empty sentences
-                if (tokens.isEmpty()) {
-                    continue;
-                }
+            List<String> texts = new ArrayList<>(tokens.size());
+            for (Token token : tokens) {
+                texts.add(token.getCoveredText());
+            }
+            sentenceTokens.add(tokens);
+            sentenceTexts.add(texts);
+        }
 
-                // Send full sentence
-                for (Token token : tokens) {
-                    lastOut.append(token.getCoveredText()).append(' ');
-                    out.printf("%s%n", token.getCoveredText());
-                    out.printf("%s%n", FLUSH_TOKEN);
-                }
-                out.flush();
-
-                // Read sentence tags
-                tokenLoop: for (Token token : tokens) {
-                    boolean skip = false;
-                    analysisLoop: while ((lastIn = in.readLine()) != null) {
-                        // Analysis line
-                        if (lastIn.startsWith(">")) {
-                            // Echo line, ignore.
-                            continue analysisLoop;
-                        }
-                        
-                        if (lastIn.contains(FLUSH_TOKEN)) {
-                            // End of analysis
-                            continue tokenLoop;
-                        }
-                        
-                        if (lastIn.startsWith("no result for")) {
-                            // No analysis for this token
-                            MorphologicalFeatures morph = new MorphologicalFeatures(aJCas,
-                                    token.getBegin(), token.getEnd());
-                            morph.setValue("");
-                            morph.addToIndexes();
-                            
-                            if (token.getMorph() == null) {
-                                token.setMorph(morph);
-                            }
-                            
-                            // We need to continue the inner loop because we still need to consume
-                            // the flush marker.
-                            continue analysisLoop;
-                        }
-                        
-                        // Analysis line
-                        if (!skip) {
-                            MorphologicalFeatures morph = featuresParser
-                                    .parse(aJCas, token, lastIn);
-                            
-                            if (token.getMorph() == null) {
-                                token.setMorph(morph);
-                            }
-                        }
-                            
-                        switch (mode) {
-                        case FIRST:
-                            // Go to next token after reading first analysis
-                            skip = true;
-                            break;
-                        case ALL:
-                            // We record all analyses
-                            break;
-                        }
-                    }
-                }
+        List<List<List<String>>> output;
+        try {
+            // The model may change between documents, e.g. if the document language changes.
+            if (session != null && !session.isCompatible(cmd, modelEncoding)) {
+                stopAnalyzer();
+            }
 
-                lastOut.setLength(0);
+            if (session == null) {
+                // A flush token is sent after every token. Its (non-)analysis marks the end of
+                // the analyses for the token. Lines starting with ">" echo the input.
+                session = new ExternalToolSession(cmd, modelEncoding,
+                        ExternalToolProtocol.delimitedRecords(FLUSH_TOKEN, ">"),
+                        processPoolSize, processTimeout);
             }
 
-            success = true;
+            output = session.process(sentenceTexts);
         }
         catch (IOException e) {
             throw new AnalysisEngineProcessException(e);
         }
-        finally {
-            if (!success) {
-                getLogger().error("Sent before error: [" + lastOut + "]");
-                getLogger().error("Last response before error: [" + lastIn + "]");
+
+        for (int s = 0; s < sentenceTokens.size(); s++) {
+            List<Token> tokens = sentenceTokens.get(s);
+            for (int t = 0; t < tokens.size(); t++) {
+                annotateToken(aJCas, tokens.get(t), output.get(s).get(t));
+            }
+        }
+    }
+
+    private void annotateToken(JCas aJCas, Token aToken, List<String> aAnalyses)
+    {
+        boolean skip = false;
+        for (String analysis : aAnalyses) {
+            if (analysis.startsWith("no result for")) {
+                // No analysis for this token
+                MorphologicalFeatures morph = new MorphologicalFeatures(aJCas,
+                        aToken.getBegin(), aToken.getEnd());
+                morph.setValue("");
+                morph.addToIndexes();
+
+                if (aToken.getMorph() == null) {
+                    aToken.setMorph(morph);
+                }
+
+                continue;
             }
-            if (proc != null) {
-                proc.destroy();
+
+            // Analysis line
+            if (!skip) {
+                MorphologicalFeatures morph = featuresParser.parse(aJCas, aToken, analysis);
+
+                if (aToken.getMorph() == null) {
+                    aToken.setMorph(morph);
+                }
             }
+
+            switch (mode) {
+            case FIRST:
+                // Go to next token after reading first analysis
+                skip = true;
+                break;
+            case ALL:
+                // We record all analyses
+                break;
+            }
+        }
+    }
+
+    private void stopAnalyzer()
+    {
+        if (session != null) {
+            session.close();
+            session = null;
         }
     }
 
+    @Override
+    public void collectionProcessComplete()
+        throws AnalysisEngineProcessException
+    {
+        stopAnalyzer();
+        super.collectionProcessComplete();
+    }
+
     @Override
     public void destroy()
     {
+        stopAnalyzer();
         runtimeProvider.uninstall();
         super.destroy();
     }
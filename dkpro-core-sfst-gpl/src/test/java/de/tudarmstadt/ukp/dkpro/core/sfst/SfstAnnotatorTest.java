@@ -21,6 +21,10 @@ package de.tudarmstadt.ukp.dkpro.core.sfst;
 import static de.tudarmstadt.ukp.dkpro.core.testing.AssertAnnotations.*;
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
 import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.jcas.JCas;
@@ -391,6 +395,39 @@ public class SfstAnnotatorTest
         assertTagsetParser(MorphologicalFeatures.class, "pippi", unmappedTags, jcas);
     }
 
+    @Test
+    public void testGermanSmorProcessPool()
+        throws Exception
+    {
+        String text = "Der Arzt arbeitet im Krankenhaus .\nDie Katze schläft .";
+
+        List<String> expected = analysesOf(runTest("de", "smor-ca", text));
+
+        AnalysisEngine engine = createEngine(SfstAnnotator.class,
+                SfstAnnotator.PARAM_VARIANT, "smor-ca",
+                SfstAnnotator.PARAM_MODE, SfstAnnotator.Mode.ALL,
+                SfstAnnotator.PARAM_PROCESS_POOL_SIZE, 2);
+        try {
+            // Run several documents through the same engine to reuse the pooled processes
+            for (int n = 0; n < 3; n++) {
+                assertEquals(expected, analysesOf(TestRunner.runTest(engine, "de", text)));
+            }
+        }
+        finally {
+            engine.collectionProcessComplete();
+            engine.destroy();
+        }
+    }
+
+    private List<String> analysesOf(JCas aJCas)
+    {
+        List<String> analyses = new ArrayList<>();
+        for (MorphologicalFeatures morph : select(aJCas, MorphologicalFeatures.class)) {
+            analyses.add(morph.getBegin() + "-" + morph.getEnd() + " " + morph.getValue());
+        }
+        return analyses;
+    }
+
     private JCas runTest(String language, String variant, String testDocument)
         throws Exception
     {
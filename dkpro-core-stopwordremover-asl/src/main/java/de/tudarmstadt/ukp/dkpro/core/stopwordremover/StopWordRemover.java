@@ -49,8 +49,8 @@ import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.Logger;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
 import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
-import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathInfo;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.StopWord;
@@ -100,6 +100,8 @@ public class StopWordRemover
 	@ConfigurationParameter(name = PARAM_PATHS, mandatory = false)
 	private Set<String> paths;
 
+	private Map<String, CompiledFeaturePath> compiledPaths = new HashMap<String, CompiledFeaturePath>();
+
 	/**
 	 * Anything annotated with this type will be removed even if it does not match any word in the
 	 * lists.
@@ -203,7 +205,6 @@ public class StopWordRemover
 		StopWordSet casLocaleSet = stopWordSets.get(aJCas.getDocumentLanguage());
 
 		// Now really to the removal part
-		FeaturePathInfo fp = new FeaturePathInfo();
 		for (String path : paths) {
 			// Create a sorted list of annotations that we can quickly search on
 			AnnotationFS[] candidates = getCandidates(aJCas);
@@ -211,23 +212,14 @@ public class StopWordRemover
 			// Initialize list of annotations to remove
 			List<AnnotationFS> toRemove = new ArrayList<AnnotationFS>();
 
-			// Separate Typename and featurepath
-			String[] segments = path.split("/", 2);
+			// Resolve the feature path - this is only done again if the type system changes
+			CompiledFeaturePath fp = CompiledFeaturePath.compile(aJCas.getTypeSystem(), path,
+					compiledPaths.get(path));
+			compiledPaths.put(path, fp);
 
-			String typeName = segments[0];
+			Type t = fp.getType();
+			String typeName = t.getName();
 			boolean isStopWordType = stopWordType.equals(typeName);
-			Type t = aJCas.getTypeSystem().getType(typeName);
-			if (t == null) {
-				throw new IllegalStateException("Type [" + typeName + "] not found in type system");
-			}
-
-			// initialize the FeaturePathInfo with the corresponding part
-			if (segments.length > 1) {
-				fp.initialize(segments[1]);
-			}
-			else {
-				fp.initialize("");
-			}
 
 			int safeStart = 0;
 			Iterator<Annotation> i = aJCas.getAnnotationIndex(t).iterator();
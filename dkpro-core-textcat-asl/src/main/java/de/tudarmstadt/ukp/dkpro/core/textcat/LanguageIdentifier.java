@@ -20,9 +20,12 @@ package de.tudarmstadt.ukp.dkpro.core.textcat;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
 import org.knallgrau.utils.textcat.TextCategorizer;
 
 /**
@@ -34,6 +37,9 @@ import org.knallgrau.utils.textcat.TextCategorizer;
  * <li>Cavnar, W. B. and J. M. Trenkle (1994). N-Gram-Based Text Categorization. 
  * In Proceedings of Third Annual Symposium on Document Analysis and Information Retrieval, 
  * Las Vegas, NV, UNLV Publications/Reprographics, pp. 161-175, 11-13 April 1994.</li></ul>
+ * 
+ * <p>By default, the whole document text is analysed. For long documents, it is usually sufficient
+ * to analyse a sample of the text which can be enabled using {@link #PARAM_SAMPLE_LENGTH}.</p>
  */
 public class LanguageIdentifier
 	extends JCasAnnotator_ImplBase
@@ -57,16 +63,122 @@ public class LanguageIdentifier
 		langName2ISO.put("hungarian", "hu");
 	}
 
+	/**
+	 * Analyse at most this many characters of a document. If set to 0, the whole document text is
+	 * analysed.
+	 */
+	public static final String PARAM_SAMPLE_LENGTH = "sampleLength";
+	@ConfigurationParameter(name = PARAM_SAMPLE_LENGTH, mandatory = true, defaultValue = "0")
+	private int sampleLength;
+
+	/**
+	 * The number of windows the sample is taken from. The windows are spaced evenly over the
+	 * document text, the first one starting at the beginning of the text. If set to 1, the sample
+	 * is a prefix of the text.
+	 */
+	public static final String PARAM_SAMPLE_WINDOWS = "sampleWindows";
+	@ConfigurationParameter(name = PARAM_SAMPLE_WINDOWS, mandatory = true, defaultValue = "1")
+	private int sampleWindows;
+
+	/**
+	 * The length of the sample analysed first. The sample length is doubled until the identified
+	 * language is stable or the maximum sample length is reached. If set to 0, the sample is
+	 * analysed in one step.
+	 */
+	public static final String PARAM_MIN_SAMPLE_LENGTH = "minSampleLength";
+	@ConfigurationParameter(name = PARAM_MIN_SAMPLE_LENGTH, mandatory = true, defaultValue = "1000")
+	private int minSampleLength;
+
+	/**
+	 * The number of consecutive sample lengths which need to yield the same language before the
+	 * language is considered stable.
+	 */
+	public static final String PARAM_STABLE_STEPS = "stableSteps";
+	@ConfigurationParameter(name = PARAM_STABLE_STEPS, mandatory = true, defaultValue = "2")
+	private int stableSteps;
+
 	private final TextCategorizer categorizer = new TextCategorizer();
 
+	private final StringBuilder sampleBuffer = new StringBuilder();
+
+	@Override
+	public void initialize(UimaContext aContext)
+		throws ResourceInitializationException
+	{
+		super.initialize(aContext);
+
+		if (sampleLength < 0 || minSampleLength < 0) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"Sample lengths must not be negative"));
+		}
+		if (sampleWindows < 1) {
+			throw new ResourceInitializationException(new IllegalArgumentException(
+					"The number of sample windows must be at least 1 but is [" + sampleWindows
+							+ "]"));
+		}
+	}
+
 	@Override
 	public void process(JCas aJCas)
 		throws AnalysisEngineProcessException
 	{
 		String docText = aJCas.getDocumentText();
 		if (docText != null) {
-			String result = categorizer.categorize(docText);
+			String result;
+			if (sampleLength > 0 && docText.length() > sampleLength) {
+				result = categorizeSample(docText);
+			}
+			else {
+				result = categorizer.categorize(docText);
+			}
 			aJCas.setDocumentLanguage(langName2ISO.get(result));
 		}
 	}
+
+	private String categorizeSample(String aText)
+	{
+		int length = sampleLength;
+		if (minSampleLength > 0 && minSampleLength < sampleLength) {
+			length = minSampleLength;
+		}
+
+		String result = null;
+		int stable = 0;
+		while (true) {
+			String current = categorizer.categorize(sample(aText, length));
+			stable = current.equals(result) ? stable + 1 : 1;
+			result = current;
+			if (stable >= stableSteps || length >= sampleLength) {
+				return result;
+			}
+			length = (int) Math.min(2L * length, sampleLength);
+		}
+	}
+
+	private String sample(String aText, int aLength)
+	{
+		int windows = Math.min(sampleWindows, aLength);
+		int windowLength = aLength / windows;
+
+		sampleBuffer.setLength(0);
+		for (int i = 0; i < windows; i++) {
+			int begin = (int) ((long) i * aText.length() / windows);
+			int end = Math.min(begin + windowLength, aText.length());
+			// Do not split surrogate pairs
+			if (begin > 0 && begin < end && Character.isLowSurrogate(aText.charAt(begin))) {
+				begin++;
+			}
+			if (end < aText.length() && end > begin
+					&& Character.isHighSurrogate(aText.charAt(end - 1))) {
+				end--;
+			}
+
+			if (i > 0) {
+				// Do not join the last word of a window with the first word of the next one
+				sampleBuffer.append(' ');
+			}
+			sampleBuffer.append(aText, begin, end);
+		}
+		return sampleBuffer.toString();
+	}
 }
@@ -51,4 +51,32 @@ class LanguageIdentifierTest
 		ae.process(aJCas);
 		assertEquals("de", aJCas.getDocumentLanguage());
 	}
+
+	@Test
+	public
+	void testSamplePrefix()
+	throws Exception
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			text.append("This is an english sentence at the start of the file. ");
+		}
+		for (int i = 0; i < 1000; i++) {
+			text.append("Das ist ein deutscher Satz am Ende des Dokuments. ");
+		}
+
+		AnalysisEngine ae = createEngine(LanguageIdentifier.class, createTypeSystemDescription());
+		JCas aJCas = ae.newJCas();
+		aJCas.setDocumentText(text.toString());
+		ae.process(aJCas);
+		assertEquals("de", aJCas.getDocumentLanguage());
+
+		ae = createEngine(LanguageIdentifier.class, createTypeSystemDescription(),
+				LanguageIdentifier.PARAM_SAMPLE_LENGTH, 4000,
+				LanguageIdentifier.PARAM_MIN_SAMPLE_LENGTH, 500);
+		aJCas = ae.newJCas();
+		aJCas.setDocumentText(text.toString());
+		ae.process(aJCas);
+		assertEquals("en", aJCas.getDocumentLanguage());
+	}
 }
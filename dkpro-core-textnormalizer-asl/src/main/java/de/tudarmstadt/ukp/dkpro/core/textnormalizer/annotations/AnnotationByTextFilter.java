@@ -21,20 +21,20 @@ package de.tudarmstadt.ukp.dkpro.core.textnormalizer.annotations;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
+import de.tudarmstadt.ukp.dkpro.core.api.featurepath.CompiledFeaturePath;
 import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathException;
-import de.tudarmstadt.ukp.dkpro.core.api.featurepath.FeaturePathFactory;
 import de.tudarmstadt.ukp.dkpro.core.api.parameter.ComponentParameters;
 
 /**
@@ -71,6 +71,8 @@ public class AnnotationByTextFilter
     @ConfigurationParameter(name = PARAM_TYPE_NAME, mandatory = true, defaultValue = "de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token")
     private String typeName;
 
+    private CompiledFeaturePath featurePath;
+
     @Override
     public void initialize(UimaContext context)
         throws ResourceInitializationException
@@ -98,20 +100,27 @@ public class AnnotationByTextFilter
     public void process(JCas aJCas)
         throws AnalysisEngineProcessException
     {
-        Set<AnnotationFS> toRemove = new HashSet<>();
+        CAS cas = aJCas.getCas();
         try {
-            for (Entry<AnnotationFS, String> entry : FeaturePathFactory.select(aJCas.getCas(),
-                    typeName)) {
-                String text = ignoreCase ? entry.getValue().toLowerCase() : entry.getValue();
-                if (!words.contains(text)) {
-                    toRemove.add(entry.getKey());
-                }
-            }
+            featurePath = CompiledFeaturePath.compile(cas.getTypeSystem(), typeName, featurePath);
         }
         catch (FeaturePathException e) {
             throw new AnalysisEngineProcessException(e);
         }
 
+        int size = cas.getAnnotationIndex(featurePath.getType()).size();
+        String[] values = new String[size];
+        AnnotationFS[] annotations = new AnnotationFS[size];
+        featurePath.extract(cas, featurePath.getType(), values, annotations);
+
+        Set<AnnotationFS> toRemove = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            String text = ignoreCase ? values[i].toLowerCase() : values[i];
+            if (!words.contains(text)) {
+                toRemove.add(annotations[i]);
+            }
+        }
+
         for (AnnotationFS annotation : toRemove) {
             aJCas.removeFsFromIndexes(annotation);
         }
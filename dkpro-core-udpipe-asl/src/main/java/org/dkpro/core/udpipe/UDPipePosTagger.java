@@ -23,7 +23,9 @@ import static org.apache.uima.fit.util.JCasUtil.select;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.uima.UimaContext;
@@ -45,6 +47,7 @@ import de.tudarmstadt.ukp.dkpro.core.api.resources.MappingProvider;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.MappingProviderFactory;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ModelProviderBase;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ResourceUtils;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.SentenceParallelExecutor;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 
@@ -104,8 +107,20 @@ public class UDPipePosTagger
     @ConfigurationParameter(name = PARAM_INTERN_TAGS, mandatory = false, defaultValue = "true")
     private boolean internTags;
 
+    /**
+     * Number of sentences to tag in parallel. All threads share the same model. Set to
+     * {@link ComponentParameters#AUTO_NUM_THREADS} to use one thread per available processor.
+     *
+     * Default: {@code 1}
+     */
+    public static final String PARAM_NUM_THREADS = ComponentParameters.PARAM_NUM_THREADS;
+    @ConfigurationParameter(name = PARAM_NUM_THREADS, mandatory = true, defaultValue = "1")
+    private int numThreads;
+
     private ModelProviderBase<Model> modelProvider;
     private MappingProvider mappingProvider;
+    private SentenceParallelExecutor<cz.cuni.mff.ufal.udpipe.Sentence,
+            cz.cuni.mff.ufal.udpipe.Sentence> executor;
 
     @Override
     public void initialize(UimaContext aContext)
@@ -113,6 +128,9 @@ public class UDPipePosTagger
     {
         super.initialize(aContext);
 
+        numThreads = ComponentParameters.computeNumThreads(numThreads);
+        executor = new SentenceParallelExecutor<>(numThreads);
+
         modelProvider = new ModelProviderBase<Model>()
         {
             {
@@ -154,21 +172,40 @@ public class UDPipePosTagger
         // model metadata
         mappingProvider.configure(cas);
         
+        // Extract the input of all sentences first, then tag them in parallel and add the
+        // results to the CAS in order
         Map<Sentence, Collection<Token>> index = indexCovered(aJCas, Sentence.class, Token.class);
+        List<Collection<Token>> sentenceTokens = new ArrayList<>();
+        List<cz.cuni.mff.ufal.udpipe.Sentence> udSents = new ArrayList<>();
         for (Sentence sentence : select(aJCas, Sentence.class)) {
             Collection<Token> tokens = index.get(sentence);
             
             cz.cuni.mff.ufal.udpipe.Sentence udSent = new cz.cuni.mff.ufal.udpipe.Sentence();
             DKPro2UDPipe.convert(tokens, udSent);
             
+            sentenceTokens.add(tokens);
+            udSents.add(udSent);
+        }
+        
+        Model model = modelProvider.getResource();
+        executor.process(udSents, udSent -> {
             ProcessingError error = new ProcessingError();
-            modelProvider.getResource().tag(udSent, Model.getDEFAULT(), error);
+            model.tag(udSent, Model.getDEFAULT(), error);
             if (error.occurred()) {
-                throw new AnalysisEngineProcessException(
-                        new IllegalStateException(error.getMessage()));
+                throw new IllegalStateException(error.getMessage());
             }
+            return udSent;
+        }, (i, udSent) -> UDPipe2DKPro.convertPosLemmaMorph(udSent, sentenceTokens.get(i),
+                aJCas, mappingProvider, internTags));
+    }
 
-            UDPipe2DKPro.convertPosLemmaMorph(udSent, tokens, aJCas, mappingProvider, internTags);
+    @Override
+    public void destroy()
+    {
+        if (executor != null) {
+            executor.close();
         }
+        
+        super.destroy();
     }
 }